@@ -1,13 +1,15 @@
 package base;
 
-import java.util.HashSet;
+import utils.FrequencyVector;
+
 import java.util.Map;
-import java.util.Set;
 
 public class Compatibility {
     private double alpha;
     private boolean adaptiveAlpha;
     private boolean sameSupportCheck = true;
+    // whether frequencies of incomplete answers may already be found incompatible
+    private boolean sequential = false;
 
     public Compatibility() {
         super();
@@ -21,48 +23,152 @@ public class Compatibility {
         this.sameSupportCheck = sameSupportCheck;
     }
 
+    /**
+     * @param sequential whether comparisons of incomplete frequencies may conclude early that
+     *                   they are incompatible, see {@link #separated(Map, Map)}
+     */
+    public Compatibility(double alpha, boolean adaptiveAlpha, boolean sameSupportCheck, boolean sequential) {
+        this(alpha, adaptiveAlpha, sameSupportCheck);
+        this.sequential = sequential;
+    }
+
     public boolean compatible(Map<?, Integer> entries1, Map<?, Integer> entries2) {
+        if (entries1 instanceof FrequencyVector && entries2 instanceof FrequencyVector
+                && ((FrequencyVector<?>) entries1).sharesTable((FrequencyVector<?>) entries2))
+            return compatible((FrequencyVector<?>) entries1, (FrequencyVector<?>) entries2);
         if(entries1.isEmpty() || entries2.isEmpty()) // need to have this
             return true;
         if(sameSupportCheck && !sameSupport(entries1,entries2))
             return false;
-        Set<Object> allKeys = new HashSet<>(entries1.keySet());
-        allKeys.addAll(entries2.keySet());
         int n1 = computeTotalEntries(entries1);
         int n2 = computeTotalEntries(entries2);
         double eps1 = epsilon(alpha,n1);
         double eps2 = epsilon(alpha,n2);
 
-        for(Object key : allKeys){
-            Integer entry1 = entries1.get(key);
-            Integer entry2 = entries2.get(key);
-            if(entry1 == null)
-                entry1 = 0;
-            if(entry2 == null)
-                entry2 = 0;
-            if(!checkSingle(entry1,entry2,n1,n2,eps1,eps2))
+        for(Map.Entry<?, Integer> entry1 : entries1.entrySet()){
+            Integer entry2 = entries2.get(entry1.getKey());
+            if(!checkSingle(entry1.getValue(),entry2 == null ? 0 : entry2,n1,n2,eps1,eps2))
+                return false;
+        }
+        for(Map.Entry<?, Integer> entry2 : entries2.entrySet()){
+            if(!entries1.containsKey(entry2.getKey()) && !checkSingle(0,entry2.getValue(),n1,n2,eps1,eps2))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Same check as {@link #compatible(Map, Map)} on the counts of two vectors, without boxing
+     * or hashing if they count the symbols of the same table.
+     */
+    public boolean compatible(FrequencyVector<?> entries1, FrequencyVector<?> entries2) {
+        if(entries1.isEmpty() || entries2.isEmpty()) // need to have this
+            return true;
+        if(!entries1.sharesTable(entries2))
+            return compatible((Map<?, Integer>) entries1, (Map<?, Integer>) entries2);
+        int n1 = entries1.getTotal();
+        int n2 = entries2.getTotal();
+        int bound = entries1.idBound(entries2);
+        if(sameSupportCheck) {
+            for (int id = 0; id < bound; id++) {
+                if ((entries1.count(id) == 0) != (entries2.count(id) == 0))
+                    return false;
+            }
+        }
+        double eps1 = epsilon(alpha,n1);
+        double eps2 = epsilon(alpha,n2);
+
+        for (int id = 0; id < bound; id++) {
+            int entry1 = entries1.count(id);
+            int entry2 = entries2.count(id);
+            if ((entry1 != 0 || entry2 != 0) && !checkSingle(entry1,entry2,n1,n2,eps1,eps2))
                 return false;
         }
         return true;
     }
 
+    /**
+     * Outcome of {@link #compatible(Map, Map)} for frequencies that match the given output
+     * distributions exactly, as if <code>n</code> outputs had been drawn from each of them.
+     * This is the Hoeffding test without sampling noise: two distributions are compatible if
+     * they have the same support (if checked) and no probability differs by
+     * <code>2 * epsilon(alpha, n)</code> or more. Like empty frequencies, an empty distribution
+     * is compatible with any other distribution.
+     */
+    public boolean compatibleDistributions(Map<?, Double> dist1, Map<?, Double> dist2, int n) {
+        if(dist1.isEmpty() || dist2.isEmpty())
+            return true;
+        double eps = epsilon(alpha,n);
+        for(Map.Entry<?, Double> entry1 : dist1.entrySet()){
+            Double entry2 = dist2.get(entry1.getKey());
+            if(!checkSingleProbability(entry1.getValue(),entry2 == null ? 0.0 : entry2,eps))
+                return false;
+        }
+        for(Map.Entry<?, Double> entry2 : dist2.entrySet()){
+            if(!dist1.containsKey(entry2.getKey()) && !checkSingleProbability(0.0,entry2.getValue(),eps))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Sequential test whether frequencies that are still being sampled are already
+     * incompatible. Unlike {@link #compatible(Map, Map)}, it may be repeated after every new
+     * output: the Hoeffding bound of <code>m</code> outputs is taken at
+     * <code>alpha / (m * (m + 1))</code>, and these levels sum up to <code>alpha</code> over all
+     * <code>m</code>, so the test wrongly separates two samples of the same distribution with a
+     * probability of at most <code>alpha</code> per sample, no matter when it stops. Outputs
+     * that have not been observed yet do not separate the samples.
+     *
+     * @return false if sequential comparisons are disabled or the frequencies may still turn out
+     * to be compatible
+     */
+    public boolean separated(Map<?, Integer> entries1, Map<?, Integer> entries2) {
+        if(!sequential || entries1.isEmpty() || entries2.isEmpty())
+            return false;
+        int n1 = computeTotalEntries(entries1);
+        int n2 = computeTotalEntries(entries2);
+        double eps1 = anytimeEpsilon(n1);
+        double eps2 = anytimeEpsilon(n2);
+        for(Map.Entry<?, Integer> entry1 : entries1.entrySet()){
+            Integer entry2 = entries2.get(entry1.getKey());
+            if(!checkSingle(entry1.getValue(),entry2 == null ? 0 : entry2,n1,n2,eps1,eps2))
+                return true;
+        }
+        for(Map.Entry<?, Integer> entry2 : entries2.entrySet()){
+            if(!entries1.containsKey(entry2.getKey()) && !checkSingle(0,entry2.getValue(),n1,n2,eps1,eps2))
+                return true;
+        }
+        return false;
+    }
+
+    private double anytimeEpsilon(int m) {
+        return epsilon(alpha / ((double) m * (m + 1)), m);
+    }
+
+    private boolean checkSingleProbability(double p1, double p2, double eps) {
+        if(sameSupportCheck && (p1 > 0) != (p2 > 0))
+            return false;
+        return Math.abs(p1 - p2) < 2 * eps;
+    }
+
     private boolean sameSupport(Map<?, Integer> entries1, Map<?, Integer> entries2) {
+        if (entries1.size() != entries2.size())
+            return false;
         for(Object e1 : entries1.keySet()){
             if(!entries2.containsKey(e1))
                 return false;
         }
-        for(Object e2 : entries2.keySet()){
-            if(!entries1.containsKey(e2))
-                return false;
-        }
         return true;
     }
 
-    private boolean checkSingle(Integer entry1, Integer entry2, int n1, int n2, double eps1, double eps2) {
+    private boolean checkSingle(int entry1, int entry2, int n1, int n2, double eps1, double eps2) {
         return Math.abs((double)entry1/n1 - (double)entry2/n2) < eps1 + eps2;
     }
 
     private int computeTotalEntries(Map<?, Integer> entries) {
+        if (entries instanceof FrequencyVector)
+            return ((FrequencyVector<?>) entries).getTotal();
         int total = 0;
         for(Integer v : entries.values())
             total+= v;
@@ -75,7 +181,7 @@ public class Compatibility {
 
     public String description() {
         return "hoeffding(alpha="+alpha +", same-support-check=" + sameSupportCheck + ", adaptive-alpha=" +
-                adaptiveAlpha+")";
+                adaptiveAlpha + (sequential ? ", sequential=true" : "") + ")";
     }
 
     public void updateNrTests(int nrTests) {
@@ -83,7 +189,15 @@ public class Compatibility {
             alpha = 1.0 / Math.pow(nrTests,2.1);
     }
 
+    public double getAlpha() {
+        return alpha;
+    }
+
     public boolean isAdaptive() {
         return adaptiveAlpha;
     }
+
+    public boolean isSequential() {
+        return sequential;
+    }
 }
@@ -4,9 +4,10 @@ import base.Compatibility;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.apache.commons.lang3.tuple.Triple;
 import trace.TimedOutput;
 import utils.FastImmPair;
+import utils.FrequencyVector;
+import utils.SymbolTable;
 
 import java.util.*;
 
@@ -14,36 +15,44 @@ import java.util.*;
 @NoArgsConstructor
 @AllArgsConstructor
 public class Answer {
+    /**
+     * Table of the frequencies of answers without outputs, e.g. placeholders of table cells.
+     * Answers with outputs count them in the table of the observation tree they are taken from,
+     * which is not shared by concurrent learners. No output is counted in this table.
+     */
+    private static final SymbolTable<TimedOutput> NO_OUTPUTS = new SymbolTable<>();
+
     private boolean complete = false;
     private boolean valid = true;
     private List<Boolean> resets = new ArrayList<>();
-    private Map<TimedOutput, Integer> frequencies = new HashMap<>();
-
-    public Answer(Triple<List<Boolean>, Map<TimedOutput, Integer>, Boolean> outputFrequenciesAndCompleteness) {
-        this.resets = outputFrequenciesAndCompleteness.getLeft();
-        this.frequencies = outputFrequenciesAndCompleteness.getMiddle();
-        this.complete = outputFrequenciesAndCompleteness.getRight();
-    }
+    private FrequencyVector<TimedOutput> frequencies = new FrequencyVector<>(NO_OUTPUTS);
 
     @Override
     public String toString() {
         return "Answer [complete=" + complete + ", resets=" + resets + ", frequencies=" + frequencies + "]";
     }
 
+    /**
+     * @return an answer with its own resets and frequencies, which can be modified without
+     * affecting this one
+     */
+    public Answer copy() {
+        return new Answer(complete, valid, new ArrayList<>(resets), frequencies.copy());
+    }
+
     public boolean answerEqual(Answer other, Compatibility compChecker) {
 //        if (!isValid() || !other.isValid()) {
 //            return true;
 //        }
-        Set<TimedOutput> keys = new HashSet<>();
-        keys.addAll(frequencies.keySet());
-        keys.addAll(other.getFrequencies().keySet());
-        boolean differentKeySize = isComplete() ? keys.size() != frequencies.size()
-                : (other.isComplete() && keys.size() != other.frequencies.size());
+        int nrKeys = frequencies.unionSize(other.frequencies);
+        boolean differentKeySize = isComplete() ? nrKeys != frequencies.size()
+                : (other.isComplete() && nrKeys != other.frequencies.size());
         if (differentKeySize) {
             return false;
         }
         if (!isComplete() || !other.isComplete()) {
-            return true;
+            // incomplete frequencies only differ once the sequential test separates them
+            return !compChecker.separated(frequencies, other.frequencies);
         }
         if (isValid() != other.isValid()) {
             return false;
@@ -54,14 +63,14 @@ public class Answer {
     }
 
     public static Answer InvalidAnswer() {
-        return new Answer(true, false, new ArrayList<>(), new HashMap<>());
+        return new Answer(true, false, new ArrayList<>(), new FrequencyVector<>(NO_OUTPUTS));
     }
 
     public static Answer ValidAnswer() {
-        return new Answer(false, true, new ArrayList<>(), new HashMap<>());
+        return new Answer(false, true, new ArrayList<>(), new FrequencyVector<>(NO_OUTPUTS));
     }
 
-    public static Answer setValidAnswer(List<Boolean> resets, Map<TimedOutput, Integer> freq, boolean complete) {
+    public static Answer setValidAnswer(List<Boolean> resets, FrequencyVector<TimedOutput> freq, boolean complete) {
         return new Answer(complete, true, resets, freq);
     }
 }
@@ -0,0 +1,375 @@
+package base.learner;
+
+import automaton.ClockTicks;
+import automaton.Output;
+import base.teacher.Teacher;
+import trace.*;
+import utils.FastImmPair;
+import utils.FrequencyVector;
+import utils.SymbolTable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Checkpoint of a learner in the middle of learning. A checkpoint consists of two files:
+ * <ul>
+ *     <li>a snapshot of the observation tree of the teacher, stored next to the checkpoint
+ *     with the suffix <code>.tree</code>,</li>
+ *     <li>the checkpoint itself with the number of rounds, equivalence queries, the time
+ *     spent learning, the steps and tests executed on the SUL and the random sources of the
+ *     teacher, followed by the state of the learner written by the learner.</li>
+ * </ul>
+ * A resumed run reports the rounds, equivalence queries, time and SUL executions of the
+ * interrupted run in addition to its own, and the teacher continues with the random numbers
+ * it would have used. The random state of the SUL itself is not stored, the SUL is
+ * initialised with its seed as usual, so a resumed run observes different outputs than an
+ * uninterrupted one.
+ * Learners only store the traces they are built from, e.g. rows and columns, and compute
+ * everything else again from the observation tree, so resuming does not execute the SUL.
+ * Input and output symbols are written once and referred to by id afterwards. Both files are
+ * written to temporary files first and moved only once both are complete, the checkpoint
+ * itself last, so a crash while writing a checkpoint leaves the previous checkpoint intact. A
+ * crash between the two moves leaves the previous checkpoint with a newer snapshot, which
+ * only adds observations to the ones the learner state was computed from.
+ */
+public class Checkpoint {
+    private static final int MAGIC = 0x50544143;
+    private static final int VERSION = 1;
+
+    private Checkpoint() {
+    }
+
+    /**
+     * Path of the snapshot of the observation tree stored with a checkpoint.
+     */
+    public static Path treePath(Path checkpoint) {
+        return Paths.get(checkpoint + ".tree");
+    }
+
+    /**
+     * Save the observation tree of the teacher and start writing the checkpoint of a learner.
+     * Both replace the previous checkpoint only when the checkpoint is completed by
+     * {@link Writer#commit()}, closing the writer before discards them.
+     *
+     * @param learner name of the learner, which is checked when resuming
+     */
+    public static Writer create(Path path, String learner, Teacher teacher, LearningSetting setting, int rounds,
+                                int nrEq, long time) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null)
+            parent.toFile().mkdirs();
+        Writer writer = new Writer(path);
+        try {
+            teacher.saveTree(writer.treeTmp);
+            writer.out.writeInt(MAGIC);
+            writer.out.writeInt(VERSION);
+            writer.out.writeUTF(learner);
+            writer.out.writeInt(rounds);
+            writer.out.writeInt(nrEq);
+            writer.out.writeLong(time);
+            writer.out.writeLong(setting.getNrSteps());
+            writer.out.writeLong(setting.getNrTests());
+            byte[] randomState = teacher.saveRandomState();
+            writer.out.writeInt(randomState.length);
+            writer.out.write(randomState);
+        } catch (IOException e) {
+            writer.close();
+            throw e;
+        }
+        return writer;
+    }
+
+    /**
+     * Load the observation tree and the random sources stored with the checkpoint into the
+     * teacher, add the SUL executions before the checkpoint to the setting and open the
+     * checkpoint for reading the state of the learner.
+     */
+    public static Reader read(Path path, String learner, Teacher teacher, LearningSetting setting) throws IOException {
+        Reader reader = new Reader(path);
+        try {
+            if (reader.in.readInt() != MAGIC)
+                throw new IOException("Not a checkpoint: " + path);
+            int version = reader.in.readInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported checkpoint version " + version);
+            String checkpointLearner = reader.in.readUTF();
+            if (!checkpointLearner.equals(learner))
+                throw new IOException(String.format("Checkpoint of %s cannot be resumed by %s", checkpointLearner, learner));
+            reader.rounds = reader.in.readInt();
+            reader.nrEq = reader.in.readInt();
+            reader.time = reader.in.readLong();
+            setting.setResumedSteps(reader.in.readLong());
+            setting.setResumedTests(reader.in.readLong());
+            byte[] randomState = new byte[reader.in.readInt()];
+            reader.in.readFully(randomState);
+            teacher.restoreRandomState(randomState);
+            teacher.loadTree(treePath(path));
+            reader.outputIds = teacher.getOutputIds();
+        } catch (IOException e) {
+            reader.close();
+            throw e;
+        }
+        return reader;
+    }
+
+    public static class Writer implements Closeable {
+        private final Path path;
+        private final Path tmp;
+        private final Path treeTmp;
+        private final DataOutputStream out;
+        private final Map<String, Integer> symbols = new HashMap<>();
+        private boolean committed = false;
+
+        private Writer(Path path) throws IOException {
+            this.path = path;
+            this.tmp = Paths.get(path + ".tmp");
+            this.treeTmp = Paths.get(treePath(path) + ".tmp");
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)));
+        }
+
+        public void writeInt(int value) throws IOException {
+            out.writeInt(value);
+        }
+
+        public void writeDouble(double value) throws IOException {
+            out.writeDouble(value);
+        }
+
+        public void writeBoolean(boolean value) throws IOException {
+            out.writeBoolean(value);
+        }
+
+        private void writeSymbol(String symbol) throws IOException {
+            Integer id = symbols.get(symbol);
+            if (id != null) {
+                out.writeInt(id);
+            } else {
+                symbols.put(symbol, symbols.size());
+                out.writeInt(-1);
+                out.writeUTF(symbol);
+            }
+        }
+
+        public void writeOutput(Output output) throws IOException {
+            writeSymbol(output.getSymbol());
+        }
+
+        public void writeTimedOutput(TimedOutput output) throws IOException {
+            out.writeBoolean(output.isReset());
+            writeSymbol(output.getOutput().getSymbol());
+        }
+
+        public void writeTimedInput(TimedInput input) throws IOException {
+            writeSymbol(input.getInput().getSymbol());
+            out.writeDouble(input.getClockVal());
+        }
+
+        public void writeTrace(ResetTimedTrace trace) throws IOException {
+            writeTimedOutput(trace.getFirstOutput());
+            out.writeInt(trace.getTrace().size());
+            for (FastImmPair<TimedInput, TimedOutput> step : trace.getTrace()) {
+                writeTimedInput(step.left);
+                writeTimedOutput(step.right);
+            }
+        }
+
+        public void writeSuffix(TimedSuffixTrace suffix) throws IOException {
+            writeTimedInput(suffix.getFirstInput());
+            out.writeInt(suffix.getTrace().size());
+            for (FastImmPair<Output, TimedInput> step : suffix.getTrace()) {
+                writeOutput(step.left);
+                writeTimedInput(step.right);
+            }
+        }
+
+        public void writeIncompleteTrace(TimedIncompleteTrace trace) throws IOException {
+            out.writeInt(trace.length());
+            for (FastImmPair<Output, TimedInput> step : trace.getPairs()) {
+                writeOutput(step.left);
+                writeTimedInput(step.right);
+            }
+        }
+
+        public void writeIncompleteTrace(ResetTimedIncompleteTrace trace) throws IOException {
+            out.writeInt(trace.length());
+            for (FastImmPair<TimedOutput, TimedInput> step : trace.getPairs()) {
+                writeTimedOutput(step.left);
+                writeTimedInput(step.right);
+            }
+        }
+
+        public void writeAnswer(Answer answer) throws IOException {
+            out.writeBoolean(answer.isComplete());
+            out.writeBoolean(answer.isValid());
+            out.writeInt(answer.getResets().size());
+            for (Boolean reset : answer.getResets())
+                out.writeBoolean(reset);
+            out.writeInt(answer.getFrequencies().size());
+            for (Map.Entry<TimedOutput, Integer> entry : answer.getFrequencies().entrySet()) {
+                writeTimedOutput(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+        }
+
+        /**
+         * Complete the checkpoint, replacing the previous checkpoint at the same path.
+         */
+        public void commit() throws IOException {
+            out.close();
+            Files.move(treeTmp, treePath(path), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+        }
+
+        /**
+         * Discard the checkpoint unless it has been committed, e.g. because writing the state of
+         * the learner failed.
+         */
+        @Override
+        public void close() throws IOException {
+            if (committed)
+                return;
+            out.close();
+            Files.deleteIfExists(tmp);
+            Files.deleteIfExists(treeTmp);
+        }
+    }
+
+    public static class Reader implements Closeable {
+        private final DataInputStream in;
+        private final List<String> symbols = new ArrayList<>();
+        // ids of the outputs of the observation tree the answers were taken from
+        private SymbolTable<TimedOutput> outputIds;
+        private int rounds;
+        private int nrEq;
+        private long time;
+
+        private Reader(Path path) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)));
+        }
+
+        public int getRounds() {
+            return rounds;
+        }
+
+        public int getNrEq() {
+            return nrEq;
+        }
+
+        /**
+         * @return time in milliseconds spent learning before the checkpoint was written
+         */
+        public long getTime() {
+            return time;
+        }
+
+        public int readInt() throws IOException {
+            return in.readInt();
+        }
+
+        public double readDouble() throws IOException {
+            return in.readDouble();
+        }
+
+        public boolean readBoolean() throws IOException {
+            return in.readBoolean();
+        }
+
+        private String readSymbol() throws IOException {
+            int id = in.readInt();
+            if (id >= 0) {
+                if (id >= symbols.size())
+                    throw new IOException("Corrupt checkpoint, undefined symbol " + id);
+                return symbols.get(id);
+            }
+            String symbol = in.readUTF();
+            symbols.add(symbol);
+            return symbol;
+        }
+
+        public Output readOutput() throws IOException {
+            return Output.create(readSymbol());
+        }
+
+        public TimedOutput readTimedOutput() throws IOException {
+            boolean reset = in.readBoolean();
+            return TimedOutput.create(reset, readSymbol());
+        }
+
+        public TimedInput readTimedInput() throws IOException {
+            String input = readSymbol();
+            double clockVal = in.readDouble();
+            if (!ClockTicks.isRepresentable(clockVal))
+                throw new IOException("Corrupt checkpoint, clock value out of range: " + clockVal);
+            return TimedInput.create(input, clockVal);
+        }
+
+        public ResetTimedTrace readTrace() throws IOException {
+            TimedOutput firstOutput = readTimedOutput();
+            int length = in.readInt();
+            List<FastImmPair<TimedInput, TimedOutput>> steps = new ArrayList<>(length);
+            for (int i = 0; i < length; i++) {
+                TimedInput input = readTimedInput();
+                steps.add(FastImmPair.of(input, readTimedOutput()));
+            }
+            return new ResetTimedTrace(firstOutput, steps);
+        }
+
+        public TimedSuffixTrace readSuffix() throws IOException {
+            TimedInput firstInput = readTimedInput();
+            int length = in.readInt();
+            List<FastImmPair<Output, TimedInput>> steps = new ArrayList<>(length);
+            for (int i = 0; i < length; i++) {
+                Output output = readOutput();
+                steps.add(FastImmPair.of(output, readTimedInput()));
+            }
+            return new TimedSuffixTrace(firstInput, steps);
+        }
+
+        public TimedIncompleteTrace readIncompleteTrace() throws IOException {
+            int length = in.readInt();
+            List<FastImmPair<Output, TimedInput>> steps = new ArrayList<>(length);
+            for (int i = 0; i < length; i++) {
+                Output output = readOutput();
+                steps.add(FastImmPair.of(output, readTimedInput()));
+            }
+            return new TimedIncompleteTrace(steps);
+        }
+
+        public ResetTimedIncompleteTrace readResetIncompleteTrace() throws IOException {
+            int length = in.readInt();
+            List<FastImmPair<TimedOutput, TimedInput>> steps = new ArrayList<>(length);
+            for (int i = 0; i < length; i++) {
+                TimedOutput output = readTimedOutput();
+                steps.add(FastImmPair.of(output, readTimedInput()));
+            }
+            return new ResetTimedIncompleteTrace(steps);
+        }
+
+        public Answer readAnswer() throws IOException {
+            boolean complete = in.readBoolean();
+            boolean valid = in.readBoolean();
+            int nrResets = in.readInt();
+            List<Boolean> resets = new ArrayList<>(nrResets);
+            for (int i = 0; i < nrResets; i++)
+                resets.add(in.readBoolean());
+            int nrOutputs = in.readInt();
+            FrequencyVector<TimedOutput> frequencies = new FrequencyVector<>(outputIds);
+            for (int i = 0; i < nrOutputs; i++) {
+                TimedOutput output = readTimedOutput();
+                frequencies.add(output, in.readInt());
+            }
+            return new Answer(complete, valid, resets, frequencies);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -2,10 +2,11 @@ package base.learner;
 
 import automaton.*;
 import base.Compatibility;
-import com.google.common.collect.BoundType;
 import trace.ResetTimedIncompleteTrace;
 import utils.FastImmPair;
 import utils.Frequencies;
+import utils.FrequencyVector;
+import utils.SymbolTable;
 
 import java.io.IOException;
 import java.util.*;
@@ -41,9 +42,11 @@ public interface Learner {
                                        Map<Input, Set<FastImmPair<Double, Map<Edge, Integer>>>> discreteTransitions,
                                        Map<Input, Set<Map<Edge, Integer>>> frequencySets) {
         Set<Input> inputs = frequencySets.keySet();
-        Frequencies<Edge> chaosDistribution = new Frequencies<>();
+        // edges of the source location, shared by all its distributions
+        SymbolTable<Edge> edgeIds = new SymbolTable<>();
+        Frequencies<Edge> chaosDistribution = new Frequencies<>(edgeIds);
         chaosDistribution.getActualFrequencies().put(new Edge(true, chaosLocation), FastImmPair.of(null, 1.0));
-        Frequencies<Edge> invalidDistribution = new Frequencies<>();
+        Frequencies<Edge> invalidDistribution = new Frequencies<>(edgeIds);
         invalidDistribution.getActualFrequencies().put(new Edge(true, invalidLocation), FastImmPair.of(null, 1.0));
 
         for (Input input : inputs) {
@@ -54,7 +57,7 @@ public interface Learner {
             for (double clockValuation : invalidClockValuations.get(input)) {
                 representDistributions.put(clockValuation, invalidDistribution);
             }
-            Map<Map<Edge, Integer>, Frequencies<Edge>> representDistributionMap = getRepresentDistributionRelation(compChecker, frequencySets.get(input));
+            Map<Map<Edge, Integer>, Frequencies<Edge>> representDistributionMap = getRepresentDistributionRelation(compChecker, frequencySets.get(input), edgeIds);
             for (FastImmPair<Double, Map<Edge, Integer>> discreteTransition : discreteTransitions.get(input)) {
                 representDistributions.put(discreteTransition.left, representDistributionMap.get(discreteTransition.right));
             }
@@ -67,8 +70,14 @@ public interface Learner {
         }
     }
 
-    private Map<Map<Edge, Integer>, Frequencies<Edge>> getRepresentDistributionRelation(Compatibility compChecker, Set<Map<Edge, Integer>> freqs) {
+    private Map<Map<Edge, Integer>, Frequencies<Edge>> getRepresentDistributionRelation(Compatibility compChecker, Set<Map<Edge, Integer>> freqs,
+                                                                                         SymbolTable<Edge> edgeIds) {
         Map<Map<Edge, Integer>, Frequencies<Edge>> map = new HashMap<>();
+        // counts over the ids of the representatives, so they are compared element-wise
+        Map<Map<Edge, Integer>, FrequencyVector<Edge>> vectors = new HashMap<>();
+        for (Map<Edge, Integer> freq : freqs) {
+            vectors.put(freq, FrequencyVector.copyOf(freq, edgeIds));
+        }
         List<Map<Edge, Integer>> freqList = new ArrayList<>(freqs);
 
         while (!freqList.isEmpty()) {
@@ -81,11 +90,11 @@ public interface Learner {
                 }
             });
 
-            Frequencies<Edge> representFreq = new Frequencies<>(freqList.remove(0));
+            Frequencies<Edge> representFreq = new Frequencies<>(freqList.remove(0), edgeIds);
             representFreq.setDistribution();
 
             for (Map<Edge, Integer> freq : freqs) {
-                if (compChecker.compatible(freq, representFreq.getFrequencies())) {
+                if (compChecker.compatible(vectors.get(freq), representFreq.getFrequencies())) {
                     map.put(freq, representFreq);
                     freqList.remove(freq);
                 }
@@ -97,110 +106,39 @@ public interface Learner {
     }
 
     private Map<Frequencies<Edge>, Guard> getDistributionGuardRelation(Map<Double, Frequencies<Edge>> representDistribution) {
-        Map<Frequencies<Edge>, List<Interval>> distributionInterviewsMap = new HashMap<>();
-        List<Double> clockValuations = new ArrayList<>(representDistribution.keySet());
-        clockValuations.sort(new Comparator<Double>() {
-            @Override
-            public int compare(Double o1, Double o2) {
-                return Double.compare(o1, o2);
-            }
-        });
-        for (int i = 0; i < clockValuations.size(); i++) {
-            Frequencies<Edge> distribution = representDistribution.get(clockValuations.get(i));
-            Interval interval;
-            if (i+1 < clockValuations.size()) {
-                interval = Interval.create(clockValuations.get(i), clockValuations.get(i+1));
-            } else {
-                interval = Interval.create(clockValuations.get(i));
-            }
-            distributionInterviewsMap.putIfAbsent(distribution, new ArrayList<>());
-            distributionInterviewsMap.get(distribution).add(interval);
-        }
-
-        Map<Frequencies<Edge>, Guard> distributionGuardMap = new HashMap<>();
-        for (Map.Entry<Frequencies<Edge>, List<Interval>> entry :
-                distributionInterviewsMap.entrySet()) {
-            List<Interval> tmpInterviews = entry.getValue();
-            tmpInterviews.sort(new Comparator<Interval>() {
-                @Override
-                public int compare(Interval o1, Interval o2) {
-                    int leftComp = Double.compare(o1.lowerEndpoint(), o2.lowerEndpoint());
-                    if (leftComp != 0) {
-                        return leftComp;
-                    } else {
-                        if (o1.lowerBoundType() == BoundType.OPEN) {
-                            return 1;
-                        }
-                        return 0;
-                    }
-                }
-            });
-
-            Guard guard = Guard.create();
-            int index = 0;
-            while (index < tmpInterviews.size()) {
-                Interval interval = tmpInterviews.get(index++);
-                for (; index < tmpInterviews.size() && interval.isConnected(tmpInterviews.get(index)); index++) {
-                    interval = interval.span(tmpInterviews.get(index));
-                }
-                guard.putInterval(interval);
-            }
-            distributionGuardMap.put(entry.getKey(), guard);
-        }
-
-        return distributionGuardMap;
+        return getGuardRelation(representDistribution);
     }
 
     default Map<Map<Edge, Double>, Guard> getExactDistributionGuardRelation(Map<Double, Map<Edge, Double>> representDistribution) {
-        Map<Map<Edge, Double>, List<Interval>> distributionInterviewsMap = new HashMap<>();
-        List<Double> clockValuations = new ArrayList<>(representDistribution.keySet());
-        clockValuations.sort(new Comparator<Double>() {
-            @Override
-            public int compare(Double o1, Double o2) {
-                return Double.compare(o1, o2);
-            }
-        });
-        for (int i = 0; i < clockValuations.size(); i++) {
-            Map<Edge, Double> distribution = representDistribution.get(clockValuations.get(i));
-            Interval interval;
-            if (i+1 < clockValuations.size()) {
-                interval = Interval.create(clockValuations.get(i), clockValuations.get(i+1));
-            } else {
-                interval = Interval.create(clockValuations.get(i));
+        return getGuardRelation(representDistribution);
+    }
+
+    /**
+     * Guard of every distribution, covering the regions of all clock valuations represented by it.
+     * The valuations are sorted once and every guard is built in a single pass over them.
+     */
+    private static <D> Map<D, Guard> getGuardRelation(Map<Double, D> representDistribution) {
+        double[] clockValuations = new double[representDistribution.size()];
+        int n = 0;
+        for (double clockValuation : representDistribution.keySet()) {
+            clockValuations[n++] = clockValuation;
+        }
+        Arrays.sort(clockValuations);
+
+        Map<D, boolean[]> distributionValuationsMap = new HashMap<>();
+        for (int i = 0; i < clockValuations.length; i++) {
+            D distribution = representDistribution.get(clockValuations[i]);
+            boolean[] selected = distributionValuationsMap.get(distribution);
+            if (selected == null) {
+                selected = new boolean[clockValuations.length];
+                distributionValuationsMap.put(distribution, selected);
             }
-            distributionInterviewsMap.putIfAbsent(distribution, new ArrayList<>());
-            distributionInterviewsMap.get(distribution).add(interval);
+            selected[i] = true;
         }
 
-        Map<Map<Edge, Double>, Guard> distributionGuardMap = new HashMap<>();
-        for (Map.Entry<Map<Edge, Double>, List<Interval>> entry :
-                distributionInterviewsMap.entrySet()) {
-            List<Interval> tmpInterviews = entry.getValue();
-            tmpInterviews.sort(new Comparator<Interval>() {
-                @Override
-                public int compare(Interval o1, Interval o2) {
-                    int leftComp = Double.compare(o1.lowerEndpoint(), o2.lowerEndpoint());
-                    if (leftComp != 0) {
-                        return leftComp;
-                    } else {
-                        if (o1.lowerBoundType() == BoundType.OPEN) {
-                            return 1;
-                        }
-                        return 0;
-                    }
-                }
-            });
-
-            Guard guard = Guard.create();
-            int index = 0;
-            while (index < tmpInterviews.size()) {
-                Interval interval = tmpInterviews.get(index++);
-                for (; index < tmpInterviews.size() && interval.isConnected(tmpInterviews.get(index)); index++) {
-                    interval = interval.span(tmpInterviews.get(index));
-                }
-                guard.putInterval(interval);
-            }
-            distributionGuardMap.put(entry.getKey(), guard);
+        Map<D, Guard> distributionGuardMap = new HashMap<>();
+        for (Map.Entry<D, boolean[]> entry : distributionValuationsMap.entrySet()) {
+            distributionGuardMap.put(entry.getKey(), CompiledGuard.fromValuations(clockValuations, entry.getValue()).toGuard());
         }
 
         return distributionGuardMap;
@@ -6,11 +6,27 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import util.export.RMLExporter;
 
+import java.util.function.LongSupplier;
+
 @Data
 @NoArgsConstructor
 public class LearningSetting {
     private RMLExporter rmlExp = null;
     private int printFrequency = 50;
+    // directory for intermediate and final hypotheses, runs sharing a working directory need their own
+    private String outputDirectory = "hypotheses";
+    // write a checkpoint to checkpointPath every checkpointInterval rounds, 0 disables checkpoints
+    private int checkpointInterval = 0;
+    private String checkpointPath = null;
+    // checkpoint to resume learning from, learning starts from scratch if it is null
+    private String resumePath = null;
+
+    // SUL executions since the learner was instantiated, as steps and as tests, i.e. resets
+    private LongSupplier stepCounter = () -> 0;
+    private LongSupplier testCounter = () -> 0;
+    // SUL executions before the checkpoint learning was resumed from
+    private long resumedSteps = 0;
+    private long resumedTests = 0;
 
     private int nrEq;
     private int rounds;
@@ -23,4 +39,34 @@ public class LearningSetting {
         this.rmlExp = rmlExp;
     }
 
+    /**
+     * @return path of the checkpoints, by default in the output directory
+     */
+    public String getCheckpointPath() {
+        return checkpointPath != null ? checkpointPath : outputDirectory + "/checkpoint";
+    }
+
+    /**
+     * @return the steps executed on the SUL, including those before the checkpoint learning
+     * was resumed from
+     */
+    public long getNrSteps() {
+        return resumedSteps + stepCounter.getAsLong();
+    }
+
+    /**
+     * @return the tests executed on the SUL, including those before the checkpoint learning
+     * was resumed from
+     */
+    public long getNrTests() {
+        return resumedTests + testCounter.getAsLong();
+    }
+
+    /**
+     * Whether a checkpoint should be written after the given round.
+     */
+    public boolean isCheckpointRound(int rounds) {
+        return checkpointInterval > 0 && rounds % checkpointInterval == 0;
+    }
+
 }
@@ -42,7 +42,7 @@ public class Repf {
             return null;
         }
         for (FastImmPair<Input, Guard> item : value.keySet()) {
-            if (item.left.equals(lastInput.getInput()) && item.right.enableAction(lastInput.getClockVal())) {
+            if (item.left.equals(lastInput.getInput()) && item.right.enableAction(lastInput)) {
                 return value.get(item);
             }
         }
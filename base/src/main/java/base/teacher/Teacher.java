@@ -6,29 +6,52 @@ import automaton.OutputDistribution;
 import automaton.PTA;
 import base.Compatibility;
 import base.learner.Answer;
+import base.teacher.observationTree.CompletenessCriterion;
 import base.teacher.observationTree.ObservationTree;
+import base.teacher.observationTree.ObservationTreeSnapshot;
+import base.teacher.observationTree.ThresholdCompleteness;
+import base.teacher.observationTree.VersionedAnswer;
 import base.teacher.oracle.*;
 import base.teacher.oracle.Convergence;
 import base.teacher.oracle.conv.ConvergenceCriterion;
 import suls.SUL;
+import suls.TraceLog;
 import trace.*;
 import utils.FastImmPair;
+import utils.SymbolTable;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 public class Teacher {
+    // number of cached query answers above which answers made stale by new observations are dropped
+    private static final int MAX_QUERY_CACHE_SIZE = 1 << 16;
 
     private final EquivalenceOracle equivalenceOracle;
     private final OutputOracle outputOracle;
+    private final RandomTesting samplingMachine;
     private final ObservationTree tree;
+    private final Map<FastImmPair<ResetTimedTrace, TimedSuffixTrace>, VersionedAnswer> queryCache = new ConcurrentHashMap<>();
+    private final LongAdder queryCacheHits = new LongAdder();
+    private final LongAdder queryCacheMisses = new LongAdder();
+    private RefineStrategy refineStrategy = RefineStrategy.UNIFORM;
 
     public Teacher(Random randomSource, double stopProb, int bound, double regionNormalization,
                    Set<Input> inputs, SUL sul, OutputOracle outputOracle,
                    Compatibility compatibilityChecker, ConvergenceCriterion convCrit, EqMode mode) {
         tree = new ObservationTree(inputs);
         this.outputOracle = outputOracle;
-        RandomTesting samplingMachine = new RandomTesting(outputOracle, sul, tree,
+        samplingMachine = new RandomTesting(outputOracle, sul, tree,
                 randomSource, stopProb, inputs, bound, regionNormalization);
+        // equivalence testing shares the SULs of the output oracle, which are not used concurrently
+        samplingMachine.setSulPool(outputOracle.getSulPool());
         if (mode == EqMode.PAC) {
             this.equivalenceOracle = new PACEquivalence(samplingMachine, tree, outputOracle, compatibilityChecker);
         } else {
@@ -36,6 +59,82 @@ public class Teacher {
         }
     }
 
+    /**
+     * Load a corpus of traces observed before, e.g. while learning another model of the same
+     * SUL, into the observation tree. Queries whose cells the corpus makes complete are then
+     * answered without executing the SUL, so this should be done before {@link #init()}.
+     *
+     * @return number of traces ending in a complete node
+     */
+    public int warmStart(Collection<ResetTimedTrace> traces) {
+        int nrComplete = tree.addObservationTraces(traces);
+        System.out.println("Warm start: " + traces.size() + " traces, " + nrComplete + " ending in complete nodes");
+        return nrComplete;
+    }
+
+    /**
+     * Same as {@link #warmStart(Collection)} for the traces of a {@link TraceLog}, which are
+     * streamed from the file.
+     */
+    public int warmStart(Path traceLog) throws IOException {
+        try (TraceLog.Reader reader = TraceLog.read(traceLog)) {
+            int nrComplete = tree.addObservationTraces(reader);
+            System.out.println("Warm start from " + traceLog + ": " + nrComplete + " traces ending in complete nodes");
+            return nrComplete;
+        }
+    }
+
+    /**
+     * Ids of the outputs counted in the observation tree and in the answers of queries.
+     */
+    public SymbolTable<TimedOutput> getOutputIds() {
+        return tree.getOutputIds();
+    }
+
+    /**
+     * Write a snapshot of the observation tree, see {@link ObservationTreeSnapshot}.
+     */
+    public void saveTree(Path snapshot) throws IOException {
+        ObservationTreeSnapshot.write(tree, snapshot);
+    }
+
+    /**
+     * Replace the observation tree by a snapshot, e.g. to restart learning without executing
+     * the traces of an earlier run again.
+     */
+    public void loadTree(Path snapshot) throws IOException {
+        int nrNodes = ObservationTreeSnapshot.read(snapshot, tree);
+        // cached answers refer to the nodes of the replaced tree
+        queryCache.clear();
+        System.out.println("Loaded observation tree with " + nrNodes + " nodes from " + snapshot);
+    }
+
+    /**
+     * Serialize the random sources of the output oracle and of equivalence testing, so that a
+     * run resumed from a checkpoint continues with the same random numbers. A source shared by
+     * both stays shared when it is restored.
+     */
+    public byte[] saveRandomState() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(outputOracle.getRandom());
+            out.writeObject(samplingMachine.getRandom());
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Restore the random sources saved by {@link #saveRandomState()}.
+     */
+    public void restoreRandomState(byte[] state) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(state))) {
+            outputOracle.setRandom((Random) in.readObject());
+            samplingMachine.setRandom((Random) in.readObject());
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Invalid random state", e);
+        }
+    }
+
     private Map<String, Object> parameters;
     public void init() {
         equivalenceOracle.init(parameters);
@@ -48,13 +147,51 @@ public class Teacher {
         parameters.put("delta", delta);
     }
 
-    public void setConvParameters(int maxTrie) {
+    public void setConvParameters(int maxTries) {
         parameters = new HashMap<>();
-        parameters.put("maxTrie", maxTrie);
+        parameters.put(Convergence.MAX_TRIES, maxTries);
     }
 
+    /**
+     * Frequency and completeness query. Answers are cached until one of the tree nodes they
+     * were computed from changes, and every call returns a copy of the cached answer.
+     */
     public Answer query(ResetTimedTrace prefix, TimedSuffixTrace suffix) {
-        return tree.outputFrequenciesAndCompleteness(prefix, suffix);
+        return versionedQuery(prefix, suffix).getAnswer().copy();
+    }
+
+    /**
+     * Same as {@link #query} without copying the answer, which must therefore not be modified.
+     * The versioned answer tells whether later observations changed the answer.
+     */
+    public VersionedAnswer versionedQuery(ResetTimedTrace prefix, TimedSuffixTrace suffix) {
+        FastImmPair<ResetTimedTrace, TimedSuffixTrace> key = FastImmPair.of(prefix, suffix);
+        VersionedAnswer cached = queryCache.get(key);
+        if (cached != null && cached.isUpToDate()) {
+            queryCacheHits.increment();
+            return cached;
+        }
+        queryCacheMisses.increment();
+        VersionedAnswer answer = tree.versionedOutputFrequenciesAndCompleteness(prefix, suffix);
+        if (cached == null && queryCache.size() >= MAX_QUERY_CACHE_SIZE)
+            pruneQueryCache();
+        queryCache.put(key, answer);
+        return answer;
+    }
+
+    private void pruneQueryCache() {
+        queryCache.values().removeIf(answer -> !answer.isUpToDate());
+        // keep pruning amortized if most answers are still up to date
+        if (queryCache.size() >= MAX_QUERY_CACHE_SIZE / 2)
+            queryCache.clear();
+    }
+
+    public long getQueryCacheHits() {
+        return queryCacheHits.sum();
+    }
+
+    public long getQueryCacheMisses() {
+        return queryCacheMisses.sum();
     }
 
     public FastImmPair<Map<TimedOutput, Integer>, Boolean> frequencyQuery(ResetTimedIncompleteTrace ts) {
@@ -67,9 +204,51 @@ public class Teacher {
         return outputOracle.initOutput();
     }
 
+    /**
+     * Choose how the queries of refine queries are distributed over the incomplete traces, the
+     * default strategy is {@link RefineStrategy#UNIFORM}.
+     */
+    public void setRefineStrategy(RefineStrategy strategy) {
+        refineStrategy = strategy;
+        switch (strategy) {
+            case DEFICIT:
+                outputOracle.setRefineScheduler(new DeficitRefineScheduler(tree));
+                break;
+            case AMBIGUITY:
+                outputOracle.setRefineScheduler(new AmbiguityRefineScheduler(tree));
+                break;
+            default:
+                outputOracle.setRefineScheduler(null);
+        }
+    }
+
+    public RefineStrategy getRefineStrategy() {
+        return refineStrategy;
+    }
+
+    /**
+     * Choose when the nodes of the observation tree are complete, the default criterion is
+     * {@link ThresholdCompleteness} with {@link ObservationTree#DEFAULT_COMPLETENESS_THRESHOLD}. Nodes
+     * decide their completeness whenever an output is added, so the criterion should be set
+     * before observations are added to the tree.
+     */
+    public void setCompleteness(CompletenessCriterion completeness) {
+        tree.setCompleteness(completeness);
+        // cached answers contain the completeness decided by the previous criterion
+        queryCache.clear();
+    }
+
     public void refine(List<TimedIncompleteTrace> incompleteTraces) {
-        List<ResetTimedTrace> sampledTraces = outputOracle.performQueries(incompleteTraces);
-        sampledTraces.forEach(tree::addObservationTrace);
+        refine(incompleteTraces, Collections.emptySet());
+    }
+
+    /**
+     * @param ambiguous traces of cells the learner could not assign unambiguously, which are
+     *                  refined first by {@link RefineStrategy#AMBIGUITY}
+     */
+    public void refine(List<TimedIncompleteTrace> incompleteTraces, Set<TimedIncompleteTrace> ambiguous) {
+        List<ResetTimedTrace> sampledTraces = outputOracle.performQueries(incompleteTraces, ambiguous);
+        tree.addObservationTraces(sampledTraces);
     }
 
     public FastImmPair<Boolean, ResetTimedIncompleteTrace> equivalenceQuery(int rounds, PTA hypothesis, double unambiguousRatio) {
@@ -0,0 +1,25 @@
+package base.teacher.observationTree;
+
+/**
+ * Decides when a node of an observation tree has been sampled often enough, i.e. when its
+ * output frequencies are used without refining them further. The criterion is evaluated per
+ * node whenever an output is added to the node, and a node stays complete once it is complete.
+ */
+public interface CompletenessCriterion {
+
+    boolean isComplete(Node node);
+
+    /**
+     * Estimate the number of outputs still needed until the node is complete.
+     *
+     * @param node the node, or null for a node that has not been observed yet
+     */
+    int missingOutputs(Node node);
+
+    /**
+     * @return number of outputs after which every node is complete
+     */
+    int getThreshold();
+
+    String description();
+}
@@ -0,0 +1,83 @@
+package base.teacher.observationTree;
+
+import automaton.Input;
+import automaton.Output;
+import trace.TimedInput;
+import trace.TimedOutput;
+import utils.FastImmPair;
+import utils.FrequencyVector;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Thread-safe variant of the {@link ObservationTree}. Every node is guarded by its own monitor, 
+ * which is only held while a single node is updated or read. Traces can therefore be added and 
+ * queried by several threads at the same time, and insertions only contend on shared prefixes.
+ * 
+ * Nodes obtained through {@link #getRoot()} are not guarded, so they must only be traversed 
+ * directly while no other thread modifies the tree. The ids of outputs and thus the iteration 
+ * order of frequencies depend on the order of insertions, so callers that need reproducible 
+ * trees should still merge concurrently sampled traces in a fixed order, e.g. through 
+ * {@link #addObservationTraces(Collection)}.
+ */
+public class ConcurrentObservationTree extends ObservationTree {
+
+	public ConcurrentObservationTree(Set<Input> inputs) {
+		super(inputs);
+	}
+
+	public ConcurrentObservationTree(Set<Input> inputs, CompletenessCriterion completeness) {
+		super(inputs, completeness);
+	}
+
+	@Override
+	protected Node addStep(Node current, TimedOutput output, TimedInput input) {
+		synchronized (current) {
+			return super.addStep(current, output, input);
+		}
+	}
+
+	@Override
+	protected boolean addLastOutput(Node current, TimedOutput output) {
+		synchronized (current) {
+			return super.addLastOutput(current, output);
+		}
+	}
+
+	@Override
+	protected FastImmPair<Node, Boolean> getChildFromTimedStep(Node current, FastImmPair<Output, TimedInput> step) {
+		synchronized (current) {
+			return super.getChildFromTimedStep(current, step);
+		}
+	}
+
+	@Override
+	protected boolean isComplete(Node current) {
+		synchronized (current) {
+			return super.isComplete(current);
+		}
+	}
+
+	@Override
+	protected FrequencyVector<TimedOutput> copyOutputFrequencies(Node current) {
+		synchronized (current) {
+			return super.copyOutputFrequencies(current);
+		}
+	}
+
+	@Override
+	protected Collection<FastImmPair<TimedOutput, TimedInput>> getSuccSymbols(Node current) {
+		synchronized (current) {
+			return new ArrayList<>(super.getSuccSymbols(current));
+		}
+	}
+
+	@Override
+	protected Node getChild(Node current, FastImmPair<TimedOutput, TimedInput> step) {
+		synchronized (current) {
+			return super.getChild(current, step);
+		}
+	}
+}
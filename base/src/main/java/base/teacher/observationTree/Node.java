@@ -22,6 +22,8 @@ import automaton.Output;
 import trace.TimedInput;
 import trace.TimedOutput;
 import utils.FastImmPair;
+import utils.FrequencyVector;
+import utils.SymbolTable;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -35,82 +37,111 @@ import java.util.Set;
  */
 public class Node {
 	private Map<FastImmPair<TimedOutput, TimedInput>,Node> children = new HashMap<>();
-	private Map<TimedOutput, Integer> outputFrequencies = new HashMap<>();
-	private boolean complete = outputFrequencies.values().stream().mapToInt(Integer::intValue).sum() == ObservationTree.completenessThreshold;
+	// the same children indexed by the output and then the input, so inserting a trace looks 
+	// up the child of each step without allocating a key
+	private Map<TimedOutput, Map<TimedInput, Node>> childrenByOutput = new HashMap<>();
+	private FrequencyVector<TimedOutput> outputFrequencies;
+	// children indexed by the untimed output and the timed input, together with the reset of the output
+	private Map<FastImmPair<Output, TimedInput>, FastImmPair<Node, Boolean>> childIndex = new HashMap<>();
+	// reset observed with the first occurrence of every output
+	private Map<Output, Boolean> outputResets = new HashMap<>();
+	// decided by the completeness criterion of the tree whenever an output is added
+	private boolean complete = false;
 	// TODO add this field to table cells
 	private int overallNrOutputs = 0;
+	// incremented whenever outputs or children of this node change
+	private int version = 0;
+
+	/**
+	 * @param outputIds ids of the outputs counted in the tree of the node, shared by all its nodes
+	 */
+	public Node(SymbolTable<TimedOutput> outputIds) {
+		outputFrequencies = new FrequencyVector<>(outputIds);
+	}
+
+	private Node newChild() {
+		return new Node(outputFrequencies.getTable());
+	}
 
 	public void addOutput(TimedOutput output, Set<Input> inputs) {
-		if(getOutputFrequencies().containsKey(output)){
-			getOutputFrequencies().put(output, getOutputFrequencies().get(output)+1);
-		} else {
-			getOutputFrequencies().put(output, 1);
+		boolean newOutput = !outputFrequencies.containsKey(output);
+		outputFrequencies.increment(output);
+		if(newOutput){
+			outputResets.putIfAbsent(output.getOutput(), output.isReset());
 			// to ensure that we have all possible extension of trace extensions (with arbitrary inputs) in the tree
 			for(Input input : inputs){
-				children.put(FastImmPair.of(output, TimedInput.create(input)), new Node());
+				putChild(FastImmPair.of(output, TimedInput.create(input)), newChild());
 			}
 		}
 		setOverallNrOutputs(getOverallNrOutputs() + 1);
-		if(getOverallNrOutputs() >= ObservationTree.completenessThreshold){
-			complete = true;
-		} 
+		version++;
 	}
 
 	public void addOutput(TimedOutput output) {
-		if(getOutputFrequencies().containsKey(output)){
-			getOutputFrequencies().put(output, getOutputFrequencies().get(output)+1);
-		} else {
-			getOutputFrequencies().put(output, 1);
+		boolean newOutput = !outputFrequencies.containsKey(output);
+		outputFrequencies.increment(output);
+		if(newOutput){
+			outputResets.putIfAbsent(output.getOutput(), output.isReset());
 			// to ensure that we have all possible extension of trace extensions (with arbitrary inputs) in the tree
 		}
 		setOverallNrOutputs(getOverallNrOutputs() + 1);
-		if(getOverallNrOutputs() >= ObservationTree.completenessThreshold){
-			complete = true;
-		}
+		version++;
 	}
 
 	public void addOutput(TimedOutput output, TimedInput input) {
-		if(getOutputFrequencies().containsKey(output)){
-			getOutputFrequencies().put(output, getOutputFrequencies().get(output)+1);
-		} else {
-			getOutputFrequencies().put(output, 1);
+		boolean newOutput = !outputFrequencies.containsKey(output);
+		outputFrequencies.increment(output);
+		if(newOutput){
+			outputResets.putIfAbsent(output.getOutput(), output.isReset());
 			// to ensure that we have all possible extension of trace extensions (with arbitrary inputs) in the tree
-			children.put(FastImmPair.of(output, input), new Node());
+			putChild(FastImmPair.of(output, input), newChild());
 		}
 		setOverallNrOutputs(getOverallNrOutputs() + 1);
-		if(getOverallNrOutputs() >= ObservationTree.completenessThreshold){
-			complete = true;
+		version++;
+	}
+
+	/**
+	 * Count the output and return the child reached by it and the next input, creating the 
+	 * child if necessary.
+	 */
+	public Node addOutputAndGetChild(TimedOutput output, TimedInput input) {
+		addOutput(output);
+		Map<TimedInput, Node> byInput = childrenByOutput.get(output);
+		Node child = byInput == null ? null : byInput.get(input);
+		if(child == null){
+			child = newChild();
+			putChild(FastImmPair.of(output, input), child);
 		}
+		return child;
 	}
 
 	public Node getOrCreateChild(FastImmPair<TimedOutput, TimedInput> step) {
 		Node child = children.get(step);
 		if(child == null){
 			// this should not happen anymore actually
-			child = new Node();
-			children.put(step, child);
+			child = newChild();
+			putChild(step, child);
 		}
 		return child;
 	}
 
-	public FastImmPair<Node, Boolean> getChildFromTimedStep(FastImmPair<Output, TimedInput> step) {
-		Boolean reset = null;
-		for (FastImmPair<TimedOutput, TimedInput> child : children.keySet()) {
-			if (child.left.getOutput().equals(step.left)) {
-				reset = child.left.isReset();
-				if (child.right.equals(step.right)) {
-					return FastImmPair.of(children.get(child), reset);
-				}
-			}
+	private void putChild(FastImmPair<TimedOutput, TimedInput> step, Node child) {
+		version++;
+		Node previous = children.put(step, child);
+		childrenByOutput.computeIfAbsent(step.left, o -> new HashMap<>()).put(step.right, child);
+		FastImmPair<Output, TimedInput> key = FastImmPair.of(step.left.getOutput(), step.right);
+		FastImmPair<Node, Boolean> indexed = childIndex.get(key);
+		if (indexed == null || indexed.left == previous) {
+			childIndex.put(key, FastImmPair.of(child, step.left.isReset()));
 		}
+	}
 
-		for (TimedOutput timedOutput : outputFrequencies.keySet()) {
-			if (timedOutput.getOutput().equals(step.left)) {
-				reset = timedOutput.isReset();
-				break;
-			}
+	public FastImmPair<Node, Boolean> getChildFromTimedStep(FastImmPair<Output, TimedInput> step) {
+		FastImmPair<Node, Boolean> child = childIndex.get(step);
+		if (child != null) {
+			return child;
 		}
-		return FastImmPair.of(null, reset);
+		return FastImmPair.of(null, outputResets.get(step.left));
 	}
 
 	public Node getChild(FastImmPair<TimedOutput, TimedInput> resetTimedStep) {
@@ -125,11 +156,11 @@ public class Node {
 		this.complete = complete;
 	}
 
-	public Map<TimedOutput, Integer> getOutputFrequencies() {
+	public FrequencyVector<TimedOutput> getOutputFrequencies() {
 		return outputFrequencies;
 	}
 
-	public void setOutputFrequencies(Map<TimedOutput, Integer> outputFrequencies) {
+	public void setOutputFrequencies(FrequencyVector<TimedOutput> outputFrequencies) {
 		this.outputFrequencies = outputFrequencies;
 	}
 
@@ -137,6 +168,10 @@ public class Node {
 		return children.keySet();
 	}
 
+	public int getVersion() {
+		return version;
+	}
+
 	public int getOverallNrOutputs() {
 		return overallNrOutputs;
 	}
@@ -144,4 +179,39 @@ public class Node {
 	public void setOverallNrOutputs(int overallNrOutputs) {
 		this.overallNrOutputs = overallNrOutputs;
 	}
+
+	// the remaining methods save and restore nodes, see ObservationTreeSnapshot
+
+	/**
+	 * @return whether the output has been observed with the reset of the given timed output first
+	 */
+	boolean isFirstReset(TimedOutput output) {
+		return Boolean.valueOf(output.isReset()).equals(outputResets.get(output.getOutput()));
+	}
+
+	/**
+	 * @return whether the child reached by the step is the one found by {@link #getChildFromTimedStep}
+	 */
+	boolean isIndexed(FastImmPair<TimedOutput, TimedInput> step) {
+		FastImmPair<Node, Boolean> indexed = childIndex.get(FastImmPair.of(step.left.getOutput(), step.right));
+		return indexed != null && indexed.left == children.get(step) && indexed.right == step.left.isReset();
+	}
+
+	void restoreOutput(TimedOutput output, int count, boolean firstReset) {
+		outputFrequencies.add(output, count);
+		if (firstReset)
+			outputResets.put(output.getOutput(), output.isReset());
+	}
+
+	void restoreChild(FastImmPair<TimedOutput, TimedInput> step, Node child, boolean indexed) {
+		children.put(step, child);
+		childrenByOutput.computeIfAbsent(step.left, o -> new HashMap<>()).put(step.right, child);
+		if (indexed)
+			childIndex.put(FastImmPair.of(step.left.getOutput(), step.right), FastImmPair.of(child, step.left.isReset()));
+	}
+
+	void restoreCompleteness(int overallNrOutputs, boolean complete) {
+		this.overallNrOutputs = overallNrOutputs;
+		this.complete = complete;
+	}
 }
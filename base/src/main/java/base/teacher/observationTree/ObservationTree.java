@@ -23,6 +23,8 @@ import base.learner.Answer;
 import org.apache.commons.lang3.tuple.Triple;
 import trace.*;
 import utils.FastImmPair;
+import utils.FrequencyVector;
+import utils.SymbolTable;
 
 import java.util.*;
 
@@ -37,35 +39,139 @@ public class ObservationTree {
 
 	private Set<Input> inputs = null;
 	private Node root = null;
-	// TODO make nice
-	public static int completenessThreshold = 50;
+	// threshold of the completeness criterion of trees created without a criterion
+	public static final int DEFAULT_COMPLETENESS_THRESHOLD = 50;
+	private CompletenessCriterion completeness;
+	// ids of the outputs counted in the nodes of this tree and in the answers of its queries, 
+	// per tree so that learners running concurrently do not share them
+	private final SymbolTable<TimedOutput> outputIds = new SymbolTable<>();
 	public Set<Input> getInputs() { return inputs;}
 	public ObservationTree(Set<Input> inputs){
-		setRoot(new Node());
+		this(inputs, new ThresholdCompleteness(DEFAULT_COMPLETENESS_THRESHOLD));
+	}
+
+	public ObservationTree(Set<Input> inputs, CompletenessCriterion completeness){
+		setRoot(new Node(outputIds));
 		this.inputs = inputs;
+		this.completeness = completeness;
+	}
+
+	/**
+	 * Set the criterion deciding when a node is complete. Nodes which are complete already 
+	 * stay complete, so this should be done before observations are added.
+	 */
+	public void setCompleteness(CompletenessCriterion completeness) {
+		this.completeness = completeness;
+	}
+
+	public CompletenessCriterion getCompleteness() {
+		return completeness;
+	}
+
+	public SymbolTable<TimedOutput> getOutputIds() {
+		return outputIds;
 	}
 	public boolean addObservationTrace(ResetTimedTrace trace){
-		return addObservationTrace(getRoot(),trace);
+		Node current = getRoot();
+		TimedOutput output = trace.getFirstOutput();
+		List<FastImmPair<TimedInput, TimedOutput>> steps = trace.getTrace();
+		for (int i = 0; i < steps.size(); i++) {
+			FastImmPair<TimedInput, TimedOutput> step = steps.get(i);
+			current = addStep(current, output, step.left);
+			output = step.right;
+		}
+		return addLastOutput(current, output);
 	}
 
-	private boolean addObservationTrace(Node current, ResetTimedTrace trace) {
-		if (trace.isEmpty()) {
-//			current.addOutput(trace.getLastOutput(), inputs);
-			current.addOutput(trace.getLastOutput());
-			return current.isComplete();
+	/**
+	 * Add a batch of traces in the order given by the collection.
+	 * 
+	 * @param traces traces to be added
+	 * @return number of traces ending in a complete node
+	 */
+	public int addObservationTraces(Collection<ResetTimedTrace> traces){
+		int nrComplete = 0;
+		for (ResetTimedTrace trace : traces) {
+			if (addObservationTrace(trace))
+				nrComplete++;
 		}
+		return nrComplete;
+	}
 
-		TimedOutput output = trace.getFirstOutput();
-		TimedInput input = trace.getIthInput(1);
-		current.addOutput(output, input);
-		Node next = current.getOrCreateChild(FastImmPair.of(output, input));
-		return addObservationTrace(next, trace.suffix(1));
+	/**
+	 * Add the traces of an iterator, e.g. one reading a trace log, in the order given by the iterator.
+	 * 
+	 * @param traces traces to be added
+	 * @return number of traces ending in a complete node
+	 */
+	public int addObservationTraces(Iterator<ResetTimedTrace> traces){
+		int nrComplete = 0;
+		while (traces.hasNext()) {
+			if (addObservationTrace(traces.next()))
+				nrComplete++;
+		}
+		return nrComplete;
+	}
+
+	// node access of the tree goes through the following hooks, see ConcurrentObservationTree
+
+	protected Node addStep(Node current, TimedOutput output, TimedInput input) {
+		Node child = current.addOutputAndGetChild(output, input);
+		updateCompleteness(current);
+		return child;
+	}
+
+	protected boolean addLastOutput(Node current, TimedOutput output) {
+		current.addOutput(output);
+		updateCompleteness(current);
+		return current.isComplete();
+	}
+
+	protected FastImmPair<Node, Boolean> getChildFromTimedStep(Node current, FastImmPair<Output, TimedInput> step) {
+		return current.getChildFromTimedStep(step);
+	}
+
+	protected boolean isComplete(Node current) {
+		return current.isComplete();
+	}
+
+	protected FrequencyVector<TimedOutput> copyOutputFrequencies(Node current) {
+		return current.getOutputFrequencies().copy();
+	}
+
+	protected Collection<FastImmPair<TimedOutput, TimedInput>> getSuccSymbols(Node current) {
+		return current.getSuccSymbols();
+	}
+
+	protected Node getChild(Node current, FastImmPair<TimedOutput, TimedInput> step) {
+		return current.getChild(step);
+	}
+
+	private void updateCompleteness(Node current) {
+		if (!current.isComplete() && completeness.isComplete(current))
+			current.setComplete(true);
 	}
 
 	public Answer outputFrequenciesAndCompleteness(ResetTimedTrace trace,
 												   TimedSuffixTrace suffixTrace){
+		return outputFrequenciesAndCompleteness(trace, suffixTrace, null);
+	}
+
+	/**
+	 * Frequency and completeness query which additionally records the visited nodes, so that 
+	 * the answer can be reused until one of them changes.
+	 */
+	public VersionedAnswer versionedOutputFrequenciesAndCompleteness(ResetTimedTrace trace,
+																	 TimedSuffixTrace suffixTrace){
+		List<Node> path = new ArrayList<>();
+		Answer result = outputFrequenciesAndCompleteness(trace, suffixTrace, path);
+		return new VersionedAnswer(result, path);
+	}
+
+	private Answer outputFrequenciesAndCompleteness(ResetTimedTrace trace,
+													TimedSuffixTrace suffixTrace, List<Node> path){
 		TimedIncompleteTrace incTrace = new TimedIncompleteTrace(trace.convert(), suffixTrace);
-		Answer result = outputFrequenciesAndCompleteness(incTrace.getSteps());
+		Answer result = outputFrequenciesAndCompleteness(incTrace.getSteps(), path);
 		if (result.isValid()) {
 			List<Boolean> suffixResets = new ArrayList<>();
 			if (result.getResets().size() > trace.length()) {
@@ -76,34 +182,67 @@ public class ObservationTree {
 		return result;
 	}
 	public Answer outputFrequenciesAndCompleteness(List<FastImmPair<Output,TimedInput>> incompleteTrace){
+		return outputFrequenciesAndCompleteness(incompleteTrace, null);
+	}
+
+	private Answer outputFrequenciesAndCompleteness(List<FastImmPair<Output,TimedInput>> incompleteTrace, List<Node> path){
 		List<Boolean> resets = new ArrayList<>();
 		resets.add(true);
 		Node current = getRoot();
 		for (int i = 0; i < incompleteTrace.size(); i++) {
+			if (path != null)
+				path.add(current);
 			FastImmPair<Output, TimedInput> outputTimedInputFastImmPair = incompleteTrace.get(i);
-			boolean lastIsComplete = current.isComplete();
-			FastImmPair<Node, Boolean> next = current.getChildFromTimedStep(outputTimedInputFastImmPair);
+			boolean lastIsComplete = isComplete(current);
+			FastImmPair<Node, Boolean> next = getChildFromTimedStep(current, outputTimedInputFastImmPair);
 			if (next.left == null) {
 				// 存在对应的timed output在上一步的frequency，考虑逻辑时间合法性
 				if (next.right != null) {
-					double delayTime = next.right ? outputTimedInputFastImmPair.right.getClockVal()
-							: outputTimedInputFastImmPair.right.getClockVal() - incompleteTrace.get(i-1).right.getClockVal();
+					int delayTicks = next.right ? outputTimedInputFastImmPair.right.getTicks()
+							: outputTimedInputFastImmPair.right.getTicks() - incompleteTrace.get(i-1).right.getTicks();
 					// 逻辑时间不合法，不需要再测试
-					if (delayTime < 0) {
+					if (delayTicks < 0) {
 						return Answer.InvalidAnswer();
 					}
 					lastIsComplete = false;
 				}
 
-				return Answer.setValidAnswer(new ArrayList<>(), Collections.<TimedOutput, Integer>emptyMap(), lastIsComplete);
+				return Answer.setValidAnswer(new ArrayList<>(), new FrequencyVector<>(outputIds), lastIsComplete);
 			}
 
 			current = next.left;
 			resets.add(next.right);
 		}
 
-		return Answer.setValidAnswer(resets, new HashMap<>(current.getOutputFrequencies()), current.isComplete());
+		if (path != null)
+			path.add(current);
+		return Answer.setValidAnswer(resets, copyOutputFrequencies(current), isComplete(current));
+	}
+	/**
+	 * Node reached by an incomplete trace, which holds the frequencies of the outputs following 
+	 * the last input. Nodes are never replaced, so the node can be used instead of walking the 
+	 * tree again until the tree itself is replaced.
+	 * 
+	 * @return the node or null if the tree does not contain the trace
+	 */
+	public Node getNode(List<FastImmPair<Output,TimedInput>> incompleteTrace){
+		Node current = getRoot();
+		for (FastImmPair<Output, TimedInput> step : incompleteTrace) {
+			current = getChildFromTimedStep(current, step).left;
+			if (current == null)
+				return null;
+		}
+		return current;
+	}
+
+	/**
+	 * Output frequencies and completeness of a node found by {@link #getNode(List)}, without the 
+	 * resets of the trace leading to it.
+	 */
+	public Answer outputFrequenciesAndCompleteness(Node node){
+		return Answer.setValidAnswer(new ArrayList<>(), copyOutputFrequencies(node), isComplete(node));
 	}
+
 	// return all shortest traces leading to incomplete nodes
 	public List<ResetTimedIncompleteTrace> findIncomplete() {
 		List<ResetTimedIncompleteTrace> tracesToIncomplete = new ArrayList<>();
@@ -112,12 +251,13 @@ public class ObservationTree {
 		return tracesToIncomplete;
 	}
 	private void findIncomplete(Node current, ResetTimedIncompleteTrace currentTrace, List<ResetTimedIncompleteTrace> tracesToIncomplete) {
-		if(current.getSuccSymbols().isEmpty() && !current.isComplete()){
+		Collection<FastImmPair<TimedOutput, TimedInput>> succSymbols = getSuccSymbols(current);
+		if(succSymbols.isEmpty() && !isComplete(current)){
 			tracesToIncomplete.add(currentTrace);
 		} else {
-			for(FastImmPair<TimedOutput, TimedInput> succSymbol : current.getSuccSymbols()){
-				ResetTimedIncompleteTrace nextTrace = (ResetTimedIncompleteTrace) currentTrace.append(succSymbol);
-				findIncomplete(current.getChild(succSymbol), nextTrace, tracesToIncomplete);
+			for(FastImmPair<TimedOutput, TimedInput> succSymbol : succSymbols){
+				ResetTimedIncompleteTrace nextTrace = currentTrace.append(succSymbol);
+				findIncomplete(getChild(current, succSymbol), nextTrace, tracesToIncomplete);
 			}
 		}
 	}
@@ -0,0 +1,287 @@
+package base.teacher.observationTree;
+
+import automaton.ClockTicks;
+import automaton.Input;
+import trace.TimedInput;
+import trace.TimedOutput;
+import utils.FastImmPair;
+import utils.SymbolTable;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Binary snapshot of an {@link ObservationTree}, which can be reloaded much faster than the
+ * traces of the tree can be added again. A snapshot consists of
+ * <ul>
+ *     <li>a header with the completeness criterion the tree was built with, and the number of
+ *     entries in each of the following tables,</li>
+ *     <li>a symbol table with the UTF-8 encoded names of inputs and outputs,</li>
+ *     <li>a clock table with the distinct clock valuations of timed inputs,</li>
+ *     <li>the symbol ids of the inputs of the tree,</li>
+ *     <li>a node table with fixed-size records in breadth-first order: the children of a node
+ *     form the index range <code>[firstChild, firstChild + nrChildren)</code>, and every record
+ *     holds the step leading to the node, i.e. the output of the parent and the timed input,</li>
+ *     <li>a frequency table with the output frequencies of all nodes, where every node refers
+ *     to the range of its entries.</li>
+ * </ul>
+ * Nodes keep the iteration order of their children and output frequencies, so learning from a
+ * reloaded tree explores it in the same order as the original tree. Snapshots are loaded by
+ * memory-mapping the file, so they are limited to 2 GB.
+ *
+ * <p>A snapshot is only loaded into a tree with the same completeness criterion, since the
+ * completeness of its nodes was decided by the criterion it was taken with.
+ */
+public class ObservationTreeSnapshot {
+    private static final int MAGIC = 0x4f545353;
+    private static final int VERSION = 1;
+    // first child, number of children, first frequency, number of frequencies,
+    // overall number of outputs, completeness, and output, input and clock of the incoming step
+    private static final int NODE_BYTES = 9 * Integer.BYTES;
+    // output with reset flags, count
+    private static final int FREQUENCY_BYTES = 2 * Integer.BYTES;
+    private static final int BUFFER_SIZE = 1 << 16;
+    // flags of packed outputs, the symbol id is stored in the bits above them
+    private static final int RESET = 1;
+    // only in the frequency table: the output was the first one observed for its symbol
+    private static final int FIRST_RESET = 1 << 1;
+    // only in the node table: the step leads to the child found by getChildFromTimedStep
+    private static final int INDEXED = 1 << 2;
+    private static final int FLAG_BITS = 3;
+
+    private ObservationTreeSnapshot() {
+    }
+
+    /**
+     * Write a snapshot of the tree, which must not be modified while the snapshot is written.
+     */
+    public static void write(ObservationTree tree, Path path) throws IOException {
+        List<Node> nodes = new ArrayList<>();
+        // steps leading to the nodes, the root has none
+        List<FastImmPair<TimedOutput, TimedInput>> steps = new ArrayList<>();
+        SymbolTable<String> symbols = new SymbolTable<>();
+        SymbolTable<Double> clockVals = new SymbolTable<>();
+        // nodes reached through the child found by getChildFromTimedStep
+        BitSet indexed = new BitSet();
+        nodes.add(tree.getRoot());
+        steps.add(null);
+        long nrFrequencies = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            for (TimedOutput output : node.getOutputFrequencies().keySet())
+                symbols.id(output.getOutput().getSymbol());
+            nrFrequencies += node.getOutputFrequencies().size();
+            for (FastImmPair<TimedOutput, TimedInput> step : node.getSuccSymbols()) {
+                symbols.id(step.left.getOutput().getSymbol());
+                symbols.id(step.right.getInput().getSymbol());
+                clockVals.id(step.right.getClockVal());
+                if (node.isIndexed(step))
+                    indexed.set(nodes.size());
+                nodes.add(node.getChild(step));
+                steps.add(step);
+            }
+        }
+        List<Input> inputs = new ArrayList<>(tree.getInputs());
+        for (Input input : inputs)
+            symbols.id(input.getSymbol());
+        if (nrFrequencies > Integer.MAX_VALUE)
+            throw new IOException("Too many output frequencies for a snapshot: " + nrFrequencies);
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null)
+            parent.toFile().mkdirs();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer writer = new Writer(channel);
+            byte[] completeness = tree.getCompleteness().description().getBytes(StandardCharsets.UTF_8);
+            writer.ensureRemaining(3 * Integer.BYTES);
+            writer.buffer.putInt(MAGIC).putInt(VERSION).putInt(completeness.length);
+            writer.put(completeness);
+            writer.ensureRemaining(5 * Integer.BYTES);
+            writer.buffer.putInt(symbols.size()).putInt(clockVals.size()).putInt(inputs.size())
+                    .putInt(nodes.size()).putInt((int) nrFrequencies);
+            for (int id = 0; id < symbols.size(); id++) {
+                byte[] name = symbols.symbol(id).getBytes(StandardCharsets.UTF_8);
+                writer.ensureRemaining(Integer.BYTES);
+                writer.buffer.putInt(name.length);
+                writer.put(name);
+            }
+            for (int id = 0; id < clockVals.size(); id++) {
+                writer.ensureRemaining(Double.BYTES);
+                writer.buffer.putDouble(clockVals.symbol(id));
+            }
+            for (Input input : inputs) {
+                writer.ensureRemaining(Integer.BYTES);
+                writer.buffer.putInt(symbols.id(input.getSymbol()));
+            }
+            int firstChild = 1;
+            int firstFrequency = 0;
+            for (int i = 0; i < nodes.size(); i++) {
+                Node node = nodes.get(i);
+                int nrChildren = node.getSuccSymbols().size();
+                int size = node.getOutputFrequencies().size();
+                writer.ensureRemaining(NODE_BYTES);
+                writer.buffer.putInt(firstChild).putInt(nrChildren).putInt(firstFrequency).putInt(size)
+                        .putInt(node.getOverallNrOutputs()).putInt(node.isComplete() ? 1 : 0);
+                FastImmPair<TimedOutput, TimedInput> step = steps.get(i);
+                if (step == null) {
+                    writer.buffer.putInt(-1).putInt(-1).putInt(-1);
+                } else {
+                    int output = symbols.id(step.left.getOutput().getSymbol()) << FLAG_BITS
+                            | (step.left.isReset() ? RESET : 0) | (indexed.get(i) ? INDEXED : 0);
+                    writer.buffer.putInt(output).putInt(symbols.id(step.right.getInput().getSymbol()))
+                            .putInt(clockVals.id(step.right.getClockVal()));
+                }
+                firstChild += nrChildren;
+                firstFrequency += size;
+            }
+            for (Node node : nodes) {
+                for (Map.Entry<TimedOutput, Integer> entry : node.getOutputFrequencies().entrySet()) {
+                    TimedOutput output = entry.getKey();
+                    writer.ensureRemaining(FREQUENCY_BYTES);
+                    writer.buffer.putInt(symbols.id(output.getOutput().getSymbol()) << FLAG_BITS
+                            | (output.isReset() ? RESET : 0) | (node.isFirstReset(output) ? FIRST_RESET : 0))
+                            .putInt(entry.getValue());
+                }
+            }
+            writer.flush();
+        }
+    }
+
+    /**
+     * Load a snapshot into a new tree with the inputs stored in the snapshot.
+     *
+     * @param completeness criterion of the tree, the one the snapshot was taken with
+     * @throws IOException also if the snapshot was taken with another criterion
+     */
+    public static ObservationTree read(Path path, CompletenessCriterion completeness) throws IOException {
+        Set<Input> inputs = new HashSet<>();
+        ObservationTree tree = new ObservationTree(inputs, completeness);
+        read(path, tree, inputs);
+        return tree;
+    }
+
+    /**
+     * Replace the nodes of the tree by those of a snapshot, e.g. one taken from a tree over the
+     * same inputs in an earlier run.
+     *
+     * @return number of nodes loaded
+     * @throws IOException also if the snapshot was taken with another completeness criterion or
+     *                     clock resolution
+     */
+    public static int read(Path path, ObservationTree tree) throws IOException {
+        return read(path, tree, new HashSet<>());
+    }
+
+    private static int read(Path path, ObservationTree tree, Set<Input> inputs) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("Snapshot too large to be mapped: " + path);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try {
+                if (buffer.getInt() != MAGIC)
+                    throw new IOException("Not an observation tree snapshot: " + path);
+                int version = buffer.getInt();
+                if (version != VERSION)
+                    throw new IOException("Unsupported snapshot version " + version);
+                byte[] completenessBytes = new byte[buffer.getInt()];
+                buffer.get(completenessBytes);
+                String completeness = new String(completenessBytes, StandardCharsets.UTF_8);
+                if (!completeness.equals(tree.getCompleteness().description()))
+                    throw new IOException(String.format("Snapshot %s was taken with completeness %s instead of %s",
+                            path, completeness, tree.getCompleteness().description()));
+                String[] symbols = new String[buffer.getInt()];
+                double[] clockVals = new double[buffer.getInt()];
+                int nrInputs = buffer.getInt();
+                Node[] nodes = new Node[buffer.getInt()];
+                int nrFrequencies = buffer.getInt();
+                for (int id = 0; id < symbols.length; id++) {
+                    byte[] name = new byte[buffer.getInt()];
+                    buffer.get(name);
+                    symbols[id] = new String(name, StandardCharsets.UTF_8);
+                }
+                for (int id = 0; id < clockVals.length; id++) {
+                    clockVals[id] = buffer.getDouble();
+                    if (!ClockTicks.isRepresentable(clockVals[id]))
+                        throw new IOException("Corrupt observation tree snapshot, clock value out of range: " + clockVals[id]);
+                }
+                for (int i = 0; i < nrInputs; i++)
+                    inputs.add(Input.create(symbols[buffer.getInt()]));
+
+                int nodeTable = buffer.position();
+                int frequencyTable = nodeTable + nodes.length * NODE_BYTES;
+                if ((long) frequencyTable + (long) nrFrequencies * FREQUENCY_BYTES != buffer.limit())
+                    throw new IOException("Corrupt observation tree snapshot: " + path);
+                for (int i = 0; i < nodes.length; i++)
+                    nodes[i] = new Node(tree.getOutputIds());
+                for (int i = 0; i < nodes.length; i++) {
+                    int record = nodeTable + i * NODE_BYTES;
+                    int firstChild = buffer.getInt(record);
+                    int nrChildren = buffer.getInt(record + Integer.BYTES);
+                    int firstFrequency = buffer.getInt(record + 2 * Integer.BYTES);
+                    int nrEntries = buffer.getInt(record + 3 * Integer.BYTES);
+                    for (int f = firstFrequency; f < firstFrequency + nrEntries; f++) {
+                        int entry = frequencyTable + f * FREQUENCY_BYTES;
+                        int output = buffer.getInt(entry);
+                        nodes[i].restoreOutput(TimedOutput.create((output & RESET) != 0, symbols[output >>> FLAG_BITS]),
+                                buffer.getInt(entry + Integer.BYTES), (output & FIRST_RESET) != 0);
+                    }
+                    for (int c = firstChild; c < firstChild + nrChildren; c++) {
+                        int childRecord = nodeTable + c * NODE_BYTES;
+                        int output = buffer.getInt(childRecord + 6 * Integer.BYTES);
+                        int input = buffer.getInt(childRecord + 7 * Integer.BYTES);
+                        int clockVal = buffer.getInt(childRecord + 8 * Integer.BYTES);
+                        FastImmPair<TimedOutput, TimedInput> step = FastImmPair.of(
+                                TimedOutput.create((output & RESET) != 0, symbols[output >>> FLAG_BITS]),
+                                TimedInput.create(symbols[input], clockVals[clockVal]));
+                        nodes[i].restoreChild(step, nodes[c], (output & INDEXED) != 0);
+                    }
+                    nodes[i].restoreCompleteness(buffer.getInt(record + 4 * Integer.BYTES),
+                            buffer.getInt(record + 5 * Integer.BYTES) != 0);
+                }
+                tree.setRoot(nodes[0]);
+                return nodes.length;
+            } catch (IndexOutOfBoundsException | BufferUnderflowException | NegativeArraySizeException e) {
+                throw new IOException("Corrupt observation tree snapshot: " + path, e);
+            }
+        }
+    }
+
+    private static class Writer {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        private Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private void put(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensureRemaining(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        private void ensureRemaining(int bytes) throws IOException {
+            if (buffer.remaining() < bytes)
+                flush();
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+    }
+}
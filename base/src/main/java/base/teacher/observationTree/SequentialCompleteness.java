@@ -0,0 +1,75 @@
+package base.teacher.observationTree;
+
+/**
+ * Completeness decided by a sequential test, which stops sampling nodes that behave
+ * deterministically early. After <code>n</code> observations of the same single output, any
+ * other output with a probability of at least <code>epsilon</code> would have been missed
+ * with a probability of at most <code>(1 - epsilon)^n</code>. A node with a single output is
+ * therefore complete as soon as this bound drops to <code>delta</code>, the other nodes are
+ * complete after the usual threshold. The bound holds no matter when the test stops, since
+ * it only decreases with further observations of the same output.
+ * <p>
+ * Nodes that are complete are not refined any more, so comparisons of their frequencies in
+ * the learners and in equivalence testing are made after fewer samples. With the default
+ * parameters a deterministic node is complete after 29 instead of 50 observations. Nodes with
+ * several outputs can still be told apart before they are complete by a sequential
+ * {@link base.Compatibility}.
+ */
+public class SequentialCompleteness implements CompletenessCriterion {
+
+    private final int threshold;
+    private final double epsilon;
+    private final double delta;
+    private final int deterministicThreshold;
+
+    public SequentialCompleteness(int threshold) {
+        this(threshold, 0.1, 0.05);
+    }
+
+    /**
+     * @param threshold number of outputs after which every node is complete
+     * @param epsilon   smallest probability of an output that should not be missed
+     * @param delta     probability of missing such an output
+     */
+    public SequentialCompleteness(int threshold, double epsilon, double delta) {
+        if (epsilon <= 0 || epsilon >= 1 || delta <= 0 || delta >= 1)
+            throw new IllegalArgumentException("epsilon and delta have to be in (0,1)");
+        this.threshold = threshold;
+        this.epsilon = epsilon;
+        this.delta = delta;
+        this.deterministicThreshold = Math.min(threshold, (int) Math.ceil(Math.log(delta) / Math.log(1 - epsilon)));
+    }
+
+    @Override
+    public boolean isComplete(Node node) {
+        int nrOutputs = node.getOverallNrOutputs();
+        if (nrOutputs >= threshold)
+            return true;
+        return nrOutputs >= deterministicThreshold && node.getOutputFrequencies().size() == 1;
+    }
+
+    @Override
+    public int missingOutputs(Node node) {
+        if (node == null)
+            return threshold;
+        if (node.isComplete())
+            return 0;
+        int needed = node.getOutputFrequencies().size() == 1 ? deterministicThreshold : threshold;
+        return Math.max(1, needed - node.getOverallNrOutputs());
+    }
+
+    @Override
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public int getDeterministicThreshold() {
+        return deterministicThreshold;
+    }
+
+    @Override
+    public String description() {
+        return String.format("sequential(n=%d, epsilon=%s, delta=%s, deterministic n=%d)", threshold, epsilon, delta,
+                deterministicThreshold);
+    }
+}
@@ -0,0 +1,38 @@
+package base.teacher.observationTree;
+
+/**
+ * Completeness as defined in "L*-Based Learning of MDPs": a node is complete once it has been
+ * observed a fixed number of times.
+ */
+public class ThresholdCompleteness implements CompletenessCriterion {
+
+    private final int threshold;
+
+    public ThresholdCompleteness(int threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public boolean isComplete(Node node) {
+        return node.getOverallNrOutputs() >= threshold;
+    }
+
+    @Override
+    public int missingOutputs(Node node) {
+        if (node == null)
+            return threshold;
+        if (node.isComplete())
+            return 0;
+        return Math.max(1, threshold - node.getOverallNrOutputs());
+    }
+
+    @Override
+    public int getThreshold() {
+        return threshold;
+    }
+
+    @Override
+    public String description() {
+        return String.format("threshold(n=%d)", threshold);
+    }
+}
@@ -0,0 +1,53 @@
+package base.teacher.observationTree;
+
+import base.learner.Answer;
+
+import java.util.List;
+
+/**
+ * Answer of a frequency and completeness query together with the versions of the tree nodes 
+ * that were visited to compute it. The answer stays valid as long as none of these nodes has 
+ * changed, since insertions elsewhere in the tree cannot affect it.
+ */
+public class VersionedAnswer {
+	private final Answer answer;
+	private final Node[] path;
+	private final int[] versions;
+
+	public VersionedAnswer(Answer answer, List<Node> path) {
+		this.answer = answer;
+		this.path = path.toArray(new Node[0]);
+		this.versions = new int[this.path.length];
+		for (int i = 0; i < this.path.length; i++) {
+			versions[i] = this.path[i].getVersion();
+		}
+	}
+
+	public Answer getAnswer() {
+		return answer;
+	}
+
+	/**
+	 * @return whether both answers were computed from the same nodes in the same versions, so 
+	 * they have the same contents
+	 */
+	public boolean sameVersions(VersionedAnswer other) {
+		if (other == this)
+			return true;
+		if (other.path.length != path.length)
+			return false;
+		for (int i = 0; i < path.length; i++) {
+			if (other.path[i] != path[i] || other.versions[i] != versions[i])
+				return false;
+		}
+		return true;
+	}
+
+	public boolean isUpToDate() {
+		for (int i = 0; i < path.length; i++) {
+			if (path[i].getVersion() != versions[i])
+				return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,45 @@
+package base.teacher.oracle;
+
+import base.teacher.observationTree.ObservationTree;
+import trace.TimedIncompleteTrace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Schedules refine queries like {@link DeficitRefineScheduler}, but queries are first spent on
+ * the traces of cells which the learner could not assign unambiguously, e.g. rows compatible
+ * with several representatives. These traces receive as many queries as estimated to complete
+ * them, the remaining queries of the batch are spent on the other traces.
+ */
+public class AmbiguityRefineScheduler extends DeficitRefineScheduler {
+
+    public AmbiguityRefineScheduler(ObservationTree tree) {
+        super(tree);
+    }
+
+    @Override
+    protected List<TimedIncompleteTrace> allocate(List<Candidate> candidates, Set<TimedIncompleteTrace> ambiguous,
+                                                  int nrQueries, Random random) {
+        List<Candidate> prioritized = new ArrayList<>();
+        List<Candidate> other = new ArrayList<>();
+        double prioritizedQueries = 0;
+        for (Candidate candidate : candidates) {
+            if (ambiguous.contains(candidate.trace)) {
+                prioritized.add(candidate);
+                prioritizedQueries += candidate.queries;
+            } else {
+                other.add(candidate);
+            }
+        }
+        if (prioritized.isEmpty())
+            return super.allocate(candidates, ambiguous, nrQueries, random);
+        int nrPrioritized = other.isEmpty() ? nrQueries : (int) Math.min(nrQueries, Math.ceil(prioritizedQueries));
+        List<TimedIncompleteTrace> schedule = new ArrayList<>(nrQueries);
+        sample(prioritized, nrPrioritized, random, schedule);
+        sample(other, nrQueries - nrPrioritized, random, schedule);
+        return schedule;
+    }
+}
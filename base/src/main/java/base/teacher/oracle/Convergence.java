@@ -15,6 +15,9 @@ import java.util.Map;
 import java.util.Optional;
 
 public class Convergence extends EquivalenceOracle {
+    // key of the number of random walks per equivalence query in the parameters of init
+    public static final String MAX_TRIES = "maxTries";
+
     private int maxTries;
 
     private final ConvergenceCriterion criterion;
@@ -30,7 +33,10 @@ public class Convergence extends EquivalenceOracle {
 
     @Override
     public void init(Map<String, Object> parameters) {
-        this.maxTries = (int) parameters.get("maxTries");
+        Object maxTries = parameters.get(MAX_TRIES);
+        if (maxTries == null)
+            throw new IllegalArgumentException("Missing parameter " + MAX_TRIES);
+        this.maxTries = (int) maxTries;
     }
 
     @Override
@@ -42,8 +48,8 @@ public class Convergence extends EquivalenceOracle {
             return FastImmPair.of(true, null);
         Optional<ResetTimedTrace> cex = samplingMachine.sampleForFindCex(hypo, maxTries);
         if (cex.isPresent())
-            return FastImmPair.of(false, (ResetTimedIncompleteTrace) cex.get().dropLastOutput());
+            return FastImmPair.of(false, cex.get().dropLastOutput());
         cex = refiner.findCex(tree, hypo);
-        return cex.map(trace -> FastImmPair.of(false, (ResetTimedIncompleteTrace) trace.dropLastOutput())).orElseGet(() -> FastImmPair.of(false, null));
+        return cex.map(trace -> FastImmPair.of(false, trace.dropLastOutput())).orElseGet(() -> FastImmPair.of(false, null));
     }
 }
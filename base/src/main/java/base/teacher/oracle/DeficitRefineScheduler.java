@@ -0,0 +1,154 @@
+package base.teacher.oracle;
+
+import automaton.Output;
+import base.teacher.observationTree.Node;
+import base.teacher.observationTree.ObservationTree;
+import trace.TimedIncompleteTrace;
+import trace.TimedInput;
+import trace.TimedOutput;
+import utils.FastImmPair;
+
+import java.util.*;
+
+/**
+ * Schedules refine queries by the number of observations that are still missing. For every
+ * trace, the number of queries needed to make the node reached by it complete is estimated
+ * from the observation tree as the observations missing until the node is complete divided
+ * by the probability of observing the outputs of the trace. Queries performing a trace also
+ * perform its prefixes, so the queries estimated for longer traces are subtracted from the
+ * estimates of their prefixes. The batch is reduced to the estimated total, so no queries are
+ * spent on traces that are almost complete, and it is split among the traces in proportion to
+ * their estimates times the number of cells depending on them.
+ */
+public class DeficitRefineScheduler implements RefineScheduler {
+
+    private final ObservationTree tree;
+
+    public DeficitRefineScheduler(ObservationTree tree) {
+        this.tree = tree;
+    }
+
+    @Override
+    public List<TimedIncompleteTrace> schedule(List<TimedIncompleteTrace> traces, Set<TimedIncompleteTrace> ambiguous,
+                                               int batchSize, Random random) {
+        Map<TimedIncompleteTrace, Integer> occurrences = new LinkedHashMap<>();
+        for (TimedIncompleteTrace trace : traces) {
+            occurrences.merge(trace, 1, Integer::sum);
+        }
+        List<TimedIncompleteTrace> longestFirst = new ArrayList<>(occurrences.keySet());
+        longestFirst.sort(Comparator.comparingInt(TimedIncompleteTrace::length).reversed());
+        Map<TimedIncompleteTrace, Double> covered = new HashMap<>();
+        List<Candidate> candidates = new ArrayList<>();
+        double totalQueries = 0;
+        for (TimedIncompleteTrace trace : longestFirst) {
+            double queries = expectedQueries(trace) - covered.getOrDefault(trace, 0.0);
+            if (queries <= 0)
+                continue;
+            for (int length = 1; length < trace.length(); length++) {
+                TimedIncompleteTrace prefix = trace.prefix(length);
+                if (occurrences.containsKey(prefix))
+                    covered.merge(prefix, queries, Double::sum);
+            }
+            candidates.add(new Candidate(trace, queries, queries * dependentCells(trace, occurrences)));
+            totalQueries += queries;
+        }
+        if (candidates.isEmpty()) {
+            // the tree considers all traces complete, perform each trace once
+            for (TimedIncompleteTrace trace : occurrences.keySet()) {
+                candidates.add(new Candidate(trace, 1, 1));
+                totalQueries++;
+            }
+        }
+        int nrQueries = (int) Math.min(batchSize, Math.ceil(totalQueries));
+        return allocate(candidates, ambiguous, nrQueries, random);
+    }
+
+    /**
+     * Choose the traces of the given number of queries among the candidates.
+     */
+    protected List<TimedIncompleteTrace> allocate(List<Candidate> candidates, Set<TimedIncompleteTrace> ambiguous,
+                                                  int nrQueries, Random random) {
+        List<TimedIncompleteTrace> schedule = new ArrayList<>(nrQueries);
+        sample(candidates, nrQueries, random, schedule);
+        return schedule;
+    }
+
+    /**
+     * Add the given number of traces, choosing every candidate in proportion to its weight.
+     */
+    protected static void sample(List<Candidate> candidates, int nrQueries, Random random,
+                                 List<TimedIncompleteTrace> schedule) {
+        if (candidates.isEmpty() || nrQueries == 0)
+            return;
+        double[] cumulative = new double[candidates.size()];
+        double sum = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            sum += candidates.get(i).weight;
+            cumulative[i] = sum;
+        }
+        // systematic sampling, every candidate is chosen the expected number of times rounded
+        // up or down
+        double step = sum / nrQueries;
+        double position = random.nextDouble() * step;
+        int index = 0;
+        for (int q = 0; q < nrQueries; q++) {
+            while (index < candidates.size() - 1 && cumulative[index] <= position)
+                index++;
+            schedule.add(candidates.get(index).trace);
+            position += step;
+        }
+    }
+
+    /**
+     * Estimate the number of queries starting with the trace needed until the node reached by
+     * the trace is complete according to the completeness criterion of the tree. Output
+     * probabilities are estimated with one additional observation of every output observed at a
+     * node and of the output of the step, i.e. <code>(count + 1) / (total + |outputs|)</code>,
+     * so steps not observed yet are assumed to be possible and the estimates of the outputs of
+     * a node sum up to one.
+     */
+    double expectedQueries(TimedIncompleteTrace trace) {
+        Node current = tree.getRoot();
+        double probability = 1.0;
+        for (FastImmPair<Output, TimedInput> step : trace.getSteps()) {
+            if (current == null)
+                break;
+            FastImmPair<Node, Boolean> next = current.getChildFromTimedStep(step);
+            int count = 0;
+            if (next.right != null) {
+                Integer frequency = current.getOutputFrequencies().get(TimedOutput.create(next.right, step.left.getSymbol()));
+                if (frequency != null)
+                    count = frequency;
+            }
+            // the output of the step is one more output if it has not been observed yet
+            int nrOutputs = current.getOutputFrequencies().size() + (count == 0 ? 1 : 0);
+            probability *= (count + 1.0) / (current.getOutputFrequencies().getTotal() + nrOutputs);
+            current = next.left;
+        }
+        return tree.getCompleteness().missingOutputs(current) / probability;
+    }
+
+    /**
+     * @return number of occurrences of the trace and of its prefixes among the refined traces
+     */
+    private static int dependentCells(TimedIncompleteTrace trace, Map<TimedIncompleteTrace, Integer> occurrences) {
+        int cells = occurrences.get(trace);
+        for (int length = 1; length < trace.length(); length++) {
+            cells += occurrences.getOrDefault(trace.prefix(length), 0);
+        }
+        return cells;
+    }
+
+    protected static class Candidate {
+        protected final TimedIncompleteTrace trace;
+        // estimated number of queries needed to complete the trace
+        protected final double queries;
+        protected final double weight;
+
+        protected Candidate(TimedIncompleteTrace trace, double queries, double weight) {
+            this.trace = trace;
+            this.queries = queries;
+            this.weight = weight;
+        }
+    }
+}
@@ -17,16 +17,23 @@
  *******************************************************************************/
 package base.teacher.oracle;
 
+import automaton.ClockTicks;
 import automaton.Output;
 import automaton.OutputDistribution;
 import suls.SUL;
+import suls.SULPool;
 import trace.*;
 import utils.FastImmPair;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * This class implements most of the functionality of refine queries including the 
@@ -42,6 +49,9 @@ public class OutputOracle {
 	private Random random = null;
 	private SUL sul = null;
 	private int batchSize;
+	private SULPool sulPool = null;
+	private ExecutorService workers = null;
+	private RefineScheduler refineScheduler = null;
 //	private Property property;
 	
 	public OutputOracle(Random random, SUL sul, int batchSize) {
@@ -51,6 +61,43 @@ public class OutputOracle {
 		this.batchSize = batchSize;
 	}
 
+	/**
+	 * Spreads the queries of each batch over the SULs of the pool, one worker thread per SUL. 
+	 * Each worker uses its own random stream seeded from the main random source, and it 
+	 * always performs the same query indices on the same SUL, so the results of a batch do not 
+	 * depend on thread scheduling. The worker threads belong to the pool, which is closed by 
+	 * its creator once learning has finished.
+	 * 
+	 * @param sulPool initialised SUL instances to be used by the workers
+	 */
+	public void setSulPool(SULPool sulPool) {
+		this.sulPool = sulPool;
+		workers = sulPool != null && sulPool.size() > 1 ? sulPool.getExecutor() : null;
+	}
+
+	public SULPool getSulPool() {
+		return sulPool;
+	}
+
+	public Random getRandom() {
+		return random;
+	}
+
+	/**
+	 * Replace the random source, e.g. by the one stored with a checkpoint.
+	 */
+	public void setRandom(Random random) {
+		this.random = random;
+	}
+
+	/**
+	 * @param refineScheduler decides which traces the queries of a batch start with, null 
+	 * chooses them uniformly at random
+	 */
+	public void setRefineScheduler(RefineScheduler refineScheduler) {
+		this.refineScheduler = refineScheduler;
+	}
+
 	public OutputDistribution outputDistributionQuery(ResetTimedTrace trace, TimedSuffixTrace suffix) {
 		TimedIncompleteTrace logicalTimedTestSeq = new TimedIncompleteTrace(trace.convert(), suffix);
 		OutputDistribution outputDistribution = sul.execute(logicalTimedTestSeq);
@@ -67,6 +114,19 @@ public class OutputOracle {
 		return outputDistribution;
 	}
 	public List<ResetTimedTrace> performQueries(List<TimedIncompleteTrace> traces) {
+		return performQueries(traces, Collections.emptySet());
+	}
+	/**
+	 * Performs a batch of queries starting with the given traces.
+	 * 
+	 * @param ambiguous traces of cells the learner could not assign unambiguously, passed to 
+	 * the refine scheduler
+	 */
+	public List<ResetTimedTrace> performQueries(List<TimedIncompleteTrace> traces, Set<TimedIncompleteTrace> ambiguous) {
+		List<TimedIncompleteTrace> schedule = refineScheduler == null ? null 
+				: refineScheduler.schedule(traces, ambiguous, batchSize, random);
+		if (workers != null)
+			return performQueriesParallel(traces, schedule);
 		List<ResetTimedTrace> queryResults = new ArrayList<>();
 		List<TimedIncompleteTrace> preferred = null;
 		List<TimedIncompleteTrace> other = null;
@@ -83,73 +143,99 @@ public class OutputOracle {
 		preferred = traces;
 		other = new ArrayList<>();
 
-		for(int nrQueries = 0; nrQueries < batchSize; nrQueries++){
-			Collections.shuffle(preferred,random); // otherwise we will try to perform the same queries all the time
-			Collections.shuffle(other,random);
-			
-			TimedIncompleteTrace chosenTrace = choose(preferred,other);
-			ResetTimedTrace singleResult = perform(chosenTrace,preferred,other);
+		// the traces are indexed once per batch, queries are sampled from the tries instead of 
+		// shuffling the traces for every query
+		TraceTrie preferredTrie = new TraceTrie(preferred);
+		TraceTrie otherTrie = new TraceTrie(other);
+		int nrQueries = schedule == null ? batchSize : schedule.size();
+		for(int query = 0; query < nrQueries; query++){
+			TimedIncompleteTrace chosenTrace = schedule == null ? choose(random,preferredTrie,otherTrie) 
+					: schedule.get(query);
+			ResetTimedTrace singleResult = perform(sul,random,chosenTrace,preferredTrie,otherTrie);
 			queryResults.add(singleResult);
 		}
 		return queryResults;
 	}
+	private List<ResetTimedTrace> performQueriesParallel(List<TimedIncompleteTrace> traces, 
+			List<TimedIncompleteTrace> schedule) {
+		int nrQueries = schedule == null ? batchSize : schedule.size();
+		int nrWorkers = Math.min(sulPool.size(), nrQueries);
+		ResetTimedTrace[] queryResults = new ResetTimedTrace[nrQueries];
+		TraceTrie preferred = new TraceTrie(traces);
+		TraceTrie other = new TraceTrie(new ArrayList<>());
+		List<Future<?>> futures = new ArrayList<>();
+		for (int w = 0; w < nrWorkers; w++) {
+			int worker = w;
+			Random workerRandom = new Random(random.nextLong());
+			futures.add(workers.submit(() -> {
+				SUL workerSul = sulPool.get(worker);
+				for (int query = worker; query < nrQueries; query += nrWorkers) {
+					TimedIncompleteTrace chosenTrace = schedule == null ? choose(workerRandom, preferred, other) 
+							: schedule.get(query);
+					queryResults[query] = perform(workerSul, workerRandom, chosenTrace, preferred, other);
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException | ExecutionException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		return Arrays.asList(queryResults);
+	}
 	public ResetTimedTrace perform(TimedIncompleteTrace chosenTrace,  List<TimedIncompleteTrace> preferredOtherTraces,
 			List<TimedIncompleteTrace> otherTraces) {
-		double currentLogicalTime = 0.0;
+		return perform(sul, random, chosenTrace, new TraceTrie(preferredOtherTraces), new TraceTrie(otherTraces));
+	}
+	/**
+	 * Performs the chosen trace on the SUL. If the SUL produces an output that is not expected 
+	 * by the trace, the input of the trace is still performed, but the remaining steps are 
+	 * taken from another trace with the same steps so far that has this output after its next 
+	 * step. The nodes of the performed steps in both tries are tracked while performing, so 
+	 * switching does not compare the performed steps with other traces.
+	 */
+	private ResetTimedTrace perform(SUL sul, Random random, TimedIncompleteTrace chosenTrace, TraceTrie preferred,
+			TraceTrie other) {
+		int currentLogicalTicks = 0;
 		Output sulOutput = Output.create(sul.reset());
 		ResetTimedTrace resultTrace = ResetTimedTrace.empty(sulOutput);
+		TraceTrie.Node preferredNode = preferred.getRoot();
+		TraceTrie.Node otherNode = other.getRoot();
 		for(int i = 0; i < chosenTrace.length(); i++){
 			FastImmPair<Output, TimedInput> currentStep = chosenTrace.getSteps().get(i);
 			Output expectedOutput = currentStep.getLeft();
+			FastImmPair<Output, TimedInput> performedStep = currentStep;
 			if(!sulOutput.equals(expectedOutput)){
-				TimedIncompleteTrace newChosenTrace = findAnotherTrace(resultTrace,sulOutput, preferredOtherTraces,
-						otherTraces);
+				TimedIncompleteTrace newChosenTrace = findAnotherTrace(random, sulOutput, preferredNode, otherNode);
 				if(newChosenTrace == null)
 					return resultTrace;
 				else
 					chosenTrace = newChosenTrace;
+				performedStep = FastImmPair.of(sulOutput, currentStep.getRight());
 			}
+			preferredNode = preferredNode == null ? null : preferredNode.getChild(performedStep);
+			otherNode = otherNode == null ? null : otherNode.getChild(performedStep);
 			FastImmPair<Boolean, String> output = sul.execute(currentStep.getRight().getInput().getSymbol(),
-					currentStep.right.getClockVal()-currentLogicalTime);
+					ClockTicks.toClockValue(currentStep.right.getTicks() - currentLogicalTicks));
 			if (output == null)
 				return resultTrace;
 			sulOutput = Output.create(output.right);
-			currentLogicalTime = output.left ? 0.0 : currentStep.right.getClockVal();
+			currentLogicalTicks = output.left ? 0 : currentStep.right.getTicks();
 			resultTrace = resultTrace.append(FastImmPair.of(currentStep.getRight(), TimedOutput.create(output.left, output.right)));
 		}
 		return resultTrace;
 	}
-	private TimedIncompleteTrace findAnotherTrace(ResetTimedTrace prefix, Output outputAfterPrefix,
-			List<TimedIncompleteTrace> preferredOtherTraces, List<TimedIncompleteTrace> otherTraces) {
-		TimedIncompleteTrace foundTrace = findTraceWithPrefix(prefix, outputAfterPrefix,preferredOtherTraces);
-		if(foundTrace == null)
-			return findTraceWithPrefix(prefix, outputAfterPrefix, otherTraces);
+	private TimedIncompleteTrace findAnotherTrace(Random random, Output outputAfterPrefix,
+			TraceTrie.Node preferredNode, TraceTrie.Node otherNode) {
+		TimedIncompleteTrace foundTrace = preferredNode == null ? null 
+				: preferredNode.chooseWithOutput(outputAfterPrefix, random);
+		if(foundTrace == null && otherNode != null)
+			return otherNode.chooseWithOutput(outputAfterPrefix, random);
 		else
 			return foundTrace;
 	}
-	private TimedIncompleteTrace findTraceWithPrefix(ResetTimedTrace prefix, Output outputAfterPrefix,
-			List<TimedIncompleteTrace> otherTraces) {
-		for(TimedIncompleteTrace trace : otherTraces){
-			if(prefix.length() + 1 > trace.length())
-				continue;
-			boolean isPrefix = true;
-			Output output = prefix.getFirstOutput().getOutput();
-			for (int i = 0; i < prefix.length()-1; i++) {
-				FastImmPair<TimedInput, TimedOutput> step = prefix.get(i);
-				FastImmPair<Output, TimedInput> pair = trace.getSteps().get(i);
-				if (!output.equals(pair.left) || !step.left.equals(pair.right)) {
-					isPrefix = false;
-					break;
-				}
-				output = step.right.getOutput();
-			}
-			if(!isPrefix)
-				continue;
-			if(trace.get(prefix.length()).getLeft().equals(outputAfterPrefix))
-				return trace;
-		}
-		return null;
-	}
 	public ResetTimedTrace perform(ResetTimedTrace chosenTrace) {
 		TimedOutput sulOutput = TimedOutput.createInit(sul.reset());
 		ResetTimedTrace resultTrace = ResetTimedTrace.empty(sulOutput.getOutput());
@@ -165,15 +251,15 @@ public class OutputOracle {
 				return resultTrace;
 			sulOutput = TimedOutput.create(output);
 
-			resultTrace = (ResetTimedTrace) resultTrace.append(FastImmPair.of(currentStep.left, sulOutput));
+			resultTrace = resultTrace.append(FastImmPair.of(currentStep.left, sulOutput));
 		}
 		return resultTrace;
 	}
-	private TimedIncompleteTrace choose(List<TimedIncompleteTrace> preferred, List<TimedIncompleteTrace> other) {
+	private TimedIncompleteTrace choose(Random random, TraceTrie preferred, TraceTrie other) {
 		if(!preferred.isEmpty())
-			return preferred.get(random.nextInt(preferred.size()));
+			return preferred.choose(random);
 		else
-			return other.get(random.nextInt(other.size()));
+			return other.choose(random);
 	}
 	public Output initOutput() {
 		return Output.create(sul.reset());
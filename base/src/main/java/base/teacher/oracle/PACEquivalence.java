@@ -5,6 +5,7 @@ import automaton.PTA;
 import automaton.Transition;
 import base.Compatibility;
 import base.learner.Answer;
+import base.teacher.observationTree.Node;
 import base.teacher.observationTree.ObservationTree;
 import org.apache.commons.lang3.tuple.Triple;
 import trace.*;
@@ -48,37 +49,53 @@ public class PACEquivalence extends EquivalenceOracle {
             return FastImmPair.of(false, cex.get().dropLastOutput());
         }
 
-        List<ResetTimedTrace> sampledTraces = samplingMachine.getSampledTraces();
-        sampledTraces.sort(new Comparator<ResetTimedTrace>() {
+        List<FastImmPair<ResetTimedTrace, Location>> sampledTraces = samplingMachine.getSampledTraces();
+        sampledTraces.sort(new Comparator<FastImmPair<ResetTimedTrace, Location>>() {
             @Override
-            public int compare(ResetTimedTrace o1, ResetTimedTrace o2) {
-                return Integer.compare(o1.length(), o2.length());
+            public int compare(FastImmPair<ResetTimedTrace, Location> o1, FastImmPair<ResetTimedTrace, Location> o2) {
+                return Integer.compare(o1.left.length(), o2.left.length());
             }
         });
+        // distinct sampled traces in the order of their length, so each of them is refined once per pass
+        Map<ResetTimedIncompleteTrace, SampledTrace> entries = new LinkedHashMap<>();
+        for (FastImmPair<ResetTimedTrace, Location> sampledTrace : sampledTraces) {
+            ResetTimedIncompleteTrace incompleteTrace = sampledTrace.left.dropLastOutput();
+            entries.computeIfAbsent(incompleteTrace, trace -> new SampledTrace(trace, sampledTrace.right));
+        }
+        List<SampledTrace> pending = new ArrayList<>(entries.values());
         List<TimedIncompleteTrace> incompleteTraces = new ArrayList<>();
-        while (true) {
-            List<ResetTimedTrace> copied = new ArrayList<>(sampledTraces);
-            for (ResetTimedTrace sampledTrace : copied) {
-                ResetTimedIncompleteTrace incompleteTrace = sampledTrace.dropLastOutput();
+        for (int pass = 0; ; pass++) {
+            List<SampledTrace> stillPending = new ArrayList<>();
+            for (SampledTrace sampledTrace : pending) {
                 // answer 必合法
-                Answer treeAnswer =
-                        tree.outputFrequenciesAndCompleteness(incompleteTrace.convert().getSteps());
+                if (sampledTrace.pass != pass) {
+                    sampledTrace.pass = pass;
+                    sampledTrace.update(tree);
+                }
 
-                boolean isComplete = treeAnswer.isComplete();
-                if (!isComplete) {
-                    incompleteTraces.add(incompleteTrace.convert());
+                if (!sampledTrace.complete) {
+                    // the sequential test may find a counterexample before the trace is complete
+                    if (compatibilityChecker.isSequential()
+                            && compatibilityChecker.separated(sampledTrace.frequencies, sampledTrace.hypoFrequencies(hypo))) {
+                        return FastImmPair.of(false, sampledTrace.trace);
+                    }
+                    incompleteTraces.add(sampledTrace.query);
+                    stillPending.add(sampledTrace);
                     continue;
                 }
-                sampledTraces.remove(sampledTrace);
+                if (sampledTrace.checked)
+                    continue;
+                sampledTrace.checked = true;
 
-                Map<TimedOutput, Integer> treeFreq = treeAnswer.getFrequencies();
-                Map<TimedOutput, Integer> hypFreq = getHypoFrequencies(hypo, incompleteTrace);
+                Map<TimedOutput, Integer> treeFreq = sampledTrace.frequencies;
+                Map<TimedOutput, Integer> hypFreq = sampledTrace.hypoFrequencies(hypo);
                 if (!compatibilityChecker.compatible(treeFreq, hypFreq)) {
-                    System.out.println(Optional.of(incompleteTrace));
+                    System.out.println(Optional.of(sampledTrace.trace));
                     System.out.printf("true freq: %s, hypothesis freq: %s\n", treeFreq, hypFreq);
-                    return FastImmPair.of(false, incompleteTrace);
+                    return FastImmPair.of(false, sampledTrace.trace);
                 }
             }
+            pending = stillPending;
             if (incompleteTraces.isEmpty())
                 break;
             List<ResetTimedTrace> sampled = outputOracle.performQueries(incompleteTraces);
@@ -97,9 +114,17 @@ public class PACEquivalence extends EquivalenceOracle {
         TimedInput lastInput = incompleteTrace.get(incompleteTrace.length()-1).right;
 
         Location location = hypo.getStateReachedByResetLogicalTimedTrace(trace).left;
+        return getHypoFrequencies(location, lastInput);
+    }
+
+    /**
+     * Frequencies of the outputs of the hypothesis for the last input of a trace, given the
+     * location reached by the trace before the last input.
+     */
+    public static Map<TimedOutput, Integer> getHypoFrequencies(Location location, TimedInput lastInput) {
         Map<TimedOutput, Integer> frequencies = new HashMap<>();
         Set<Transition> successors = location.getTransitions().get(lastInput.getInput())
-                .stream().filter(transition -> transition.getGuard().enableAction(lastInput.getClockVal()))
+                .stream().filter(transition -> transition.getGuard().enableAction(lastInput))
                 .collect(Collectors.toSet());
         for (Transition succ : successors) {
             frequencies.put(TimedOutput.create(succ.isReset(), succ.getTarget().getLabel().getSymbol()), succ.getFrequency());
@@ -107,4 +132,60 @@ public class PACEquivalence extends EquivalenceOracle {
         return frequencies;
     }
 
+    /**
+     * Distinct sampled trace without its last output, together with the tree node holding the
+     * frequencies of that output. Completeness is only evaluated again after new outputs have
+     * been added to the node, otherwise the answer of the previous pass is still valid.
+     */
+    private static class SampledTrace {
+        private final ResetTimedIncompleteTrace trace;
+        // location of the hypothesis reached before the last input, null if unknown
+        private final Location source;
+        private final TimedIncompleteTrace query;
+        private Node node = null;
+        private int version = -1;
+        private boolean complete = false;
+        private Map<TimedOutput, Integer> frequencies = null;
+        // frequencies of the hypothesis for the last input, computed once they are needed
+        private Map<TimedOutput, Integer> hypoFrequencies = null;
+        // last pass in which the answer was updated
+        private int pass = -1;
+        // whether the frequencies have been compared with the hypothesis
+        private boolean checked = false;
+
+        private SampledTrace(ResetTimedIncompleteTrace trace, Location source) {
+            this.trace = trace;
+            this.source = source;
+            this.query = trace.convert();
+        }
+
+        private TimedInput lastInput() {
+            return trace.get(trace.length() - 1).right;
+        }
+
+        private Map<TimedOutput, Integer> hypoFrequencies(PTA hypo) {
+            // the location reached by the walk spares replaying the trace on the hypothesis
+            if (hypoFrequencies == null)
+                hypoFrequencies = source != null ? getHypoFrequencies(source, lastInput())
+                        : getHypoFrequencies(hypo, trace);
+            return hypoFrequencies;
+        }
+
+        private void update(ObservationTree tree) {
+            if (node == null)
+                node = tree.getNode(query.getSteps());
+            Answer treeAnswer;
+            if (node == null) {
+                // not contained in the tree, so the answer depends on the nodes along the trace
+                treeAnswer = tree.outputFrequenciesAndCompleteness(query.getSteps());
+            } else if (node.getVersion() != version) {
+                version = node.getVersion();
+                treeAnswer = tree.outputFrequenciesAndCompleteness(node);
+            } else {
+                return;
+            }
+            complete = treeAnswer.isComplete();
+            frequencies = treeAnswer.getFrequencies();
+        }
+    }
 }
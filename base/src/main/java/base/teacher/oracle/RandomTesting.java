@@ -20,12 +20,17 @@ package base.teacher.oracle;
 import automaton.*;
 import base.teacher.observationTree.ObservationTree;
 import suls.SUL;
+import suls.SULPool;
 import trace.ResetTimedTrace;
 import trace.TimedInput;
 import trace.TimedOutput;
 import utils.FastImmPair;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 
@@ -37,6 +42,9 @@ import java.util.stream.Collectors;
  * 
  * The choice of inputs is delegated to subclasses.
  * 
+ * If a pool of SULs is set, the random walks of a search are executed concurrently, see 
+ * {@link #setSulPool(SULPool)}.
+ * 
  * @author Martin Tappler
  *
  */
@@ -54,13 +62,18 @@ public class RandomTesting {
 	protected double regionNormalization;
 
 	private boolean stopAtCex = true;
-	private List<ResetTimedTrace> sampledTraces;
+	private List<FastImmPair<ResetTimedTrace, Location>> sampledTraces;
 
 	private int uninterestingSamplesThreshold = 100;
 	private Output uninterestingOutput = Output.sink();
 
 	private List<ResetTimedTrace> candidates;
 
+	// number of walks per worker whose results are merged together
+	private static final int WALKS_PER_WORKER = 8;
+	private SULPool sulPool = null;
+	private ExecutorService workers = null;
+
 	/**
 	 * Constructor 
 	 *
@@ -83,14 +96,50 @@ public class RandomTesting {
 		this.regionNormalization = regionNormalization;
 	}
 
-	public List<ResetTimedTrace> getSampledTraces() {
+	/**
+	 * Executes the random walks of a search concurrently on the SULs of the pool. The walks are 
+	 * executed in batches, where the i-th walk of a batch is performed on the SUL 
+	 * <code>i mod size</code> with its own random source seeded from the main random source. 
+	 * Walks of a batch choose their prefixes among the candidates collected before the batch. 
+	 * As soon as a walk is discriminating, walks with a higher index are not started any more, 
+	 * and the discriminating walk with the lowest index is returned. Sampled traces are added to 
+	 * the observation tree in the order of the walks, so the results do not depend on thread 
+	 * scheduling, but they differ from those of a sequential search. Walks following a 
+	 * discriminating one may still have been executed on some of the SULs, so the SULs of the 
+	 * pool are seeded anew after each search.
+	 * 
+	 * @param sulPool initialised SUL instances to be used by the workers, whose threads are 
+	 * shared with the output oracle and closed by the creator of the pool
+	 */
+	public void setSulPool(SULPool sulPool) {
+		this.sulPool = sulPool;
+		workers = sulPool != null && sulPool.size() > 1 ? sulPool.getExecutor() : null;
+	}
+
+	public Random getRandom() {
+		return random;
+	}
+
+	/**
+	 * Replace the random source, e.g. by the one stored with a checkpoint.
+	 */
+	public void setRandom(Random random) {
+		this.random = random;
+	}
+
+	/**
+	 * @return the traces sampled by the last search, each with the location of the hypothesis 
+	 * reached before its last input, or null if the walk left the hypothesis
+	 */
+	public List<FastImmPair<ResetTimedTrace, Location>> getSampledTraces() {
 		return sampledTraces;
 	}
 
 	public Optional<ResetTimedTrace> sampleForFindCex(PTA hypo, int nrTest) {
 		this.nrTest = nrTest;
 		sampledTraces = new ArrayList<>();
-		Optional<ResetTimedTrace> discriminating = searchForDiscriminatingTest(hypo);
+		Optional<ResetTimedTrace> discriminating = workers != null ? searchForDiscriminatingTestParallel(hypo)
+				: searchForDiscriminatingTest(hypo);
 		discriminating.ifPresent(System.out::println);
 		return discriminating;
 	}
@@ -102,38 +151,129 @@ public class RandomTesting {
 		candidates = new ArrayList<>();
 		candidates.add(ResetTimedTrace.empty(Output.create(sul.reset())));
 		// random walking
+		List<ResetTimedTrace> restarts = new ArrayList<>();
 		for (int tries = 0; tries < nrTest; tries++) {
-			FastImmPair<ResetTimedTrace, Boolean> potentiallyDiscriminating = findDiscriminatingTestSingle(hypo, tries < partition);
-			if (!potentiallyDiscriminating.left.lastOutput().equals(uninterestingOutput)) {
-				candidates.add(potentiallyDiscriminating.left);
-			}
-			tree.addObservationTrace(potentiallyDiscriminating.getLeft());
-			sampledTraces.add(potentiallyDiscriminating.left);
-			boolean isDiscriminating = potentiallyDiscriminating.getRight();
-			if (isDiscriminating){
-				System.out.println("We have a discriminating test after " + (tries +1) + " tries: ");
-				discriminatingTest = Optional.of(potentiallyDiscriminating.getLeft());
+			restarts.clear();
+			Walk potentiallyDiscriminating = findDiscriminatingTestSingle(sul, random,
+					candidates, restarts, hypo, tries < partition);
+			if (addSample(potentiallyDiscriminating, restarts, tries)) {
+				discriminatingTest = Optional.of(potentiallyDiscriminating.trace);
 				return discriminatingTest;
 			}
 		}
 		return discriminatingTest;
 	}
 
-	private FastImmPair<ResetTimedTrace, Boolean> findDiscriminatingTestSingle(PTA hypo, boolean randomSample) {
+	/**
+	 * Add a walk to the candidates and its traces to the observation tree.
+	 * 
+	 * @param restarts traces of the walk that ended in the uninteresting output
+	 * @return whether the walk is discriminating
+	 */
+	private boolean addSample(Walk potentiallyDiscriminating, List<ResetTimedTrace> restarts, int tries) {
+		for (ResetTimedTrace restart : restarts)
+			tree.addObservationTrace(restart);
+		if (!potentiallyDiscriminating.trace.lastOutput().equals(uninterestingOutput)) {
+			candidates.add(potentiallyDiscriminating.trace);
+		}
+		tree.addObservationTrace(potentiallyDiscriminating.trace);
+		sampledTraces.add(FastImmPair.of(potentiallyDiscriminating.trace, potentiallyDiscriminating.source));
+		boolean isDiscriminating = potentiallyDiscriminating.discriminating;
+		if (isDiscriminating){
+			System.out.println("We have a discriminating test after " + (tries +1) + " tries: ");
+		}
+		return isDiscriminating;
+	}
+
+	private Optional<ResetTimedTrace> searchForDiscriminatingTestParallel(PTA hypo) {
+		int partition = nrTest / 2;
+		int nrWorkers = sulPool.size();
+		int batchSize = nrWorkers * WALKS_PER_WORKER;
+		long poolSeed = random.nextLong();
+		try {
+			return searchForDiscriminatingTestParallel(hypo, partition, nrWorkers, batchSize);
+		} finally {
+			try {
+				sulPool.init(poolSeed);
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	private Optional<ResetTimedTrace> searchForDiscriminatingTestParallel(PTA hypo, int partition, int nrWorkers,
+																		  int batchSize) {
+		candidates = new ArrayList<>();
+		candidates.add(ResetTimedTrace.empty(Output.create(sul.reset())));
+		for (int first = 0; first < nrTest; first += batchSize) {
+			int size = Math.min(batchSize, nrTest - first);
+			int firstTest = first;
+			List<ResetTimedTrace> batchCandidates = new ArrayList<>(candidates);
+			long[] seeds = new long[size];
+			for (int i = 0; i < size; i++)
+				seeds[i] = random.nextLong();
+			List<Walk> results = new ArrayList<>(Collections.nCopies(size, null));
+			List<List<ResetTimedTrace>> restarts = new ArrayList<>(Collections.nCopies(size, null));
+			// lowest index of a discriminating walk found so far
+			AtomicInteger discriminating = new AtomicInteger(size);
+			List<Future<?>> futures = new ArrayList<>();
+			for (int w = 0; w < Math.min(nrWorkers, size); w++) {
+				int worker = w;
+				futures.add(workers.submit(() -> {
+					SUL workerSul = sulPool.get(worker);
+					for (int i = worker; i < size && i < discriminating.get(); i += nrWorkers) {
+						List<ResetTimedTrace> walkRestarts = new ArrayList<>();
+						Walk result = findDiscriminatingTestSingle(workerSul,
+								new Random(seeds[i]), batchCandidates, walkRestarts, hypo, firstTest + i < partition);
+						restarts.set(i, walkRestarts);
+						results.set(i, result);
+						if (result.discriminating)
+							discriminating.accumulateAndGet(i, Math::min);
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				try {
+					future.get();
+				} catch (InterruptedException | ExecutionException e) {
+					throw new RuntimeException(e);
+				}
+			}
+			// all walks up to the first discriminating one have been executed
+			for (int i = 0; i < size && i <= discriminating.get(); i++) {
+				if (addSample(results.get(i), restarts.get(i), first + i))
+					return Optional.of(results.get(i).trace);
+			}
+		}
+		return Optional.empty();
+	}
+
+	/**
+	 * Perform a single random walk on the given SUL.
+	 * 
+	 * @param candidates traces whose prefixes may be followed by the walk
+	 * @param restarts collects the traces that ended in the uninteresting output, after which 
+	 * the walk was restarted
+	 */
+	private Walk findDiscriminatingTestSingle(SUL sul, Random random,
+			List<ResetTimedTrace> candidates, List<ResetTimedTrace> restarts, PTA hypo, boolean randomSample) {
 		ResetTimedTrace selectedTrace = candidates.get(random.nextInt(candidates.size()));
 		int minSampleSize = randomSample ? 1 : selectedTrace.length();
 
 		Location currentHypState = hypo.getInitial();
+		// location of the hypothesis before the last input of the walk
+		Location sourceHypState = null;
 		ResetTimedTrace currenTrace = ResetTimedTrace.empty(Output.create(sul.reset()));
 		double currentLogicalTime = 0.0;
 		int tries = 1;
 		do {
 			TimedInput delayTimedInput;
 			if (randomSample || currenTrace.length() >= selectedTrace.length()) {
-				delayTimedInput = chooseRandomInput(currentLogicalTime);
+				delayTimedInput = chooseRandomInput(random, currentLogicalTime);
 			} else {
 				TimedInput selectedLogicalTimedInput = selectedTrace.getIthInput(currenTrace.length());
-				delayTimedInput = TimedInput.create(selectedLogicalTimedInput.getInput().getSymbol(), selectedLogicalTimedInput.getClockVal() - currentLogicalTime);
+				delayTimedInput = TimedInput.ofTicks(selectedLogicalTimedInput.getInput().getSymbol(),
+						selectedLogicalTimedInput.getTicks() - ClockTicks.toTicks(currentLogicalTime));
 			}
 			FastImmPair<Boolean, String> sulOutput = sul.execute(delayTimedInput.getInput().getSymbol(), delayTimedInput.getClockVal());
 			if (sulOutput == null) {
@@ -146,20 +286,21 @@ public class RandomTesting {
 				throw new Error("delay time selected incorrect");
 			}
 			currenTrace = currenTrace.append(FastImmPair.of(logicalTimedInput, nextSulOutput));
+			sourceHypState = currentHypState;
 			Optional<Location> nextHypState = executeHyp(currentHypState, logicalTimedInput, nextSulOutput);
 			if (nextHypState.isEmpty()) {
 				if (leadsToChaos(currentHypState, logicalTimedInput))
 					if(!stopAtCex)
-						return FastImmPair.of(extendedRandom(currenTrace), false);
+						return new Walk(extendedRandom(sul, random, currenTrace), null, false);
 					else
-						return FastImmPair.of(currenTrace, false);
+						return new Walk(currenTrace, sourceHypState, false);
 				else{
 //						while (executeHyp(currentHypState, logicalTimedInput, nextSulOutput).isEmpty()) {
 //							executeTraceOnSUL(currenTrace);
 //							double nextRegion = logicalTimedInput.getClockVal() -
 //						}
 
-						return FastImmPair.of(currenTrace, true);
+						return new Walk(currenTrace, sourceHypState, true);
 					}
 			}
 			// inconsistent with selected trace
@@ -172,20 +313,36 @@ public class RandomTesting {
 			currentHypState = nextHypState.get();
 			// 设置参数控制不感兴趣的采样
 			if (currentHypState.getLabel().equals(uninterestingOutput) && tries < uninterestingSamplesThreshold) {
-				tree.addObservationTrace(currenTrace);
+				restarts.add(currenTrace);
 				tries++;
 				currenTrace = ResetTimedTrace.empty(Output.create(sul.reset()));
 				currentHypState = hypo.getInitial();
 				currentLogicalTime = 0.0;
 			}
 		} while (!currentHypState.getLabel().equals(uninterestingOutput) && (random.nextDouble() < stopProb || currenTrace.length() <= minSampleSize));
-		return FastImmPair.of(currenTrace, false);
+		return new Walk(currenTrace, sourceHypState, false);
+	}
+
+	/**
+	 * Trace of a random walk, the location of the hypothesis before its last input and whether 
+	 * the trace is discriminating.
+	 */
+	private static class Walk {
+		private final ResetTimedTrace trace;
+		private final Location source;
+		private final boolean discriminating;
+
+		private Walk(ResetTimedTrace trace, Location source, boolean discriminating) {
+			this.trace = trace;
+			this.source = source;
+			this.discriminating = discriminating;
+		}
 	}
 
 	private void executeTraceOnSUL(ResetTimedTrace trace) {
 		boolean flag = true;
 		while (flag) {
-			double clockVal = 0;
+			int clockTicks = 0;
 			sul.reset();
 			if (trace.length() == 1) {
 				return;
@@ -194,15 +351,15 @@ public class RandomTesting {
 			int length = steps.size();
 			for (FastImmPair<TimedInput, TimedOutput> step :
 					steps) {
-				TimedInput delayTimedInput = new TimedInput(step.left.getInput(), step.left.getClockVal() - clockVal);
+				TimedInput delayTimedInput = new TimedInput(step.left.getInput(), step.left.getTicks() - clockTicks);
 				FastImmPair<Boolean, String> sulOutput = sul.execute(delayTimedInput.getInput().getSymbol(), delayTimedInput.getClockVal());
 				if (step.right.isReset() == sulOutput.getLeft() && step.right.getOutput().getSymbol().equals(sulOutput.right)) {
 					break;
 				}
 				if (sulOutput.left) {
-					clockVal = 0;
+					clockTicks = 0;
 				} else {
-					clockVal = step.left.getClockVal();
+					clockTicks = step.left.getTicks();
 				}
 				length--;
 			}
@@ -210,10 +367,10 @@ public class RandomTesting {
 		}
 	}
 
-	private ResetTimedTrace extendedRandom(ResetTimedTrace currenTrace) {
+	private ResetTimedTrace extendedRandom(SUL sul, Random random, ResetTimedTrace currenTrace) {
 		double currentLogicalTime = currenTrace.getLastOutput().isReset() ? 0.0 : currenTrace.getIthInput(currenTrace.length()-1).getClockVal();
 		do {
-			TimedInput delayTimedInput = chooseRandomInput(currentLogicalTime);
+			TimedInput delayTimedInput = chooseRandomInput(random, currentLogicalTime);
 			FastImmPair<Boolean, String> output = sul.execute(delayTimedInput.getInput().getSymbol(), delayTimedInput.getClockVal());
 			if (output == null)
 				return currenTrace;
@@ -230,7 +387,7 @@ public class RandomTesting {
 			return false;
 		}
 		for (Transition t : currentHypState.getTransitions().get(timedInput.getInput())) {
-			if (t.getGuard().enableAction(timedInput.getClockVal()) && t.getTarget().getLabel().equals(Output.chaos())) {
+			if (t.getGuard().enableAction(timedInput) && t.getTarget().getLabel().equals(Output.chaos())) {
 				return true;
 			}
 		}
@@ -239,7 +396,7 @@ public class RandomTesting {
 
 	protected boolean leadsToSink(Location currentHypState, TimedInput timedInput) {
 		for (Transition t : currentHypState.getTransitions().get(timedInput.getInput())) {
-			if (t.getGuard().enableAction(timedInput.getClockVal()) && t.getTarget().getLabel().equals(Output.chaos()))
+			if (t.getGuard().enableAction(timedInput) && t.getTarget().getLabel().equals(Output.chaos()))
 				return true;
 		}
 		return false;
@@ -251,7 +408,7 @@ public class RandomTesting {
 			System.out.println(currentHypState.getTransitions());
 		} else {
 			for (Transition t : transForInput) {
-				if (t.getGuard().enableAction(timedInput.getClockVal())
+				if (t.getGuard().enableAction(timedInput)
 						&& t.isReset() == nextSulOutput.isReset()
 						&& t.getTarget().getLabel().equals(nextSulOutput.getOutput()))
 					return Optional.of(t.getTarget());
@@ -260,16 +417,17 @@ public class RandomTesting {
 		return Optional.empty();
 	}
 
-	protected TimedInput chooseRandomInput(double currentLogicalTime) {
+	protected TimedInput chooseRandomInput(Random random, double currentLogicalTime) {
 		Input input = inputList.get(random.nextInt(inputList.size()));
+		// even regions are integers, odd regions the open intervals between them, which are
+		// represented by their lower integer plus the region normalization
 		int base = (int) Math.ceil(currentLogicalTime * 2);
-		double randomLogicalTime = base + random.nextInt(2 * bound - base);
-		if (randomLogicalTime % 2 == 1) {
-			randomLogicalTime = Math.floor(randomLogicalTime / 2) + regionNormalization;
-		} else {
-			randomLogicalTime /= 2;
+		int region = base + random.nextInt(2 * bound - base);
+		int randomLogicalTicks = (region / 2) * ClockTicks.TICKS_PER_UNIT;
+		if (region % 2 == 1) {
+			randomLogicalTicks += ClockTicks.toTicks(regionNormalization);
 		}
-		return TimedInput.create(input.getSymbol(), randomLogicalTime - currentLogicalTime);
+		return TimedInput.ofTicks(input.getSymbol(), randomLogicalTicks - ClockTicks.toTicks(currentLogicalTime));
 	}
 
 	public boolean isStopAtCex() {
@@ -0,0 +1,25 @@
+package base.teacher.oracle;
+
+import trace.TimedIncompleteTrace;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Decides which of the incomplete traces of a refine query the queries of a batch start with.
+ * Without a scheduler, {@link OutputOracle} starts every query of the batch with a trace chosen
+ * uniformly at random.
+ */
+public interface RefineScheduler {
+
+    /**
+     * @param traces    incomplete traces to be refined, a trace occurring several times is
+     *                  needed for several cells of the learner
+     * @param ambiguous traces whose cells the learner could not assign unambiguously
+     * @param batchSize maximum number of queries
+     * @return the traces the queries start with, one per query
+     */
+    List<TimedIncompleteTrace> schedule(List<TimedIncompleteTrace> traces, Set<TimedIncompleteTrace> ambiguous,
+                                        int batchSize, Random random);
+}
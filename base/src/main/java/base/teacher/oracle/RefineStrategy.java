@@ -0,0 +1,8 @@
+package base.teacher.oracle;
+
+/**
+ * Strategies for choosing the traces of refine queries, see {@link RefineScheduler}.
+ */
+public enum RefineStrategy {
+    UNIFORM, DEFICIT, AMBIGUITY;
+}
@@ -52,12 +52,12 @@ public class ShortTraceToChaosGenerator {
 				List<Double> endpointsOfGuard = succ.getGuard().getEndpoints(regionNormalization);
 				if(succ.getTarget().getLabel().equals(Output.chaos())){
 					for (double endpoint : endpointsOfGuard) {
-						tracesToChaos.add((TimedIncompleteTrace) currentTrace.append(FastImmPair.of(currentState.getLabel(), TimedInput.create(succ.getInput().getSymbol(), endpoint))));
+						tracesToChaos.add(currentTrace.append(FastImmPair.of(currentState.getLabel(), TimedInput.create(succ.getInput().getSymbol(), endpoint))));
 					}
 				}
 				else if(!visited.contains(succ.getTarget())){
 					schedule.add(FastImmPair.of(succ.getTarget(),
-							(TimedIncompleteTrace) currentTrace.append(FastImmPair.of(currentState.getLabel(), TimedInput.create(succ.getInput().getSymbol(), endpointsOfGuard.get(0))))));
+							currentTrace.append(FastImmPair.of(currentState.getLabel(), TimedInput.create(succ.getInput().getSymbol(), endpointsOfGuard.get(0))))));
 				}
 			}
 		}
@@ -0,0 +1,76 @@
+package base.teacher.oracle;
+
+import automaton.Output;
+import trace.TimedIncompleteTrace;
+import trace.TimedInput;
+import utils.FastImmPair;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Prefix trie over the steps, i.e. pairs of output and timed input, of the traces performed by
+ * refine queries. A node at depth <code>n</code> stores the traces passing through it grouped
+ * by the output of their step <code>n + 1</code>, which is the output that
+ * {@link OutputOracle} matches when it switches to another trace after <code>n</code> steps.
+ * Such a trace is found by following the performed steps and sampling from a list, instead of
+ * comparing the performed steps with every trace. The trie is not modified after it has been
+ * built and may be shared between threads.
+ */
+class TraceTrie {
+    private final List<TimedIncompleteTrace> traces;
+    private final Node root = new Node();
+
+    TraceTrie(List<TimedIncompleteTrace> traces) {
+        this.traces = traces;
+        for (TimedIncompleteTrace trace : traces) {
+            List<FastImmPair<Output, TimedInput>> steps = trace.getSteps();
+            Node node = root;
+            for (int i = 0; i < steps.size(); i++) {
+                if (i + 1 < steps.size())
+                    node.tracesByOutput.computeIfAbsent(steps.get(i + 1).left, o -> new ArrayList<>()).add(trace);
+                node = node.children.computeIfAbsent(steps.get(i), s -> new Node());
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        return traces.isEmpty();
+    }
+
+    TimedIncompleteTrace choose(Random random) {
+        return traces.get(random.nextInt(traces.size()));
+    }
+
+    Node getRoot() {
+        return root;
+    }
+
+    static class Node {
+        private final Map<FastImmPair<Output, TimedInput>, Node> children = new HashMap<>();
+        private final Map<Output, List<TimedIncompleteTrace>> tracesByOutput = new HashMap<>();
+
+        /**
+         * @return node reached by the step, or null if no trace performs the step here
+         */
+        Node getChild(FastImmPair<Output, TimedInput> step) {
+            return children.get(step);
+        }
+
+        /**
+         * Choose one of the traces passing through this node uniformly at random among those
+         * with the given output after their next step.
+         *
+         * @return the chosen trace, or null if there is none
+         */
+        TimedIncompleteTrace chooseWithOutput(Output output, Random random) {
+            List<TimedIncompleteTrace> candidates = tracesByOutput.get(output);
+            if (candidates == null)
+                return null;
+            return candidates.get(random.nextInt(candidates.size()));
+        }
+    }
+}
@@ -33,7 +33,6 @@ import utils.FastImmPair;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Equivalence query strategy that checks for conformance between the multiset of system traces 
@@ -72,45 +71,114 @@ public class TreeBasedDistributionCexFinder {
 		return findCexBFS(root, currentTrace, hypo);
 	}
 
+	/**
+	 * Breadth-first search through the complete nodes of the tree, which traverses the 
+	 * hypothesis along with the tree. Every queued node carries the location of the hypothesis 
+	 * from which its last input is executed, so the distribution of the hypothesis after a 
+	 * trace is computed from the location of the parent instead of executing the whole trace. 
+	 * Traces are only created for the counterexample that is returned.
+	 */
 	private ResetTimedTrace findCexBFS(Node root, ResetTimedIncompleteTrace empty, PTA hypo) {
-		LinkedList<FastImmPair<Node, ResetTimedIncompleteTrace>> schedule = new LinkedList<>();
-		schedule.add(FastImmPair.of(root, empty));
+		ArrayDeque<SearchNode> schedule = new ArrayDeque<>();
+		schedule.add(new SearchNode(root, null, null, null));
 		while(!schedule.isEmpty()){
-			FastImmPair<Node, ResetTimedIncompleteTrace> current = schedule.removeFirst();
-			Node currentNode = current.getLeft();
-			ResetTimedIncompleteTrace currentTrace = current.getRight();
+			SearchNode current = schedule.removeFirst();
+			Node currentNode = current.node;
 			if(!currentNode.isComplete())
 				continue;
+			// the parent's output could not be produced by the hypothesis
+			if (current.shortCex)
+				return new ResetTimedTrace(current.parent.trace(), current.step.left);
 			Map<TimedOutput, Integer> treeFreqs = currentNode.getOutputFrequencies();
-			FastImmPair<Map<TimedOutput, Integer>, Optional<ResetTimedTrace>> hypoDistAndLen =
-					getDistributionAfterTrace(hypo, currentTrace);
-			boolean spuriousCex = false;
-			// skip empty trace && 
-			// null signals chaos
-			if (currentTrace.length() > 0 && hypoDistAndLen.getRight() != null) {
-				// short cex, i.e. output possible in tree but not in Hyp.
-				if (hypoDistAndLen.getRight().isPresent()) {
-					 // transform to RowTrace
-					return hypoDistAndLen.getRight().get();
-				} else { 
+			List<Transition> trans = null;
+			// skip empty trace && chaos
+			if (current.step != null && current.location != null) {
+				trans = enabledTransitions(current.location, current.step.right);
+				if (!leadsToChaos(trans)) {
 					// now we need to check whether this trace is a long cex, i.e. 
 					// if it shows incompatibility 
-					if (!compChecker.compatible(hypoDistAndLen.getLeft(), treeFreqs)) {
-						return new ResetTimedTrace(currentTrace, treeFreqs.keySet().iterator().next());
+					if (!compChecker.compatible(distribution(trans), treeFreqs)) {
+						return new ResetTimedTrace(current.trace(), treeFreqs.keySet().iterator().next());
 					}
+				} else {
+					trans = null;
 				}
 			}
 			// if we did not find a spurious cex then we carry on with search
 			for (FastImmPair<TimedOutput, TimedInput> succSymbol : currentNode.getSuccSymbols()) {
 				Node nextNode = currentNode.getChild(succSymbol);
-				ResetTimedIncompleteTrace nextTrace = (ResetTimedIncompleteTrace) currentTrace.append(succSymbol);
-				schedule.add(FastImmPair.of(nextNode, nextTrace));
+				if (current.step == null) {
+					// the first input is executed in the initial location
+					schedule.add(new SearchNode(nextNode, current, succSymbol, hypo.getInitial()));
+				} else if (trans == null) {
+					// chaos is reached, so the hypothesis is not checked below this node
+					schedule.add(new SearchNode(nextNode, current, succSymbol, null));
+				} else {
+					Location next = target(trans, succSymbol.left);
+					SearchNode nextSearchNode = new SearchNode(nextNode, current, succSymbol, next);
+					nextSearchNode.shortCex = next == null;
+					schedule.add(nextSearchNode);
+				}
 			}
 		}
 		
 		return null;
 	}
 
+	/**
+	 * Node of the observation tree queued by the breadth-first search, together with the step 
+	 * leading to it and the location of the hypothesis in which the input of the step is 
+	 * executed. The location is null if chaos has been reached before or if the output of the 
+	 * previous step is not possible in the hypothesis, which makes the node a short cex.
+	 */
+	private static class SearchNode {
+		private final Node node;
+		private final SearchNode parent;
+		private final FastImmPair<TimedOutput, TimedInput> step;
+		private final Location location;
+		private boolean shortCex = false;
+
+		private SearchNode(Node node, SearchNode parent, FastImmPair<TimedOutput, TimedInput> step, Location location) {
+			this.node = node;
+			this.parent = parent;
+			this.step = step;
+			this.location = location;
+		}
+
+		private ResetTimedIncompleteTrace trace() {
+			List<FastImmPair<TimedOutput, TimedInput>> steps = new ArrayList<>();
+			for (SearchNode current = this; current.step != null; current = current.parent)
+				steps.add(current.step);
+			Collections.reverse(steps);
+			return new ResetTimedIncompleteTrace(steps);
+		}
+	}
+
+	private static List<Transition> enabledTransitions(Location location, TimedInput input) {
+		List<Transition> enabled = new ArrayList<>();
+		for (Transition transition : location.getTransitions().get(input.getInput())) {
+			if (transition.getGuard().enableAction(input))
+				enabled.add(transition);
+		}
+		return enabled;
+	}
+
+	private static Map<TimedOutput, Integer> distribution(List<Transition> trans) {
+		Map<TimedOutput, Integer> outputDist = new HashMap<>();
+		for (Transition t : trans) {
+			outputDist.put(TimedOutput.create(t.isReset(), t.getTarget().getLabel().getSymbol()), t.getFrequency());
+		}
+		return outputDist;
+	}
+
+	private static Location target(List<Transition> trans, TimedOutput output) {
+		for (Transition t : trans) {
+			if (t.isReset() == output.isReset() && t.getTarget().getLabel().equals(output.getOutput()))
+				return t.getTarget();
+		}
+		return null;
+	}
+
 //	private boolean extractDistSuffix(ResetTimedIncompleteTrace cex, ObservationTable obsTable, MDP hypo) {
 //		obsTable.ensureConsistencyWithTree();
 //		for(int splitPos = 1; splitPos < cex.length(); splitPos++){
@@ -151,40 +219,7 @@ public class TreeBasedDistributionCexFinder {
 //		return obsTable.outputFrequenciesForTrace(trace);
 //	}
 
-	private static FastImmPair<Map<TimedOutput, Integer>, Optional<ResetTimedTrace>> getDistributionAfterTrace(PTA hypo,
-			ResetTimedIncompleteTrace trace) {
-		Location current = hypo.getInitial();
-		Map<TimedOutput, Integer> outputDist = null;
-		int i = 0;
-		for (i = 0; i < trace.length(); i++) {
-			FastImmPair<TimedOutput, TimedInput> currentStep = trace.get(i);
-			assert current != null;
-			Set<Transition> trans = current.getTransitions().get(currentStep.getRight().getInput()).stream().filter(transition -> transition.getGuard().enableAction(currentStep.right.getClockVal()))
-					.collect(Collectors.toSet());
-			outputDist = new HashMap<>();
-			for (Transition t : trans) {
-				outputDist.put(TimedOutput.create(t.isReset(), t.getTarget().getLabel().getSymbol()), t.getFrequency());
-			}
-		
-			if (leadsToChaos(trans))
-				return FastImmPair.of(outputDist, null);
-			current = null;
-			if (i + 1 < trace.length()) {
-				TimedOutput nextOutput = trace.get(i + 1).getLeft();
-				for (Transition t : trans) {
-					if (t.isReset() == nextOutput.isReset() && t.getTarget().getLabel().equals(nextOutput.getOutput())) {
-						current = t.getTarget();
-						break;
-					}
-				}
-				if (current == null) // index + 1 = length of prefix
-					return FastImmPair.of(outputDist, Optional.<ResetTimedTrace>of(new ResetTimedTrace((ResetTimedIncompleteTrace) trace.prefix(i+1), nextOutput)));
-			}
-		}
-		return FastImmPair.of(outputDist, Optional.empty());
-	}
-
-	private static boolean leadsToChaos(Set<Transition> trans) {
+	private static boolean leadsToChaos(List<Transition> trans) {
 		return trans.size() == 1 && trans.iterator().next().getTarget().getLabel().equals(Output.chaos());
 	}
 }
@@ -0,0 +1,141 @@
+package base;
+
+import org.junit.Test;
+import utils.FrequencyVector;
+import utils.SymbolTable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CompatibilityTest {
+    private static final double ALPHA = 0.05;
+    private static final int MAX_OUTPUTS = 300;
+
+    @Test
+    public void vectorsAreComparedLikeMaps() {
+        Random random = new Random(3);
+        SymbolTable<Integer> table = new SymbolTable<>();
+        for (boolean sameSupportCheck : new boolean[]{false, true}) {
+            Compatibility compatibility = new Compatibility(ALPHA, false, sameSupportCheck);
+            for (int n = 0; n < 1000; n++) {
+                Map<Integer, Integer> frequencies1 = randomFrequencies(random);
+                Map<Integer, Integer> frequencies2 = randomFrequencies(random);
+                boolean expected = compatibility.compatible(frequencies1, frequencies2);
+                assertEquals(expected, compatibility.compatible(FrequencyVector.copyOf(frequencies1, table),
+                        FrequencyVector.copyOf(frequencies2, table)));
+                // vectors over different tables are compared by their symbols
+                assertEquals(expected, compatibility.compatible(FrequencyVector.copyOf(frequencies1, table),
+                        FrequencyVector.copyOf(frequencies2, new SymbolTable<>())));
+            }
+        }
+    }
+
+    @Test
+    public void samplesOfTheSameDistributionAreRarelySeparated() {
+        Compatibility compatibility = new Compatibility(ALPHA, false, true, true);
+        Random random = new Random(1);
+        double[] distribution = {0.5, 0.3, 0.2};
+        int nrRuns = 2000;
+        int nrSeparated = 0;
+        for (int run = 0; run < nrRuns; run++) {
+            if (separatedAfter(compatibility, random, distribution, distribution) > 0)
+                nrSeparated++;
+        }
+        // the test is repeated after every output and still keeps the error level of one test
+        assertTrue(nrSeparated + " of " + nrRuns, nrSeparated <= ALPHA * nrRuns);
+    }
+
+    @Test
+    public void samplesOfMOutputsAreComparedAtTheLevelOfM() {
+        Compatibility compatibility = new Compatibility(ALPHA, false, true, true);
+        for (int m : new int[]{1, 10, 100, 1000}) {
+            double level = ALPHA / ((double) m * (m + 1));
+            double epsilon = Math.sqrt(Math.log(2 / level) / (2 * m));
+            for (int d = 0; d <= m; d++) {
+                Map<String, Integer> frequencies1 = new HashMap<>();
+                frequencies1.put("a", m);
+                Map<String, Integer> frequencies2 = new HashMap<>();
+                frequencies2.put("a", m - d);
+                frequencies2.put("b", d);
+                assertEquals("m=" + m + ", d=" + d, (double) d / m >= 2 * epsilon,
+                        compatibility.separated(frequencies1, frequencies2));
+            }
+        }
+    }
+
+    @Test
+    public void samplesOfDifferentDistributionsAreSeparatedEarly() {
+        Compatibility compatibility = new Compatibility(ALPHA, false, true, true);
+        Random random = new Random(2);
+        for (int run = 0; run < 100; run++) {
+            int nrOutputs = separatedAfter(compatibility, random, new double[]{0.9, 0.1}, new double[]{0.1, 0.9});
+            assertTrue(nrOutputs > 0 && nrOutputs < 100);
+        }
+    }
+
+    @Test
+    public void outputsThatWereNotObservedDoNotSeparate() {
+        Compatibility compatibility = new Compatibility(ALPHA, false, true, true);
+        Map<String, Integer> frequencies1 = new HashMap<>();
+        frequencies1.put("a", 1000);
+        Map<String, Integer> frequencies2 = new HashMap<>(frequencies1);
+        frequencies2.put("b", 1);
+        // the same-support check of the complete comparison already fails
+        assertFalse(compatibility.compatible(frequencies1, frequencies2));
+        assertFalse(compatibility.separated(frequencies1, frequencies2));
+        assertFalse(compatibility.separated(frequencies1, new HashMap<>()));
+    }
+
+    @Test
+    public void onlySequentialCheckersSeparate() {
+        Map<String, Integer> frequencies1 = new HashMap<>();
+        frequencies1.put("a", 1000);
+        Map<String, Integer> frequencies2 = new HashMap<>();
+        frequencies2.put("b", 1000);
+        assertTrue(new Compatibility(ALPHA, false, true, true).separated(frequencies1, frequencies2));
+        assertFalse(new Compatibility(ALPHA, false, true).separated(frequencies1, frequencies2));
+    }
+
+    /**
+     * Draw outputs from both distributions in turns and test after every output.
+     *
+     * @return number of outputs drawn from each distribution until the samples were
+     * separated, or 0 if they were not separated after {@link #MAX_OUTPUTS} outputs
+     */
+    private static int separatedAfter(Compatibility compatibility, Random random, double[] distribution1,
+                                      double[] distribution2) {
+        Map<Integer, Integer> frequencies1 = new HashMap<>();
+        Map<Integer, Integer> frequencies2 = new HashMap<>();
+        for (int n = 1; n <= MAX_OUTPUTS; n++) {
+            frequencies1.merge(draw(random, distribution1), 1, Integer::sum);
+            if (compatibility.separated(frequencies1, frequencies2))
+                return n;
+            frequencies2.merge(draw(random, distribution2), 1, Integer::sum);
+            if (compatibility.separated(frequencies1, frequencies2))
+                return n;
+        }
+        return 0;
+    }
+
+    private static Map<Integer, Integer> randomFrequencies(Random random) {
+        Map<Integer, Integer> frequencies = new HashMap<>();
+        for (int output = 0; output < 4; output++) {
+            if (random.nextInt(4) > 0)
+                frequencies.put(output, random.nextInt(20) + 1);
+        }
+        return frequencies;
+    }
+
+    private static int draw(Random random, double[] distribution) {
+        double p = random.nextDouble();
+        for (int output = 0; output < distribution.length - 1; output++) {
+            if (p < distribution[output])
+                return output;
+            p -= distribution[output];
+        }
+        return distribution.length - 1;
+    }
+}
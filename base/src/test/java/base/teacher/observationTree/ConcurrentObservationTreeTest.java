@@ -0,0 +1,80 @@
+package base.teacher.observationTree;
+
+import automaton.Input;
+import automaton.Output;
+import org.junit.Test;
+import trace.ResetTimedTrace;
+import trace.TimedInput;
+import trace.TimedOutput;
+import utils.FastImmPair;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentObservationTreeTest {
+    private static final int NR_THREADS = 8;
+    private static final int NR_TRACES = 40000;
+
+    @Test
+    public void concurrentInsertionsCountLikeSequentialInsertions() throws Exception {
+        List<ResetTimedTrace> traces = traces(new Random(1));
+        ObservationTree sequential = new ObservationTree(inputs(), new ThresholdCompleteness(20));
+        sequential.addObservationTraces(traces);
+
+        ConcurrentObservationTree concurrent = new ConcurrentObservationTree(inputs(), new ThresholdCompleteness(20));
+        ExecutorService executor = Executors.newFixedThreadPool(NR_THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < NR_THREADS; t++) {
+            List<ResetTimedTrace> part = traces.subList(t * NR_TRACES / NR_THREADS, (t + 1) * NR_TRACES / NR_THREADS);
+            results.add(executor.submit(() -> {
+                start.await();
+                int nrComplete = 0;
+                for (ResetTimedTrace trace : part) {
+                    if (concurrent.addObservationTrace(trace))
+                        nrComplete++;
+                    // queries run alongside the insertions of the other threads
+                    concurrent.outputFrequenciesAndCompleteness(trace.dropLastOutput().convert().getSteps());
+                }
+                return nrComplete;
+            }));
+        }
+        start.countDown();
+        for (Future<Integer> result : results)
+            result.get();
+        executor.shutdown();
+
+        assertSameNodes(sequential.getRoot(), concurrent.getRoot());
+        assertEquals(sequential.findIncomplete().size(), concurrent.findIncomplete().size());
+    }
+
+    private static void assertSameNodes(Node expected, Node actual) {
+        assertEquals(new HashMap<>(expected.getOutputFrequencies()), new HashMap<>(actual.getOutputFrequencies()));
+        assertEquals(expected.getOverallNrOutputs(), actual.getOverallNrOutputs());
+        assertEquals(expected.isComplete(), actual.isComplete());
+        assertEquals(expected.getSuccSymbols(), actual.getSuccSymbols());
+        for (FastImmPair<TimedOutput, TimedInput> step : expected.getSuccSymbols())
+            assertSameNodes(expected.getChild(step), actual.getChild(step));
+    }
+
+    private static List<ResetTimedTrace> traces(Random random) {
+        List<ResetTimedTrace> traces = new ArrayList<>();
+        for (int n = 0; n < NR_TRACES; n++) {
+            List<FastImmPair<TimedInput, TimedOutput>> steps = new ArrayList<>();
+            int length = 1 + random.nextInt(4);
+            for (int i = 0; i < length; i++) {
+                TimedInput input = TimedInput.create(random.nextBoolean() ? "a" : "b", random.nextInt(3));
+                TimedOutput output = TimedOutput.create(random.nextInt(4) == 0, random.nextBoolean() ? "y" : "z");
+                steps.add(FastImmPair.of(input, output));
+            }
+            traces.add(new ResetTimedTrace(Output.create("x"), steps));
+        }
+        return traces;
+    }
+
+    private static Set<Input> inputs() {
+        return new HashSet<>(Arrays.asList(Input.create("a"), Input.create("b")));
+    }
+}
@@ -0,0 +1,84 @@
+package base.teacher.observationTree;
+
+import automaton.Input;
+import automaton.Output;
+import org.junit.Test;
+import trace.ResetTimedTrace;
+import trace.TimedInput;
+import trace.TimedOutput;
+import utils.FastImmPair;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class NodeTest {
+    private static final String[] INPUTS = {"a", "b"};
+    // z always resets the clock, w is never observed
+    private static final String[] OUTPUTS = {"x", "y", "z", "w"};
+
+    @Test
+    public void indexedChildrenAreTheChildrenFoundByScanning() {
+        Random random = new Random(1);
+        Set<Input> inputs = new HashSet<>();
+        for (String input : INPUTS)
+            inputs.add(Input.create(input));
+        ObservationTree tree = new ObservationTree(inputs);
+        for (int i = 0; i < 300; i++)
+            tree.addObservationTrace(randomTrace(random));
+
+        Deque<Node> nodes = new ArrayDeque<>(Collections.singletonList(tree.getRoot()));
+        int nrLookups = 0;
+        while (!nodes.isEmpty()) {
+            Node node = nodes.pop();
+            for (String output : OUTPUTS) {
+                for (String input : INPUTS) {
+                    for (int half = 0; half <= 4; half++) {
+                        FastImmPair<Output, TimedInput> step = FastImmPair.of(Output.create(output),
+                                TimedInput.create(input, half / 2.0));
+                        FastImmPair<Node, Boolean> expected = childByScanning(node, step);
+                        FastImmPair<Node, Boolean> child = node.getChildFromTimedStep(step);
+                        assertSame(expected.left, child.left);
+                        assertEquals(expected.right, child.right);
+                        nrLookups++;
+                    }
+                }
+            }
+            for (FastImmPair<TimedOutput, TimedInput> step : node.getSuccSymbols())
+                nodes.push(node.getChild(step));
+        }
+        assertTrue(nrLookups > 1000);
+    }
+
+    // the linear search over the children that the index replaced
+    private static FastImmPair<Node, Boolean> childByScanning(Node node, FastImmPair<Output, TimedInput> step) {
+        Boolean reset = null;
+        for (FastImmPair<TimedOutput, TimedInput> child : node.getSuccSymbols()) {
+            if (child.left.getOutput().equals(step.left)) {
+                reset = child.left.isReset();
+                if (child.right.equals(step.right))
+                    return FastImmPair.of(node.getChild(child), reset);
+            }
+        }
+        if (reset == null) {
+            for (TimedOutput timedOutput : node.getOutputFrequencies().keySet()) {
+                if (timedOutput.getOutput().equals(step.left)) {
+                    reset = timedOutput.isReset();
+                    break;
+                }
+            }
+        }
+        return FastImmPair.of(null, reset);
+    }
+
+    private static ResetTimedTrace randomTrace(Random random) {
+        List<FastImmPair<TimedInput, TimedOutput>> steps = new ArrayList<>();
+        int length = random.nextInt(4);
+        for (int i = 0; i < length; i++) {
+            String output = OUTPUTS[random.nextInt(OUTPUTS.length - 1)];
+            steps.add(FastImmPair.of(TimedInput.create(INPUTS[random.nextInt(INPUTS.length)], random.nextInt(4) / 2.0),
+                    TimedOutput.create(output.equals("z"), output)));
+        }
+        return new ResetTimedTrace(Output.create(OUTPUTS[0]), steps);
+    }
+}
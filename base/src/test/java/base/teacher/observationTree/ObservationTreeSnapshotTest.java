@@ -0,0 +1,97 @@
+package base.teacher.observationTree;
+
+import automaton.Input;
+import automaton.Output;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import trace.ResetTimedTrace;
+import trace.TimedInput;
+import trace.TimedOutput;
+import utils.FastImmPair;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ObservationTreeSnapshotTest {
+    private static final String[] INPUTS = {"a", "b"};
+    private static final String[] OUTPUTS = {"x", "y", "z"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void reloadedTreeEqualsTheOriginal() throws IOException {
+        ObservationTree tree = randomTree(new Random(1), new ThresholdCompleteness(3));
+        Path path = folder.getRoot().toPath().resolve("tree.snapshot");
+        ObservationTreeSnapshot.write(tree, path);
+
+        ObservationTree reloaded = ObservationTreeSnapshot.read(path, new ThresholdCompleteness(3));
+        assertEquals(tree.getInputs(), reloaded.getInputs());
+        assertSameNodes(tree.getRoot(), reloaded.getRoot());
+
+        ObservationTree replaced = new ObservationTree(new HashSet<>(tree.getInputs()), new ThresholdCompleteness(3));
+        assertTrue(ObservationTreeSnapshot.read(path, replaced) > 1);
+        assertSameNodes(tree.getRoot(), replaced.getRoot());
+    }
+
+    @Test
+    public void reloadedTreeKeepsAddingTracesLikeTheOriginal() throws IOException {
+        ObservationTree tree = randomTree(new Random(2), new ThresholdCompleteness(3));
+        Path path = folder.getRoot().toPath().resolve("tree.snapshot");
+        ObservationTreeSnapshot.write(tree, path);
+        ObservationTree reloaded = ObservationTreeSnapshot.read(path, new ThresholdCompleteness(3));
+
+        Random random = new Random(3);
+        for (int i = 0; i < 100; i++) {
+            ResetTimedTrace trace = randomTrace(random);
+            assertEquals(tree.addObservationTrace(trace), reloaded.addObservationTrace(trace));
+        }
+        assertSameNodes(tree.getRoot(), reloaded.getRoot());
+    }
+
+    @Test(expected = IOException.class)
+    public void snapshotsOfAnotherCompletenessCriterionAreRejected() throws IOException {
+        ObservationTree tree = randomTree(new Random(4), new ThresholdCompleteness(3));
+        Path path = folder.getRoot().toPath().resolve("tree.snapshot");
+        ObservationTreeSnapshot.write(tree, path);
+        ObservationTreeSnapshot.read(path, new ThresholdCompleteness(4));
+    }
+
+    private static ObservationTree randomTree(Random random, CompletenessCriterion completeness) {
+        Set<Input> inputs = new HashSet<>();
+        for (String input : INPUTS)
+            inputs.add(Input.create(input));
+        ObservationTree tree = new ObservationTree(inputs, completeness);
+        for (int i = 0; i < 200; i++)
+            tree.addObservationTrace(randomTrace(random));
+        return tree;
+    }
+
+    private static ResetTimedTrace randomTrace(Random random) {
+        List<FastImmPair<TimedInput, TimedOutput>> steps = new ArrayList<>();
+        int length = random.nextInt(4);
+        for (int i = 0; i < length; i++) {
+            steps.add(FastImmPair.of(TimedInput.create(INPUTS[random.nextInt(INPUTS.length)], random.nextInt(4) / 2.0),
+                    TimedOutput.create(random.nextBoolean(), OUTPUTS[random.nextInt(OUTPUTS.length)])));
+        }
+        return new ResetTimedTrace(Output.create(OUTPUTS[0]), steps);
+    }
+
+    private static void assertSameNodes(Node expected, Node actual) {
+        assertEquals(new ArrayList<>(expected.getOutputFrequencies().entrySet()),
+                new ArrayList<>(actual.getOutputFrequencies().entrySet()));
+        for (TimedOutput output : expected.getOutputFrequencies().keySet())
+            assertEquals(expected.isFirstReset(output), actual.isFirstReset(output));
+        assertEquals(expected.getOverallNrOutputs(), actual.getOverallNrOutputs());
+        assertEquals(expected.isComplete(), actual.isComplete());
+        assertEquals(new ArrayList<>(expected.getSuccSymbols()), new ArrayList<>(actual.getSuccSymbols()));
+        for (FastImmPair<TimedOutput, TimedInput> step : expected.getSuccSymbols()) {
+            assertEquals(expected.isIndexed(step), actual.isIndexed(step));
+            assertSameNodes(expected.getChild(step), actual.getChild(step));
+        }
+    }
+}
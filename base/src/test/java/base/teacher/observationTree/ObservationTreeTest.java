@@ -0,0 +1,73 @@
+package base.teacher.observationTree;
+
+import automaton.Input;
+import automaton.Output;
+import base.learner.Answer;
+import org.junit.Test;
+import trace.ResetTimedTrace;
+import trace.TimedInput;
+import trace.TimedOutput;
+import utils.FastImmPair;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ObservationTreeTest {
+
+    @Test
+    public void outputIdsAreAssignedPerTree() {
+        ObservationTree first = tree();
+        first.addObservationTrace(trace("z"));
+        first.addObservationTrace(trace("y"));
+        ObservationTree second = tree();
+        second.addObservationTrace(trace("y"));
+        second.addObservationTrace(trace("z"));
+
+        assertNotSame(first.getOutputIds(), second.getOutputIds());
+        // frequencies iterate in the order the outputs were first observed by their own tree
+        assertEquals(Arrays.asList("z", "y"), outputs(first));
+        assertEquals(Arrays.asList("y", "z"), outputs(second));
+    }
+
+    @Test
+    public void answersCountOutputsInTheTableOfTheirTree() {
+        ObservationTree tree = tree();
+        tree.addObservationTrace(trace("y"));
+        Node child = tree.getRoot().getChild(FastImmPair.of(TimedOutput.createInit("x"), TimedInput.create("a", 1.0)));
+        assertSame(tree.getOutputIds(), child.getOutputFrequencies().getTable());
+    }
+
+    @Test
+    public void nodesAnswerLikeTheTracesLeadingToThem() {
+        ObservationTree tree = tree();
+        for (String output : new String[]{"y", "z", "y"})
+            tree.addObservationTrace(trace(output));
+        List<FastImmPair<Output, TimedInput>> steps = Collections.singletonList(
+                FastImmPair.of(Output.create("x"), TimedInput.create("a", 1.0)));
+        Node node = tree.getNode(steps);
+        assertSame(tree.getRoot().getChild(FastImmPair.of(TimedOutput.createInit("x"), TimedInput.create("a", 1.0))), node);
+        Answer expected = tree.outputFrequenciesAndCompleteness(steps);
+        Answer answer = tree.outputFrequenciesAndCompleteness(node);
+        assertEquals(expected.getFrequencies(), answer.getFrequencies());
+        assertEquals(expected.isComplete(), answer.isComplete());
+        assertNull(tree.getNode(Collections.singletonList(FastImmPair.of(Output.create("w"), TimedInput.create("a", 1.0)))));
+    }
+
+    private static ObservationTree tree() {
+        return new ObservationTree(new HashSet<>(Collections.singletonList(Input.create("a"))));
+    }
+
+    private static ResetTimedTrace trace(String output) {
+        return new ResetTimedTrace(Output.create("x"), Collections.singletonList(
+                FastImmPair.of(TimedInput.create("a", 1.0), TimedOutput.create(false, output))));
+    }
+
+    private static List<String> outputs(ObservationTree tree) {
+        Node child = tree.getRoot().getChild(FastImmPair.of(TimedOutput.createInit("x"), TimedInput.create("a", 1.0)));
+        List<String> outputs = new ArrayList<>();
+        for (TimedOutput output : child.getOutputFrequencies().keySet())
+            outputs.add(output.getOutput().getSymbol());
+        return outputs;
+    }
+}
@@ -0,0 +1,72 @@
+package base.teacher.observationTree;
+
+import automaton.Input;
+import automaton.Output;
+import org.junit.Test;
+import trace.ResetTimedTrace;
+import trace.TimedInput;
+import trace.TimedOutput;
+import utils.FastImmPair;
+
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class SequentialCompletenessTest {
+    private static final int THRESHOLD = 50;
+
+    @Test
+    public void deterministicNodesAreCompleteAfterTheSequentialBound() {
+        SequentialCompleteness completeness = new SequentialCompleteness(THRESHOLD);
+        // smallest n with 0.9^n <= 0.05
+        assertEquals(29, completeness.getDeterministicThreshold());
+        ObservationTree tree = tree(completeness);
+        assertEquals(THRESHOLD, completeness.missingOutputs(null));
+        for (int n = 1; n <= 29; n++) {
+            assertFalse(child(tree) != null && child(tree).isComplete());
+            tree.addObservationTrace(trace("y"));
+            assertEquals(n == 29, child(tree).isComplete());
+            assertEquals(29 - n, completeness.missingOutputs(child(tree)));
+        }
+    }
+
+    @Test
+    public void nodesWithSeveralOutputsAreCompleteAfterTheThreshold() {
+        SequentialCompleteness completeness = new SequentialCompleteness(THRESHOLD);
+        ObservationTree tree = tree(completeness);
+        tree.addObservationTrace(trace("z"));
+        // a single output is still estimated with the sequential bound
+        assertEquals(28, completeness.missingOutputs(child(tree)));
+        for (int n = 2; n <= THRESHOLD; n++) {
+            tree.addObservationTrace(trace("y"));
+            assertEquals(n == THRESHOLD, child(tree).isComplete());
+            assertEquals(THRESHOLD - n, completeness.missingOutputs(child(tree)));
+        }
+    }
+
+    @Test
+    public void theThresholdBoundsTheSequentialBound() {
+        assertEquals(10, new SequentialCompleteness(10).getDeterministicThreshold());
+        // 0.95^n <= 0.05 needs 59 outputs
+        assertEquals(THRESHOLD, new SequentialCompleteness(THRESHOLD, 0.05, 0.05).getDeterministicThreshold());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void probabilitiesOutsideOfTheUnitIntervalAreRejected() {
+        new SequentialCompleteness(THRESHOLD, 0, 0.05);
+    }
+
+    private static ObservationTree tree(CompletenessCriterion completeness) {
+        return new ObservationTree(new HashSet<>(Collections.singletonList(Input.create("a"))), completeness);
+    }
+
+    private static ResetTimedTrace trace(String output) {
+        return new ResetTimedTrace(Output.create("x"), Collections.singletonList(
+                FastImmPair.of(TimedInput.create("a", 1.0), TimedOutput.create(false, output))));
+    }
+
+    private static Node child(ObservationTree tree) {
+        return tree.getRoot().getChild(FastImmPair.of(TimedOutput.createInit("x"), TimedInput.create("a", 1.0)));
+    }
+}
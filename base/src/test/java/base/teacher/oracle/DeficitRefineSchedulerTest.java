@@ -0,0 +1,93 @@
+package base.teacher.oracle;
+
+import automaton.Input;
+import automaton.Output;
+import base.teacher.observationTree.ObservationTree;
+import base.teacher.observationTree.ThresholdCompleteness;
+import org.junit.Test;
+import trace.ResetTimedTrace;
+import trace.TimedIncompleteTrace;
+import trace.TimedInput;
+import trace.TimedOutput;
+import utils.FastImmPair;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class DeficitRefineSchedulerTest {
+    private static final TimedInput INPUT = TimedInput.create("a", 1.0);
+    // reaches the node with the outputs y (3 times) and z (once)
+    private static final TimedIncompleteTrace A = trace("x");
+    private static final TimedIncompleteTrace B = trace("x", "y");
+    // continues with an output that has not been observed
+    private static final TimedIncompleteTrace C = trace("x", "w");
+
+    @Test
+    public void queriesAreEstimatedFromTheTree() {
+        DeficitRefineScheduler scheduler = new DeficitRefineScheduler(tree(10));
+        // 6 outputs are missing at the node reached with certainty
+        assertEquals(6, scheduler.expectedQueries(A), 1e-9);
+        // y is estimated as (3 + 1) / (4 + 2), the node reached by it has not been observed
+        assertEquals(10 / (4.0 / 6), scheduler.expectedQueries(B), 1e-9);
+        // w is estimated as (0 + 1) / (4 + 3)
+        assertEquals(10 * 7.0, scheduler.expectedQueries(C), 1e-9);
+    }
+
+    @Test
+    public void queriesOfLongerTracesCompleteTheirPrefixes() {
+        DeficitRefineScheduler scheduler = new DeficitRefineScheduler(tree(10));
+        List<TimedIncompleteTrace> schedule = scheduler.schedule(Arrays.asList(A, B, A), Collections.emptySet(),
+                1000, new Random(1));
+        assertEquals(Collections.nCopies(15, B), schedule);
+    }
+
+    @Test
+    public void batchesAreSplitInProportionToTheEstimates() {
+        DeficitRefineScheduler scheduler = new DeficitRefineScheduler(tree(10));
+        for (int seed = 0; seed < 10; seed++) {
+            List<TimedIncompleteTrace> schedule = scheduler.schedule(Arrays.asList(B, C), Collections.emptySet(),
+                    17, new Random(seed));
+            assertEquals(17, schedule.size());
+            // 15 and 70 queries are estimated
+            assertEquals(3, Collections.frequency(schedule, B));
+            assertEquals(14, Collections.frequency(schedule, C));
+        }
+    }
+
+    @Test
+    public void completeTracesArePerformedOnce() {
+        DeficitRefineScheduler scheduler = new DeficitRefineScheduler(tree(4));
+        assertEquals(Collections.singletonList(A),
+                scheduler.schedule(Arrays.asList(A, A), Collections.emptySet(), 100, new Random(1)));
+    }
+
+    @Test
+    public void ambiguousTracesAreCompletedFirst() {
+        AmbiguityRefineScheduler scheduler = new AmbiguityRefineScheduler(tree(10));
+        List<TimedIncompleteTrace> schedule = scheduler.schedule(Arrays.asList(B, C), Collections.singleton(B),
+                17, new Random(1));
+        assertEquals(15, Collections.frequency(schedule, B));
+        assertEquals(2, Collections.frequency(schedule, C));
+        // without ambiguous traces the batch is split like by the deficit scheduler
+        schedule = scheduler.schedule(Arrays.asList(B, C), Collections.emptySet(), 17, new Random(1));
+        assertEquals(3, Collections.frequency(schedule, B));
+    }
+
+    private static ObservationTree tree(int threshold) {
+        ObservationTree tree = new ObservationTree(new HashSet<>(Collections.singletonList(Input.create("a"))),
+                new ThresholdCompleteness(threshold));
+        for (String output : new String[]{"y", "y", "y", "z"}) {
+            tree.addObservationTrace(new ResetTimedTrace(Output.create("x"), Collections.singletonList(
+                    FastImmPair.of(INPUT, TimedOutput.create(false, output)))));
+        }
+        return tree;
+    }
+
+    private static TimedIncompleteTrace trace(String... outputs) {
+        List<FastImmPair<Output, TimedInput>> steps = new ArrayList<>();
+        for (String output : outputs)
+            steps.add(FastImmPair.of(Output.create(output), INPUT));
+        return new TimedIncompleteTrace(steps);
+    }
+}
@@ -0,0 +1,80 @@
+package base.teacher.oracle;
+
+import org.junit.Test;
+import suls.SULPool;
+import trace.ResetTimedTrace;
+import trace.TimedIncompleteTrace;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class OutputOracleTest {
+    private static final int NR_WORKERS = 3;
+    private static final int BATCH_SIZE = 50;
+
+    @Test
+    public void workersPerformTheQueriesOfSingleOracles() throws Exception {
+        Random random = new Random(1);
+        for (int n = 0; n < 20; n++) {
+            List<TimedIncompleteTrace> traces = TraceTrieTest.randomTraces(random, 1 + random.nextInt(30));
+            long seed = random.nextLong();
+            long poolSeed = random.nextLong();
+            OutputOracle parallel = new OutputOracle(new Random(seed), new RandomSUL(0), BATCH_SIZE);
+            try (SULPool pool = SULPool.create(NR_WORKERS, poolSeed, () -> new RandomSUL(0))) {
+                parallel.setSulPool(pool);
+                assertEquals(expected(traces, null, seed, poolSeed), parallel.performQueries(traces));
+            }
+        }
+    }
+
+    @Test
+    public void workersPerformTheScheduledQueries() throws Exception {
+        Random random = new Random(2);
+        for (int n = 0; n < 20; n++) {
+            List<TimedIncompleteTrace> traces = TraceTrieTest.randomTraces(random, 1 + random.nextInt(30));
+            List<TimedIncompleteTrace> schedule = new ArrayList<>();
+            for (int i = random.nextInt(BATCH_SIZE); i >= 0; i--)
+                schedule.add(traces.get(random.nextInt(traces.size())));
+            long seed = random.nextLong();
+            long poolSeed = random.nextLong();
+            OutputOracle parallel = new OutputOracle(new Random(seed), new RandomSUL(0), BATCH_SIZE);
+            parallel.setRefineScheduler((refined, ambiguous, batchSize, r) -> schedule);
+            try (SULPool pool = SULPool.create(NR_WORKERS, poolSeed, () -> new RandomSUL(0))) {
+                parallel.setSulPool(pool);
+                assertEquals(expected(traces, schedule, seed, poolSeed), parallel.performQueries(traces));
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void closedPoolsHaveNoWorkers() throws Exception {
+        SULPool pool = SULPool.create(NR_WORKERS, 1, () -> new RandomSUL(0));
+        pool.close();
+        new OutputOracle(new Random(1), new RandomSUL(0), BATCH_SIZE).setSulPool(pool);
+    }
+
+    /*
+     * Worker w performs the queries w, w + NR_WORKERS, ... on the w-th SUL of the pool, one after
+     * another with its own random source.
+     */
+    private static List<ResetTimedTrace> expected(List<TimedIncompleteTrace> traces,
+                                                  List<TimedIncompleteTrace> schedule, long seed, long poolSeed) {
+        Random random = new Random(seed);
+        Random seeds = new Random(poolSeed);
+        int nrQueries = schedule == null ? BATCH_SIZE : schedule.size();
+        ResetTimedTrace[] expected = new ResetTimedTrace[nrQueries];
+        for (int worker = 0; worker < Math.min(NR_WORKERS, nrQueries); worker++) {
+            Random workerRandom = new Random(random.nextLong());
+            RandomSUL sul = new RandomSUL(0);
+            sul.init(seeds.nextLong());
+            OutputOracle single = new OutputOracle(workerRandom, sul, 1);
+            for (int query = worker; query < nrQueries; query += NR_WORKERS) {
+                TimedIncompleteTrace chosen = schedule == null ? traces.get(workerRandom.nextInt(traces.size()))
+                        : schedule.get(query);
+                expected[query] = single.perform(chosen, traces, new ArrayList<>());
+            }
+        }
+        return Arrays.asList(expected);
+    }
+}
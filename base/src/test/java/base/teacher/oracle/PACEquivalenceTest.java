@@ -0,0 +1,68 @@
+package base.teacher.oracle;
+
+import automaton.Location;
+import automaton.PTA;
+import automaton.Transition;
+import base.Compatibility;
+import base.teacher.observationTree.ObservationTree;
+import importer.json.JsonSUL;
+import importer.json.TestModels;
+import org.junit.Test;
+import suls.SUL;
+import trace.ResetTimedTrace;
+import trace.TimedIncompleteTrace;
+import utils.FastImmPair;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class PACEquivalenceTest {
+    private static final int BOUND = 4;
+
+    @Test
+    public void duplicateSamplesAreRefinedOnce() throws Exception {
+        JsonSUL sul = TestModels.load(TestModels.SMALL);
+        Random random = new Random(1);
+        sul.init(random.nextLong());
+        ObservationTree tree = new ObservationTree(sul.getInputs());
+        RecordingOracle outputOracle = new RecordingOracle(random, sul);
+        RandomTesting testing = new RandomTesting(new OutputOracle(random, sul, 10), sul, tree, random, 0.5,
+                sul.getInputs(), BOUND, 0.5);
+        PACEquivalence equivalence = new PACEquivalence(testing, tree, outputOracle, new Compatibility(0.05, false, true));
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("unambiguousThreshold", 0.0);
+        parameters.put("epsilon", 0.05);
+        parameters.put("delta", 0.05);
+        equivalence.init(parameters);
+
+        // the hypothesis is the model of the SUL, so the sampled traces are refined until they are complete
+        PTA hypo = sul.getTargetModel();
+        for (Location location : hypo.getLocations()) {
+            for (Transition transition : location.getAllTransitions())
+                transition.setFrequency((int) Math.round(transition.getProbability() * 100));
+        }
+        assertTrue(equivalence.findCex(1, hypo, 1.0).left);
+        Set<ResetTimedTrace> distinct = new HashSet<>();
+        for (FastImmPair<ResetTimedTrace, Location> sampled : testing.getSampledTraces())
+            distinct.add(sampled.left);
+        assertTrue(distinct.size() < testing.getSampledTraces().size());
+        assertFalse(outputOracle.batches.isEmpty());
+        for (List<TimedIncompleteTrace> batch : outputOracle.batches)
+            assertEquals(new HashSet<>(batch).size(), batch.size());
+    }
+
+    private static class RecordingOracle extends OutputOracle {
+        private final List<List<TimedIncompleteTrace>> batches = new ArrayList<>();
+
+        RecordingOracle(Random random, SUL sul) {
+            super(random, sul, 10);
+        }
+
+        @Override
+        public List<ResetTimedTrace> performQueries(List<TimedIncompleteTrace> traces) {
+            batches.add(new ArrayList<>(traces));
+            return super.performQueries(traces);
+        }
+    }
+}
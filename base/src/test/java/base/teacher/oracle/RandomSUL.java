@@ -0,0 +1,58 @@
+package base.teacher.oracle;
+
+import automaton.Input;
+import automaton.OutputDistribution;
+import suls.SUL;
+import trace.TimedIncompleteTrace;
+import utils.FastImmPair;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Chooses outputs and resets at random, so queries deviate from their traces.
+ */
+class RandomSUL implements SUL {
+    static final String[] OUTPUTS = {"x", "y"};
+    static final String[] INPUTS = {"a", "b"};
+
+    private final Random random;
+
+    RandomSUL(long seed) {
+        random = new Random(seed);
+    }
+
+    @Override
+    public void init(long seed) {
+        random.setSeed(seed);
+    }
+
+    @Override
+    public String reset() {
+        return OUTPUTS[random.nextInt(OUTPUTS.length)];
+    }
+
+    @Override
+    public FastImmPair<Boolean, String> execute(String input, double clockValue) {
+        return FastImmPair.of(random.nextBoolean(), OUTPUTS[random.nextInt(OUTPUTS.length)]);
+    }
+
+    @Override
+    public Set<Input> getInputs() {
+        Set<Input> inputs = new HashSet<>();
+        for (String input : INPUTS)
+            inputs.add(Input.create(input));
+        return inputs;
+    }
+
+    @Override
+    public OutputDistribution execute(TimedIncompleteTrace logicalTimedTestSeq) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SUL copy() {
+        return new RandomSUL(0);
+    }
+}
@@ -0,0 +1,81 @@
+package base.teacher.oracle;
+
+import automaton.Location;
+import automaton.PTA;
+import base.teacher.observationTree.ObservationTree;
+import importer.json.JsonSUL;
+import importer.json.TestModels;
+import org.junit.Test;
+import suls.SULPool;
+import trace.ResetTimedTrace;
+import utils.FastImmPair;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class RandomTestingTest {
+    private static final int BOUND = 4;
+    private static final int NR_TESTS = 500;
+
+    @Test
+    public void walksRecordTheLocationsReachedByTheirTraces() throws Exception {
+        JsonSUL sul = TestModels.load(TestModels.SMALL);
+        RandomTesting testing = randomTesting(sul, new Random(1));
+        assertLocationsReached(sul.getTargetModel(), testing);
+    }
+
+    @Test
+    public void parallelWalksRecordTheLocationsReachedByTheirTraces() throws Exception {
+        JsonSUL sul = TestModels.load(TestModels.SMALL);
+        RandomTesting testing = randomTesting(sul, new Random(2));
+        try (SULPool pool = SULPool.create(3, 3, sul::copy)) {
+            testing.setSulPool(pool);
+            assertLocationsReached(sul.getTargetModel(), testing);
+        }
+    }
+
+    @Test
+    public void parallelSearchesOnlyDependOnTheSeeds() throws Exception {
+        List<List<ResetTimedTrace>> searches = new ArrayList<>();
+        for (int run = 0; run < 2; run++) {
+            JsonSUL sul = TestModels.load(TestModels.SMALL);
+            RandomTesting testing = randomTesting(sul, new Random(4));
+            try (SULPool pool = SULPool.create(3, 5, sul::copy)) {
+                testing.setSulPool(pool);
+                List<ResetTimedTrace> traces = new ArrayList<>();
+                // the SULs of the pool are seeded anew between searches
+                for (int search = 0; search < 2; search++) {
+                    testing.sampleForFindCex(sul.getTargetModel(), NR_TESTS);
+                    for (FastImmPair<ResetTimedTrace, Location> sampled : testing.getSampledTraces())
+                        traces.add(sampled.left);
+                }
+                searches.add(traces);
+            }
+        }
+        assertEquals(2 * NR_TESTS, searches.get(0).size());
+        assertEquals(searches.get(0), searches.get(1));
+    }
+
+    private static void assertLocationsReached(PTA hypo, RandomTesting testing) {
+        // the hypothesis is the model of the SUL, so no walk is discriminating
+        assertFalse(testing.sampleForFindCex(hypo, NR_TESTS).isPresent());
+        assertEquals(NR_TESTS, testing.getSampledTraces().size());
+        int nrRecorded = 0;
+        for (FastImmPair<ResetTimedTrace, Location> sampled : testing.getSampledTraces()) {
+            if (sampled.right == null || sampled.left.length() == 0)
+                continue;
+            ResetTimedTrace prefix = sampled.left.dropLastOutput().getTrace();
+            assertSame(hypo.getStateReachedByResetLogicalTimedTrace(prefix).left, sampled.right);
+            nrRecorded++;
+        }
+        assertTrue(nrRecorded > NR_TESTS / 2);
+    }
+
+    private static RandomTesting randomTesting(JsonSUL sul, Random random) throws Exception {
+        sul.init(random.nextLong());
+        ObservationTree tree = new ObservationTree(sul.getInputs());
+        return new RandomTesting(new OutputOracle(random, sul, 10), sul, tree, random, 0.5, sul.getInputs(),
+                BOUND, 0.5);
+    }
+}
@@ -0,0 +1,131 @@
+package base.teacher.oracle;
+
+import automaton.ClockTicks;
+import automaton.Output;
+import org.junit.Test;
+import suls.SUL;
+import trace.ResetTimedTrace;
+import trace.TimedIncompleteTrace;
+import trace.TimedInput;
+import trace.TimedOutput;
+import utils.FastImmPair;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class TraceTrieTest {
+    private static final String[] OUTPUTS = RandomSUL.OUTPUTS;
+    private static final String[] INPUTS = RandomSUL.INPUTS;
+
+    @Test
+    public void candidatesAreTheTracesFoundByScanning() {
+        Random random = new Random(1);
+        for (int n = 0; n < 50; n++) {
+            List<TimedIncompleteTrace> traces = randomTraces(random, 1 + random.nextInt(30));
+            TraceTrie trie = new TraceTrie(traces);
+            for (int i = 0; i < 50; i++) {
+                // performed steps that some traces start with, and others no trace starts with
+                List<FastImmPair<Output, TimedInput>> performed = randomSteps(random, random.nextInt(4));
+                Output output = Output.create(OUTPUTS[random.nextInt(OUTPUTS.length)]);
+                Set<TimedIncompleteTrace> expected = new HashSet<>(scan(traces, performed, output));
+
+                TraceTrie.Node node = trie.getRoot();
+                for (int step = 0; step < performed.size() && node != null; step++)
+                    node = node.getChild(performed.get(step));
+                Set<TimedIncompleteTrace> chosen = new HashSet<>();
+                for (int draw = 0; draw < 200 && node != null; draw++) {
+                    TimedIncompleteTrace trace = node.chooseWithOutput(output, random);
+                    if (trace == null)
+                        break;
+                    chosen.add(trace);
+                }
+                assertEquals(expected, chosen);
+            }
+        }
+    }
+
+    @Test
+    public void batchesPerformTheSameQueriesAsSingleQueries() {
+        Random random = new Random(2);
+        for (int n = 0; n < 20; n++) {
+            List<TimedIncompleteTrace> traces = randomTraces(random, 1 + random.nextInt(30));
+            long seed = random.nextLong();
+            OutputOracle batch = new OutputOracle(new Random(seed), new RandomSUL(n), 50);
+            Random singleRandom = new Random(seed);
+            OutputOracle single = new OutputOracle(singleRandom, new RandomSUL(n), 50);
+            Random scanRandom = new Random(seed);
+            SUL scanSul = new RandomSUL(n);
+
+            List<ResetTimedTrace> expected = new ArrayList<>();
+            List<ResetTimedTrace> scanned = new ArrayList<>();
+            for (int query = 0; query < 50; query++) {
+                // the trace to start with is chosen uniformly, like the batch does
+                expected.add(single.perform(traces.get(singleRandom.nextInt(traces.size())), traces, new ArrayList<>()));
+                scanned.add(performByScanning(scanSul, scanRandom, traces.get(scanRandom.nextInt(traces.size())), traces));
+            }
+            List<ResetTimedTrace> results = batch.performQueries(traces);
+            assertEquals(expected, results);
+            assertEquals(scanned, results);
+        }
+    }
+
+    /*
+     * Performs a query like OutputOracle did before it used tries, scanning all traces for those
+     * with the performed steps whenever the SUL deviates from the chosen trace. One of them is
+     * chosen uniformly at random.
+     */
+    private static ResetTimedTrace performByScanning(SUL sul, Random random, TimedIncompleteTrace chosenTrace,
+                                                     List<TimedIncompleteTrace> traces) {
+        int ticks = 0;
+        Output sulOutput = Output.create(sul.reset());
+        ResetTimedTrace resultTrace = ResetTimedTrace.empty(sulOutput);
+        List<FastImmPair<Output, TimedInput>> performed = new ArrayList<>();
+        for (int i = 0; i < chosenTrace.length(); i++) {
+            FastImmPair<Output, TimedInput> currentStep = chosenTrace.getSteps().get(i);
+            if (!sulOutput.equals(currentStep.left)) {
+                List<TimedIncompleteTrace> candidates = scan(traces, performed, sulOutput);
+                if (candidates.isEmpty())
+                    return resultTrace;
+                chosenTrace = candidates.get(random.nextInt(candidates.size()));
+            }
+            performed.add(FastImmPair.of(sulOutput, currentStep.right));
+            FastImmPair<Boolean, String> output = sul.execute(currentStep.right.getInput().getSymbol(),
+                    ClockTicks.toClockValue(currentStep.right.getTicks() - ticks));
+            sulOutput = Output.create(output.right);
+            ticks = output.left ? 0 : currentStep.right.getTicks();
+            resultTrace = resultTrace.append(FastImmPair.of(currentStep.right, TimedOutput.create(output.left, output.right)));
+        }
+        return resultTrace;
+    }
+
+    // the search for another trace that the trie replaced
+    private static List<TimedIncompleteTrace> scan(List<TimedIncompleteTrace> traces,
+                                                   List<FastImmPair<Output, TimedInput>> performed, Output output) {
+        List<TimedIncompleteTrace> found = new ArrayList<>();
+        for (TimedIncompleteTrace trace : traces) {
+            if (performed.size() + 2 > trace.length())
+                continue;
+            if (trace.getSteps().subList(0, performed.size()).equals(performed)
+                    && trace.get(performed.size() + 1).left.equals(output))
+                found.add(trace);
+        }
+        return found;
+    }
+
+    static List<TimedIncompleteTrace> randomTraces(Random random, int nrTraces) {
+        List<TimedIncompleteTrace> traces = new ArrayList<>();
+        for (int i = 0; i < nrTraces; i++)
+            traces.add(new TimedIncompleteTrace(randomSteps(random, 1 + random.nextInt(5))));
+        return traces;
+    }
+
+    private static List<FastImmPair<Output, TimedInput>> randomSteps(Random random, int length) {
+        List<FastImmPair<Output, TimedInput>> steps = new ArrayList<>();
+        for (int i = 0; i < length; i++) {
+            steps.add(FastImmPair.of(Output.create(OUTPUTS[random.nextInt(OUTPUTS.length)]),
+                    TimedInput.create(INPUTS[random.nextInt(INPUTS.length)], random.nextInt(2) / 2.0)));
+        }
+        return steps;
+    }
+}
@@ -0,0 +1,147 @@
+package base.teacher.oracle.conv;
+
+import automaton.*;
+import base.Compatibility;
+import base.teacher.observationTree.Node;
+import base.teacher.observationTree.ObservationTree;
+import base.teacher.observationTree.ThresholdCompleteness;
+import base.teacher.oracle.OutputOracle;
+import base.teacher.oracle.RandomTesting;
+import importer.json.JsonSUL;
+import importer.json.TestModels;
+import org.junit.Test;
+import trace.ResetTimedIncompleteTrace;
+import trace.ResetTimedTrace;
+import trace.TimedInput;
+import trace.TimedOutput;
+import utils.FastImmPair;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class TreeBasedDistributionCexFinderTest {
+    private static final int BOUND = 4;
+    // enough samples per complete node that the exact model is not rejected by chance
+    private static final int COMPLETENESS = 30;
+
+    @Test
+    public void cexAreTheCexFoundByReplayingTraces() throws Exception {
+        JsonSUL sul = TestModels.load(TestModels.SMALL);
+        Random random = new Random(1);
+        sul.init(random.nextLong());
+        ObservationTree tree = new ObservationTree(sul.getInputs(), new ThresholdCompleteness(COMPLETENESS));
+        new RandomTesting(new OutputOracle(random, sul, 10), sul, tree, random, 0.5, sul.getInputs(), BOUND, 0.5)
+                .sampleForFindCex(sul.getTargetModel(), 3000);
+        Compatibility compatibility = new Compatibility(0.05, false, true);
+        TreeBasedDistributionCexFinder finder = new TreeBasedDistributionCexFinder(compatibility);
+
+        PTA model = hypothesis(random, 0);
+        assertFalse(finder.findCex(tree, model).isPresent());
+        assertNull(findCexByReplaying(compatibility, tree.getRoot(), model));
+        int nrCex = 0;
+        for (int n = 0; n < 100; n++) {
+            PTA hypo = hypothesis(random, 1 + random.nextInt(3));
+            ResetTimedTrace expected = findCexByReplaying(compatibility, tree.getRoot(), hypo);
+            assertEquals(Optional.ofNullable(expected), finder.findCex(tree, hypo));
+            if (expected != null)
+                nrCex++;
+        }
+        assertTrue(nrCex > 10 && nrCex < 100);
+    }
+
+    /**
+     * The model of the SUL with frequencies, changed at the given number of transitions.
+     */
+    private static PTA hypothesis(Random random, int nrChanges) throws IOException {
+        PTA hypo = TestModels.load(TestModels.SMALL).getTargetModel();
+        List<Location> locations = new ArrayList<>(hypo.getLocations());
+        locations.sort(Comparator.comparingInt(Location::getId));
+        List<Transition> transitions = new ArrayList<>();
+        for (Location location : locations) {
+            List<Transition> outgoing = new ArrayList<>(location.getAllTransitions());
+            outgoing.sort(Comparator.comparing(Transition::toString));
+            transitions.addAll(outgoing);
+        }
+        for (Transition transition : transitions)
+            transition.setFrequency((int) Math.round(transition.getProbability() * 100));
+        for (int i = 0; i < nrChanges; i++) {
+            Transition transition = transitions.get(random.nextInt(transitions.size()));
+            switch (random.nextInt(3)) {
+                case 0:
+                    transition.setReset(!transition.isReset());
+                    break;
+                case 1:
+                    transition.setTarget(locations.get(random.nextInt(locations.size())));
+                    break;
+                default:
+                    transition.setFrequency(1 + random.nextInt(200));
+            }
+        }
+        return hypo;
+    }
+
+    /*
+     * The breadth-first search that replayed the trace of every complete node on the hypothesis
+     * before the search traversed the hypothesis along with the tree.
+     */
+    private static ResetTimedTrace findCexByReplaying(Compatibility compatibility, Node root, PTA hypo) {
+        LinkedList<FastImmPair<Node, ResetTimedIncompleteTrace>> schedule = new LinkedList<>();
+        schedule.add(FastImmPair.of(root, ResetTimedIncompleteTrace.empty()));
+        while (!schedule.isEmpty()) {
+            FastImmPair<Node, ResetTimedIncompleteTrace> current = schedule.removeFirst();
+            Node currentNode = current.left;
+            ResetTimedIncompleteTrace currentTrace = current.right;
+            if (!currentNode.isComplete())
+                continue;
+            Map<TimedOutput, Integer> treeFreqs = currentNode.getOutputFrequencies();
+            FastImmPair<Map<TimedOutput, Integer>, Optional<ResetTimedTrace>> hypoDistAndCex =
+                    distributionAfterTrace(hypo, currentTrace);
+            if (currentTrace.length() > 0 && hypoDistAndCex.right != null) {
+                if (hypoDistAndCex.right.isPresent())
+                    return hypoDistAndCex.right.get();
+                if (!compatibility.compatible(hypoDistAndCex.left, treeFreqs))
+                    return new ResetTimedTrace(currentTrace, treeFreqs.keySet().iterator().next());
+            }
+            for (FastImmPair<TimedOutput, TimedInput> succSymbol : currentNode.getSuccSymbols()) {
+                schedule.add(FastImmPair.of(currentNode.getChild(succSymbol),
+                        currentTrace.append(succSymbol)));
+            }
+        }
+        return null;
+    }
+
+    // null signals chaos, a present trace is a short cex
+    private static FastImmPair<Map<TimedOutput, Integer>, Optional<ResetTimedTrace>> distributionAfterTrace(PTA hypo,
+            ResetTimedIncompleteTrace trace) {
+        Location current = hypo.getInitial();
+        Map<TimedOutput, Integer> outputDist = null;
+        for (int i = 0; i < trace.length(); i++) {
+            FastImmPair<TimedOutput, TimedInput> currentStep = trace.get(i);
+            Set<Transition> trans = current.getTransitions().get(currentStep.right.getInput()).stream()
+                    .filter(transition -> transition.getGuard().enableAction(currentStep.right.getClockVal()))
+                    .collect(Collectors.toSet());
+            outputDist = new HashMap<>();
+            for (Transition t : trans)
+                outputDist.put(TimedOutput.create(t.isReset(), t.getTarget().getLabel().getSymbol()), t.getFrequency());
+            if (trans.size() == 1 && trans.iterator().next().getTarget().getLabel().equals(Output.chaos()))
+                return FastImmPair.of(outputDist, null);
+            current = null;
+            if (i + 1 < trace.length()) {
+                TimedOutput nextOutput = trace.get(i + 1).left;
+                for (Transition t : trans) {
+                    if (t.isReset() == nextOutput.isReset() && t.getTarget().getLabel().equals(nextOutput.getOutput())) {
+                        current = t.getTarget();
+                        break;
+                    }
+                }
+                if (current == null)
+                    return FastImmPair.of(outputDist, Optional.of(new ResetTimedTrace(
+                            trace.prefix(i + 1), nextOutput)));
+            }
+        }
+        return FastImmPair.of(outputDist, Optional.empty());
+    }
+}
@@ -0,0 +1,25 @@
+package benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, so throughput is reported together with the
+ * allocation rate. Accepts the usual JMH command line options, e.g.
+ * <pre>
+ * mvn -pl bench -am package -DskipTests
+ * java -jar bench/target/benchmarks.jar GuardBenchmark -p model=4_4_3_10-1 -rf json
+ * </pre>
+ */
+public class Benchmarks {
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
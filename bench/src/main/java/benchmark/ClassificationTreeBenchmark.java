@@ -0,0 +1,57 @@
+package benchmark;
+
+import automaton.PTA;
+import cTree.ClassificationTree;
+import cTree.node.LeafNode;
+import cTree.node.SiftResult;
+import importer.json.JsonSUL;
+import org.openjdk.jmh.annotations.*;
+import trace.ResetTimedTrace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sifting the access sequences of a partially learned classification tree and building its
+ * hypothesis.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClassificationTreeBenchmark {
+    @Param({"4_4_3_10-1", "6_4_4_20-1"})
+    public String model;
+
+    @Param({"20"})
+    public int rounds;
+
+    private ClassificationTree tree;
+    private List<ResetTimedTrace> sequences;
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        JsonSUL sul = Fixtures.loadModel(model);
+        tree = Fixtures.learnTree(sul, rounds);
+        sequences = new ArrayList<>();
+        for (LeafNode leaf : tree.getLeaves()) {
+            sequences.add(leaf.getSequence());
+        }
+    }
+
+    @Benchmark
+    public SiftResult sift() {
+        ResetTimedTrace sequence = sequences.get(next);
+        next = (next + 1) % sequences.size();
+        return tree.sift(sequence);
+    }
+
+    @Benchmark
+    public PTA buildHypothesis() {
+        return tree.buildHypothesis();
+    }
+}
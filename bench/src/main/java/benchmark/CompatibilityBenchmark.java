@@ -0,0 +1,87 @@
+package benchmark;
+
+import base.Compatibility;
+import base.learner.Answer;
+import base.teacher.observationTree.ObservationTree;
+import importer.json.JsonSUL;
+import org.openjdk.jmh.annotations.*;
+import trace.ResetTimedTrace;
+import trace.TimedOutput;
+import trace.TimedSuffixTrace;
+import utils.FrequencyVector;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statistical compatibility checks between the output frequencies observed for different
+ * prefixes, on frequency vectors as used by the learners and on plain maps.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompatibilityBenchmark {
+    private static final int NR_TRACES = 5000;
+    private static final int MAX_LENGTH = 8;
+    private static final int NR_PAIRS = 4096;
+
+    @Param({"4_4_3_10-1", "6_4_4_20-1", "10_2_7_40-1"})
+    public String model;
+
+    private Compatibility compChecker;
+    private List<FrequencyVector<TimedOutput>> vectors1;
+    private List<FrequencyVector<TimedOutput>> vectors2;
+    private List<Map<TimedOutput, Integer>> maps1;
+    private List<Map<TimedOutput, Integer>> maps2;
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        JsonSUL sul = Fixtures.loadModel(model);
+        List<ResetTimedTrace> traces = Fixtures.sampleTraces(sul, NR_TRACES, MAX_LENGTH);
+        ObservationTree tree = new ObservationTree(sul.getInputs());
+        tree.addObservationTraces(traces);
+
+        List<FrequencyVector<TimedOutput>> frequencies = new ArrayList<>();
+        for (ResetTimedTrace trace : traces) {
+            for (int i = 0; i + 1 < trace.length(); i++) {
+                Answer answer = tree.outputFrequenciesAndCompleteness(trace.prefix(i + 1),
+                        TimedSuffixTrace.empty(trace.get(i).left));
+                if (answer.isValid() && answer.getFrequencies().getTotal() > 0)
+                    frequencies.add(answer.getFrequencies());
+            }
+        }
+
+        compChecker = Fixtures.compChecker();
+        Random random = new Random(Fixtures.SEED);
+        vectors1 = new ArrayList<>();
+        vectors2 = new ArrayList<>();
+        maps1 = new ArrayList<>();
+        maps2 = new ArrayList<>();
+        for (int i = 0; i < NR_PAIRS; i++) {
+            FrequencyVector<TimedOutput> v1 = frequencies.get(random.nextInt(frequencies.size()));
+            FrequencyVector<TimedOutput> v2 = frequencies.get(random.nextInt(frequencies.size()));
+            vectors1.add(v1);
+            vectors2.add(v2);
+            maps1.add(new HashMap<>(v1));
+            maps2.add(new HashMap<>(v2));
+        }
+    }
+
+    @Benchmark
+    public boolean compatibleVectors() {
+        int i = next;
+        next = (next + 1) % NR_PAIRS;
+        return compChecker.compatible(vectors1.get(i), vectors2.get(i));
+    }
+
+    @Benchmark
+    public boolean compatibleMaps() {
+        int i = next;
+        next = (next + 1) % NR_PAIRS;
+        return compChecker.compatible(maps1.get(i), maps2.get(i));
+    }
+}
@@ -0,0 +1,57 @@
+package benchmark;
+
+import automaton.Input;
+import importer.json.Executor;
+import importer.json.JsonSUL;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executing single steps on the target model, which is what every output query of the
+ * teacher ends up doing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutorBenchmark {
+    private static final int NR_STEPS = 1024;
+    private static final int EPISODE_LENGTH = 16;
+
+    @Param({"4_4_3_10-1", "6_4_4_20-1", "10_2_7_40-1"})
+    public String model;
+
+    private Executor executor;
+    private String[] inputs;
+    private double[] delays;
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        JsonSUL sul = Fixtures.loadModel(model);
+        executor = new Executor(sul.getTargetModel(), Fixtures.SEED);
+        List<Input> sortedInputs = Fixtures.sortedInputs(sul);
+        Random random = new Random(Fixtures.SEED);
+        inputs = new String[NR_STEPS];
+        delays = new double[NR_STEPS];
+        for (int i = 0; i < NR_STEPS; i++) {
+            inputs[i] = sortedInputs.get(random.nextInt(sortedInputs.size())).getSymbol();
+            delays[i] = random.nextInt(2 * Fixtures.BOUND) / 2.0;
+        }
+        executor.reset();
+    }
+
+    @Benchmark
+    public void execute(Blackhole bh) {
+        int i = next++ & (NR_STEPS - 1);
+        if (i % EPISODE_LENGTH == 0)
+            bh.consume(executor.reset());
+        bh.consume(executor.execute(inputs[i], delays[i]));
+    }
+}
@@ -0,0 +1,132 @@
+package benchmark;
+
+import automaton.Input;
+import base.Compatibility;
+import base.teacher.Teacher;
+import base.teacher.oracle.EqMode;
+import base.teacher.oracle.OutputOracle;
+import base.teacher.oracle.conv.RoundBasedAndUnambigTraceCriterion;
+import cTree.ClassificationTree;
+import importer.json.JsonSUL;
+import observationTable.ObservationTable;
+import suls.LoggingSUL;
+import trace.ResetTimedIncompleteTrace;
+import trace.ResetTimedTrace;
+import utils.FastImmPair;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * Fixtures shared by the benchmarks. Models are the bundled <code>randomModels</code> of the
+ * eval module, and all learning parameters are those of <code>RandomModelConfig</code>, so
+ * every fixture is reproducible for a given model and seed.
+ */
+public class Fixtures {
+    public static final long SEED = 1L;
+    public static final int BOUND = 21;
+
+    private static final int BATCH_SIZE_FILL = 600;
+    private static final double STOP_PROB_TEST = 0.5;
+    private static final double REGION_NORMALIZATION = 0.1;
+
+    public static JsonSUL loadModel(String name) throws Exception {
+        try (InputStream in = Fixtures.class.getResourceAsStream("/randomModels/" + name + ".json")) {
+            if (in == null)
+                throw new FileNotFoundException("randomModels/" + name + ".json");
+            JsonSUL sul = JsonSUL.getPtaFromJsonStream(in);
+            sul.init(SEED);
+            return sul;
+        }
+    }
+
+    public static Compatibility compChecker() {
+        return new Compatibility(0.05, false, true);
+    }
+
+    public static List<Input> sortedInputs(JsonSUL sul) {
+        List<Input> inputs = new ArrayList<>(sul.getInputs());
+        inputs.sort(Comparator.comparing(Input::getSymbol));
+        return inputs;
+    }
+
+    /**
+     * Random walks of at most <code>maxLength</code> steps through the model, with delays
+     * being multiples of 0.5 below {@link #BOUND}.
+     */
+    public static List<ResetTimedTrace> sampleTraces(JsonSUL sul, int nrTraces, int maxLength) throws Exception {
+        Random random = new Random(SEED);
+        List<Input> inputs = sortedInputs(sul);
+        LoggingSUL loggingSUL = new LoggingSUL(sul);
+        loggingSUL.enableLogging();
+        for (int i = 0; i < nrTraces; i++) {
+            loggingSUL.reset();
+            int length = 1 + random.nextInt(maxLength);
+            for (int j = 0; j < length; j++) {
+                Input input = inputs.get(random.nextInt(inputs.size()));
+                loggingSUL.execute(input.getSymbol(), random.nextInt(2 * BOUND) / 2.0);
+            }
+        }
+        loggingSUL.disableLogging();
+        return new ArrayList<>(loggingSUL.getTraces());
+    }
+
+    public static Teacher teacher(JsonSUL sul, Compatibility compChecker) {
+        Random randomSource = new Random(SEED);
+        LoggingSUL loggingSUL = new LoggingSUL(sul);
+        OutputOracle outputOracle = new OutputOracle(randomSource, loggingSUL, BATCH_SIZE_FILL);
+        Teacher teacher = new Teacher(randomSource, STOP_PROB_TEST, BOUND, REGION_NORMALIZATION,
+                sul.getInputs(), loggingSUL, outputOracle, compChecker,
+                new RoundBasedAndUnambigTraceCriterion(3, 200, 0.99), EqMode.PAC);
+        teacher.setPacParameters(1, 0.01, 0.01);
+        teacher.init();
+        return teacher;
+    }
+
+    /**
+     * An observation table after the given number of rounds of {@link ObservationTable#learn}.
+     */
+    public static ObservationTable learnTable(JsonSUL sul, int rounds) throws IOException {
+        Compatibility compChecker = compChecker();
+        Teacher teacher = teacher(sul, compChecker);
+        ObservationTable table = new ObservationTable(sul.getInputs(), compChecker, teacher);
+        table.init(teacher.getInitialOutput());
+        table.fillTable();
+        for (int round = 0; round < rounds; round++) {
+            table.stabilise();
+            FastImmPair<Boolean, ResetTimedIncompleteTrace> eqResult =
+                    teacher.equivalenceQuery(round + 1, table.buildHypothesis(), table.portionOfUnambiguousRows());
+            if (eqResult.left)
+                break;
+            if (eqResult.right != null)
+                table.processCounterexample(eqResult.right);
+            table.fillTable();
+        }
+        table.stabilise();
+        return table;
+    }
+
+    /**
+     * A classification tree after the given number of rounds of {@link ClassificationTree#learn}.
+     */
+    public static ClassificationTree learnTree(JsonSUL sul, int rounds) throws IOException {
+        Compatibility compChecker = compChecker();
+        Teacher teacher = teacher(sul, compChecker);
+        ClassificationTree tree = new ClassificationTree(sul.getInputs(), compChecker, teacher);
+        tree.init(teacher.getInitialOutput());
+        tree.refineCTree();
+        for (int round = 0; round < rounds; round++) {
+            FastImmPair<Boolean, ResetTimedIncompleteTrace> eqResult =
+                    teacher.equivalenceQuery(round + 1, tree.buildHypothesis(), tree.portionOfUnambiguousRows());
+            if (eqResult.left)
+                break;
+            if (eqResult.right != null)
+                tree.processCounterexample(eqResult.right);
+            tree.processCtxUnderIncomplete();
+            tree.refineCTree();
+        }
+        return tree;
+    }
+}
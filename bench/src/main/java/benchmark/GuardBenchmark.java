@@ -0,0 +1,67 @@
+package benchmark;
+
+import automaton.Guard;
+import automaton.Location;
+import automaton.Transition;
+import importer.json.JsonSUL;
+import org.openjdk.jmh.annotations.*;
+import trace.TimedInput;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluating the guards of the target model for random clock valuations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GuardBenchmark {
+    private static final int NR_VALUATIONS = 1024;
+
+    @Param({"4_4_3_10-1", "6_4_4_20-1", "10_2_7_40-1"})
+    public String model;
+
+    private Guard[] guards;
+    private double[] clockValuations;
+    private TimedInput[] timedInputs;
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        JsonSUL sul = Fixtures.loadModel(model);
+        List<Guard> guardList = new ArrayList<>();
+        for (Location location : sul.getTargetModel().getLocations()) {
+            for (Transition transition : location.getAllTransitions()) {
+                guardList.add(transition.getGuard());
+            }
+        }
+        guards = guardList.toArray(new Guard[0]);
+        Random random = new Random(Fixtures.SEED);
+        clockValuations = new double[NR_VALUATIONS];
+        for (int i = 0; i < NR_VALUATIONS; i++) {
+            clockValuations[i] = random.nextInt(20 * Fixtures.BOUND) / 10.0;
+        }
+        timedInputs = new TimedInput[NR_VALUATIONS];
+        for (int i = 0; i < NR_VALUATIONS; i++) {
+            timedInputs[i] = TimedInput.create("a", clockValuations[i]);
+        }
+    }
+
+    @Benchmark
+    public boolean enableAction() {
+        int i = next++ & Integer.MAX_VALUE;
+        return guards[i % guards.length].enableAction(clockValuations[i & (NR_VALUATIONS - 1)]);
+    }
+
+    @Benchmark
+    public boolean enableActionTicks() {
+        int i = next++ & Integer.MAX_VALUE;
+        return guards[i % guards.length].enableAction(timedInputs[i & (NR_VALUATIONS - 1)]);
+    }
+}
@@ -0,0 +1,50 @@
+package benchmark;
+
+import automaton.PTA;
+import importer.json.JsonSUL;
+import observationTable.ObservationTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Grouping the rows of a partially learned observation table and building its hypothesis.
+ * Synchronising the table with the tree discards the cached grouping, so the rows are grouped
+ * again on every invocation, while the cells themselves are kept since the tree does not change.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ObservationTableBenchmark {
+    @Param({"4_4_3_10-1", "6_4_4_20-1"})
+    public String model;
+
+    @Param({"20"})
+    public int rounds;
+
+    @Param({"false", "true"})
+    public boolean parallelChecks;
+
+    private ObservationTable table;
+
+    @Setup
+    public void setup() throws Exception {
+        JsonSUL sul = Fixtures.loadModel(model);
+        table = Fixtures.learnTable(sul, rounds);
+        table.setParallelChecks(parallelChecks);
+    }
+
+    @Benchmark
+    public double groupRows() {
+        table.ensureConsistencyWithTree();
+        return table.portionOfUnambiguousRows();
+    }
+
+    @Benchmark
+    public PTA buildHypothesis() {
+        return table.buildHypothesis();
+    }
+}
@@ -0,0 +1,68 @@
+package benchmark;
+
+import base.learner.Answer;
+import base.teacher.observationTree.ObservationTree;
+import importer.json.JsonSUL;
+import org.openjdk.jmh.annotations.*;
+import trace.ResetTimedTrace;
+import trace.TimedSuffixTrace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adding sampled traces to the observation tree and answering frequency queries from it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ObservationTreeBenchmark {
+    private static final int NR_TRACES = 5000;
+    private static final int MAX_LENGTH = 8;
+
+    @Param({"4_4_3_10-1", "6_4_4_20-1", "10_2_7_40-1"})
+    public String model;
+
+    private List<ResetTimedTrace> traces;
+    private List<ResetTimedTrace> prefixes;
+    private List<TimedSuffixTrace> suffixes;
+    private ObservationTree tree;
+    private int nextTrace;
+    private int nextQuery;
+
+    @Setup
+    public void setup() throws Exception {
+        JsonSUL sul = Fixtures.loadModel(model);
+        traces = Fixtures.sampleTraces(sul, NR_TRACES, MAX_LENGTH);
+        tree = new ObservationTree(sul.getInputs());
+        tree.addObservationTraces(traces);
+
+        // query every prefix of the sampled traces for the input following it
+        prefixes = new ArrayList<>();
+        suffixes = new ArrayList<>();
+        for (ResetTimedTrace trace : traces) {
+            for (int i = 0; i + 1 < trace.length(); i++) {
+                prefixes.add(trace.prefix(i + 1));
+                suffixes.add(TimedSuffixTrace.empty(trace.get(i).left));
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean addObservationTrace() {
+        ResetTimedTrace trace = traces.get(nextTrace);
+        nextTrace = (nextTrace + 1) % traces.size();
+        return tree.addObservationTrace(trace);
+    }
+
+    @Benchmark
+    public Answer outputFrequenciesAndCompleteness() {
+        int i = nextQuery;
+        nextQuery = (nextQuery + 1) % prefixes.size();
+        return tree.outputFrequenciesAndCompleteness(prefixes.get(i), suffixes.get(i));
+    }
+}
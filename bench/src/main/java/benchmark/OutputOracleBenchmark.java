@@ -0,0 +1,52 @@
+package benchmark;
+
+import base.teacher.oracle.OutputOracle;
+import importer.json.JsonSUL;
+import org.openjdk.jmh.annotations.*;
+import trace.ResetTimedTrace;
+import trace.TimedIncompleteTrace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refine queries performing a batch of incomplete traces on the SUL, switching to other traces
+ * whenever the SUL produces an unexpected output.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class OutputOracleBenchmark {
+    @Param({"4_4_3_10-1", "6_4_4_20-1"})
+    public String model;
+
+    @Param({"1000", "10000"})
+    public int nrTraces;
+
+    @Param({"600"})
+    public int batchSize;
+
+    private OutputOracle outputOracle;
+    private List<TimedIncompleteTrace> traces;
+
+    @Setup
+    public void setup() throws Exception {
+        JsonSUL sul = Fixtures.loadModel(model);
+        traces = new ArrayList<>();
+        for (ResetTimedTrace trace : Fixtures.sampleTraces(sul, nrTraces, 6)) {
+            if (trace.length() > 1)
+                traces.add(trace.dropLastOutput().convert());
+        }
+        outputOracle = new OutputOracle(new Random(Fixtures.SEED), sul, batchSize);
+    }
+
+    @Benchmark
+    public List<ResetTimedTrace> performQueries() {
+        return outputOracle.performQueries(traces);
+    }
+}
@@ -0,0 +1,49 @@
+package benchmark;
+
+import automaton.PTA;
+import evaluation.SampleTest;
+import importer.json.JsonSUL;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Estimating the pass ratio of a partially learned hypothesis against the target model.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SampleTestBenchmark {
+    @Param({"4_4_3_10-1", "6_4_4_20-1"})
+    public String model;
+
+    @Param({"20"})
+    public int rounds;
+
+    @Param({"2000"})
+    public int samples;
+
+    @Param({"false", "true"})
+    public boolean analytic;
+
+    private SampleTest sampleTest;
+    private PTA hypothesis;
+
+    @Setup
+    public void setup() throws Exception {
+        JsonSUL sul = Fixtures.loadModel(model);
+        hypothesis = Fixtures.learnTree(sul, rounds).buildHypothesis();
+        sampleTest = new SampleTest(sul.getTargetModel(), Fixtures.SEED);
+        sampleTest.setCompChecker(Fixtures.compChecker());
+        sampleTest.setAnalytic(analytic);
+    }
+
+    @Benchmark
+    public double evaluatePassRatio() {
+        sampleTest.evaluatePassRatio(hypothesis, samples, Fixtures.BOUND);
+        return sampleTest.getPassRatio();
+    }
+}
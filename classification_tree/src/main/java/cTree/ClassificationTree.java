@@ -3,6 +3,7 @@ package cTree;
 import automaton.*;
 import base.Compatibility;
 import base.learner.Answer;
+import base.learner.Checkpoint;
 import base.learner.Learner;
 import base.learner.LearningSetting;
 import base.teacher.Teacher;
@@ -15,11 +16,14 @@ import util.export.DotExporter;
 import utils.FastImmPair;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.stream.Collectors;
 
 @Data
 public class ClassificationTree implements Learner {
+    private static final String CHECKPOINT_NAME = "classification tree";
 
     private Set<Input> inputs;
     private final Teacher teacher;
@@ -39,6 +43,8 @@ public class ClassificationTree implements Learner {
 
     // store incomplete trace
     private Set<TimedIncompleteTrace> incompleteTraces;
+    // incomplete traces whose keys are similar to several keys of an inner node
+    private Set<TimedIncompleteTrace> ambiguousTraces;
     private Set<ResetTimedIncompleteTrace> ctxes;
 
     private double unambiguousSift;
@@ -70,24 +76,30 @@ public class ClassificationTree implements Learner {
     @Override
     public void learn(LearningSetting setting) throws IOException {
         long startOfTime = System.currentTimeMillis();
-        init(teacher.getInitialOutput());
-        refineCTree();
-
         PTA hypo = null;
         int rounds = 0;
         int count = 1;
+        if (setting.getResumePath() != null) {
+            startOfTime -= resume(setting);
+            rounds = setting.getRounds();
+            count = setting.getNrEq();
+        } else {
+            init(teacher.getInitialOutput());
+            refineCTree();
+        }
+
         DotExporter dotExp = new DotExporter();
         do {
             System.out.println("Round " + rounds);
             if (rounds > 0 && rounds % (setting.getPrintFrequency()) == 0) {
-                writeTreeToFile("hypotheses/tree_" + rounds + ".dot");
+                writeTreeToFile(setting.getOutputDirectory() + "/tree_" + rounds + ".dot");
             }
 
             hypo = buildHypothesis();
             if (rounds > 0 && rounds % setting.getPrintFrequency() == 0) {
-                dotExp.writeToFile(hypo, "hypotheses/hyp" + rounds + ".dot");
+                dotExp.writeToFile(hypo, setting.getOutputDirectory() + "/hyp" + rounds + ".dot");
                 if (setting.getRmlExp() != null)
-                    setting.getRmlExp().toFile(hypo, "hypotheses/hyp" + rounds + ".prism");
+                    setting.getRmlExp().toFile(hypo, setting.getOutputDirectory() + "/hyp" + rounds + ".prism");
             }
             rounds++;
             // strictly viewed, this check should come at the end of the loop, but this is more
@@ -105,20 +117,142 @@ public class ClassificationTree implements Learner {
             }
             processCtxUnderIncomplete();
             refineCTree();
+            if (setting.isCheckpointRound(rounds))
+                writeCheckpoint(setting, rounds, count, System.currentTimeMillis() - startOfTime);
         } while (true);
 
         long endOfTime = System.currentTimeMillis();
 
-        dotExp.writeToFile(hypo, "hypotheses/hyp_final.dot");
-        writeTreeToFile("hypotheses/tree_final.dot");
+        dotExp.writeToFile(hypo, setting.getOutputDirectory() + "/hyp_final.dot");
+        writeTreeToFile(setting.getOutputDirectory() + "/tree_final.dot");
         if (setting.getRmlExp() != null)
-            setting.getRmlExp().toFile(hypo, "hypotheses/hyp_final.prism");
+            setting.getRmlExp().toFile(hypo, setting.getOutputDirectory() + "/hyp_final.prism");
         setting.setNrEq(count);
         setting.setRounds(rounds);
         setting.setHypothesis(hypo);
         setting.setTime(endOfTime - startOfTime);
     }
 
+    /**
+     * Write the classification tree, the tracks, the counterexamples and the observation tree
+     * to a checkpoint, so that learning can be resumed after the given round.
+     */
+    private void writeCheckpoint(LearningSetting setting, int rounds, int nrEq, long time) throws IOException {
+        Path path = Paths.get(setting.getCheckpointPath());
+        try (Checkpoint.Writer checkpoint = Checkpoint.create(path, CHECKPOINT_NAME, teacher, setting, rounds, nrEq, time)) {
+            checkpoint.writeOutput(initOutput);
+            // leaves are numbered in the order they are written, tracks refer to their sources by number
+            Map<LeafNode, Integer> leafIds = new HashMap<>();
+            checkpoint.writeInt(root.getChildren().size());
+            for (Map.Entry<Output, Node> child : root.getChildren().entrySet()) {
+                checkpoint.writeOutput(child.getKey());
+                writeNode(checkpoint, child.getValue(), leafIds);
+            }
+            checkpoint.writeInt(tracks.size());
+            for (Track track : tracks) {
+                checkpoint.writeInt(leafIds.get(track.getSource()));
+                checkpoint.writeTimedInput(track.getInput());
+            }
+            checkpoint.writeInt(ctxes.size());
+            for (ResetTimedIncompleteTrace ctx : ctxes)
+                checkpoint.writeIncompleteTrace(ctx);
+            checkpoint.writeDouble(unambiguousSift);
+            checkpoint.writeInt(nrUnambiguousBreakPointAnalysis);
+            checkpoint.writeInt(incompleteTraces.size());
+            for (TimedIncompleteTrace trace : incompleteTraces) {
+                checkpoint.writeIncompleteTrace(trace);
+                checkpoint.writeBoolean(ambiguousTraces.contains(trace));
+            }
+            checkpoint.commit();
+        }
+    }
+
+    private void writeNode(Checkpoint.Writer checkpoint, Node node, Map<LeafNode, Integer> leafIds) throws IOException {
+        checkpoint.writeBoolean(node.isLeaf());
+        if (node.isLeaf()) {
+            LeafNode leaf = (LeafNode) node;
+            leafIds.put(leaf, leafIds.size());
+            checkpoint.writeTrace(leaf.getSequence());
+            checkpoint.writeBoolean(leaf.isInit());
+        } else {
+            InnerNode innerNode = (InnerNode) node;
+            checkpoint.writeSuffix(innerNode.getSequence());
+            checkpoint.writeInt(innerNode.getKeyChildMap().size());
+            for (Map.Entry<Answer, Node> child : innerNode.getKeyChildMap().entrySet()) {
+                checkpoint.writeAnswer(child.getKey());
+                writeNode(checkpoint, child.getValue(), leafIds);
+            }
+        }
+    }
+
+    /**
+     * Restore the classification tree from the checkpoint given by the setting. The tracks
+     * are built again from the restored observation tree without executing the SUL.
+     *
+     * @return time spent learning before the checkpoint, the rounds and equivalence queries
+     * are stored in the setting
+     */
+    private long resume(LearningSetting setting) throws IOException {
+        Path path = Paths.get(setting.getResumePath());
+        try (Checkpoint.Reader checkpoint = Checkpoint.read(path, CHECKPOINT_NAME, teacher, setting)) {
+            initOutput = checkpoint.readOutput();
+            chaosNode = new LeafNode(ResetTimedTrace.empty(Output.chaos()));
+            invalidNode = new LeafNode(ResetTimedTrace.empty(Output.invalid()));
+            chaosLocation = Location.chaos(inputs);
+            invalidLocation = Location.invalid(inputs);
+            incompleteTraces = new HashSet<>();
+            ambiguousTraces = new HashSet<>();
+            tracks = new HashSet<>();
+            root = new Root();
+
+            List<LeafNode> leaves = new ArrayList<>();
+            int nrChildren = checkpoint.readInt();
+            for (int i = 0; i < nrChildren; i++) {
+                Output output = checkpoint.readOutput();
+                Node child = readNode(checkpoint, root, leaves);
+                root.put(output, child);
+            }
+            int nrTracks = checkpoint.readInt();
+            for (int i = 0; i < nrTracks; i++) {
+                LeafNode source = leaves.get(checkpoint.readInt());
+                buildTrack(source, checkpoint.readTimedInput());
+            }
+            ctxes = new HashSet<>();
+            int nrCtxes = checkpoint.readInt();
+            for (int i = 0; i < nrCtxes; i++)
+                ctxes.add(checkpoint.readResetIncompleteTrace());
+            unambiguousSift = checkpoint.readDouble();
+            nrUnambiguousBreakPointAnalysis = checkpoint.readInt();
+            int nrIncomplete = checkpoint.readInt();
+            for (int i = 0; i < nrIncomplete; i++) {
+                TimedIncompleteTrace trace = checkpoint.readIncompleteTrace();
+                incompleteTraces.add(trace);
+                if (checkpoint.readBoolean())
+                    ambiguousTraces.add(trace);
+            }
+            setting.setRounds(checkpoint.getRounds());
+            setting.setNrEq(checkpoint.getNrEq());
+            return checkpoint.getTime();
+        }
+    }
+
+    private Node readNode(Checkpoint.Reader checkpoint, Node preNode, List<LeafNode> leaves) throws IOException {
+        if (checkpoint.readBoolean()) {
+            LeafNode leaf = new LeafNode(checkpoint.readTrace(), checkpoint.readBoolean());
+            leaf.setPreNode(preNode);
+            leaves.add(leaf);
+            return leaf;
+        }
+        InnerNode innerNode = new InnerNode(checkpoint.readSuffix());
+        innerNode.setPreNode(preNode);
+        int nrChildren = checkpoint.readInt();
+        for (int i = 0; i < nrChildren; i++) {
+            Answer key = checkpoint.readAnswer();
+            innerNode.add(key, readNode(checkpoint, innerNode, leaves));
+        }
+        return innerNode;
+    }
+
     @Override
     public void processCounterexample(ResetTimedIncompleteTrace counterExample) {
         ctxes.add(counterExample);
@@ -141,6 +275,7 @@ public class ClassificationTree implements Learner {
 
     private void cTreeInit(Output initOutput) {
         incompleteTraces = new HashSet<>();
+        ambiguousTraces = new HashSet<>();
         tracks = new HashSet<>();
         root = new Root();
         LeafNode initLeaf = new LeafNode(ResetTimedTrace.empty(initOutput));
@@ -277,17 +412,19 @@ public class ClassificationTree implements Learner {
 //        buildHypothesis();
 
         List<TimedIncompleteTrace> traces = null;
+        Set<TimedIncompleteTrace> ambiguous = Collections.emptySet();
         if (tracesToRefine.isEmpty()) {
             // 2. find incomplete entries
             traces = findIncomplete();
             if (traces.isEmpty())
                 return;
+            ambiguous = ambiguousTraces;
             // System.out.println("Traces to incomplete " );
             // traces.forEach(t -> System.out.println(t));
         } else {
             traces = tracesToRefine.get();
         }
-        teacher.refine(traces);
+        teacher.refine(traces, ambiguous);
 
         ensureConsistentWithObsTree();
 //        System.out.println("update after");
@@ -310,7 +447,9 @@ public class ClassificationTree implements Learner {
             Answer key = teacher.query(trace, suffix);
             FastImmPair<Node, Boolean> nextEdge = getNode(node, key);
             if (!nextEdge.right) {
-                incompleteTraces.add(new TimedIncompleteTrace(trace.convert(), suffix));
+                TimedIncompleteTrace incompleteTrace = new TimedIncompleteTrace(trace.convert(), suffix);
+                incompleteTraces.add(incompleteTrace);
+                ambiguousTraces.add(incompleteTrace);
                 unambiguous = false;
             }
             Node next = nextEdge.left;
@@ -347,8 +486,8 @@ public class ClassificationTree implements Learner {
                 similarKeys.sort(new Comparator<Answer>() {
                     @Override
                     public int compare(Answer o1, Answer o2) {
-                        int sum1 = o1.getFrequencies().values().stream().mapToInt(Integer::intValue).sum();
-                        int sum2 = o2.getFrequencies().values().stream().mapToInt(Integer::intValue).sum();
+                        int sum1 = o1.getFrequencies().getTotal();
+                        int sum2 = o2.getFrequencies().getTotal();
                         return sum2 - sum1;
                     }
                 });
@@ -561,6 +700,7 @@ public class ClassificationTree implements Learner {
     public void processCtxUnderIncomplete() {
         nrUnambiguousBreakPointAnalysis = 0;
         incompleteTraces.clear();
+        ambiguousTraces.clear();
         ensureConsistentWithObsTree();
         hypothesis = buildHypothesis();
         for (ResetTimedIncompleteTrace ctx : ctxes) {
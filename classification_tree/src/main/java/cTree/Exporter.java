@@ -4,6 +4,7 @@ import base.learner.Answer;
 import cTree.node.InnerNode;
 import cTree.node.Node;
 import org.apache.commons.lang3.tuple.Pair;
+import util.export.DotExporter;
 
 import java.io.BufferedWriter;
 import java.io.File;
@@ -65,7 +66,6 @@ public class Exporter {
     }
 
     public void generateGraph(String fileName) throws IOException {
-        Runtime run = Runtime.getRuntime();
-        run.exec(String.format("dot %s -T pdf -o %s", fileName, fileName.replace(".dot", ".pdf")));
+        new DotExporter().generateGraph(fileName);
     }
 }
@@ -38,6 +38,8 @@ public class EvalResult {
 	private long nrTests;
 	private int nrRounds;
 	private int nrEq;
+	private long queryCacheHits;
+	private long queryCacheMisses;
 	private double passRatio;
 	private double klDivergence;
 	
@@ -63,6 +65,8 @@ public class EvalResult {
 		exportedLines.add("# tests: " + nrTests);
 		exportedLines.add("# rounds: " + nrRounds);
 		exportedLines.add("# equivalence queries: " + nrEq);
+		exportedLines.add("# query cache hits: " + queryCacheHits);
+		exportedLines.add("# query cache misses: " + queryCacheMisses);
 		exportedLines.add("test case passing ratio: " + passRatio);
 		exportedLines.add("the sum of KL Divergence: " + klDivergence);
 		
@@ -102,6 +106,18 @@ public class EvalResult {
 		this.nrRounds = nrRounds;
 	}
 	public void setNrEq(int nrEq) {this.nrEq = nrEq;}
+	public long getQueryCacheHits() {
+		return queryCacheHits;
+	}
+	public void setQueryCacheHits(long queryCacheHits) {
+		this.queryCacheHits = queryCacheHits;
+	}
+	public long getQueryCacheMisses() {
+		return queryCacheMisses;
+	}
+	public void setQueryCacheMisses(long queryCacheMisses) {
+		this.queryCacheMisses = queryCacheMisses;
+	}
 	public double getPassRatio() {
 		return passRatio;
 	}
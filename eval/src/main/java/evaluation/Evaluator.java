@@ -44,6 +44,19 @@ public class Evaluator {
 	private int index;
 	private boolean outputTrueDotModel = false;
 	private SampleTest sampleTesting;
+	// compare exact output distributions when computing the passing ratio, using the given number of threads
+	private boolean analyticPassRatio = false;
+	private int passRatioWorkers = 1;
+	// directory the traces of every configuration are logged to, null if they are not logged
+	private String traceLogDirectory = null;
+	// start every configuration from the traces of the configurations evaluated before it
+	private boolean warmStart = false;
+	// copies of the SUL every configuration executes queries on, 0 keeps the ones of the configuration
+	private int learnerWorkers = 0;
+	// write a checkpoint every checkpointInterval rounds to checkpointDirectory, 0 disables checkpoints
+	private int checkpointInterval = 0;
+	private String checkpointDirectory = null;
+	private boolean resume = false;
 	
 	public Evaluator(long seed) {
 		this.seed = seed;
@@ -55,7 +68,9 @@ public class Evaluator {
 		this.groupName = groupName;
 		this.index = index;
 		trueModel = wrappedSUl.getTargetModel();
-		sampleTesting = new SampleTest(trueModel);
+		sampleTesting = new SampleTest(trueModel, seed);
+		sampleTesting.setAnalytic(analyticPassRatio);
+		sampleTesting.setNrWorkers(passRatioWorkers);
 	}
 	
 	public void addConfig(LearnerConfig newConfig){
@@ -75,39 +90,51 @@ public class Evaluator {
 		new File(outputPath).mkdirs();
 		List<ResetTimedTrace> allLoggedTraces = new ArrayList<>();
 		EvalMeasurement measurement = new EvalMeasurement("testing accuracy", groupName+"-"+index);
+		String previousTraceLog = null;
 		for(LearnerConfig config : learnConfigs){
 			config.setSampleTraces(allLoggedTraces);
-			LearnerInstance learner = config.instantiate();
-			sampleTesting.setCompChecker(learner.getCompChecker());
-			System.out.println("Evaluating " + config.description());
-//			long startOflearning = System.currentTimeMillis();
-			PTA learnedPTA = learner.learn();
+			previousTraceLog = configure(config, groupName + "-" + index, previousTraceLog);
 			String hypoPath = String.format("%s/hypothesis/%s-%d_hypo_%s.json", outputPath, groupName, index, config.description());
-			learnedPTA.storeMemory(hypoPath);
-//			long endOfLearning = System.currentTimeMillis();
-			System.out.println("Finished learning with " + config.description());
-//			PTA exactLearnedPTA = learner.getExactHypo();
-//			System.out.println(exactLearnedPTA.toString());
-			sampleTesting.evaluatePassRatio(learnedPTA, samplingNum, config.getBound());
-//			sampleTesting.evaluatePassRatio(JsonSUL.getPtaFromJsonFile(hypoPath).getTargetModel(), samplingNum, config.getBound());
-			EvalResult result = new EvalResult(config.description(), config.parameters());
-			result.setLearningTime(learner.getLearningTime());
-			result.setModelSize(learnedPTA.getLocations().size());
-			result.setNrSteps(learner.getNrSteps());
-			result.setNrTests(learner.getNrTests());
-			result.setNrRounds(learner.getNrRounds());
-			result.setNrEq(learner.getNrEq());
-			result.setPassRatio(sampleTesting.getPassRatio());
-//			result.setKlDivergence(sampleTesting.getKlDivergence());
-
+			EvalResult result = learnAndEvaluate(config, sampleTesting, samplingNum, hypoPath, null, allLoggedTraces);
 			measurement.addResult(result);
-			allLoggedTraces.addAll(learner.loggedSampleTraces());
 		}
 		measurement.persist(outputPath + "/" + String.format("%s_results.log", groupName));
 		System.out.println("Experiment finished.");
 		learnConfigs.clear();
 	}
 
+	/**
+	 * Learn a model with the given configuration and compute the passing ratio of the
+	 * hypothesis. The traces logged while learning are added to <code>loggedTraces</code>.
+	 *
+	 * @param runDirectory directory for the hypotheses written during learning, the default
+	 *                     of the learner if null
+	 */
+	static EvalResult learnAndEvaluate(LearnerConfig config, SampleTest sampleTesting, int samplingNum, String hypoPath,
+			String runDirectory, List<ResetTimedTrace> loggedTraces) throws Exception {
+		LearnerInstance learner = config.instantiate();
+		if (runDirectory != null)
+			learner.setOutputDirectory(runDirectory);
+		sampleTesting.setCompChecker(learner.getCompChecker());
+		System.out.println("Evaluating " + config.description());
+		PTA learnedPTA = learner.learn();
+		learnedPTA.storeMemory(hypoPath);
+		System.out.println("Finished learning with " + config.description());
+		sampleTesting.evaluatePassRatio(learnedPTA, samplingNum, config.getBound());
+		EvalResult result = new EvalResult(config.description(), config.parameters());
+		result.setLearningTime(learner.getLearningTime());
+		result.setModelSize(learnedPTA.getLocations().size());
+		result.setNrSteps(learner.getNrSteps());
+		result.setNrTests(learner.getNrTests());
+		result.setNrRounds(learner.getNrRounds());
+		result.setNrEq(learner.getNrEq());
+		result.setQueryCacheHits(learner.getQueryCacheHits());
+		result.setQueryCacheMisses(learner.getQueryCacheMisses());
+		result.setPassRatio(sampleTesting.getPassRatio());
+		loggedTraces.addAll(learner.loggedSampleTraces());
+		return result;
+	}
+
 	public void evalProtocol(int samplingNum, String outputPath) throws Exception {
 		System.out.println("Computing Root Contention Protocol");
 		if(outputTrueDotModel)
@@ -115,8 +142,10 @@ public class Evaluator {
 		new File(outputPath).mkdirs();
 		List<ResetTimedTrace> allLoggedTraces = new ArrayList<>();
 		EvalMeasurement measurement = new EvalMeasurement("testing Root Contention Protocol accuracy", "Root-Contention");
+		String previousTraceLog = null;
 		for(LearnerConfig config : learnConfigs){
 			config.setSampleTraces(allLoggedTraces);
+			previousTraceLog = configure(config, "Root-Contention", previousTraceLog);
 			LearnerInstance learner = config.instantiate();
 			sampleTesting.setCompChecker(learner.getCompChecker());
 			System.out.println("Evaluating " + config.description());
@@ -135,6 +164,8 @@ public class Evaluator {
 			result.setNrTests(learner.getNrTests());
 			result.setNrRounds(learner.getNrRounds());
 			result.setNrEq(learner.getNrEq());
+			result.setQueryCacheHits(learner.getQueryCacheHits());
+			result.setQueryCacheMisses(learner.getQueryCacheMisses());
 			result.setLearningTime(learner.getLearningTime());
 			result.setPassRatio(sampleTesting.getPassRatio());
 //			result.setKlDivergence(sampleTesting.getKlDivergence());
@@ -185,6 +216,32 @@ public class Evaluator {
 //		System.out.println("Experiment finished.");
 //	}
 
+	/**
+	 * Apply the options of the evaluator to the configuration.
+	 *
+	 * @param previousTraceLog trace log of the configuration evaluated before, null if there is none
+	 * @return the trace log of the configuration, null if its traces are kept in memory
+	 */
+	private String configure(LearnerConfig config, String sulName, String previousTraceLog) {
+		String traceLog = null;
+		if(traceLogDirectory != null) {
+			traceLog = String.format("%s/%s_traces_%s.log", traceLogDirectory, sulName, config.description());
+			config.setTraceLog(traceLog);
+		}
+		// the traces of earlier configurations are in memory unless they have been logged
+		if(warmStart)
+			config.setWarmStart(true, previousTraceLog);
+		if(learnerWorkers > 0)
+			config.setNrWorkers(learnerWorkers);
+		if(checkpointInterval > 0) {
+			String checkpoint = String.format("%s/%s_checkpoint_%s", checkpointDirectory, sulName, config.description());
+			config.setCheckpoint(checkpointInterval, checkpoint);
+			if(resume && new File(checkpoint).exists())
+				config.setResumePath(checkpoint);
+		}
+		return traceLog;
+	}
+
 	private void outputTrueModelAsDot(String outputPath) throws IOException {
 		exportDotFile(outputPath, String.format("%s_true_model", groupName+"-"+index), trueModel);
 	}
@@ -259,5 +316,64 @@ public class Evaluator {
 	public void setOutputTrueDotModel(boolean outputTrueDotModel) {
 		this.outputTrueDotModel = outputTrueDotModel;
 	}
+
+	public String getTraceLogDirectory() {
+		return traceLogDirectory;
+	}
+
+	/**
+	 * Stream the traces executed by every configuration to a {@link suls.TraceLog} in the given
+	 * directory, or keep them in memory if it is null.
+	 */
+	public void setTraceLogDirectory(String traceLogDirectory) {
+		this.traceLogDirectory = traceLogDirectory;
+	}
+
+	public boolean isWarmStart() {
+		return warmStart;
+	}
+
+	/**
+	 * Start every configuration from the traces executed by the configurations evaluated
+	 * before it for the same SUL, read from their trace logs if traces are logged.
+	 */
+	public void setWarmStart(boolean warmStart) {
+		this.warmStart = warmStart;
+	}
+
+	/**
+	 * Execute the queries of every configuration on the given number of copies of the SUL.
+	 */
+	public void setLearnerWorkers(int learnerWorkers) {
+		if (learnerWorkers < 1)
+			throw new IllegalArgumentException("At least one worker is required");
+		this.learnerWorkers = learnerWorkers;
+	}
+
+	/**
+	 * Write a checkpoint of every configuration every <code>interval</code> rounds to the given
+	 * directory. If <code>resume</code> is set, configurations with a checkpoint in the
+	 * directory resume learning from it, e.g. after an experiment has been interrupted.
+	 */
+	public void setCheckpoint(int interval, String checkpointDirectory, boolean resume) {
+		if (interval < 1)
+			throw new IllegalArgumentException("The checkpoint interval has to be positive");
+		this.checkpointInterval = interval;
+		this.checkpointDirectory = checkpointDirectory;
+		this.resume = resume;
+	}
+
+	public boolean isAnalyticPassRatio() {
+		return analyticPassRatio;
+	}
+
+	public void setAnalyticPassRatio(boolean analyticPassRatio, int passRatioWorkers) {
+		this.analyticPassRatio = analyticPassRatio;
+		this.passRatioWorkers = passRatioWorkers;
+		if (sampleTesting != null) {
+			sampleTesting.setAnalytic(analyticPassRatio);
+			sampleTesting.setNrWorkers(passRatioWorkers);
+		}
+	}
 	
 }
@@ -0,0 +1,217 @@
+package evaluation;
+
+import evaluation.config.LearnerConfig;
+import importer.json.JsonSUL;
+import trace.ResetTimedTrace;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs experiments on a fixed number of worker threads. Every job learns one model with one
+ * learner configuration, like a single step of {@link Evaluator#evalTesting}, but the jobs are
+ * independent of each other:
+ * <ul>
+ *     <li>every job loads its own copy of the true model, so the <code>JsonSUL</code>, its
+ *     <code>Executor</code> and the <code>LoggingSUL</code> of the configuration are only used
+ *     by the thread running the job,</li>
+ *     <li>every job writes the hypotheses of the learner to its own directory below
+ *     <code>outputPath/runs</code>,</li>
+ *     <li>traces logged by one job are not passed on to the configurations of other jobs,</li>
+ *     <li>output ids are assigned per observation tree and modifications are counted per
+ *     automaton, so no job depends on the symbols or hypotheses of another.</li>
+ * </ul>
+ * Jobs only share immutable values, e.g. interned inputs, outputs and timed inputs, and the
+ * fixed resolution of {@link automaton.ClockTicks}.
+ * The results are merged into one {@link EvalMeasurement} per model, which are persisted in
+ * the order the jobs were added, independent of the order in which they finish.
+ */
+public class ExperimentScheduler {
+
+	/**
+	 * Creates the learner configuration of a job for the copy of the true model of the job.
+	 */
+	public interface ConfigFactory {
+		LearnerConfig create(long seed, JsonSUL sul);
+	}
+
+	private static class Job {
+		private final String modelFile;
+		private final String groupName;
+		private final int index;
+		private final ConfigFactory configFactory;
+
+		private Job(String modelFile, String groupName, int index, ConfigFactory configFactory) {
+			this.modelFile = modelFile;
+			this.groupName = groupName;
+			this.index = index;
+			this.configFactory = configFactory;
+		}
+
+		private String sulName() {
+			return groupName + "-" + index;
+		}
+	}
+
+	static final String TRACE_LOG = "traces.log";
+	static final String CHECKPOINT = "checkpoint";
+
+	private final long seed;
+	private final int nrWorkers;
+	private final List<Job> jobs = new ArrayList<>();
+	// compare exact output distributions when computing the passing ratio
+	private boolean analyticPassRatio = false;
+	// copies of the SUL every job executes queries on, 0 keeps the ones of the configuration
+	private int workersPerJob = 0;
+	// stream the traces of every job to a trace log in its run directory
+	private boolean traceLogs = false;
+	// output path of an earlier run whose trace logs the jobs start from, null to start from scratch
+	private String warmStartPath = null;
+	// write a checkpoint of every job to its run directory every checkpointInterval rounds
+	private int checkpointInterval = 0;
+	private boolean resume = false;
+
+	public ExperimentScheduler(long seed, int nrWorkers) {
+		if (nrWorkers < 1)
+			throw new IllegalArgumentException("At least one worker is required");
+		this.seed = seed;
+		this.nrWorkers = nrWorkers;
+	}
+
+	public void addJob(String modelFile, String groupName, int index, ConfigFactory configFactory) {
+		jobs.add(new Job(modelFile, groupName, index, configFactory));
+	}
+
+	public int getNrWorkers() {
+		return nrWorkers;
+	}
+
+	public boolean isAnalyticPassRatio() {
+		return analyticPassRatio;
+	}
+
+	/**
+	 * Jobs already run in parallel, so the passing ratio of a job is computed on the thread
+	 * running the job.
+	 */
+	public void setAnalyticPassRatio(boolean analyticPassRatio) {
+		this.analyticPassRatio = analyticPassRatio;
+	}
+
+	/**
+	 * Execute the queries of every job on the given number of copies of its SUL, in addition to
+	 * the workers running the jobs.
+	 */
+	public void setWorkersPerJob(int workersPerJob) {
+		if (workersPerJob < 1)
+			throw new IllegalArgumentException("At least one worker is required");
+		this.workersPerJob = workersPerJob;
+	}
+
+	/**
+	 * Stream the traces executed by every job to the file {@value #TRACE_LOG} in its run
+	 * directory instead of keeping them in memory.
+	 */
+	public void setTraceLogs(boolean traceLogs) {
+		this.traceLogs = traceLogs;
+	}
+
+	/**
+	 * Start every job from the traces logged by the same job of an earlier run with the given
+	 * output path, see {@link #setTraceLogs}. Jobs are identified by their position, model and
+	 * configuration, so the earlier run has to add the same jobs in the same order.
+	 */
+	public void setWarmStartPath(String warmStartPath) {
+		this.warmStartPath = warmStartPath;
+	}
+
+	/**
+	 * Write a checkpoint of every job to its run directory every <code>interval</code> rounds.
+	 * If <code>resume</code> is set, jobs with a checkpoint in their run directory resume
+	 * learning from it, e.g. after the experiments have been interrupted. The trace log of a
+	 * resumed job only contains the traces executed after resuming.
+	 */
+	public void setCheckpoint(int interval, boolean resume) {
+		if (interval < 1)
+			throw new IllegalArgumentException("The checkpoint interval has to be positive");
+		this.checkpointInterval = interval;
+		this.resume = resume;
+	}
+
+	/**
+	 * Run all jobs added so far and compute the passing ratio of every learned model.
+	 *
+	 * @return the merged measurements, one per model in the order the jobs were added
+	 */
+	public List<EvalMeasurement> evalTesting(int samplingNum, String outputPath) throws Exception {
+		System.out.printf("Computing passing ratio of %d sampled traces with %d workers:\n", samplingNum, nrWorkers);
+		new File(outputPath + "/hypothesis").mkdirs();
+		ExecutorService workers = Executors.newFixedThreadPool(nrWorkers);
+		List<Future<EvalResult>> futures = new ArrayList<>();
+		try {
+			for (int i = 0; i < jobs.size(); i++) {
+				final int jobId = i;
+				futures.add(workers.submit(() -> runJob(jobId, jobs.get(jobId), samplingNum, outputPath)));
+			}
+			// results are collected in the order of the jobs, so the report does not depend on scheduling
+			Map<String, EvalMeasurement> measurements = new LinkedHashMap<>();
+			Map<String, String> groupNames = new HashMap<>();
+			for (int i = 0; i < jobs.size(); i++) {
+				Job job = jobs.get(i);
+				EvalResult result;
+				try {
+					result = futures.get(i).get();
+				} catch (ExecutionException e) {
+					throw new Exception("Experiment " + job.sulName() + " failed", e.getCause());
+				}
+				measurements.computeIfAbsent(job.sulName(), name -> new EvalMeasurement("testing accuracy", name))
+						.addResult(result);
+				groupNames.put(job.sulName(), job.groupName);
+			}
+			for (Map.Entry<String, EvalMeasurement> entry : measurements.entrySet()) {
+				String groupName = groupNames.get(entry.getKey());
+				entry.getValue().persist(outputPath + "/" + String.format("%s_results.log", groupName));
+			}
+			System.out.println("Experiments finished.");
+			jobs.clear();
+			return new ArrayList<>(measurements.values());
+		} finally {
+			workers.shutdownNow();
+		}
+	}
+
+	private EvalResult runJob(int jobId, Job job, int samplingNum, String outputPath) throws Exception {
+		JsonSUL trueSUL = JsonSUL.getPtaFromJsonFile(job.modelFile);
+		trueSUL.init(seed);
+		LearnerConfig config = job.configFactory.create(seed, trueSUL);
+		SampleTest sampleTesting = new SampleTest(trueSUL.getTargetModel(), seed);
+		sampleTesting.setAnalytic(analyticPassRatio);
+
+		String hypoPath = String.format("%s/hypothesis/%s_hypo_%s.json", outputPath, job.sulName(), config.description());
+		String runName = String.format("%03d_%s_%s", jobId, job.sulName(), config.description());
+		String runDirectory = String.format("%s/runs/%s", outputPath, runName);
+		List<ResetTimedTrace> loggedTraces = new ArrayList<>();
+		config.setSampleTraces(loggedTraces);
+		if (workersPerJob > 0)
+			config.setNrWorkers(workersPerJob);
+		if (traceLogs)
+			config.setTraceLog(runDirectory + "/" + TRACE_LOG);
+		if (warmStartPath != null) {
+			File warmStartLog = new File(String.format("%s/runs/%s/%s", warmStartPath, runName, TRACE_LOG));
+			if (!warmStartLog.exists())
+				throw new IllegalStateException("No trace log of job " + runName + " in " + warmStartPath);
+			config.setWarmStart(true, warmStartLog.getPath());
+		}
+		if (checkpointInterval > 0) {
+			String checkpoint = runDirectory + "/" + CHECKPOINT;
+			config.setCheckpoint(checkpointInterval, checkpoint);
+			if (resume && new File(checkpoint).exists())
+				config.setResumePath(checkpoint);
+		}
+		return Evaluator.learnAndEvaluate(config, sampleTesting, samplingNum, hypoPath, runDirectory, loggedTraces);
+	}
+}
@@ -1,5 +1,6 @@
 package evaluation;
 
+import automaton.CompiledPTA;
 import automaton.Location;
 import automaton.Output;
 import automaton.PTA;
@@ -10,9 +11,19 @@ import trace.*;
 import utils.FastImmPair;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Data
 public class SampleTest {
+    // rounding error of summed probabilities that is not treated as missing probability
+    private static final double MISSING_PROBABILITY_TOLERANCE = 1e-9;
+
     private final Random random;
     private final PTA target;
 
@@ -21,12 +32,24 @@ public class SampleTest {
 
     private int completeThreshold = 50;
     private Compatibility compChecker;
+    // compare exact output distributions instead of sampled outputs
+    private boolean analytic = false;
+    // threads sampling traces in the analytic mode
+    private int nrWorkers = 1;
 
     public SampleTest(PTA target) {
         this.target = target;
         random = new Random();
     }
 
+    /**
+     * @param seed seed of all random choices, so the passing ratio can be reproduced
+     */
+    public SampleTest(PTA target, long seed) {
+        this.target = target;
+        random = new Random(seed);
+    }
+
     private double computeDivergence (Map<TimedOutput, Double> d1, Map<TimedOutput, Double> d2) {
         double res = 0.0;
         for (TimedOutput edge : d2.keySet()) {
@@ -37,7 +60,12 @@ public class SampleTest {
         return res;
     }
 
-    private TimedTrace sample (int bound) {
+    /**
+     * Random walk through the target model.
+     *
+     * @param random source for selecting transitions and clock valuations
+     */
+    private TimedTrace sample (int bound, Random random) {
         Output initLabel = target.getInitial().getLabel();
         TimedTrace delayTimedTrace = new TimedTrace(initLabel, new ArrayList<>());
         Location currentLoc = target.getInitial();
@@ -49,7 +77,7 @@ public class SampleTest {
             Transition selectedSucc = validSuccessors.get(index);
             visited.add(selectedSucc);
 
-            double logicalClockValuation = selectedSucc.getGuard().getRandomValue(currentClock, bound);
+            double logicalClockValuation = selectedSucc.getGuard().getRandomValue(currentClock, bound, random);
 
             delayTimedTrace = delayTimedTrace.append(FastImmPair.of(TimedInput.create(selectedSucc.getInput().getSymbol(),
                     logicalClockValuation - currentClock),
@@ -67,46 +95,174 @@ public class SampleTest {
         return delayTimedTrace;
     }
 
+    /**
+     * Estimate the ratio of steps of sampled traces for which the hypothesis produces outputs
+     * compatible with the target. Target and hypothesis are walked along every trace once, and
+     * a step fails if the hypothesis cannot reach it or if the output distributions of both
+     * models are not compatible.
+     *
+     * <p>By default, <code>completeThreshold</code> outputs are drawn from both distributions
+     * and compared with the compatibility checker. Probability missing from a distribution,
+     * e.g. all of it if no transition is enabled, is drawn as the output <code>null</code>. In
+     * the analytic mode the exact distributions, completed with the missing probability in the
+     * same way, are compared with {@link Compatibility#compatibleDistributions} instead.
+     *
+     * <p>Traces are sampled until more than <code>sampleNum</code> steps have been checked, the
+     * last trace is checked completely. The analytic mode samples the traces on
+     * <code>nrWorkers</code> threads. Every trace is sampled with its own random source derived
+     * from its index and a seed drawn from {@link #random}, and the traces are counted in the
+     * order of their indices, so the passing ratio does not depend on the number of threads.
+     */
     public void evaluatePassRatio(PTA hypothesis, int sampleNum, int bound) {
+        if (analytic) {
+            evaluatePassRatioAnalytic(hypothesis, sampleNum, bound);
+            return;
+        }
+        CompiledPTA tar = target.compile();
+        CompiledPTA hyp = hypothesis.compile();
+        int[] counts = new int[2];
+        while (counts[1] <= sampleNum) {
+            checkTrace(tar, hyp, sample(bound, random), counts, random);
+        }
+        passRatio = 1 - counts[0] / (double) counts[1];
+    }
+
+    private void evaluatePassRatioAnalytic(PTA hypothesis, int sampleNum, int bound) {
+        CompiledPTA tar = target.compile();
+        CompiledPTA hyp = hypothesis.compile();
+        // transitions of the target are collected lazily, do it before they are shared
+        for (Location location : target.getLocations())
+            location.getAllTransitions();
+        long seed = random.nextLong();
+        int workers = Math.max(1, nrWorkers);
+        AtomicInteger nextTrace = new AtomicInteger();
+        AtomicLong reservedSteps = new AtomicLong();
+        // index, failing steps and steps of every checked trace
+        Queue<int[]> results = new ConcurrentLinkedQueue<>();
+        Runnable worker = () -> {
+            // every trace needed is reserved before the reserved steps exceed sampleNum
+            while (reservedSteps.get() <= sampleNum) {
+                int index = nextTrace.getAndIncrement();
+                TimedTrace trace = sample(bound, new Random(traceSeed(seed, index)));
+                reservedSteps.addAndGet(trace.getTrace().size());
+                int[] counts = new int[2];
+                checkTrace(tar, hyp, trace, counts, null);
+                results.add(new int[]{index, counts[0], counts[1]});
+            }
+        };
+        if (workers == 1) {
+            worker.run();
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(workers);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int w = 0; w < workers; w++)
+                    futures.add(executor.submit(worker));
+                for (Future<?> future : futures)
+                    future.get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new RuntimeException("Computing the passing ratio failed", e);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        // same stopping rule as the default mode, traces checked by other threads in the meantime are dropped
+        List<int[]> ordered = new ArrayList<>(results);
+        ordered.sort(Comparator.comparingInt(result -> result[0]));
         int notPass = 0;
         int samples = 0;
-        while (samples <= sampleNum) {
-            TimedTrace delayTimedTrace = sample(bound);
-            for (int i = 2; i <= delayTimedTrace.length(); i++) {
-                samples++;
-                TimedTrace prefix = delayTimedTrace.prefix(i - 1);
-                TimedInput input = delayTimedTrace.get(i - 2).left;
-                if (hypothesis.getStateReachedByDelayTimedTrace(prefix) == null) {
-//                    System.out.printf("unreachable trace: %s\n", prefix);
-                    notPass += 1;
-                    continue;
-                }
-                FastImmPair<Location, Double> tarReachedState = target.getStateReachedByDelayTimedTrace(prefix);
-                FastImmPair<Location, Double> hypReachedState = hypothesis.getStateReachedByDelayTimedTrace(prefix);
-                Map<TimedOutput, Double> tarDistribution = target.getDistribution(tarReachedState.left,
-                        tarReachedState.right, input);
-                Map<TimedOutput, Double> hypDistribution = hypothesis.getDistribution(hypReachedState.left,
-                        hypReachedState.right, input);
-                Map<TimedOutput, Integer> tarFreq = new HashMap<>();
-                Map<TimedOutput, Integer> hypoFreq = new HashMap<>();
-                for (int j = 0; j < completeThreshold; j++) {
-                    TimedOutput timedOutput = outputByDistribution(random, tarDistribution);
-                    tarFreq.putIfAbsent(timedOutput, 0);
-                    int freq = tarFreq.get(timedOutput) + 1;
-                    tarFreq.put(timedOutput, freq);
-                }
-                for (int j = 0; j < completeThreshold; j++) {
-                    TimedOutput timedOutput = outputByDistribution(random, hypDistribution);
-                    hypoFreq.putIfAbsent(timedOutput, 0);
-                    int freq = hypoFreq.get(timedOutput) + 1;
-                    hypoFreq.put(timedOutput, freq);
-                }
-                if (!compChecker.compatible(tarFreq, hypoFreq)) {
-                    notPass += 1;
-                }
+        for (int[] result : ordered) {
+            if (samples > sampleNum)
+                break;
+            notPass += result[1];
+            samples += result[2];
+        }
+        passRatio = 1 - notPass / (double) samples;
+    }
+
+    /**
+     * Seed of the random source of the trace with the given index, mixed so that traces with
+     * consecutive indices are independent.
+     */
+    private static long traceSeed(long seed, int index) {
+        long z = seed + (index + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Check every step of a trace sampled from the target and add the number of failing and of
+     * all steps to <code>counts</code>.
+     *
+     * @param outputRandom source for drawing outputs, the exact distributions are compared if null
+     */
+    private void checkTrace(CompiledPTA tar, CompiledPTA hyp, TimedTrace delayTimedTrace, int[] counts,
+                            Random outputRandom) {
+        int tarLoc = tar.initial();
+        double tarClock = 0.0;
+        int hypLoc = hyp.initial();
+        double hypClock = 0.0;
+        for (FastImmPair<TimedInput, Output> step : delayTimedTrace.getTrace()) {
+            counts[1]++;
+            if (hypLoc < 0) {
+                counts[0]++;
+                continue;
             }
+            TimedInput input = step.left;
+            int tarInput = tar.inputId(input.getInput());
+            int hypInput = hyp.inputId(input.getInput());
+            double tarVal = tarClock + input.getClockVal();
+            double hypVal = hypClock + input.getClockVal();
+            Map<TimedOutput, Double> tarDistribution = tar.distribution(tarLoc, tarInput, tarVal);
+            Map<TimedOutput, Double> hypDistribution = hyp.distribution(hypLoc, hypInput, hypVal);
+            boolean compatible = outputRandom == null
+                    ? compChecker.compatibleDistributions(withMissingOutput(tarDistribution),
+                    withMissingOutput(hypDistribution), completeThreshold)
+                    : compChecker.compatible(drawOutputs(outputRandom, tarDistribution),
+                    drawOutputs(outputRandom, hypDistribution));
+            if (!compatible)
+                counts[0]++;
+
+            int tarSucc = tar.successor(tarLoc, tarInput, tarVal, step.right);
+            if (tarSucc < 0)
+                throw new IllegalStateException("Trace sampled from the target cannot be executed on it: " + delayTimedTrace);
+            tarLoc = tar.target(tarSucc);
+            tarClock = tar.isReset(tarSucc) ? 0.0 : tarVal;
+            int hypSucc = hyp.successor(hypLoc, hypInput, hypVal, step.right);
+            if (hypSucc < 0) {
+                hypLoc = -1;
+            } else {
+                hypLoc = hyp.target(hypSucc);
+                hypClock = hyp.isReset(hypSucc) ? 0.0 : hypVal;
+            }
+        }
+    }
+
+    /**
+     * The distribution with the probability missing to one assigned to the output
+     * <code>null</code>, which {@link #outputByDistribution} draws with that probability.
+     */
+    private static Map<TimedOutput, Double> withMissingOutput(Map<TimedOutput, Double> distribution) {
+        double total = 0.0;
+        for (double probability : distribution.values())
+            total += probability;
+        if (total >= 1.0 - MISSING_PROBABILITY_TOLERANCE)
+            return distribution;
+        Map<TimedOutput, Double> completed = new HashMap<>(distribution);
+        completed.put(null, 1.0 - total);
+        return completed;
+    }
+
+    private Map<TimedOutput, Integer> drawOutputs(Random random, Map<TimedOutput, Double> distribution) {
+        Map<TimedOutput, Integer> freq = new HashMap<>();
+        for (int j = 0; j < completeThreshold; j++) {
+            TimedOutput timedOutput = outputByDistribution(random, distribution);
+            freq.putIfAbsent(timedOutput, 0);
+            int count = freq.get(timedOutput) + 1;
+            freq.put(timedOutput, count);
         }
-        passRatio = 1 - notPass / (double)samples;
+        return freq;
     }
 
     private TimedOutput outputByDistribution(Random random, Map<TimedOutput, Double> dist) {
@@ -0,0 +1,316 @@
+package evaluation.config;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import automaton.Input;
+import base.Compatibility;
+import base.learner.Learner;
+import base.learner.LearningSetting;
+import base.teacher.Teacher;
+import base.teacher.observationTree.CompletenessCriterion;
+import base.teacher.observationTree.ObservationTree;
+import base.teacher.observationTree.ThresholdCompleteness;
+import base.teacher.oracle.EqMode;
+import base.teacher.oracle.OutputOracle;
+import base.teacher.oracle.RefineStrategy;
+import base.teacher.oracle.conv.ConvergenceCriterion;
+import evaluation.learner_proxy.LearnerInstance;
+import suls.LoggingSUL;
+import suls.SUL;
+import suls.SULPool;
+import suls.TraceLog;
+import trace.ResetTimedTrace;
+import utils.FastImmPair;
+
+/**
+ * Parameters of the teacher and of the SUL shared by all learners. Subclasses only create the
+ * learner for the teacher and name it.
+ */
+public abstract class AbstractLearnerConfig implements LearnerConfig {
+
+	protected AbstractLearnerConfig(long seed, SUL sul, Compatibility compChecker, Set<Input> inputs,
+									int batchSizeFill, ConvergenceCriterion convCrit,
+									double unambiguousThreshold, double epsilon, double delta, int maxTries,
+									double stopProbTest, int bound, double regionNormalization, EqMode mode) {
+		this.seed = seed;
+		this.sul = new LoggingSUL(sul);
+		this.compChecker = compChecker;
+		this.inputs = inputs;
+		this.batchSizeFill = batchSizeFill;
+		this.convCrit = convCrit;
+		this.stopProbTest = stopProbTest;
+		this.bound = bound;
+		this.regionNormalization = regionNormalization;
+		this.mode = mode;
+		this.unambiguousThreshold = unambiguousThreshold;
+		this.epsilon = epsilon;
+		this.delta = delta;
+		this.maxTries = maxTries;
+	}
+
+	private boolean ignoreChaosInTesting = false;
+	private boolean stopTestingAtCex = true;
+	private int nrWorkers = 1;
+	// load traces logged by earlier runs into the observation tree before learning
+	private boolean warmStart = false;
+	private String warmStartLog = null;
+	private List<ResetTimedTrace> sampleTraces = null;
+	// file the traces executed while learning are streamed to, null if they are not logged
+	private String traceLogPath = null;
+	private RefineStrategy refineStrategy = RefineStrategy.UNIFORM;
+	// completeness criterion of the observation tree, null for a threshold criterion
+	private CompletenessCriterion completeness = null;
+	private int completenessThreshold = ObservationTree.DEFAULT_COMPLETENESS_THRESHOLD;
+	// write a checkpoint every checkpointInterval rounds, 0 disables checkpoints
+	private int checkpointInterval = 0;
+	private String checkpointPath = null;
+	private String resumePath = null;
+
+	private long seed;
+	private final LoggingSUL sul;
+	protected final Compatibility compChecker;
+	protected final Set<Input> inputs;
+	private final int batchSizeFill;
+	private final ConvergenceCriterion convCrit;
+	private final double stopProbTest;
+	private final int bound;
+	private final double regionNormalization;
+
+	private EqMode mode;
+	private double unambiguousThreshold;
+	private final double epsilon;
+	private final double delta;
+	private final int maxTries;
+
+	/**
+	 * Create the learner asking the given teacher, called once per instance.
+	 */
+	protected abstract Learner createLearner(Teacher teacher);
+
+	@Override
+	public LearnerInstance instantiate() throws Exception {
+		sul.clearTraces();
+		Random randomSource = new Random(seed);
+		OutputOracle outputOracle = new OutputOracle(randomSource, sul, batchSizeFill);
+		List<LoggingSUL> workerSuls = new ArrayList<>();
+		if (nrWorkers > 1) {
+			for (int i = 0; i < nrWorkers; i++) {
+				workerSuls.add(sul.copy());
+			}
+		}
+		// closed by the learner instance once learning has finished
+		SULPool sulPool = workerSuls.isEmpty() ? null : new SULPool(workerSuls);
+		if (sulPool != null) {
+			sulPool.init(seed);
+			outputOracle.setSulPool(sulPool);
+		}
+		Teacher teacher = new Teacher(randomSource, stopProbTest, bound, regionNormalization,
+				inputs, sul, outputOracle, compChecker, convCrit, mode);
+		teacher.setRefineStrategy(refineStrategy);
+		teacher.setCompleteness(completenessCriterion());
+		if (mode == EqMode.PAC) {
+			teacher.setPacParameters(unambiguousThreshold, epsilon, delta);
+		} else {
+			teacher.setConvParameters(maxTries);
+		}
+
+		Learner learner = createLearner(teacher);
+		LearningSetting setting = new LearningSetting(Integer.MAX_VALUE, null);
+
+		// before the trace log is created, which replaces the warm start log if both are the same file
+		if (warmStart) {
+			if (sampleTraces != null)
+				teacher.warmStart(sampleTraces);
+			if (warmStartLog != null)
+				teacher.warmStart(Paths.get(warmStartLog));
+		}
+
+		// closed by the learner instance together with the SUL pool
+		TraceLog traceLog = traceLogPath != null ? TraceLog.create(Paths.get(traceLogPath)) : null;
+		if (traceLog != null) {
+			sul.setTraceLog(traceLog);
+			workerSuls.forEach(workerSul -> workerSul.setTraceLog(traceLog));
+			sul.enableLogging();
+			workerSuls.forEach(LoggingSUL::enableLogging);
+		}
+		teacher.init();
+
+		LearnerInstance instance = new LearnerInstance(setting, learner) {
+
+			@Override
+			public void close() {
+				if (sulPool != null)
+					sulPool.close();
+				if (traceLog != null) {
+					// completes the traces still being recorded
+					sul.setTraceLog(null);
+					workerSuls.forEach(workerSul -> workerSul.setTraceLog(null));
+					try {
+						traceLog.close();
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			}
+
+			@Override
+			public List<ResetTimedTrace> loggedSampleTraces() {
+				List<ResetTimedTrace> traces = new ArrayList<>(sul.getTraces());
+				sul.clearTraces();
+				for (LoggingSUL workerSul : workerSuls) {
+					traces.addAll(workerSul.getTraces());
+					workerSul.clearTraces();
+				}
+				return traces;
+			}
+
+			@Override
+			protected long countSteps() {
+				return sul.getNrTests() + workerSuls.stream().mapToLong(LoggingSUL::getNrTests).sum();
+			}
+
+			@Override
+			protected long countTests() {
+				return sul.getNrSample() + workerSuls.stream().mapToLong(LoggingSUL::getNrSample).sum();
+			}
+
+			@Override
+			public long getQueryCacheHits() {
+				return teacher.getQueryCacheHits();
+			}
+
+			@Override
+			public long getQueryCacheMisses() {
+				return teacher.getQueryCacheMisses();
+			}
+		};
+		if (checkpointInterval > 0)
+			instance.setCheckpoint(checkpointInterval, checkpointPath);
+		if (resumePath != null)
+			instance.setResumePath(resumePath);
+		return instance;
+	}
+
+	@Override
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	@Override
+	public int getBound() {
+		return this.bound;
+	}
+
+	@Override
+	public List<FastImmPair<String, String>> parameters() {
+		List<FastImmPair<String, String>> parameters = new ArrayList<>();
+		parameters.add(FastImmPair.of("seed", Long.toString(seed)));
+		parameters.add(FastImmPair.of("compatibility checker", compChecker.description()));
+		parameters.add(FastImmPair.of("n_resample", Integer.toString(batchSizeFill)));
+		parameters.add(FastImmPair.of("stopping criterion", convCrit.description()));
+		parameters.add(FastImmPair.of("stop-probability test", Double.toString(stopProbTest)));
+		parameters.add(FastImmPair.of("adaptive alpha", Boolean.toString(compChecker.isAdaptive())));
+		parameters.add(FastImmPair.of("ignore chaos", Boolean.toString(ignoreChaosInTesting)));
+		parameters.add(FastImmPair.of("equivalence oracle mode", mode.name()));
+		parameters.add(FastImmPair.of("unambiguousThreshold", Double.toString(unambiguousThreshold)));
+		parameters.add(FastImmPair.of("epsilon", Double.toString(epsilon)));
+		parameters.add(FastImmPair.of("delta", Double.toString(delta)));
+		parameters.add(FastImmPair.of("maxTries", Integer.toString(maxTries)));
+		parameters.add(FastImmPair.of("workers", Integer.toString(nrWorkers)));
+		parameters.add(FastImmPair.of("refine strategy", refineStrategy.name()));
+		parameters.add(FastImmPair.of("completeness", completenessCriterion().description()));
+		parameters.add(FastImmPair.of("warm start", warmStart ? (warmStartLog != null ? warmStartLog : "logged traces") : "false"));
+		parameters.add(FastImmPair.of("trace log", traceLogPath != null ? traceLogPath : "false"));
+		parameters.add(FastImmPair.of("checkpoint interval", Integer.toString(checkpointInterval)));
+		parameters.add(FastImmPair.of("resumed from", resumePath != null ? resumePath : "false"));
+		return parameters;
+	}
+
+	public boolean isIgnoreChaosInTesting() {
+		return ignoreChaosInTesting;
+	}
+
+	public void setIgnoreChaosInTesting(boolean ignoreChaosInTesting) {
+		this.ignoreChaosInTesting = ignoreChaosInTesting;
+	}
+
+	public boolean isStopTestingAtCex() {
+		return stopTestingAtCex;
+	}
+
+	public void setStopTestingAtCex(boolean stopTestingAtCex) {
+		this.stopTestingAtCex = stopTestingAtCex;
+	}
+
+	public void setMode(EqMode mode) {
+		this.mode = mode;
+	}
+
+	public void setUnambiguousThreshold(double unambiguousThreshold) {
+		this.unambiguousThreshold = unambiguousThreshold;
+	}
+
+	@Override
+	public void setNrWorkers(int nrWorkers) {
+		if (nrWorkers < 1)
+			throw new IllegalArgumentException("At least one worker is required");
+		this.nrWorkers = nrWorkers;
+	}
+
+	public void setRefineStrategy(RefineStrategy refineStrategy) {
+		this.refineStrategy = refineStrategy;
+	}
+
+	public void setCompleteness(CompletenessCriterion completeness) {
+		this.completeness = completeness;
+	}
+
+	/**
+	 * Number of outputs after which a node of the observation tree is complete, used unless a
+	 * criterion is set with {@link #setCompleteness}.
+	 */
+	public void setCompletenessThreshold(int completenessThreshold) {
+		if (completenessThreshold < 1)
+			throw new IllegalArgumentException("The completeness threshold has to be positive");
+		this.completenessThreshold = completenessThreshold;
+	}
+
+	private CompletenessCriterion completenessCriterion() {
+		return completeness != null ? completeness : new ThresholdCompleteness(completenessThreshold);
+	}
+
+	@Override
+	public void setSampleTraces(List<ResetTimedTrace> sample) {
+		this.sampleTraces = sample;
+	}
+
+	@Override
+	public void setWarmStart(boolean warmStart, String warmStartLog) {
+		this.warmStart = warmStart;
+		this.warmStartLog = warmStartLog;
+	}
+
+	@Override
+	public void setTraceLog(String traceLogPath) {
+		this.traceLogPath = traceLogPath;
+	}
+
+	@Override
+	public void setCheckpoint(int interval, String path) {
+		if (interval < 0)
+			throw new IllegalArgumentException("The checkpoint interval must not be negative");
+		this.checkpointInterval = interval;
+		this.checkpointPath = path;
+	}
+
+	@Override
+	public void setResumePath(String resumePath) {
+		this.resumePath = resumePath;
+	}
+}
@@ -34,12 +34,39 @@ public interface LearnerConfig {
 	void setSeed(long seed);
 	default void setSampleTraces(List<ResetTimedTrace> sample){
 	}
+	/**
+	 * Stream the traces executed while learning to a {@link suls.TraceLog} at the given path,
+	 * or keep them in memory if the path is null.
+	 */
+	default void setTraceLog(String traceLogPath){
+	}
+	/**
+	 * Execute the queries of the teacher on the given number of copies of the SUL.
+	 */
+	void setNrWorkers(int nrWorkers);
+	/**
+	 * Start learning from the traces passed with {@link #setSampleTraces} and, if not null,
+	 * from the traces of the given trace log instead of an empty observation tree. Later runs
+	 * can start from the traces of this run if they are streamed to a trace log, see
+	 * {@link #setTraceLog}.
+	 */
+	void setWarmStart(boolean warmStart, String warmStartLog);
+	/**
+	 * Write a checkpoint every <code>interval</code> rounds, by default to the output directory
+	 * of the learner if <code>path</code> is null. An interval of 0 disables checkpoints.
+	 */
+	void setCheckpoint(int interval, String path);
+	/**
+	 * Resume learning from a checkpoint written by the same learner for the same SUL, or start
+	 * from scratch if the path is null.
+	 */
+	void setResumePath(String resumePath);
 	int getBound();
 	public static void removeChaosIfUnreachable(PTA learnedModel) {
 		boolean isChaosReachable = !ShortTraceToChaosGenerator
 				.findTracesToChaos(learnedModel, 0.1).isEmpty();
 		if(!isChaosReachable){
-			learnedModel.getLocations().removeIf(s -> s.getLabel().equals(Output.chaos()));
+			learnedModel.removeLocations(s -> s.getLabel().equals(Output.chaos()));
 		}
 	}
 }
@@ -22,111 +22,30 @@ import java.util.*;
 import automaton.Input;
 import base.Compatibility;
 import base.learner.Learner;
-import base.learner.LearningSetting;
 import base.teacher.Teacher;
 import base.teacher.oracle.EqMode;
-import base.teacher.oracle.OutputOracle;
 import base.teacher.oracle.conv.ConvergenceCriterion;
-import evaluation.learner_proxy.LearnerInstance;
 import observationTable.ObservationTable;
-import suls.LoggingSUL;
 import suls.SUL;
-import trace.ResetTimedTrace;
-import trace.base.Trace;
 import utils.FastImmPair;
 
-public class ObservationTableConfig implements LearnerConfig{
+public class ObservationTableConfig extends AbstractLearnerConfig{
 
 	public ObservationTableConfig(long seed, SUL sul, Compatibility compChecker, Set<Input> inputs, int batchSizeFill,
 								  ConvergenceCriterion convCrit,
 								  double unambiguousThreshold, double epsilon, double delta, int maxTries,
 								  double stopProbTest, int bound, double regionNormalization, EqMode mode) {
-		super();
-		this.seed = seed;
-		this.sul = new LoggingSUL(sul);
-		this.compChecker = compChecker;
-		this.inputs = inputs;
-		this.batchSizeFill = batchSizeFill;
-		this.convCrit = convCrit;
-		this.stopProbTest = stopProbTest;
-		this.bound = bound;
-		this.regionNormalization = regionNormalization;
-		this.mode = mode;
-		this.unambiguousThreshold = unambiguousThreshold;
-		this.epsilon = epsilon;
-		this.delta = delta;
-		this.maxTries = maxTries;
-
+		super(seed, sul, compChecker, inputs, batchSizeFill, convCrit, unambiguousThreshold, epsilon, delta, maxTries,
+				stopProbTest, bound, regionNormalization, mode);
 	}
 
-	private boolean ignoreChaosInTesting = false;
-	private boolean stopTestingAtCex = true;
-	
-	private long seed;
-	private LoggingSUL sul = null;
-	private final Compatibility compChecker;
-	private final Set<Input> inputs;
-	private final int batchSizeFill;
-	private final ConvergenceCriterion convCrit;
-	private final double stopProbTest;
-	private final int bound;
-	private final double regionNormalization;
-
-	private EqMode mode;
-	private double unambiguousThreshold;
-	private final double epsilon;
-	private final double delta;
-	private final int maxTries;
-	
-
-	@Override
-	public LearnerInstance instantiate() {
-
-		sul.clearTraces();
-		Random randomSource = new Random(seed);
-		OutputOracle outputOracle = new OutputOracle(randomSource, sul, batchSizeFill);
-		Teacher teacher = new Teacher(randomSource, stopProbTest, bound, regionNormalization,
-				inputs, sul, outputOracle, compChecker, convCrit, mode);
-		if (mode == EqMode.PAC) {
-			teacher.setPacParameters(unambiguousThreshold, epsilon, delta);
-		} else {
-			teacher.setConvParameters(maxTries);
-		}
-
-		Learner learner = new ObservationTable(inputs, compChecker, teacher);
-		LearningSetting setting = new LearningSetting(Integer.MAX_VALUE, null);
-
-		teacher.init();
-		
-		return new LearnerInstance(setting, learner) {
-
-			@Override
-			public List<ResetTimedTrace> loggedSampleTraces() {
-				List<ResetTimedTrace> traces = new ArrayList<>(sul.getTraces());
-				sul.clearTraces();
-				return traces;
-			}
-
-			@Override
-			public long getNrSteps() {
-				return sul.getNrTests();
-			}
-
-			@Override
-			public long getNrTests() {
-				return sul.getNrSample();
-			}
-		};
-	}
+	private boolean parallelChecks = false;
 
 	@Override
-	public void setSeed(long seed) {
-		this.seed = seed;
-	}
-
-	@Override
-	public int getBound() {
-		return this.bound;
+	protected Learner createLearner(Teacher teacher) {
+		ObservationTable table = new ObservationTable(inputs, compChecker, teacher);
+		table.setParallelChecks(parallelChecks);
+		return table;
 	}
 
 	@Override
@@ -141,44 +60,13 @@ public class ObservationTableConfig implements LearnerConfig{
 
 	@Override
 	public List<FastImmPair<String, String>> parameters() {
-		List<FastImmPair<String, String>> parameters = new ArrayList<>();
-		parameters.add(FastImmPair.of("seed", Long.toString(seed)));
-		parameters.add(FastImmPair.of("compatibility checker", compChecker.description()));
-		parameters.add(FastImmPair.of("n_resample", Integer.toString(batchSizeFill)));
-		parameters.add(FastImmPair.of("stopping criterion", convCrit.description()));
-		parameters.add(FastImmPair.of("stop-probability test", Double.toString(stopProbTest)));
-		parameters.add(FastImmPair.of("adaptive alpha", Boolean.toString(compChecker.isAdaptive())));
-		parameters.add(FastImmPair.of("ignore chaos", Boolean.toString(ignoreChaosInTesting)));
-		parameters.add(FastImmPair.of("equivalence oracle mode", mode.name()));
-		parameters.add(FastImmPair.of("unambiguousThreshold", Double.toString(unambiguousThreshold)));
-		parameters.add(FastImmPair.of("epsilon", Double.toString(epsilon)));
-		parameters.add(FastImmPair.of("delta", Double.toString(delta)));
-		parameters.add(FastImmPair.of("maxTries", Integer.toString(maxTries)));
+		List<FastImmPair<String, String>> parameters = super.parameters();
+		parameters.add(FastImmPair.of("parallel table checks", Boolean.toString(parallelChecks)));
 		return parameters;
 	}
 
-	public boolean isIgnoreChaosInTesting() {
-		return ignoreChaosInTesting;
-	}
-
-	public void setIgnoreChaosInTesting(boolean ignoreChaosInTesting) {
-		this.ignoreChaosInTesting = ignoreChaosInTesting;
-	}
-
-	public boolean isStopTestingAtCex() {
-		return stopTestingAtCex;
-	}
-
-	public void setStopTestingAtCex(boolean stopTestingAtCex) {
-		this.stopTestingAtCex = stopTestingAtCex;
-	}
-	
-	public void setMode(EqMode mode) {
-		this.mode = mode;
-	}
-
-	public void setUnambiguousThreshold(double unambiguousThreshold) {
-		this.unambiguousThreshold = unambiguousThreshold;
+	public void setParallelChecks(boolean parallelChecks) {
+		this.parallelChecks = parallelChecks;
 	}
 
 }
@@ -17,12 +17,9 @@
  *******************************************************************************/
 package evaluation.experiments;
 
-import evaluation.Evaluator;
+import evaluation.ExperimentScheduler;
 import evaluation.config.experiment_configs.*;
 import base.teacher.oracle.EqMode;
-import importer.json.JsonSUL;
-
-import java.util.Random;
 
 public class EvalRandomModels {
 	public static void main(String args[]) throws Exception{
@@ -30,17 +27,18 @@ public class EvalRandomModels {
 		String trueSulFile = "eval/src/main/resources/randomModels";
 		String modelName = "10_2_7_40";
 
-		Evaluator evaluator = new Evaluator(seed);
-		for (int i = 1; i <= 10; i++) {
-			JsonSUL trueSUL = JsonSUL.getPtaFromJsonFile(String.format("%s/%s-%d.json", trueSulFile, modelName, i));
-			trueSUL.init(seed);
-
-			evaluator.setSul(trueSUL, modelName, i);
-			evaluator.addConfig(RandomModelConfig102740.observationTable(seed, trueSUL, EqMode.PAC));
-//			evaluator.addConfig(RandomModelConfig102740.classificationTree(seed, trueSUL, EqMode.PAC));
+		// number of models learned at the same time, one per core by default
+		int nrWorkers = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
 
-			evaluator.evalTesting(20000, "results_only_testing/randomModels");
+		ExperimentScheduler scheduler = new ExperimentScheduler(seed, nrWorkers);
+		// compare exact output distributions instead of sampled outputs when computing the passing ratio
+		scheduler.setAnalyticPassRatio(args.length > 1 && Boolean.parseBoolean(args[1]));
+		for (int i = 1; i <= 10; i++) {
+			String modelFile = String.format("%s/%s-%d.json", trueSulFile, modelName, i);
+			scheduler.addJob(modelFile, modelName, i, (s, sul) -> RandomModelConfig102740.observationTable(s, sul, EqMode.PAC));
+//			scheduler.addJob(modelFile, modelName, i, (s, sul) -> RandomModelConfig102740.classificationTree(s, sul, EqMode.PAC));
 		}
+		scheduler.evalTesting(20000, "results_only_testing/randomModels");
 
 
 //		Evaluator evaluator = new Evaluator(trueSUL, modelName+"-"+index, seed);
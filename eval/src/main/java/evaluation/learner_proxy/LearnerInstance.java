@@ -22,21 +22,82 @@ import automaton.PTA;
 import base.Compatibility;
 import base.learner.Learner;
 import base.learner.LearningSetting;
-import lombok.AllArgsConstructor;
 import trace.ResetTimedTrace;
 
-@AllArgsConstructor
-public abstract class LearnerInstance {
+public abstract class LearnerInstance implements AutoCloseable {
 	protected LearningSetting setting;
 	protected Learner learner;
 
+	public LearnerInstance(LearningSetting setting, Learner learner) {
+		this.setting = setting;
+		this.learner = learner;
+		// checkpoints store the counts, so that resumed runs report those of the whole run
+		setting.setStepCounter(this::countSteps);
+		setting.setTestCounter(this::countTests);
+	}
+
+	/**
+	 * Learn a hypothesis, the resources used only while learning are released afterwards, see 
+	 * {@link #close()}.
+	 */
 	public PTA learn() throws Exception {
-		learner.learn(setting);
+		try {
+			learner.learn(setting);
+		} finally {
+			close();
+		}
 		return setting.getHypothesis();
 	}
+	/**
+	 * Release the resources used while learning, e.g. the worker threads of a SUL pool. The 
+	 * logged traces and statistics remain available.
+	 */
+	@Override
+	public void close() {
+	}
+	public void setOutputDirectory(String outputDirectory) {
+		setting.setOutputDirectory(outputDirectory);
+	}
+	/**
+	 * Write a checkpoint every <code>interval</code> rounds, by default to the output directory
+	 * if <code>path</code> is null.
+	 */
+	public void setCheckpoint(int interval, String path) {
+		setting.setCheckpointInterval(interval);
+		setting.setCheckpointPath(path);
+	}
+	/**
+	 * Resume learning from a checkpoint written by the same learner for the same SUL.
+	 */
+	public void setResumePath(String resumePath) {
+		setting.setResumePath(resumePath);
+	}
 	public abstract List<ResetTimedTrace> loggedSampleTraces();
-	public abstract long getNrSteps();
-	public abstract long getNrTests();
+	/**
+	 * Steps and tests, i.e. resets, executed on the SUL since the learner was instantiated.
+	 */
+	protected abstract long countSteps();
+	protected abstract long countTests();
+	/**
+	 * Steps executed on the SUL, including those before the checkpoint learning was resumed
+	 * from.
+	 */
+	public long getNrSteps() {
+		return setting.getNrSteps();
+	}
+	/**
+	 * Tests executed on the SUL, including those before the checkpoint learning was resumed
+	 * from.
+	 */
+	public long getNrTests() {
+		return setting.getNrTests();
+	}
+	/**
+	 * Queries of the learner answered from the query cache of the teacher, and queries
+	 * answered from the observation tree.
+	 */
+	public abstract long getQueryCacheHits();
+	public abstract long getQueryCacheMisses();
 	public int getNrRounds() {
 		return setting.getRounds();
 	}
@@ -0,0 +1,34 @@
+package evaluation;
+
+import importer.json.JsonSUL;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EvaluatorTest {
+    private static final long SEED = 1L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void resultsReportTheQueryCache() throws Exception {
+        JsonSUL sul = SmallModel.load(SEED);
+        SampleTest sampleTest = new SampleTest(sul.getTargetModel(), SEED);
+        String hypoPath = new File(folder.getRoot(), "hypo.json").getPath();
+        EvalResult result = Evaluator.learnAndEvaluate(SmallModel.observationTable(SEED, sul), sampleTest, 100,
+                hypoPath, folder.newFolder().getPath(), new ArrayList<>());
+
+        assertTrue(result.getQueryCacheHits() > 0);
+        assertTrue(result.getQueryCacheMisses() > 0);
+        List<String> lines = result.export();
+        assertTrue(lines.contains("# query cache hits: " + result.getQueryCacheHits()));
+        assertTrue(lines.contains("# query cache misses: " + result.getQueryCacheMisses()));
+    }
+}
@@ -0,0 +1,68 @@
+package evaluation;
+
+import importer.json.TestModels;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ExperimentSchedulerTest {
+    private static final long SEED = 1L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void jobsLogTracesAndWriteCheckpointsToTheirRunDirectories() throws Exception {
+        String outputPath = folder.newFolder("first").getPath();
+        ExperimentScheduler scheduler = new ExperimentScheduler(SEED, 2);
+        scheduler.setTraceLogs(true);
+        scheduler.setCheckpoint(1, false);
+        scheduler.setWorkersPerJob(2);
+        addJobs(scheduler);
+        List<EvalMeasurement> measurements = scheduler.evalTesting(100, outputPath);
+        assertEquals(2, measurements.size());
+
+        for (String run : new String[]{"000_small-1_table", "001_small-2_tree"}) {
+            File runDirectory = new File(outputPath, "runs/" + run);
+            assertTrue(run, new File(runDirectory, ExperimentScheduler.TRACE_LOG).length() > 0);
+            assertTrue(run, new File(runDirectory, ExperimentScheduler.CHECKPOINT).exists());
+        }
+
+        // a second run starts from the traces and checkpoints of the first one
+        ExperimentScheduler warmScheduler = new ExperimentScheduler(SEED, 2);
+        warmScheduler.setWarmStartPath(outputPath);
+        addJobs(warmScheduler);
+        assertEquals(2, warmScheduler.evalTesting(100, folder.newFolder("second").getPath()).size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void warmStartRequiresTheTraceLogsOfTheEarlierRun() throws Throwable {
+        ExperimentScheduler scheduler = new ExperimentScheduler(SEED, 1);
+        scheduler.setWarmStartPath(folder.newFolder("empty").getPath());
+        addJobs(scheduler);
+        try {
+            scheduler.evalTesting(100, folder.newFolder("output").getPath());
+        } catch (Exception e) {
+            throw e.getCause();
+        }
+    }
+
+    private void addJobs(ExperimentScheduler scheduler) throws Exception {
+        // the scheduler reads its models from files
+        File modelFile = new File(folder.getRoot(), TestModels.SMALL);
+        if (!modelFile.exists()) {
+            try (InputStream in = TestModels.open(TestModels.SMALL)) {
+                Files.copy(in, modelFile.toPath());
+            }
+        }
+        scheduler.addJob(modelFile.getPath(), "small", 1, SmallModel::observationTable);
+        scheduler.addJob(modelFile.getPath(), "small", 2, SmallModel::classificationTree);
+    }
+}
@@ -0,0 +1,70 @@
+package evaluation;
+
+import automaton.PTA;
+import evaluation.config.LearnerConfig;
+import evaluation.learner_proxy.LearnerInstance;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import suls.SUL;
+import util.export.DotExporter;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import static org.junit.Assert.*;
+
+/**
+ * Learning resumed from a checkpoint continues like the interrupted run. The SUL is
+ * deterministic, so its outputs do not depend on its random state, which is not stored.
+ */
+public class ResumeTest {
+    private static final long SEED = 1L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void resumedTableLearnsTheSameHypothesis() throws Exception {
+        resumeLearnsTheSameHypothesis(SmallModel::observationTable);
+    }
+
+    @Test
+    public void resumedTreeLearnsTheSameHypothesis() throws Exception {
+        resumeLearnsTheSameHypothesis(SmallModel::classificationTree);
+    }
+
+    private void resumeLearnsTheSameHypothesis(BiFunction<Long, SUL, LearnerConfig> factory) throws Exception {
+        File checkpoint = new File(folder.getRoot(), "checkpoint");
+        LearnerConfig config = factory.apply(SEED, SmallModel.loadDeterministic(SEED));
+        config.setCheckpoint(1, checkpoint.getPath());
+        LearnerInstance complete = config.instantiate();
+        complete.setOutputDirectory(folder.newFolder().getPath());
+        PTA expected = complete.learn();
+        assertTrue(checkpoint.exists());
+        assertTrue(complete.getNrRounds() > 1);
+
+        LearnerConfig resumedConfig = factory.apply(SEED, SmallModel.loadDeterministic(SEED));
+        resumedConfig.setResumePath(checkpoint.getPath());
+        LearnerInstance resumed = resumedConfig.instantiate();
+        resumed.setOutputDirectory(folder.newFolder().getPath());
+        PTA actual = resumed.learn();
+
+        assertEquals(sortedDot(expected), sortedDot(actual));
+        assertEquals(complete.getNrRounds(), resumed.getNrRounds());
+        assertEquals(complete.getNrEq(), resumed.getNrEq());
+        // the resumed run adds its own executions to those stored with the checkpoint
+        assertEquals(complete.getNrTests(), resumed.getNrTests());
+        assertEquals(complete.getNrSteps(), resumed.getNrSteps());
+    }
+
+    // the transitions of a location are written in the order of a hash set
+    private static List<String> sortedDot(PTA pta) {
+        List<String> lines = Arrays.asList(new DotExporter().toDot(pta).split(System.lineSeparator()));
+        Collections.sort(lines);
+        return lines;
+    }
+}
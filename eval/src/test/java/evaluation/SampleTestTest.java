@@ -0,0 +1,90 @@
+package evaluation;
+
+import automaton.Input;
+import automaton.Location;
+import automaton.Output;
+import automaton.PTA;
+import base.Compatibility;
+import importer.json.JsonSUL;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+public class SampleTestTest {
+    private static final String MISSING_TRANSITION = "{\"init\": \"0\", \"location\": {\"0\": \"l0\", \"1\": \"l1\", \"2\": \"l2\"}, "
+            + "\"transition\": {\"0\": [0, \"a\", \"[0,2]\", true, 1, 1.0], \"1\": [0, \"a\", \"(2,+)\", false, 2, 1.0], "
+            + "\"2\": [1, \"a\", \"[0,+)\", true, 0, 0.5], \"3\": [1, \"a\", \"[0,+)\", true, 2, 0.5], "
+            + "\"4\": [1, \"b\", \"[0,+)\", false, 1, 1.0], \"5\": [2, \"a\", \"[0,+)\", true, 2, 1.0], "
+            + "\"6\": [2, \"b\", \"[1,+)\", true, 0, 1.0], \"7\": [2, \"b\", \"[0,1)\", false, 1, 1.0]}}";
+
+    @Test
+    public void analyticPassRatioDoesNotDependOnTheNumberOfWorkers() throws Exception {
+        PTA target = SmallModel.load(1).getTargetModel();
+        PTA hypothesis = missingTransition();
+        double passRatio = analyticPassRatio(target, hypothesis, 1);
+        for (int workers = 2; workers <= 8; workers *= 2)
+            assertEquals(passRatio, analyticPassRatio(target, hypothesis, workers), 0.0);
+    }
+
+    @Test
+    public void emptyDistributionsAreOnlyCompatibleWithEachOtherInBothModes() throws Exception {
+        PTA target = SmallModel.load(1).getTargetModel();
+        for (boolean analytic : new boolean[]{false, true}) {
+            assertEquals(1.0, passRatio(target, SmallModel.load(1).getTargetModel(), analytic), 0.0);
+            double passRatio = passRatio(target, missingTransition(), analytic);
+            assertTrue("analytic " + analytic + ": " + passRatio, passRatio < 1.0);
+        }
+    }
+
+    @Test
+    public void missingTransitionsFailTheSameStepsInBothModes() throws Exception {
+        PTA target = SmallModel.load(1).getTargetModel();
+        // the sampled outputs of a single transition always differ from the missing output
+        double sampled = passRatio(target, missingTransition(), false);
+        double analytic = passRatio(target, missingTransition(), true);
+        assertEquals(sampled, analytic, 0.05);
+    }
+
+    private static double analyticPassRatio(PTA target, PTA hypothesis, int workers) {
+        SampleTest sampleTest = sampleTest(target);
+        sampleTest.setAnalytic(true);
+        sampleTest.setNrWorkers(workers);
+        sampleTest.evaluatePassRatio(hypothesis, 2000, SmallModel.BOUND);
+        return sampleTest.getPassRatio();
+    }
+
+    private static double passRatio(PTA target, PTA hypothesis, boolean analytic) {
+        SampleTest sampleTest = sampleTest(target);
+        sampleTest.setAnalytic(analytic);
+        sampleTest.evaluatePassRatio(hypothesis, 5000, SmallModel.BOUND);
+        return sampleTest.getPassRatio();
+    }
+
+    private static SampleTest sampleTest(PTA target) {
+        SampleTest sampleTest = new SampleTest(target, 7);
+        sampleTest.setCompChecker(new Compatibility(0.05, false, true));
+        return sampleTest;
+    }
+
+    /**
+     * The model without the transition of l0 for input b and without the sink completing it,
+     * so no output is enabled for that input.
+     */
+    private static PTA missingTransition() throws Exception {
+        PTA pta = JsonSUL.getPtaFromJsonStream(new ByteArrayInputStream(MISSING_TRANSITION.getBytes(StandardCharsets.UTF_8)))
+                .getTargetModel();
+        for (Location location : new ArrayList<>(pta.getLocations())) {
+            if (location.getLabel().equals(Output.sink())) {
+                pta.removeState(location);
+                continue;
+            }
+            for (Input input : pta.getInputs())
+                location.removeTransitions(input, transition -> transition.getTarget().getLabel().equals(Output.sink()));
+        }
+        return pta;
+    }
+}
@@ -0,0 +1,49 @@
+package evaluation;
+
+import base.Compatibility;
+import base.teacher.oracle.EqMode;
+import base.teacher.oracle.conv.RoundBasedAndUnambigTraceCriterion;
+import evaluation.config.ClassificationTreeConfig;
+import evaluation.config.ObservationTableConfig;
+import importer.json.JsonSUL;
+import importer.json.TestModels;
+import suls.SUL;
+
+/**
+ * The {@link TestModels} initialised with a seed, and configurations learning them.
+ */
+public final class SmallModel {
+    public static final int BOUND = 4;
+
+    private SmallModel() {
+    }
+
+    public static JsonSUL load(long seed) throws Exception {
+        return load(TestModels.SMALL, seed);
+    }
+
+    /**
+     * @see TestModels#DETERMINISTIC
+     */
+    public static JsonSUL loadDeterministic(long seed) throws Exception {
+        return load(TestModels.DETERMINISTIC, seed);
+    }
+
+    private static JsonSUL load(String name, long seed) throws Exception {
+        JsonSUL sul = TestModels.load(name);
+        sul.init(seed);
+        return sul;
+    }
+
+    public static ObservationTableConfig observationTable(long seed, SUL sul) {
+        return new ObservationTableConfig(seed, sul, new Compatibility(0.05, false, true), sul.getInputs(), 100,
+                new RoundBasedAndUnambigTraceCriterion(2, 20, 0.99), 1, 0.05, 0.05, 100,
+                0.5, BOUND, 0.5, EqMode.PAC);
+    }
+
+    public static ClassificationTreeConfig classificationTree(long seed, SUL sul) {
+        return new ClassificationTreeConfig(seed, sul, new Compatibility(0.05, false, true), sul.getInputs(), 100,
+                new RoundBasedAndUnambigTraceCriterion(2, 20, 0.99), 1, 0.05, 0.05, 100,
+                0.5, BOUND, 0.5, EqMode.PAC);
+    }
+}
@@ -0,0 +1,105 @@
+package evaluation.config;
+
+import automaton.PTA;
+import evaluation.SmallModel;
+import evaluation.learner_proxy.LearnerInstance;
+import importer.json.JsonSUL;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class LearnerConfigTest {
+    private static final long SEED = 1L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void bothLearnersLearnTheSmallModel() throws Exception {
+        for (LearnerConfig config : new LearnerConfig[]{
+                SmallModel.observationTable(SEED, SmallModel.load(SEED)),
+                SmallModel.classificationTree(SEED, SmallModel.load(SEED))}) {
+            LearnerInstance instance = config.instantiate();
+            instance.setOutputDirectory(folder.newFolder().getPath());
+            PTA hypothesis = instance.learn();
+            assertNotNull(config.description(), hypothesis);
+            assertTrue(config.description(), instance.getNrSteps() > 0);
+        }
+    }
+
+    @Test
+    public void warmStartFromTraceLogSavesSamples() throws Exception {
+        File traceLog = new File(folder.getRoot(), "traces.log");
+        JsonSUL sul = SmallModel.load(SEED);
+        LearnerConfig config = SmallModel.observationTable(SEED, sul);
+        config.setTraceLog(traceLog.getPath());
+        LearnerInstance cold = config.instantiate();
+        cold.setOutputDirectory(folder.newFolder().getPath());
+        cold.learn();
+        assertTrue(traceLog.length() > 0);
+
+        LearnerConfig warmConfig = SmallModel.observationTable(SEED, SmallModel.load(SEED));
+        warmConfig.setWarmStart(true, traceLog.getPath());
+        LearnerInstance warm = warmConfig.instantiate();
+        warm.setOutputDirectory(folder.newFolder().getPath());
+        warm.learn();
+        // output queries answered by the logged traces are not sampled again
+        assertTrue(warm.getNrTests() < cold.getNrTests());
+    }
+
+    @Test
+    public void warmStartReplacesItsOwnTraceLogOnlyAfterReadingIt() throws Exception {
+        File traceLog = new File(folder.getRoot(), "traces.log");
+        LearnerConfig config = SmallModel.observationTable(SEED, SmallModel.load(SEED));
+        config.setTraceLog(traceLog.getPath());
+        LearnerInstance cold = config.instantiate();
+        cold.setOutputDirectory(folder.newFolder().getPath());
+        cold.learn();
+
+        LearnerConfig warmConfig = SmallModel.observationTable(SEED, SmallModel.load(SEED));
+        warmConfig.setWarmStart(true, traceLog.getPath());
+        warmConfig.setTraceLog(traceLog.getPath());
+        LearnerInstance warm = warmConfig.instantiate();
+        warm.setOutputDirectory(folder.newFolder().getPath());
+        warm.learn();
+        // output queries answered by the logged traces are not sampled again
+        assertTrue(warm.getNrTests() < cold.getNrTests());
+    }
+
+    @Test
+    public void checkpointsAreWrittenToTheConfiguredPath() throws Exception {
+        File checkpoint = new File(folder.getRoot(), "run/checkpoint");
+        LearnerConfig config = SmallModel.classificationTree(SEED, SmallModel.load(SEED));
+        config.setCheckpoint(1, checkpoint.getPath());
+        LearnerInstance instance = config.instantiate();
+        instance.setOutputDirectory(folder.newFolder().getPath());
+        instance.learn();
+        assertTrue(checkpoint.exists());
+    }
+
+    @Test
+    public void parametersListTheOptions() throws Exception {
+        ObservationTableConfig config = SmallModel.observationTable(SEED, SmallModel.load(SEED));
+        config.setNrWorkers(2);
+        config.setParallelChecks(true);
+        config.setCheckpoint(5, null);
+        assertTrue(config.parameters().toString().contains("workers"));
+        assertEquals("2", value(config, "workers"));
+        assertEquals("true", value(config, "parallel table checks"));
+        assertEquals("5", value(config, "checkpoint interval"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNoWorkers() throws Exception {
+        SmallModel.classificationTree(SEED, SmallModel.load(SEED)).setNrWorkers(0);
+    }
+
+    private static String value(LearnerConfig config, String name) {
+        return config.parameters().stream().filter(p -> p.getLeft().equals(name)).findFirst()
+                .orElseThrow(AssertionError::new).getRight();
+    }
+}
@@ -0,0 +1,138 @@
+package observationTable;
+
+import automaton.Location;
+import base.learner.Answer;
+import base.teacher.observationTree.VersionedAnswer;
+import trace.ResetTimedTrace;
+import trace.TimedInput;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Outgoing transitions of one group of short rows as computed while building a hypothesis.
+ * Targets are stored as group representatives instead of locations, so the transitions can
+ * be reused in later rounds as long as the rows they were derived from did not change. The
+ * location the transitions were added to is remembered as well, so its transitions and
+ * guards are kept as long as they still lead to the same locations.
+ */
+class GroupTransitions {
+    static class Step {
+        private final ResetTimedTrace trace;
+        private final TimedInput input;
+        private final VersionedAnswer answer;
+        private final List<ResetTimedTrace> extensions;
+        private final List<Row> extensionRows = new ArrayList<>();
+        private final List<Integer> extensionVersions = new ArrayList<>();
+        // representatives of the groups reached by the extensions, null if an extension leads to chaos
+        private List<ResetTimedTrace> targets = new ArrayList<>();
+
+        Step(ResetTimedTrace trace, TimedInput input, VersionedAnswer answer, List<ResetTimedTrace> extensions) {
+            this.trace = trace;
+            this.input = input;
+            this.answer = answer;
+            this.extensions = extensions;
+        }
+
+        void addExtensionRow(Row row) {
+            extensionRows.add(row);
+            extensionVersions.add(row.getVersion());
+        }
+
+        void setTargets(List<ResetTimedTrace> targets) {
+            this.targets = targets;
+        }
+
+        ResetTimedTrace getTrace() {
+            return trace;
+        }
+
+        TimedInput getInput() {
+            return input;
+        }
+
+        Answer getAnswer() {
+            return answer.getAnswer();
+        }
+
+        /**
+         * @return whether the tree nodes the answer was computed from did not change since
+         */
+        boolean answerUnchanged() {
+            return answer.isUpToDate();
+        }
+
+        List<ResetTimedTrace> getExtensions() {
+            return extensions;
+        }
+
+        List<Row> getExtensionRows() {
+            return extensionRows;
+        }
+
+        List<ResetTimedTrace> getTargets() {
+            return targets;
+        }
+
+        boolean extensionRowsUnchanged() {
+            for (int k = 0; k < extensionRows.size(); k++) {
+                if (extensionRows.get(k).getVersion() != extensionVersions.get(k))
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    private final Set<ResetTimedTrace> members;
+    private final List<Step> steps = new ArrayList<>();
+    // representative epoch for which the targets were resolved
+    private int targetEpoch = -1;
+    // location of the group which carries the transitions and the locations they lead to,
+    // null until the transitions have been added to a location
+    private Location builtLocation = null;
+    private List<Location> builtTargets = null;
+
+    GroupTransitions(Set<ResetTimedTrace> members) {
+        this.members = members;
+    }
+
+    void addStep(Step step) {
+        steps.add(step);
+    }
+
+    Set<ResetTimedTrace> getMembers() {
+        return members;
+    }
+
+    List<Step> getSteps() {
+        return steps;
+    }
+
+    int getTargetEpoch() {
+        return targetEpoch;
+    }
+
+    void setTargetEpoch(int targetEpoch) {
+        this.targetEpoch = targetEpoch;
+    }
+
+    /**
+     * @return whether the transitions have already been added to the location, leading to the
+     *         given target locations
+     */
+    boolean isBuiltInto(Location location, List<Location> targets) {
+        if (builtLocation != location || builtTargets.size() != targets.size())
+            return false;
+        for (int k = 0; k < targets.size(); k++) {
+            if (builtTargets.get(k) != targets.get(k))
+                return false;
+        }
+        return true;
+    }
+
+    void setBuilt(Location location, List<Location> targets) {
+        this.builtLocation = location;
+        this.builtTargets = targets;
+    }
+}
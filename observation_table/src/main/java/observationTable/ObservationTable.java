@@ -3,10 +3,13 @@ package observationTable;
 import automaton.*;
 import base.Compatibility;
 import base.learner.Answer;
+import base.learner.Checkpoint;
 import base.learner.Learner;
 import base.learner.LearningSetting;
 import base.learner.Repf;
 import base.teacher.Teacher;
+import base.teacher.observationTree.VersionedAnswer;
+import base.teacher.oracle.RefineStrategy;
 import org.apache.commons.lang3.tuple.Triple;
 import trace.*;
 import util.export.DotExporter;
@@ -16,11 +19,14 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.function.BiPredicate;
 import java.util.stream.Collectors;
 
 public class ObservationTable implements Learner {
+    private static final String CHECKPOINT_NAME = "observation table";
 
     private Set<ResetTimedTrace> Srows;
     private Set<TimedSuffixTrace> Ecols;
@@ -37,11 +43,28 @@ public class ObservationTable implements Learner {
     private Location chaosLocation;
     private Location invalidLocation;
     private boolean bfsSort = false;
+    // transitions of the groups of the previous hypotheses, indexed by group representative
+    private Map<ResetTimedTrace, GroupTransitions> groupTransitions = new HashMap<>();
+    // locations of the previous hypotheses, indexed by group representative
+    private Map<ResetTimedTrace, Location> groupLocations = new HashMap<>();
+    private Map<ResetTimedTrace, Integer> representativeVersions = new HashMap<>();
+    // incremented whenever targets of stored transitions have to be resolved again
+    private int representativeEpoch = 0;
+    // rows which changed since the last hypothesis
+    private Set<ResetTimedTrace> dirtyRows = new HashSet<>();
+    private boolean allRowsDirty = true;
+    // cached compatibility of rows, used by the checks only in the parallel mode
+    private final RowCompatibility rowCompatibility;
+    private boolean parallelChecks = false;
 
     // new
     private Map<ResetTimedTrace, Set<TimedInput>> timeInputMap;
     private double unambiguousRows = 0;
     private Set<TimedIncompleteTrace> consistentCheckIncomplete;
+    // rows compatible with several representatives when the rows were last checked
+    private Set<ResetTimedTrace> ambiguousRows = new HashSet<>();
+    // incomplete traces of the ambiguous rows, refined first by some refine strategies
+    private Set<TimedIncompleteTrace> ambiguousIncomplete = new HashSet<>();
 
     public ObservationTable(Set<Input> inputs, Compatibility compChecker, Teacher teacher) {
         super();
@@ -49,11 +72,21 @@ public class ObservationTable implements Learner {
         this.compChecker = compChecker;
         this.teacher = teacher;
         this.inputs = inputs;
+        this.rowCompatibility = new RowCompatibility(compChecker);
         for (Input input : inputs) {
             singleInputCols.add(TimedSuffixTrace.empty(TimedInput.create(input)));
         }
     }
 
+    /**
+     * Compute the row compatibilities needed for grouping, closedness and consistency checks
+     * in parallel and cache them per pair of rows. The checks give the same results as in the
+     * sequential mode.
+     */
+    public void setParallelChecks(boolean parallelChecks) {
+        this.parallelChecks = parallelChecks;
+    }
+
     @Override
     public Compatibility getCompChecker() {
         return this.compChecker;
@@ -105,17 +138,33 @@ public class ObservationTable implements Learner {
     public double portionOfUnambiguousRows() {
         if (unambiguousRows == 1.0)
             return 1.0;
+        return (double) findAmbiguousRows() / (longRows.size() + shortRows.size());
+    }
+
+    /**
+     * Group the short rows and collect the rows compatible with more than one representative
+     * in {@link #ambiguousRows}.
+     *
+     * @return number of unambiguous rows
+     */
+    private int findAmbiguousRows() {
+        ambiguousRows.clear();
         int nrUnambig = 0;
         groupShortRows();
+        precomputeCompatibility(true);
         for (ResetTimedTrace shortTrace : shortRows.keySet()) {
             if (!findGroup(shortTrace).trim().contains(" "))
                 nrUnambig++;
+            else
+                ambiguousRows.add(shortTrace);
         }
         for (ResetTimedTrace longTrace : longRows.keySet()) {
             if (!findGroup(longTrace).trim().contains(" "))
                 nrUnambig++;
+            else
+                ambiguousRows.add(longTrace);
         }
-        return (double) nrUnambig / (longRows.size() + shortRows.size());
+        return nrUnambig;
     }
 
     private String findGroup(ResetTimedTrace trace) {
@@ -130,8 +179,7 @@ public class ObservationTable implements Learner {
         for (Map.Entry<ResetTimedTrace, FastImmPair<Integer, Set<ResetTimedTrace>>> entry :
                 groupedAccSequences.entrySet()) {
             Row shortRow = shortRows.get(entry.getKey());
-            if (rowForTrace.statRowEquivalence(shortRow, compChecker)
-                    && trace.lastOutput().equals(entry.getKey().lastOutput()))
+            if (rowsCompatible(trace, rowForTrace, entry.getKey(), shortRow))
                 allCompat.append(entry.getValue().getLeft()).append(" ");
         }
         return allCompat.toString();
@@ -162,6 +210,7 @@ public class ObservationTable implements Learner {
         // TreeMap<>(
         // this::compareCompletenessOfShort);
 
+        precomputeCompatibility(false);
         int groupID = 0;
         while (!nonGrouped.isEmpty()) {
             ResetTimedTrace current = nonGrouped.iterator().next();
@@ -170,8 +219,7 @@ public class ObservationTable implements Learner {
                 // if
                 // (shortRows.get(current).statRowEquivalence(shortRows.get(potentiallyEquiv),
                 // compChecker))
-                if (shortRows.get(current).statRowEquivalence(shortRows.get(potentiallyEquiv), compChecker)
-                        && current.lastOutput().equals(potentiallyEquiv.lastOutput()))
+                if (rowsCompatible(current, shortRows.get(current), potentiallyEquiv, shortRows.get(potentiallyEquiv)))
                     currentGroup.add(potentiallyEquiv);
             }
             nonGrouped.removeAll(currentGroup);
@@ -181,6 +229,38 @@ public class ObservationTable implements Learner {
         groupedAccSequences = grouped;
     }
 
+    private boolean rowsCompatible(ResetTimedTrace trace1, Row row1, ResetTimedTrace trace2, Row row2) {
+        if (parallelChecks)
+            return rowCompatibility.compatible(trace1, row1, trace2, row2);
+        return row1.statRowEquivalence(row2, compChecker) && trace1.lastOutput().equals(trace2.lastOutput());
+    }
+
+    /**
+     * In the parallel mode, compute the compatibility of all short rows with each other or,
+     * once rows are grouped, of all short and long rows with the group representatives.
+     */
+    private void precomputeCompatibility(boolean withRepresentatives) {
+        if (!parallelChecks)
+            return;
+        List<FastImmPair<ResetTimedTrace, Row>> shortRowList = new ArrayList<>();
+        for (Map.Entry<ResetTimedTrace, Row> entry : shortRows.entrySet()) {
+            shortRowList.add(FastImmPair.of(entry.getKey(), entry.getValue()));
+        }
+        if (!withRepresentatives) {
+            rowCompatibility.precompute(shortRowList, shortRowList);
+            return;
+        }
+        List<FastImmPair<ResetTimedTrace, Row>> representatives = new ArrayList<>();
+        for (ResetTimedTrace representative : groupedAccSequences.keySet()) {
+            representatives.add(FastImmPair.of(representative, shortRows.get(representative)));
+        }
+        List<FastImmPair<ResetTimedTrace, Row>> rowList = new ArrayList<>(shortRowList);
+        for (Map.Entry<ResetTimedTrace, Row> entry : longRows.entrySet()) {
+            rowList.add(FastImmPair.of(entry.getKey(), entry.getValue()));
+        }
+        rowCompatibility.precompute(rowList, representatives);
+    }
+
     private List<ResetTimedTrace> sortShortByBFS(List<ResetTimedTrace> shortRowList) {
         List<ResetTimedTrace> result = new ArrayList<>();
         LinkedList<ResetTimedTrace> schedule = new LinkedList<>();
@@ -208,14 +288,12 @@ public class ObservationTable implements Learner {
         for (TimedInput timedInput : timeInputMap.get(t1)) {
             TimedSuffixTrace Etrace = TimedSuffixTrace.empty(timedInput);
             Answer answer = teacher.query(t1, Etrace);
-            for (Integer outputCount : answer.getFrequencies().values())
-                nrEntries1 += outputCount;
+            nrEntries1 += answer.getFrequencies().getTotal();
         }
         for (TimedInput timedInput : timeInputMap.get(t2)) {
             TimedSuffixTrace Etrace = TimedSuffixTrace.empty(timedInput);
             Answer answer = teacher.query(t2, Etrace);
-            for (Integer outputCount : answer.getFrequencies().values())
-                nrEntries2 += outputCount;
+            nrEntries2 += answer.getFrequencies().getTotal();
         }
 //        Set<TimedInput> timedInputs = new HashSet<>(timeInputMap.get(t1));
 //        timedInputs.addAll(timeInputMap.get(t2));
@@ -265,6 +343,8 @@ public class ObservationTable implements Learner {
         shortRows = new HashMap<>();
         longRows = new HashMap<>();
         timeInputMap = new HashMap<>();
+        // results of rows which are no longer in the table
+        rowCompatibility.clear();
 
         firstShortTrace = ResetTimedTrace.empty(initialOutput);
         Srows.add(firstShortTrace);
@@ -281,9 +361,12 @@ public class ObservationTable implements Learner {
         consistentCheckIncomplete = new HashSet<>();
 
         List<TimedIncompleteTrace> initialTraces = new ArrayList<>();
-        for (TimedSuffixTrace colTrace : Ecols)
-            initialTraces.add(new TimedIncompleteTrace(firstShortTrace.convert(), colTrace));
-        fillTable(Optional.of(initialTraces));
+        for (TimedSuffixTrace colTrace : Ecols) {
+            // cells may already be complete if the teacher has been warm started
+            if (!teacher.query(firstShortTrace, colTrace).isComplete())
+                initialTraces.add(new TimedIncompleteTrace(firstShortTrace.convert(), colTrace));
+        }
+        fillTable(initialTraces.isEmpty() ? Optional.empty() : Optional.of(initialTraces));
         addLongRows(firstShortTrace);
 
     }
@@ -296,6 +379,7 @@ public class ObservationTable implements Learner {
                 if (!longRows.containsKey(longTrace) && !shortRows.containsKey(longTrace)) {
                     Row longRow = new Row(Ecols);
                     longRows.put(longTrace, longRow);
+                    markDirty(longTrace);
                     ensureConsistencyWithTree(longTrace, longRow);
                 }
             }
@@ -304,7 +388,7 @@ public class ObservationTable implements Learner {
 
     private void ensureConsistencyWithTree(ResetTimedTrace rowTrace, Row row) {
         for (TimedSuffixTrace colTrace : Ecols) {
-            row.put(colTrace, teacher.query(rowTrace, colTrace));
+            row.put(colTrace, teacher.versionedQuery(rowTrace, colTrace));
         }
     }
 
@@ -336,13 +420,13 @@ public class ObservationTable implements Learner {
             for (TimedSuffixTrace colTrace : cols) {
                 Answer answer = teacher.query(shortTrace, colTrace);
                 if (answer.isValid() && !answer.isComplete())
-                    incompleteTraces.add(new TimedIncompleteTrace(shortTrace.convert(), colTrace));
+                    addIncomplete(incompleteTraces, shortTrace, colTrace);
             }
         }
         for (ResetTimedTrace longTrace : longRows.keySet()) {
             for (TimedSuffixTrace colTrace : allLongCols ? Ecols : singleInputCols) {
                 if (!longRows.get(longTrace).get(colTrace).isComplete())
-                    incompleteTraces.add(new TimedIncompleteTrace(longTrace.convert(), colTrace));
+                    addIncomplete(incompleteTraces, longTrace, colTrace);
             }
         }
         incompleteTraces.addAll(consistentCheckIncomplete);
@@ -350,6 +434,14 @@ public class ObservationTable implements Learner {
         return incompleteTraces;
     }
 
+    private void addIncomplete(List<TimedIncompleteTrace> incompleteTraces, ResetTimedTrace rowTrace,
+                               TimedSuffixTrace colTrace) {
+        TimedIncompleteTrace trace = new TimedIncompleteTrace(rowTrace.convert(), colTrace);
+        incompleteTraces.add(trace);
+        if (ambiguousRows.contains(rowTrace))
+            ambiguousIncomplete.add(trace);
+    }
+
     /**
      * Perform a refine query as described in "L*-Based Learning of MDPs".
      */
@@ -370,8 +462,13 @@ public class ObservationTable implements Learner {
         // 1. make information between observation tree and table consistent
         ensureConsistencyWithTree();
         List<TimedIncompleteTrace> traces = null;
+        ambiguousIncomplete.clear();
         if (tracesToFill.isEmpty()) {
-            // 2. find incomplete entries
+            // 2. find incomplete entries, marking those of ambiguous rows if they are refined first
+            if (teacher.getRefineStrategy() == RefineStrategy.AMBIGUITY)
+                findAmbiguousRows();
+            else
+                ambiguousRows.clear();
             traces = findIncomplete();
             if (traces.isEmpty()) {
                 // initially collect only single input columns for long traces,
@@ -391,7 +488,7 @@ public class ObservationTable implements Learner {
 
         unambiguousRows = 0;
         // 3. try making those complete through queries
-        teacher.refine(traces);
+        teacher.refine(traces, ambiguousIncomplete);
         // 5. make tree and table consistent again
         ensureConsistencyWithTree();
         groupedAccSequences = null;
@@ -402,25 +499,30 @@ public class ObservationTable implements Learner {
         // start time
         long startOfLearning = System.currentTimeMillis();
 
-        init(teacher.getInitialOutput());
-        fillTable();
-
         PTA hypo = null;
         int rounds = 0;
         int count = 1;
+        if (setting.getResumePath() != null) {
+            startOfLearning -= resume(setting);
+            rounds = setting.getRounds();
+            count = setting.getNrEq();
+        } else {
+            init(teacher.getInitialOutput());
+            fillTable();
+        }
         DotExporter dotExp = new DotExporter();
         do {
             stabilise();
             System.out.println("Round " + rounds);
             if (rounds > 0 && rounds % (setting.getPrintFrequency()) == 0) {
-                writeTableToFile("hypotheses/table_" + rounds + ".csv");
+                writeTableToFile(setting.getOutputDirectory() + "/table_" + rounds + ".csv");
             }
 
             hypo = buildHypothesis();
             if (rounds > 0 && rounds % setting.getPrintFrequency() == 0) {
-                dotExp.writeToFile(hypo, "hypotheses/hyp" + rounds + ".dot");
+                dotExp.writeToFile(hypo, setting.getOutputDirectory() + "/hyp" + rounds + ".dot");
                 if (setting.getRmlExp() != null)
-                    setting.getRmlExp().toFile(hypo, "hypotheses/hyp" + rounds + ".prism");
+                    setting.getRmlExp().toFile(hypo, setting.getOutputDirectory() + "/hyp" + rounds + ".prism");
             }
             rounds++;
             // strictly viewed, this check should come at the end of the loop, but this is more
@@ -434,14 +536,16 @@ public class ObservationTable implements Learner {
                 processCounterexample(eqResult.right);
             }
             fillTable();
+            if (setting.isCheckpointRound(rounds))
+                writeCheckpoint(setting, rounds, count, System.currentTimeMillis() - startOfLearning);
         } while (true);
 
         // end time
         long endOfLearning = System.currentTimeMillis();
 
         // output learned models
-        dotExp.writeToFile(hypo, "hypotheses/hyp_final.dot");
-        writeTableToFile("hypotheses/table_final.csv");
+        dotExp.writeToFile(hypo, setting.getOutputDirectory() + "/hyp_final.dot");
+        writeTableToFile(setting.getOutputDirectory() + "/table_final.csv");
 
         setting.setNrEq(count);
         setting.setRounds(rounds);
@@ -449,13 +553,107 @@ public class ObservationTable implements Learner {
         setting.setHypothesis(hypo);
     }
 
+    /**
+     * Write the rows, columns and the observation tree to a checkpoint, so that learning can
+     * be resumed after the given round.
+     */
+    private void writeCheckpoint(LearningSetting setting, int rounds, int nrEq, long time) throws IOException {
+        Path path = Paths.get(setting.getCheckpointPath());
+        try (Checkpoint.Writer checkpoint = Checkpoint.create(path, CHECKPOINT_NAME, teacher, setting, rounds, nrEq, time)) {
+            checkpoint.writeOutput(firstShortTrace.lastOutput());
+            checkpoint.writeInt(Ecols.size());
+            for (TimedSuffixTrace col : Ecols)
+                checkpoint.writeSuffix(col);
+            checkpoint.writeInt(Srows.size());
+            for (ResetTimedTrace shortTrace : Srows) {
+                checkpoint.writeTrace(shortTrace);
+                Set<TimedInput> timedInputs = timeInputMap.get(shortTrace);
+                checkpoint.writeInt(timedInputs.size());
+                for (TimedInput timedInput : timedInputs)
+                    checkpoint.writeTimedInput(timedInput);
+            }
+            checkpoint.writeInt(longRows.size());
+            for (ResetTimedTrace longTrace : longRows.keySet())
+                checkpoint.writeTrace(longTrace);
+            checkpoint.writeInt(consistentCheckIncomplete.size());
+            for (TimedIncompleteTrace trace : consistentCheckIncomplete)
+                checkpoint.writeIncompleteTrace(trace);
+            checkpoint.writeDouble(unambiguousRows);
+            checkpoint.writeInt(ambiguousRows.size());
+            for (ResetTimedTrace trace : ambiguousRows)
+                checkpoint.writeTrace(trace);
+            checkpoint.commit();
+        }
+    }
+
+    /**
+     * Restore the table from the checkpoint given by the setting. The cells are filled from
+     * the restored observation tree without executing the SUL.
+     *
+     * @return time spent learning before the checkpoint, the rounds and equivalence queries
+     * are stored in the setting
+     */
+    private long resume(LearningSetting setting) throws IOException {
+        Path path = Paths.get(setting.getResumePath());
+        try (Checkpoint.Reader checkpoint = Checkpoint.read(path, CHECKPOINT_NAME, teacher, setting)) {
+            Srows = new HashSet<>();
+            Ecols = new HashSet<>();
+            shortRows = new HashMap<>();
+            longRows = new HashMap<>();
+            timeInputMap = new HashMap<>();
+            rowCompatibility.clear();
+            firstShortTrace = ResetTimedTrace.empty(checkpoint.readOutput());
+            chaosLocation = Location.chaos(inputs);
+            invalidLocation = Location.invalid(inputs);
+
+            int nrCols = checkpoint.readInt();
+            for (int i = 0; i < nrCols; i++)
+                Ecols.add(checkpoint.readSuffix());
+            int nrShortRows = checkpoint.readInt();
+            for (int i = 0; i < nrShortRows; i++) {
+                ResetTimedTrace shortTrace = checkpoint.readTrace();
+                Srows.add(shortTrace);
+                shortRows.put(shortTrace, new Row(Ecols));
+                Set<TimedInput> timedInputs = new HashSet<>();
+                int nrInputs = checkpoint.readInt();
+                for (int j = 0; j < nrInputs; j++)
+                    timedInputs.add(checkpoint.readTimedInput());
+                timeInputMap.put(shortTrace, timedInputs);
+            }
+            int nrLongRows = checkpoint.readInt();
+            for (int i = 0; i < nrLongRows; i++)
+                longRows.put(checkpoint.readTrace(), new Row(Ecols));
+            consistentCheckIncomplete = new HashSet<>();
+            int nrIncomplete = checkpoint.readInt();
+            for (int i = 0; i < nrIncomplete; i++)
+                consistentCheckIncomplete.add(checkpoint.readIncompleteTrace());
+            unambiguousRows = checkpoint.readDouble();
+            ambiguousRows = new HashSet<>();
+            int nrAmbiguous = checkpoint.readInt();
+            for (int i = 0; i < nrAmbiguous; i++)
+                ambiguousRows.add(checkpoint.readTrace());
+
+            groupedAccSequences = null;
+            // no transitions are reused after resuming, so no row has to be marked dirty
+            clearGroupTransitions();
+            dirtyRows.clear();
+            representativeVersions.clear();
+            allRowsDirty = true;
+            ensureConsistencyWithTree();
+            setting.setRounds(checkpoint.getRounds());
+            setting.setNrEq(checkpoint.getNrEq());
+            return checkpoint.getTime();
+        }
+    }
+
     @Override
     public void processCounterexample(ResetTimedIncompleteTrace counterExample) {
         for (int prefixLength = 1; prefixLength <= counterExample.length(); prefixLength++) {
-            ResetTimedIncompleteTrace prefix = (ResetTimedIncompleteTrace) counterExample.prefix(prefixLength);
-            ResetTimedTrace trace = (ResetTimedTrace) prefix.getTrace();
+            ResetTimedIncompleteTrace prefix = counterExample.prefix(prefixLength);
+            ResetTimedTrace trace = prefix.getTrace();
             updateS(trace);
             timeInputMap.get(trace).add(prefix.get(prefixLength-1).right);
+            dirtyRows.add(trace);
         }
     }
 
@@ -546,6 +744,7 @@ public class ObservationTable implements Learner {
 
     private Optional<ResetTimedTrace> closenessCheck() {
         groupShortRows();
+        precomputeCompatibility(true);
 
         // precondition longRows stores only defined rows
         for (ResetTimedTrace longRowTrace : longRows.keySet()) {
@@ -553,8 +752,7 @@ public class ObservationTable implements Learner {
             boolean foundMatch = false;
             for (ResetTimedTrace shortRowTrace : groupedAccSequences.keySet()) {
                 Row shortRow = shortRows.get(shortRowTrace);
-                if (longRowTrace.lastOutput().equals(shortRowTrace.lastOutput())
-                        && longRow.statRowEquivalence(shortRow, compChecker)) {
+                if (rowsCompatible(longRowTrace, longRow, shortRowTrace, shortRow)) {
                     foundMatch = true;
                 }
             }
@@ -566,12 +764,13 @@ public class ObservationTable implements Learner {
 
     private Optional<TimedSuffixTrace> consistencyCheck() {
         consistentCheckIncomplete = new HashSet<>();
+        precomputeCompatibility(false);
         for (ResetTimedTrace s1 : Srows) {
             Row s1Row = shortRows.get(s1);
             for (ResetTimedTrace s2 : Srows) {
                 Row s2Row = shortRows.get(s2);
                 if (s1 != s2) {
-                    if (s1.lastOutput().equals(s2.lastOutput()) && s1Row.statRowEquivalence(s2Row, compChecker)) {
+                    if (rowsCompatible(s1, s1Row, s2, s2Row)) {
                         Set<TimedInput> timedInputs = getAllSameInput(s1, s2);
                         for (TimedInput timedInput : timedInputs) {
                             Answer answer1 = teacher.query(s1, TimedSuffixTrace.empty(timedInput));
@@ -645,6 +844,7 @@ public class ObservationTable implements Learner {
             return;
         }
         groupedAccSequences = null;
+        markDirty(rowTrace);
 
         Srows.add(rowTrace);
         Row row = longRows.remove(rowTrace);
@@ -673,6 +873,7 @@ public class ObservationTable implements Learner {
             return;
 
         groupedAccSequences = null;
+        allRowsDirty = true;
         Ecols.add(columnTrace);
         for (ResetTimedTrace shortRow : shortRows.keySet()) {
             addFreshCellToTable(shortRow, columnTrace);
@@ -729,15 +930,20 @@ public class ObservationTable implements Learner {
         PTA hypothesis = new PTA();
         Repf repf = new Repf();
         Map<ResetTimedTrace, FastImmPair<Location, Set<ResetTimedTrace>>> traceToStates = createStatesForGroups(rowEquiv);
+        Map<Location, ResetTimedTrace> stateToTraces = new HashMap<>();
+        for (Map.Entry<ResetTimedTrace, FastImmPair<Location, Set<ResetTimedTrace>>> traceAndState : traceToStates.entrySet())
+            stateToTraces.put(traceAndState.getValue().getLeft(), traceAndState.getKey());
+        invalidateGroupTransitions();
         // assumption DLMDP -> exactly one initial output
         Location initial = traceToStates.get(firstShortTrace).getLeft();
         hypothesis.setInitial(initial);
         hypothesis.addLocation(chaosLocation);
         hypothesis.addLocation(invalidLocation);
-        Set<Location> addedStates = addTransitions(initial, traceToStates);
+        Set<Location> addedStates = addTransitions(initial, traceToStates, stateToTraces);
         for (Location location : addedStates)
             hypothesis.addLocation(location);
         hypothesis.setInputs(inputs);
+        dirtyRows.clear();
         return hypothesis;
     }
 
@@ -746,14 +952,21 @@ public class ObservationTable implements Learner {
         Map<ResetTimedTrace, FastImmPair<Location, Set<ResetTimedTrace>>> stateMap = new HashMap<>();
         // int id = 0;
         for (Map.Entry<ResetTimedTrace, FastImmPair<Integer, Set<ResetTimedTrace>>> compatGroup : groupedAccSequences.entrySet()) {
-            stateMap.put(compatGroup.getKey(), FastImmPair.of(new Location(compatGroup.getValue().getLeft(),
-                    compatGroup.getKey().lastOutput(), compatGroup.getKey()), compatGroup.getValue().getRight()));
+            // the location of a representative is kept as long as the id of its group does not change
+            Location location = groupLocations.get(compatGroup.getKey());
+            if (location == null || location.getId() != compatGroup.getValue().getLeft()) {
+                location = new Location(compatGroup.getValue().getLeft(), compatGroup.getKey().lastOutput(), compatGroup.getKey());
+                groupLocations.put(compatGroup.getKey(), location);
+            }
+            stateMap.put(compatGroup.getKey(), FastImmPair.of(location, compatGroup.getValue().getRight()));
         }
+        groupLocations.keySet().retainAll(groupedAccSequences.keySet());
         return stateMap;
     }
 
     private Set<Location> addTransitions(Location initial,
-                                         Map<ResetTimedTrace, FastImmPair<Location, Set<ResetTimedTrace>>> traceToStates) {
+                                         Map<ResetTimedTrace, FastImmPair<Location, Set<ResetTimedTrace>>> traceToStates,
+                                         Map<Location, ResetTimedTrace> stateToTraces) {
         LinkedList<Location> schedule = new LinkedList<>();
         schedule.add(initial);
         Set<Location> alreadyAddedTrans = new HashSet<>();
@@ -761,12 +974,9 @@ public class ObservationTable implements Learner {
             Location current = schedule.removeFirst();
             if (alreadyAddedTrans.contains(current) || current.getLabel().equals(Output.chaos()))
                 continue;
-            Map.Entry<ResetTimedTrace, FastImmPair<Location, Set<ResetTimedTrace>>> traceAndState = findTraceAndState(traceToStates,
-                    current);
-            ResetTimedTrace accSeq = traceAndState.getKey();
-            Location location = traceAndState.getValue().getLeft();
+            ResetTimedTrace accSeq = stateToTraces.get(current);
 
-            addTransitionsForState(location, accSeq, traceToStates, schedule);
+            addTransitionsForState(current, accSeq, traceToStates, schedule);
 
             alreadyAddedTrans.add(current);
         }
@@ -786,28 +996,22 @@ public class ObservationTable implements Learner {
         return extensions;
     }
 
-    private Map.Entry<ResetTimedTrace, FastImmPair<Location, Set<ResetTimedTrace>>> findTraceAndState(
-            Map<ResetTimedTrace, FastImmPair<Location, Set<ResetTimedTrace>>> traceToStates, Location current) {
-        for (Map.Entry<ResetTimedTrace, FastImmPair<Location, Set<ResetTimedTrace>>> traceAndState : traceToStates.entrySet()) {
-            if (traceAndState.getValue().getLeft().equals(current))
-                return traceAndState;
-        }
-        return null;
-    }
-
-    private Location findStateForExtension(Map<ResetTimedTrace, FastImmPair<Location, Set<ResetTimedTrace>>> traceToStates,
-                                           ResetTimedTrace ext, Row rowForExt) {
+    /**
+     * Finds the representative of the group the extension belongs to.
+     *
+     * @return the representative or null if the extension is a short row which is not
+     *         compatible to any representative
+     */
+    private ResetTimedTrace findRepresentativeForExtension(Map<ResetTimedTrace, FastImmPair<Location, Set<ResetTimedTrace>>> traceToStates,
+                                                           ResetTimedTrace ext, Row rowForExt) {
         for (Map.Entry<ResetTimedTrace, FastImmPair<Location, Set<ResetTimedTrace>>> tracesForState : traceToStates.entrySet()) {
             Row shortRow = shortRows.get(tracesForState.getKey());
-            if (shortRow.statRowEquivalence(rowForExt, compChecker)
-                    && tracesForState.getKey().lastOutput().equals(ext.lastOutput())) {
-                return tracesForState.getValue().getLeft();
+            if (rowsCompatible(tracesForState.getKey(), shortRow, ext, rowForExt)) {
+                return tracesForState.getKey();
             }
         }
         if (shortRows.containsKey(ext)) {
-            System.out.println(
-                    "WARNING: there is a short row which is not compatible to another short row representative.");
-            return chaosLocation;
+            return null;
         }
 
         throw new Error("We did not find a state to transit to");
@@ -816,6 +1020,22 @@ public class ObservationTable implements Learner {
     private void addTransitionsForState(Location location, ResetTimedTrace accSeq,
                                         Map<ResetTimedTrace, FastImmPair<Location, Set<ResetTimedTrace>>> traceToLocations,
                                         LinkedList<Location> schedule) {
+        Set<ResetTimedTrace> groupTraces = traceToLocations.get(accSeq).right;
+        GroupTransitions transitions = groupTransitions.get(accSeq);
+        if (transitions == null || !isUpToDate(transitions, groupTraces)) {
+            transitions = computeGroupTransitions(groupTraces);
+            groupTransitions.put(accSeq, transitions);
+        }
+        if (transitions.getTargetEpoch() != representativeEpoch) {
+            resolveTargets(transitions, traceToLocations);
+        }
+        List<Location> targets = targetLocations(transitions, traceToLocations);
+        schedule.addAll(targets);
+        // the guards derived in an earlier round are kept if the transitions still lead to the same locations
+        if (transitions.isBuiltInto(location, targets))
+            return;
+        location.setTransitions(new HashMap<>());
+
         Map<Input, Set<Map<Edge, Integer>>> frequencySets = new HashMap<>();
         Map<Input, Set<FastImmPair<Double, Map<Edge, Integer>>>> discreteTransitions = new HashMap<>();
         Map<Input, List<Double>> chaosClockValuations = new HashMap<>();
@@ -831,20 +1051,86 @@ public class ObservationTable implements Learner {
             invalidClockValuations.put(input, new ArrayList<>());
         }
 
-        Set<ResetTimedTrace> groupTraces = traceToLocations.get(accSeq).right;
+        int nrTargets = 0;
+        for (GroupTransitions.Step step : transitions.getSteps()) {
+            TimedInput i = step.getInput();
+            Answer answer = step.getAnswer();
+            if (!answer.isValid()) {
+                if (!unambiguousClockValuation.get(i.getInput()).contains(i.getClockVal())
+                        && !chaosClockValuations.get(i.getInput()).contains(i.getClockVal())) {
+                    invalidClockValuations.get(i.getInput()).add(i.getClockVal());
+                }
+                continue;
+            }
+            boolean extensionComplete = answer.isComplete();
+            Map<TimedOutput, Integer> outputDistributionForI = answer.getFrequencies();
+
+            List<ResetTimedTrace> extensions = step.getExtensions();
+            if (extensions.isEmpty()) {
+                if (!unambiguousClockValuation.get(i.getInput()).contains(i.getClockVal())) {
+                    chaosClockValuations.get(i.getInput()).add(i.getClockVal());
+                }
+            } else {
+                if (extensionComplete) {
+                    unambiguousClockValuation.get(i.getInput()).add(i.getClockVal());
+                    Map<Edge, Integer> frequencies = new HashMap<>();
+                    for (int k = 0; k < extensions.size(); k++) {
+                        ResetTimedTrace ext = extensions.get(k);
+                        int observationsForExt = outputDistributionForI.get(ext.getLastOutput());
+                        Location target = targets.get(nrTargets++);
+                        frequencies.put(new Edge(ext.getLastOutput().isReset(), target), observationsForExt);
+                    }
+                    frequencySets.get(i.getInput()).add(frequencies);
+                    discreteTransitions.get(i.getInput()).add(FastImmPair.of(i.getClockVal(), frequencies));
+                    chaosClockValuations.get(i.getInput()).remove(i.getClockVal());
+                    invalidClockValuations.get(i.getInput()).remove(i.getClockVal());
+                } else {
+                    if (!unambiguousClockValuation.get(i.getInput()).contains(i.getClockVal())) {
+                        chaosClockValuations.get(i.getInput()).add(i.getClockVal());
+                    }
+                }
+            }
+        }
+        constructTransitions(chaosLocation, invalidLocation, compChecker, location, chaosClockValuations, invalidClockValuations, discreteTransitions, frequencySets);
+        transitions.setBuilt(location, targets);
+    }
+
+    /**
+     * Locations reached by the extensions of the complete steps, in the order of the steps.
+     */
+    private List<Location> targetLocations(GroupTransitions transitions,
+                                           Map<ResetTimedTrace, FastImmPair<Location, Set<ResetTimedTrace>>> traceToLocations) {
+        List<Location> targets = new ArrayList<>();
+        for (GroupTransitions.Step step : transitions.getSteps()) {
+            Answer answer = step.getAnswer();
+            if (!answer.isValid() || !answer.isComplete())
+                continue;
+            for (ResetTimedTrace representative : step.getTargets()) {
+                if (representative == null) {
+                    System.out.println(
+                            "WARNING: there is a short row which is not compatible to another short row representative.");
+                    targets.add(chaosLocation);
+                } else {
+                    targets.add(traceToLocations.get(representative).getLeft());
+                }
+            }
+        }
+        return targets;
+    }
+
+    private GroupTransitions computeGroupTransitions(Set<ResetTimedTrace> groupTraces) {
+        GroupTransitions transitions = new GroupTransitions(new HashSet<>(groupTraces));
         for (ResetTimedTrace trace : groupTraces) {
             for (TimedInput i : timeInputMap.get(trace)) {
                 TimedSuffixTrace iCol = TimedSuffixTrace.empty(i);
                 // System.out.println("Adding trans for input " + i);
-                Answer answer = teacher.query(trace, iCol);
+                // the cached answer is only read, it is kept to detect changes of the tree
+                VersionedAnswer versionedAnswer = teacher.versionedQuery(trace, iCol);
+                Answer answer = versionedAnswer.getAnswer();
                 if (!answer.isValid()) {
-                    if (!unambiguousClockValuation.get(i.getInput()).contains(i.getClockVal())
-                            && !chaosClockValuations.get(i.getInput()).contains(i.getClockVal())) {
-                        invalidClockValuations.get(i.getInput()).add(i.getClockVal());
-                    }
+                    transitions.addStep(new GroupTransitions.Step(trace, i, versionedAnswer, Collections.emptyList()));
                     continue;
                 }
-                boolean extensionComplete = answer.isComplete();
                 Map<TimedOutput, Integer> outputDistributionForI = answer.getFrequencies();
 
                 List<ResetTimedTrace> extensions = findExt(trace, i);
@@ -860,34 +1146,89 @@ public class ObservationTable implements Learner {
                     throw new RuntimeException("We do not have the same number of trace extension as "
                             + "entries in the corresponding table cell");
                 }
-                if (extensions.isEmpty()) {
-                    if (!unambiguousClockValuation.get(i.getInput()).contains(i.getClockVal())) {
-                        chaosClockValuations.get(i.getInput()).add(i.getClockVal());
-                    }
-                } else {
-                    if (extensionComplete) {
-                        unambiguousClockValuation.get(i.getInput()).add(i.getClockVal());
-                        Map<Edge, Integer> frequencies = new HashMap<>();
-                        for (ResetTimedTrace ext : extensions) {
-                            Row rowForExt = shortRows.containsKey(ext) ? shortRows.get(ext) : longRows.get(ext);
-                            int observationsForExt = outputDistributionForI.get(ext.getLastOutput());
-                            Location target = findStateForExtension(traceToLocations, ext, rowForExt);
-                            frequencies.put(new Edge(ext.getLastOutput().isReset(), target), observationsForExt);
-                            schedule.add(target);
-                        }
-                        frequencySets.get(i.getInput()).add(frequencies);
-                        discreteTransitions.get(i.getInput()).add(FastImmPair.of(i.getClockVal(), frequencies));
-                        chaosClockValuations.get(i.getInput()).remove(i.getClockVal());
-                        invalidClockValuations.get(i.getInput()).remove(i.getClockVal());
-                    } else {
-                        if (!unambiguousClockValuation.get(i.getInput()).contains(i.getClockVal())) {
-                            chaosClockValuations.get(i.getInput()).add(i.getClockVal());
-                        }
-                    }
+                GroupTransitions.Step step = new GroupTransitions.Step(trace, i, versionedAnswer, extensions);
+                for (ResetTimedTrace ext : extensions) {
+                    step.addExtensionRow(shortRows.containsKey(ext) ? shortRows.get(ext) : longRows.get(ext));
                 }
+                transitions.addStep(step);
             }
         }
-        constructTransitions(chaosLocation, invalidLocation, compChecker, location, chaosClockValuations, invalidClockValuations, discreteTransitions, frequencySets);
+        return transitions;
+    }
+
+    /**
+     * Finds the groups reached by the extensions of complete steps.
+     */
+    private void resolveTargets(GroupTransitions transitions,
+                                Map<ResetTimedTrace, FastImmPair<Location, Set<ResetTimedTrace>>> traceToLocations) {
+        for (GroupTransitions.Step step : transitions.getSteps()) {
+            List<ResetTimedTrace> targets = new ArrayList<>();
+            if (step.getAnswer().isValid() && step.getAnswer().isComplete()) {
+                for (int k = 0; k < step.getExtensions().size(); k++) {
+                    targets.add(findRepresentativeForExtension(traceToLocations, step.getExtensions().get(k),
+                            step.getExtensionRows().get(k)));
+                }
+            }
+            step.setTargets(targets);
+        }
+        transitions.setTargetEpoch(representativeEpoch);
+    }
+
+    /**
+     * Checks whether transitions computed in an earlier round can be reused, i.e. the group
+     * still has the same members, none of them was marked dirty, and neither the answers
+     * for the members nor the rows of their extensions changed.
+     */
+    private boolean isUpToDate(GroupTransitions transitions, Set<ResetTimedTrace> groupTraces) {
+        if (!transitions.getMembers().equals(groupTraces))
+            return false;
+        for (ResetTimedTrace trace : groupTraces) {
+            if (dirtyRows.contains(trace))
+                return false;
+        }
+        for (GroupTransitions.Step step : transitions.getSteps()) {
+            if (!step.answerUnchanged() || !step.extensionRowsUnchanged())
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Drops all stored group transitions if columns were added. If the representatives or
+     * their rows changed, the targets of the stored transitions have to be resolved again.
+     */
+    private void invalidateGroupTransitions() {
+        Map<ResetTimedTrace, Integer> versions = new HashMap<>();
+        for (ResetTimedTrace representative : groupedAccSequences.keySet()) {
+            versions.put(representative, shortRows.get(representative).getVersion());
+        }
+        if (allRowsDirty) {
+            groupTransitions.clear();
+        }
+        if (!versions.equals(representativeVersions)) {
+            representativeEpoch++;
+        }
+        representativeVersions = versions;
+        allRowsDirty = false;
+    }
+
+    /**
+     * Forget the transitions stored by earlier hypothesis constructions, so the next
+     * hypothesis is built from the rows of the table alone.
+     */
+    void clearGroupTransitions() {
+        groupTransitions.clear();
+        groupLocations.clear();
+    }
+
+    /**
+     * Marks a row and the row it extends, since the transitions of the latter depend on the
+     * extension.
+     */
+    private void markDirty(ResetTimedTrace rowTrace) {
+        dirtyRows.add(rowTrace);
+        if (rowTrace.length() > 1)
+            dirtyRows.add(rowTrace.prefix(rowTrace.length() - 1));
     }
 
     @Override
@@ -2,12 +2,21 @@ package observationTable;
 
 import base.Compatibility;
 import base.learner.Answer;
+import base.teacher.observationTree.VersionedAnswer;
 import trace.TimedSuffixTrace;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Row {
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
     private Map<TimedSuffixTrace, Answer> row;
+    // tree answers the cells were copied from, a cell only changes if the nodes they visited changed
+    private final Map<TimedSuffixTrace, VersionedAnswer> sources = new HashMap<>();
+    // identifies the row in compatibility caches, version is incremented whenever a cell changes
+    private final int id = NEXT_ID.getAndIncrement();
+    private int version = 0;
 
     public Row(Set<TimedSuffixTrace> Ecols) {
         row = new HashMap<>();
@@ -32,7 +41,22 @@ public class Row {
         if (row == null) {
             row = new HashMap<>();
         }
-        row.put(continuation, answer);
+        sources.remove(continuation);
+        if (row.put(continuation, answer) != answer)
+            version++;
+    }
+
+    /**
+     * Put a copy of the answer of a tree query, unless the cell already holds the answer
+     * computed from the same tree nodes in the same versions, so the version of the row is
+     * only incremented if the contents of the cell may have changed.
+     */
+    public void put (TimedSuffixTrace continuation, VersionedAnswer answer) {
+        VersionedAnswer source = sources.get(continuation);
+        if (source != null && source.sameVersions(answer))
+            return;
+        put(continuation, answer.getAnswer().copy());
+        sources.put(continuation, answer);
     }
 
     public Answer get (TimedSuffixTrace suffix) {
@@ -63,6 +87,14 @@ public class Row {
         return row.entrySet();
     }
 
+    public int getId() {
+        return id;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
     public int size () {
         if (row == null) {
             return 0;
@@ -0,0 +1,79 @@
+package observationTable;
+
+import base.Compatibility;
+import trace.ResetTimedTrace;
+import utils.FastImmPair;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Compatibility of pairs of rows, i.e. whether the rows end with the same output and are
+ * statistically equivalent. Results are cached per ordered pair of rows together with the
+ * versions of both rows, so they stay valid across rounds as long as neither row changes.
+ * The relation is evaluated per ordered pair, since {@link Row#statRowEquivalence} is not
+ * symmetric for incomplete cells.
+ */
+class RowCompatibility {
+    private static class Entry {
+        private final int version1;
+        private final int version2;
+        private final boolean compatible;
+
+        private Entry(int version1, int version2, boolean compatible) {
+            this.version1 = version1;
+            this.version2 = version2;
+            this.compatible = compatible;
+        }
+    }
+
+    private final Compatibility compChecker;
+    private final Map<Long, Entry> cache = new ConcurrentHashMap<>();
+    private double alpha;
+
+    RowCompatibility(Compatibility compChecker) {
+        this.compChecker = compChecker;
+        this.alpha = compChecker.getAlpha();
+    }
+
+    /**
+     * Compute the compatibility of every row with every other row in parallel, unless it is
+     * cached already, so the following checks only read the cache.
+     */
+    void precompute(List<FastImmPair<ResetTimedTrace, Row>> rows, List<FastImmPair<ResetTimedTrace, Row>> others) {
+        checkAlpha();
+        IntStream.range(0, rows.size()).parallel().forEach(i -> {
+            FastImmPair<ResetTimedTrace, Row> row = rows.get(i);
+            for (FastImmPair<ResetTimedTrace, Row> other : others) {
+                compatible(row.left, row.right, other.left, other.right);
+            }
+        });
+    }
+
+    boolean compatible(ResetTimedTrace trace1, Row row1, ResetTimedTrace trace2, Row row2) {
+        long key = ((long) row1.getId() << 32) | (row2.getId() & 0xffffffffL);
+        Entry entry = cache.get(key);
+        if (entry != null && entry.version1 == row1.getVersion() && entry.version2 == row2.getVersion())
+            return entry.compatible;
+        boolean compatible = trace1.lastOutput().equals(trace2.lastOutput())
+                && row1.statRowEquivalence(row2, compChecker);
+        cache.put(key, new Entry(row1.getVersion(), row2.getVersion(), compatible));
+        return compatible;
+    }
+
+    /**
+     * Drop all cached results, e.g. because the rows of the table were replaced.
+     */
+    void clear() {
+        cache.clear();
+    }
+
+    private void checkAlpha() {
+        if (compChecker.getAlpha() != alpha) {
+            cache.clear();
+            alpha = compChecker.getAlpha();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package observationTable;
+
+import automaton.Location;
+import automaton.PTA;
+import automaton.Transition;
+import base.Compatibility;
+import base.teacher.Teacher;
+import base.teacher.oracle.EqMode;
+import base.teacher.oracle.OutputOracle;
+import base.teacher.oracle.conv.RoundBasedAndUnambigTraceCriterion;
+import importer.json.JsonSUL;
+import importer.json.TestModels;
+import org.junit.Test;
+import trace.ResetTimedIncompleteTrace;
+import util.export.DotExporter;
+import utils.FastImmPair;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Rounds of learning the small model are performed like {@link ObservationTable#learn} does,
+ * but at most {@link #MAX_ROUNDS} of them and without writing files.
+ */
+public class ObservationTableTest {
+    private static final int BOUND = 4;
+    private static final int MAX_ROUNDS = 200;
+
+    @Test
+    public void parallelChecksBuildTheHypothesesOfSequentialChecks() throws Exception {
+        for (long seed = 1; seed <= 3; seed++) {
+            Learning sequential = new Learning(seed, false);
+            Learning parallel = new Learning(seed, true);
+            boolean done = false;
+            for (int round = 0; round < MAX_ROUNDS && !done; round++) {
+                PTA expected = sequential.hypothesis();
+                assertEquals(sortedDot(expected), sortedDot(parallel.hypothesis()));
+                done = sequential.check(expected);
+                assertEquals(done, parallel.check(expected));
+            }
+            assertTrue(done);
+        }
+    }
+
+    @Test
+    public void reusedTransitionsGiveTheHypothesesBuiltFromTheTable() throws Exception {
+        for (long seed = 1; seed <= 3; seed++) {
+            for (boolean parallelChecks : new boolean[]{false, true}) {
+                Learning learning = new Learning(seed, parallelChecks);
+                boolean done = false;
+                for (int round = 0; round < MAX_ROUNDS && !done; round++) {
+                    PTA reused = learning.hypothesis();
+                    learning.table.clearGroupTransitions();
+                    assertEquals(sortedDot(learning.table.buildHypothesis()), sortedDot(reused));
+                    done = learning.check(reused);
+                }
+                assertTrue(done);
+            }
+        }
+    }
+
+    @Test
+    public void locationsAndTheirTransitionsAreKeptAcrossRounds() throws Exception {
+        Learning learning = new Learning(1, false);
+        Map<Location, List<Transition>> previous = new IdentityHashMap<>();
+        int nrKept = 0;
+        boolean done = false;
+        for (int round = 0; round < MAX_ROUNDS && !done; round++) {
+            PTA hypothesis = learning.hypothesis();
+            Map<Location, List<Transition>> transitions = new IdentityHashMap<>();
+            for (Location location : hypothesis.getLocations()) {
+                transitions.put(location, new ArrayList<>(location.getAllTransitions()));
+                List<Transition> kept = previous.get(location);
+                if (kept != null && !kept.isEmpty() && sameInstances(kept, location.getAllTransitions()))
+                    nrKept++;
+            }
+            previous = transitions;
+            done = learning.check(hypothesis);
+        }
+        assertTrue(done);
+        assertTrue(nrKept > 0);
+    }
+
+    private static boolean sameInstances(List<Transition> expected, List<Transition> actual) {
+        if (expected.size() != actual.size())
+            return false;
+        for (int k = 0; k < expected.size(); k++) {
+            if (expected.get(k) != actual.get(k))
+                return false;
+        }
+        return true;
+    }
+
+    private static class Learning {
+        private final Teacher teacher;
+        private final ObservationTable table;
+        private int nrEq = 1;
+
+        Learning(long seed, boolean parallelChecks) throws Exception {
+            JsonSUL sul = TestModels.load(TestModels.SMALL);
+            sul.init(seed);
+            Random random = new Random(seed);
+            Compatibility compChecker = new Compatibility(0.05, false, true);
+            teacher = new Teacher(random, 0.5, BOUND, 0.5, sul.getInputs(), sul, new OutputOracle(random, sul, 100),
+                    compChecker, new RoundBasedAndUnambigTraceCriterion(2, 20, 0.99), EqMode.PAC);
+            teacher.setPacParameters(1, 0.05, 0.05);
+            teacher.init();
+            table = new ObservationTable(sul.getInputs(), compChecker, teacher);
+            table.setParallelChecks(parallelChecks);
+            table.init(teacher.getInitialOutput());
+            table.fillTable();
+        }
+
+        PTA hypothesis() {
+            table.stabilise();
+            return table.buildHypothesis();
+        }
+
+        /**
+         * Ask an equivalence query for the hypothesis and process its counterexample.
+         *
+         * @return whether the hypothesis was accepted
+         */
+        boolean check(PTA hypothesis) {
+            FastImmPair<Boolean, ResetTimedIncompleteTrace> eqResult =
+                    teacher.equivalenceQuery(nrEq, hypothesis, table.portionOfUnambiguousRows());
+            if (eqResult.left)
+                return true;
+            if (eqResult.right != null) {
+                nrEq++;
+                table.processCounterexample(eqResult.right);
+            }
+            table.fillTable();
+            return false;
+        }
+    }
+
+    // the transitions of a location are written in the order of a hash set
+    private static List<String> sortedDot(PTA pta) {
+        List<String> lines = Arrays.asList(new DotExporter().toDot(pta).split(System.lineSeparator()));
+        Collections.sort(lines);
+        return lines;
+    }
+}
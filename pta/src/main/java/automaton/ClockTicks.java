@@ -0,0 +1,87 @@
+package automaton;
+
+/**
+ * Integer representation of clock values as a number of ticks of a fixed resolution. All
+ * clock values used by the learner are integers or integers plus a fraction given by the
+ * region normalization, e.g. 0.5 or 0.1, so they are whole numbers of ticks, and sums and
+ * differences of them stay exact in ticks. Clock values are converted to doubles only where
+ * they are passed to the SUL or written to files.
+ *
+ * <p>The resolution is a constant rather than a setting, so all models, SULs and concurrent
+ * jobs agree on it, and it is fine enough for the clock values of the models in use.
+ * {@link #toTicks} rounds every clock value to the nearest tick. For clock values that are
+ * whole numbers of ticks up to floating-point errors, e.g. a sum like 0.1 + 0.2, this only
+ * removes those errors, see {@link #isExact}. Other clock values, e.g. thirds of a unit, are
+ * identified if they are closer than half a tick. Guards with such bounds still compare clock
+ * values as doubles, see {@link CompiledGuard}. Only values that are not finite or exceed the
+ * range of ticks are rejected, see {@link #isRepresentable}.
+ */
+public final class ClockTicks {
+    public static final int TICKS_PER_UNIT = 1000;
+    // deviation from a whole number of ticks caused by rounding errors of sums of clock values
+    private static final double TOLERANCE = 1e-6;
+
+    private ClockTicks() {
+    }
+
+    /**
+     * @return the number of ticks of the clock value, rounded to the nearest tick
+     * @throws IllegalArgumentException if the clock value is not finite or exceeds the range of
+     *                                  ticks, which readers of files check with
+     *                                  {@link #isRepresentable} before
+     */
+    public static int toTicks(double clockVal) {
+        if (!isRepresentable(clockVal))
+            throw new IllegalArgumentException(String.format(
+                    "Clock value %s exceeds the range of clock ticks with %d ticks per unit", clockVal, TICKS_PER_UNIT));
+        return (int) Math.round(clockVal * TICKS_PER_UNIT);
+    }
+
+    /**
+     * @return whether the clock value can be converted to ticks, i.e. it is finite and within
+     * the range of ticks
+     */
+    public static boolean isRepresentable(double clockVal) {
+        // also fails for NaN and infinite values
+        return Math.abs(clockVal * TICKS_PER_UNIT) < Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return whether the clock value is a whole number of ticks up to the tolerance, i.e.
+     * {@link #toTicks} only removes floating-point errors from it
+     */
+    public static boolean isExact(double clockVal) {
+        if (!isRepresentable(clockVal))
+            return false;
+        double scaled = clockVal * TICKS_PER_UNIT;
+        return Math.abs(scaled - Math.round(scaled)) <= TOLERANCE * Math.max(1, Math.abs(scaled));
+    }
+
+    public static double toClockValue(int ticks) {
+        return (double) ticks / TICKS_PER_UNIT;
+    }
+
+    /**
+     * Format the clock value without formatting a double, with as many decimals as its ticks
+     * need but at least one, so clock values of one decimal are formatted like
+     * <code>String.format("%.1f", ...)</code> in the root locale.
+     */
+    public static String format(int ticks) {
+        StringBuilder sb = new StringBuilder(8);
+        appendTo(sb, ticks);
+        return sb.toString();
+    }
+
+    public static void appendTo(StringBuilder sb, int ticks) {
+        long abs = Math.abs((long) ticks);
+        if (ticks < 0)
+            sb.append('-');
+        sb.append(abs / TICKS_PER_UNIT).append('.');
+        long remainder = abs % TICKS_PER_UNIT;
+        do {
+            remainder *= 10;
+            sb.append(remainder / TICKS_PER_UNIT);
+            remainder %= TICKS_PER_UNIT;
+        } while (remainder != 0);
+    }
+}
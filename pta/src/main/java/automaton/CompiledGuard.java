@@ -0,0 +1,358 @@
+package automaton;
+
+import com.google.common.collect.BoundType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable, primitive-backed view of a {@link Guard}. The intervals are stored as sorted
+ * {@code double[]} lower and upper endpoints together with flags for closed bounds, an
+ * unbounded interval has the upper endpoint {@link Double#POSITIVE_INFINITY}. For sorted,
+ * non-overlapping intervals {@link #contains} is a binary search over the lower endpoints,
+ * otherwise it falls back to checking every interval.
+ *
+ * <p>Endpoints are compared with {@link Double#compare}, like the <code>Range&lt;Double&gt;</code>
+ * of {@link Interval}, and the string representation is the one of {@link Guard#toString()}.
+ * If all endpoints are multiples of a {@link ClockTicks tick}, they are also stored as ticks,
+ * so clock values given in ticks are tested with integer comparisons only.
+ */
+public final class CompiledGuard {
+    private final double[] lowers;
+    private final boolean[] lowerClosed;
+    private final double[] uppers;
+    private final boolean[] upperClosed;
+    private final int size;
+    // intervals are ordered by their lower bound and do not overlap
+    private final boolean ordered;
+    // endpoints in ticks, or null if an endpoint is no multiple of a tick
+    private final int[] lowerTicks;
+    private final int[] upperTicks;
+
+    private CompiledGuard(double[] lowers, boolean[] lowerClosed, double[] uppers, boolean[] upperClosed, int size) {
+        this.lowers = lowers;
+        this.lowerClosed = lowerClosed;
+        this.uppers = uppers;
+        this.upperClosed = upperClosed;
+        this.size = size;
+        boolean ordered = true;
+        for (int i = 0; i + 1 < size && ordered; i++) {
+            ordered = compareLower(i, i + 1) <= 0 && upperNotAfterLower(i, i + 1);
+        }
+        this.ordered = ordered;
+        int[] lowerTicks = new int[size];
+        int[] upperTicks = new int[size];
+        boolean exact = true;
+        for (int i = 0; i < size; i++) {
+            exact = ClockTicks.isExact(lowers[i]) && (!hasBound(i) || ClockTicks.isExact(uppers[i]));
+            if (!exact)
+                break;
+            lowerTicks[i] = ClockTicks.toTicks(lowers[i]);
+            // an unbounded interval has no upper bound in ticks, it is never compared
+            upperTicks[i] = hasBound(i) ? ClockTicks.toTicks(uppers[i]) : Integer.MAX_VALUE;
+        }
+        this.lowerTicks = exact ? lowerTicks : null;
+        this.upperTicks = exact ? upperTicks : null;
+    }
+
+    public static CompiledGuard of(Guard guard) {
+        return of(guard.getIntervals());
+    }
+
+    public static CompiledGuard of(List<Interval> intervals) {
+        int n = intervals.size();
+        double[] lowers = new double[n];
+        boolean[] lowerClosed = new boolean[n];
+        double[] uppers = new double[n];
+        boolean[] upperClosed = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            Interval interval = intervals.get(i);
+            lowers[i] = interval.lowerEndpoint();
+            lowerClosed[i] = interval.lowerBoundType() == BoundType.CLOSED;
+            if (interval.hasBound()) {
+                uppers[i] = interval.upperEndpoint();
+                upperClosed[i] = interval.upperBoundType() == BoundType.CLOSED;
+            } else {
+                uppers[i] = Double.POSITIVE_INFINITY;
+            }
+        }
+        return new CompiledGuard(lowers, lowerClosed, uppers, upperClosed, n);
+    }
+
+    /**
+     * Build the guard covering the selected clock valuations in one pass. Every selected
+     * valuation <code>v[i]</code> stands for the region up to the next valuation, i.e.
+     * {@link Interval#create(double, double)} of <code>v[i]</code> and <code>v[i+1]</code>, or
+     * {@link Interval#create(double)} for the last valuation, and connected regions are merged.
+     *
+     * @param valuations clock valuations in ascending order
+     * @param selected   which valuations belong to the guard
+     */
+    public static CompiledGuard fromValuations(double[] valuations, boolean[] selected) {
+        int n = valuations.length;
+        double[] lowers = new double[n];
+        boolean[] lowerClosed = new boolean[n];
+        double[] uppers = new double[n];
+        boolean[] upperClosed = new boolean[n];
+        int size = 0;
+        for (int i = 0; i < n; i++) {
+            if (!selected[i])
+                continue;
+            double left = valuations[i];
+            double leftFloor = Math.floor(left);
+            double lower = leftFloor;
+            boolean lowClosed = !(left > leftFloor);
+            double upper = Double.POSITIVE_INFINITY;
+            boolean upClosed = false;
+            if (i + 1 < n) {
+                double right = valuations[i + 1];
+                double rightFloor = Math.floor(right);
+                upper = rightFloor;
+                upClosed = right > rightFloor;
+            }
+            if (size > 0 && connected(lowers[size - 1], lowerClosed[size - 1], uppers[size - 1], upperClosed[size - 1],
+                    lower, lowClosed, upper, upClosed)) {
+                // span of the last interval and the new one
+                int last = size - 1;
+                if (compareLowerCut(lower, lowClosed, lowers[last], lowerClosed[last]) < 0) {
+                    lowers[last] = lower;
+                    lowerClosed[last] = lowClosed;
+                }
+                if (compareUpperCut(upper, upClosed, uppers[last], upperClosed[last]) > 0) {
+                    uppers[last] = upper;
+                    upperClosed[last] = upClosed;
+                }
+            } else {
+                lowers[size] = lower;
+                lowerClosed[size] = lowClosed;
+                uppers[size] = upper;
+                upperClosed[size] = upClosed;
+                size++;
+            }
+        }
+        return new CompiledGuard(Arrays.copyOf(lowers, size), Arrays.copyOf(lowerClosed, size),
+                Arrays.copyOf(uppers, size), Arrays.copyOf(upperClosed, size), size);
+    }
+
+    /**
+     * Parse the string representation of a {@link Guard}, e.g. <code>[0.0,1.0)U(2.0,+)</code>.
+     */
+    public static CompiledGuard parse(String string) {
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < string.length(); i++) {
+            if (string.charAt(i) == 'U') {
+                parts.add(string.substring(start, i));
+                start = i + 1;
+            }
+        }
+        parts.add(string.substring(start));
+        int n = parts.size();
+        double[] lowers = new double[n];
+        boolean[] lowerClosed = new boolean[n];
+        double[] uppers = new double[n];
+        boolean[] upperClosed = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            String part = parts.get(i).trim();
+            int comma = part.indexOf(',');
+            if (part.length() < 5 || comma < 0)
+                throw new IllegalArgumentException("Invalid interval: " + part);
+            lowerClosed[i] = part.charAt(0) == '[';
+            upperClosed[i] = part.charAt(part.length() - 1) == ']';
+            lowers[i] = Double.parseDouble(part.substring(1, comma).trim());
+            String upper = part.substring(comma + 1, part.length() - 1).trim();
+            if ("+".equals(upper)) {
+                uppers[i] = Double.POSITIVE_INFINITY;
+                upperClosed[i] = false;
+            } else {
+                uppers[i] = Double.parseDouble(upper);
+            }
+        }
+        return new CompiledGuard(lowers, lowerClosed, uppers, upperClosed, n);
+    }
+
+    public boolean contains(double clockVal) {
+        if (!ordered) {
+            for (int i = 0; i < size; i++) {
+                if (intervalContains(i, clockVal))
+                    return true;
+            }
+            return false;
+        }
+        // last interval whose lower bound lies at or below the clock valuation
+        int low = 0, high = size - 1, found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int comp = Double.compare(lowers[mid], clockVal);
+            if (comp < 0 || (comp == 0 && lowerClosed[mid])) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found >= 0 && belowUpper(found, clockVal);
+    }
+
+    /**
+     * Same as {@link #contains(double)} for a clock value given in {@link ClockTicks ticks}.
+     */
+    public boolean containsTicks(int ticks) {
+        if (lowerTicks == null)
+            return contains(ClockTicks.toClockValue(ticks));
+        if (!ordered) {
+            for (int i = 0; i < size; i++) {
+                if (aboveLowerTicks(i, ticks) && belowUpperTicks(i, ticks))
+                    return true;
+            }
+            return false;
+        }
+        int low = 0, high = size - 1, found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (aboveLowerTicks(mid, ticks)) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found >= 0 && belowUpperTicks(found, ticks);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double lowerEndpoint(int i) {
+        return lowers[i];
+    }
+
+    public double upperEndpoint(int i) {
+        return uppers[i];
+    }
+
+    public boolean hasBound(int i) {
+        return uppers[i] != Double.POSITIVE_INFINITY;
+    }
+
+    public BoundType lowerBoundType(int i) {
+        return lowerClosed[i] ? BoundType.CLOSED : BoundType.OPEN;
+    }
+
+    public BoundType upperBoundType(int i) {
+        return upperClosed[i] ? BoundType.CLOSED : BoundType.OPEN;
+    }
+
+    public Guard toGuard() {
+        List<Interval> intervals = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            if (hasBound(i)) {
+                intervals.add(Interval.create(lowers[i], lowerBoundType(i), uppers[i], upperBoundType(i)));
+            } else {
+                intervals.add(Interval.create(lowers[i], lowerBoundType(i)));
+            }
+        }
+        return new Guard(intervals);
+    }
+
+    private boolean intervalContains(int i, double clockVal) {
+        int comp = Double.compare(lowers[i], clockVal);
+        return (comp < 0 || (comp == 0 && lowerClosed[i])) && belowUpper(i, clockVal);
+    }
+
+    private boolean belowUpper(int i, double clockVal) {
+        if (!hasBound(i))
+            return true;
+        int comp = Double.compare(clockVal, uppers[i]);
+        return comp < 0 || (comp == 0 && upperClosed[i]);
+    }
+
+    private boolean aboveLowerTicks(int i, int ticks) {
+        return lowerTicks[i] < ticks || (lowerTicks[i] == ticks && lowerClosed[i]);
+    }
+
+    private boolean belowUpperTicks(int i, int ticks) {
+        if (!hasBound(i))
+            return true;
+        return ticks < upperTicks[i] || (ticks == upperTicks[i] && upperClosed[i]);
+    }
+
+    private int compareLower(int i, int j) {
+        return compareLowerCut(lowers[i], lowerClosed[i], lowers[j], lowerClosed[j]);
+    }
+
+    private boolean upperNotAfterLower(int i, int j) {
+        // the upper bound of i lies below the lower bound of j, so no valuation is in both
+        int comp = Double.compare(uppers[i], lowers[j]);
+        return comp < 0 || (comp == 0 && !(upperClosed[i] && lowerClosed[j]));
+    }
+
+    /*
+     * Bounds are compared like Guava cuts: a closed lower and an open upper bound lie just
+     * below their endpoint, an open lower and a closed upper bound lie just above it.
+     */
+    private static int compareLowerCut(double v1, boolean closed1, double v2, boolean closed2) {
+        int comp = Double.compare(v1, v2);
+        if (comp != 0 || closed1 == closed2)
+            return comp;
+        return closed1 ? -1 : 1;
+    }
+
+    private static int compareUpperCut(double v1, boolean closed1, double v2, boolean closed2) {
+        int comp = Double.compare(v1, v2);
+        if (comp != 0 || closed1 == closed2)
+            return comp;
+        return closed1 ? 1 : -1;
+    }
+
+    private static int compareLowerToUpper(double lower, boolean lowerClosed, double upper, boolean upperClosed) {
+        int comp = Double.compare(lower, upper);
+        if (comp != 0)
+            return comp;
+        boolean lowerAbove = !lowerClosed;
+        boolean upperAbove = upperClosed;
+        return lowerAbove == upperAbove ? 0 : (lowerAbove ? 1 : -1);
+    }
+
+    private static boolean connected(double l1, boolean lc1, double u1, boolean uc1,
+                                     double l2, boolean lc2, double u2, boolean uc2) {
+        return compareLowerToUpper(l1, lc1, u2, uc2) <= 0 && compareLowerToUpper(l2, lc2, u1, uc1) <= 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof CompiledGuard))
+            return false;
+        CompiledGuard other = (CompiledGuard) o;
+        return Arrays.equals(lowers, other.lowers) && Arrays.equals(lowerClosed, other.lowerClosed)
+                && Arrays.equals(uppers, other.uppers) && Arrays.equals(upperClosed, other.upperClosed);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = Arrays.hashCode(lowers);
+        h = 31 * h + Arrays.hashCode(lowerClosed);
+        h = 31 * h + Arrays.hashCode(uppers);
+        return 31 * h + Arrays.hashCode(upperClosed);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            if (i > 0)
+                sb.append("U");
+            sb.append(lowerClosed[i] ? "[" : "(").append(lowers[i]).append(",");
+            if (hasBound(i)) {
+                sb.append(uppers[i]).append(upperClosed[i] ? "]" : ")");
+            } else {
+                sb.append("+)");
+            }
+        }
+        return sb.toString();
+    }
+}
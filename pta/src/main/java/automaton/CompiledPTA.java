@@ -0,0 +1,323 @@
+package automaton;
+
+import trace.TimedOutput;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-only, index-based view of a {@link PTA} used for executing the automaton.
+ * Locations and inputs are mapped to dense ids, and for every (location, input) pair the
+ * guard endpoints of all outgoing transitions are flattened into one sorted {@code double[]}.
+ * These endpoints split the time line into elementary segments (the points themselves and
+ * the open gaps between them), so the set of enabled transitions only changes at segment
+ * borders and can be precomputed per segment together with cumulative probabilities.
+ * Finding the enabled transitions for a clock valuation is then a binary search, and
+ * selecting a successor for a sampled probability is a second binary search.
+ *
+ * <p>The transitions of each segment keep the order of {@link Location#getAllTransitions()},
+ * so probabilistic selection visits them in the same order as a linear scan would.
+ */
+public class CompiledPTA {
+    private static final int[] NO_TRANSITIONS = new int[0];
+    private static final double[] NO_PROBABILITIES = new double[0];
+    private static final double ROUNDING_TOLERANCE = 1e-9;
+
+    private final Location[] locations;
+    private final Location initialLocation;
+    // version counter of the automaton and its value when compiled
+    private final AtomicLong ptaVersion;
+    private final long version;
+    private final Map<Location, Integer> locationIds = new IdentityHashMap<>();
+    private final Map<Input, Integer> inputIds = new HashMap<>();
+    private final Map<String, Integer> inputSymbolIds = new HashMap<>();
+    private final int nrInputs;
+
+    // indexed by location * nrInputs + input
+    private final double[][] endpoints;
+    private final int[][][] segmentTransitions;
+    private final double[][][] segmentCumulative;
+
+    private final Transition[] transitions;
+    private final double[] transitionProbability;
+    private final int[] transitionTarget;
+    private final boolean[] transitionReset;
+    private final Output[] labels;
+
+    public static CompiledPTA compile(PTA pta) {
+        return new CompiledPTA(pta);
+    }
+
+    private CompiledPTA(PTA pta) {
+        // read before the automaton, so modifications while compiling are detected later
+        ptaVersion = pta.version();
+        version = ptaVersion.get();
+        List<Location> locationList = new ArrayList<>();
+        Deque<Location> worklist = new ArrayDeque<>();
+        if (pta.getInitial() != null) {
+            worklist.add(pta.getInitial());
+        }
+        worklist.addAll(pta.getLocations());
+        initialLocation = pta.getInitial();
+
+        // targets which are not part of the location set (e.g. chaos states) are indexed as well
+        List<Transition> transitionList = new ArrayList<>();
+        while (!worklist.isEmpty()) {
+            Location l = worklist.poll();
+            if (locationIds.containsKey(l))
+                continue;
+            locationIds.put(l, locationList.size());
+            locationList.add(l);
+            for (Transition t : l.getAllTransitions()) {
+                inputIds.computeIfAbsent(t.getInput(), k -> inputIds.size());
+                if (!locationIds.containsKey(t.getTarget()))
+                    worklist.add(t.getTarget());
+            }
+        }
+        for (Input input : pta.getInputs()) {
+            inputIds.computeIfAbsent(input, k -> inputIds.size());
+        }
+        for (Map.Entry<Input, Integer> entry : inputIds.entrySet()) {
+            inputSymbolIds.put(entry.getKey().getSymbol(), entry.getValue());
+        }
+
+        locations = locationList.toArray(new Location[0]);
+        labels = new Output[locations.length];
+        nrInputs = inputIds.size();
+        endpoints = new double[locations.length * nrInputs][];
+        segmentTransitions = new int[locations.length * nrInputs][][];
+        segmentCumulative = new double[locations.length * nrInputs][][];
+
+        for (int l = 0; l < locations.length; l++) {
+            Location location = locations[l];
+            location.watch(ptaVersion);
+            labels[l] = location.getLabel();
+            Map<Integer, List<Integer>> byInput = new HashMap<>();
+            for (Transition t : location.getAllTransitions()) {
+                byInput.computeIfAbsent(inputIds.get(t.getInput()), k -> new ArrayList<>()).add(transitionList.size());
+                transitionList.add(t);
+            }
+            for (Map.Entry<Integer, List<Integer>> entry : byInput.entrySet()) {
+                compileTransitions(l * nrInputs + entry.getKey(), entry.getValue(), transitionList);
+            }
+        }
+
+        transitions = transitionList.toArray(new Transition[0]);
+        transitionTarget = new int[transitions.length];
+        transitionReset = new boolean[transitions.length];
+        transitionProbability = new double[transitions.length];
+        for (int t = 0; t < transitions.length; t++) {
+            transitions[t].watch(ptaVersion);
+            transitions[t].getGuard().watch(ptaVersion);
+            transitionProbability[t] = transitions[t].getProbability();
+            transitionTarget[t] = locationIds.get(transitions[t].getTarget());
+            transitionReset[t] = transitions[t].isReset();
+        }
+    }
+
+    private void compileTransitions(int index, List<Integer> ids, List<Transition> transitionList) {
+        TreeSet<Double> points = new TreeSet<>();
+        for (int id : ids) {
+            for (Interval interval : transitionList.get(id).getGuard().getIntervals()) {
+                points.add(interval.lowerEndpoint());
+                if (interval.hasBound())
+                    points.add(interval.upperEndpoint());
+            }
+        }
+        double[] ends = new double[points.size()];
+        int k = 0;
+        for (double point : points) {
+            ends[k++] = point;
+        }
+
+        // segment 2i+1 is the point ends[i], segment 2i is the open gap before ends[i]
+        int nrSegments = 2 * ends.length + 1;
+        int[][] segTrans = new int[nrSegments][];
+        double[][] segCum = new double[nrSegments][];
+        for (int s = 0; s < nrSegments; s++) {
+            double sample = samplePoint(ends, s);
+            List<Integer> enabled = new ArrayList<>();
+            for (int id : ids) {
+                if (transitionList.get(id).getGuard().enableAction(sample))
+                    enabled.add(id);
+            }
+            if (enabled.isEmpty()) {
+                segTrans[s] = NO_TRANSITIONS;
+                segCum[s] = NO_PROBABILITIES;
+                continue;
+            }
+            segTrans[s] = new int[enabled.size()];
+            segCum[s] = new double[enabled.size()];
+            double cumulative = 0.0;
+            for (int i = 0; i < enabled.size(); i++) {
+                segTrans[s][i] = enabled.get(i);
+                cumulative += transitionList.get(enabled.get(i)).getProbability();
+                segCum[s][i] = cumulative;
+            }
+        }
+        endpoints[index] = ends;
+        segmentTransitions[index] = segTrans;
+        segmentCumulative[index] = segCum;
+    }
+
+    private static double samplePoint(double[] ends, int segment) {
+        if (ends.length == 0)
+            return 0.0;
+        if (segment % 2 == 1)
+            return ends[segment / 2];
+        int next = segment / 2;
+        if (next == 0)
+            return ends[0] - 1.0;
+        if (next == ends.length)
+            return ends[ends.length - 1] + 1.0;
+        return (ends[next - 1] + ends[next]) / 2;
+    }
+
+    private int segment(int index, double clockVal) {
+        int pos = Arrays.binarySearch(endpoints[index], clockVal);
+        return pos >= 0 ? 2 * pos + 1 : 2 * (-pos - 1);
+    }
+
+    /**
+     * Checks whether this view still reflects the given automaton, i.e. neither the automaton
+     * nor its locations, transitions and guards were modified since it was compiled. The parts
+     * increment the version of every automaton compiled from them, so this takes constant time.
+     */
+    public boolean isCompiledFrom(PTA pta) {
+        return pta.version() == ptaVersion && ptaVersion.get() == version;
+    }
+
+    public int locationId(Location location) {
+        Integer id = locationIds.get(location);
+        return id == null ? -1 : id;
+    }
+
+    public int inputId(Input input) {
+        Integer id = inputIds.get(input);
+        return id == null ? -1 : id;
+    }
+
+    public int inputId(String symbol) {
+        Integer id = inputSymbolIds.get(symbol);
+        return id == null ? -1 : id;
+    }
+
+    public int initial() {
+        return initialLocation == null ? -1 : locationIds.get(initialLocation);
+    }
+
+    public Location location(int location) {
+        return locations[location];
+    }
+
+    public Output label(int location) {
+        return labels[location];
+    }
+
+    public Transition transition(int transition) {
+        return transitions[transition];
+    }
+
+    public int target(int transition) {
+        return transitionTarget[transition];
+    }
+
+    public boolean isReset(int transition) {
+        return transitionReset[transition];
+    }
+
+    /**
+     * Transitions enabled in the given location for the input at the given clock valuation.
+     *
+     * @return ids of the enabled transitions, must not be modified
+     */
+    public int[] enabled(int location, int input, double clockVal) {
+        if (location < 0 || input < 0)
+            return NO_TRANSITIONS;
+        int index = location * nrInputs + input;
+        if (endpoints[index] == null)
+            return NO_TRANSITIONS;
+        return segmentTransitions[index][segment(index, clockVal)];
+    }
+
+    /**
+     * Selects the enabled transition whose cumulative probability first reaches the
+     * selection probability. Selections within rounding distance of a cumulative bound are
+     * resolved by subtracting the probabilities one by one, which gives the same result as
+     * a linear scan over the transitions.
+     *
+     * @return id of the selected transition or -1 if no transition is selected
+     */
+    public int select(int location, int input, double clockVal, double selectionProbability) {
+        if (location < 0 || input < 0)
+            return -1;
+        int index = location * nrInputs + input;
+        if (endpoints[index] == null)
+            return -1;
+        int s = segment(index, clockVal);
+        int[] enabled = segmentTransitions[index][s];
+        double[] cumulative = segmentCumulative[index][s];
+        if (cumulative.length == 0)
+            return -1;
+        int low = 0, high = cumulative.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] < selectionProbability)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        boolean nearUpper = low < cumulative.length && cumulative[low] - selectionProbability < ROUNDING_TOLERANCE;
+        boolean nearLower = low > 0 && selectionProbability - cumulative[low - 1] < ROUNDING_TOLERANCE;
+        if (nearUpper || nearLower)
+            return selectBySubtraction(enabled, selectionProbability);
+        return low < enabled.length ? enabled[low] : -1;
+    }
+
+    private int selectBySubtraction(int[] enabled, double selectionProbability) {
+        for (int t : enabled) {
+            if (selectionProbability <= transitionProbability[t])
+                return t;
+            selectionProbability -= transitionProbability[t];
+        }
+        return -1;
+    }
+
+    /**
+     * Enabled transition leading to a location with the given label. If several transitions
+     * match, the last one is returned.
+     *
+     * @return id of the transition or -1 if there is none
+     */
+    public int successor(int location, int input, double clockVal, Output label) {
+        int result = -1;
+        for (int t : enabled(location, input, clockVal)) {
+            if (labels[transitionTarget[t]].equals(label))
+                result = t;
+        }
+        return result;
+    }
+
+    /**
+     * Enabled transition leading to a location with the given label and reset.
+     *
+     * @return id of the transition or -1 if there is none
+     */
+    public int successor(int location, int input, double clockVal, Output label, boolean reset) {
+        int result = -1;
+        for (int t : enabled(location, input, clockVal)) {
+            if (transitionReset[t] == reset && labels[transitionTarget[t]].equals(label))
+                result = t;
+        }
+        return result;
+    }
+
+    public Map<TimedOutput, Double> distribution(int location, int input, double clockVal) {
+        Map<TimedOutput, Double> distribution = new HashMap<>();
+        for (int t : enabled(location, input, clockVal)) {
+            distribution.put(TimedOutput.create(transitionReset[t], labels[transitionTarget[t]].getSymbol()),
+                    transitionProbability[t]);
+        }
+        return distribution;
+    }
+}
@@ -1,21 +1,45 @@
 package automaton;
 
 import com.google.common.collect.BoundType;
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import trace.TimedInput;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Data
-@AllArgsConstructor
 public class Guard {
+    private static final Comparator<Interval> LOWER_BOUND_ORDER = new LowerBoundOrder();
+
+    // sorted by lower bound, only modified through the methods of this class
     private List<Interval> intervals;
+    // primitive view used for evaluating the guard, rebuilt after the intervals changed
+    @EqualsAndHashCode.Exclude
+    @Setter(AccessLevel.NONE)
+    private volatile CompiledGuard compiled;
+    // versions of the automata compiled from the guard
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
+    private final Watchers watchers = new Watchers();
 
     public static final Guard COMPLEMENT_GUARD = Guard.create(Interval.COMPLEMENT_INTERVAL);
 
+    /**
+     * @param intervals intervals of the guard, which are copied and sorted by lower bound
+     */
+    public Guard(List<Interval> intervals) {
+        this.intervals = sorted(intervals);
+    }
+
     public static Guard create(Interval interval) {
         List<Interval> intervals = new ArrayList<>();
         intervals.add(interval);
@@ -26,37 +50,91 @@ public class Guard {
         return new Guard(new ArrayList<>());
     }
 
+    /**
+     * @return read-only view of the intervals sorted by lower bound
+     */
+    public List<Interval> getIntervals() {
+        return Collections.unmodifiableList(intervals);
+    }
+
+    public void setIntervals(List<Interval> intervals) {
+        this.intervals = sorted(intervals);
+        modified();
+    }
+
     public void putInterval(Interval interval){
-        if(intervals != null && !intervals.contains(interval)){
-            intervals.add(interval);
-            intervals.sort(new Comparator<Interval>() {
-                @Override
-                public int compare(Interval o1, Interval o2) {
-                    if (o1.lowerEndpoint() > o2.lowerEndpoint()) {
-                        return 1;
-                    } else if (o1.lowerEndpoint() < o2.lowerEndpoint()) {
-                        return -1;
-                    } else {
-                        if (o1.lowerBoundType() == BoundType.OPEN && o2.lowerBoundType() == BoundType.CLOSED) {
-                            return 1;
-                        } else if (o1.lowerBoundType() == BoundType.CLOSED && o2.lowerBoundType() == BoundType.OPEN) {
-                            return -1;
-                        } else {
-                            return 0;
-                        }
-                    }
+        if(!intervals.contains(interval)){
+            // insert behind all intervals with the same lower bound, like a stable sort would
+            int low = 0, high = intervals.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (LOWER_BOUND_ORDER.compare(intervals.get(mid), interval) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
                 }
-            });
+            }
+            intervals.add(low, interval);
+            modified();
         }
     }
 
+    private static List<Interval> sorted(List<Interval> intervals) {
+        List<Interval> copy = new ArrayList<>(intervals);
+        copy.sort(LOWER_BOUND_ORDER);
+        return copy;
+    }
+
+    private void modified() {
+        compiled = null;
+        watchers.modified();
+    }
+
+    void watch(AtomicLong version) {
+        watchers.watch(version);
+    }
+
     public boolean enableAction(double clockVal){
-        for (Interval interval : intervals) {
-            if (interval.contains(clockVal)) {
-                return true;
+        return getCompiled().contains(clockVal);
+    }
+
+    /**
+     * Same as {@link #enableAction(double)} for the clock value of the timed input, which is
+     * compared in ticks.
+     */
+    public boolean enableAction(TimedInput timedInput){
+        return getCompiled().containsTicks(timedInput.getTicks());
+    }
+
+    /**
+     * @return the primitive view of the current intervals
+     */
+    public CompiledGuard getCompiled() {
+        CompiledGuard c = compiled;
+        if (c == null) {
+            c = CompiledGuard.of(intervals);
+            compiled = c;
+        }
+        return c;
+    }
+
+    private static class LowerBoundOrder implements Comparator<Interval> {
+        @Override
+        public int compare(Interval o1, Interval o2) {
+            if (o1.lowerEndpoint() > o2.lowerEndpoint()) {
+                return 1;
+            } else if (o1.lowerEndpoint() < o2.lowerEndpoint()) {
+                return -1;
+            } else {
+                if (o1.lowerBoundType() == BoundType.OPEN && o2.lowerBoundType() == BoundType.CLOSED) {
+                    return 1;
+                } else if (o1.lowerBoundType() == BoundType.CLOSED && o2.lowerBoundType() == BoundType.OPEN) {
+                    return -1;
+                } else {
+                    return 0;
+                }
             }
         }
-        return false;
     }
 
     public List<Double> getEndpoints(double regionNormalization) {
@@ -91,6 +169,20 @@ public class Guard {
     }
 
     public double getRandomValue (double minValue, int bound) {
+        List<Interval> validInterviews = validIntervals(minValue);
+        return validInterviews.get((int) (Math.random() * validInterviews.size())).getRandomValue(minValue, bound);
+    }
+
+    /**
+     * Same as {@link #getRandomValue(double, int)}, but all random choices are made with the
+     * given source instead of the shared ones.
+     */
+    public double getRandomValue (double minValue, int bound, Random random) {
+        List<Interval> validInterviews = validIntervals(minValue);
+        return validInterviews.get(random.nextInt(validInterviews.size())).getRandomValue(minValue, bound, random);
+    }
+
+    private List<Interval> validIntervals(double minValue) {
         List<Interval> validInterviews = new ArrayList<>();
         for (Interval interval : intervals) {
             double upperBound = interval.hasBound() ? (interval.upperBoundType() == BoundType.CLOSED ? interval.upperEndpoint() : interval.upperEndpoint() - 0.5) : Double.MAX_VALUE;
@@ -98,7 +190,7 @@ public class Guard {
                 validInterviews.add(interval);
             }
         }
-        return validInterviews.get((int) (Math.random() * validInterviews.size())).getRandomValue(minValue, bound);
+        return validInterviews;
     }
 
     public List<Interval> getCompleteIntervals(){
@@ -1,34 +1,46 @@
 package automaton;
 
-import lombok.Data;
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-@Data
 public class Input {
-    private String symbol = null;
-    private Integer hashCache = null;
+    // inputs are only created by create, so inputs with the same symbol are the same object
+    private static final Map<String, Input> INTERNED = new ConcurrentHashMap<>();
+    private static final Input NO_SYMBOL = new Input(null);
+
+    @Getter
+    private final String symbol;
+    private final int hashCache;
 
     @Override
     public String toString() {
         return  symbol;
     }
 
-    public Input(String symbol) {
+    private Input(String symbol) {
         this.symbol = symbol;
+        this.hashCache = 31 + ((symbol == null) ? 0 : symbol.hashCode());
     }
 
+    /**
+     * Interned input for the symbol, which is shared by all inputs with this symbol.
+     */
     public static Input create(String symbol) {
-        return new Input(symbol);
+        if (symbol == null)
+            return NO_SYMBOL;
+        Input interned = INTERNED.get(symbol);
+        if (interned == null) {
+            INTERNED.putIfAbsent(symbol, new Input(symbol));
+            interned = INTERNED.get(symbol);
+        }
+        return interned;
     }
 
     @Override
     public int hashCode() {
-        if(hashCache != null)
-            return hashCache;
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + ((symbol == null) ? 0 : symbol.hashCode());
-        hashCache = result;
-        return result;
+        return hashCache;
     }
 
     @Override
@@ -2,9 +2,12 @@ package automaton;
 
 import com.google.common.collect.BoundType;
 import com.google.common.collect.Range;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 
 import java.util.Random;
 
@@ -13,7 +16,13 @@ import java.util.Random;
 @AllArgsConstructor
 @NoArgsConstructor
 public class Interval {
+    // intervals are shared by guards, so the range is not modified after creation
+    @Setter(AccessLevel.NONE)
     private Range<Double> interval;
+    // not part of equality: Random has identity equality, so intervals, guards and transitions
+    // would otherwise be hashed by identity and sets of them would iterate in an order that
+    // depends on unrelated allocations
+    @EqualsAndHashCode.Exclude
     private Random random;
 
     public static final Interval COMPLEMENT_INTERVAL = Interval.create(0);
@@ -33,14 +42,16 @@ public class Interval {
         } else {
             rightBoundType = BoundType.OPEN;
         }
-        String[] points = string.split("\\,|\\[|\\(|\\]|\\)");
-        left = Double.parseDouble(points[1]);
+        // the endpoints are separated by the first comma and enclosed in the brackets
+        int comma = string.indexOf(',');
+        left = Double.parseDouble(string.substring(1, comma));
+        String upper = string.substring(comma + 1, string.length() - 1);
 
-        if("+".equals(points[2])) {
+        if("+".equals(upper)) {
             res.interval = Range.downTo(left, leftBoundType);
         }
         else{
-            right = Double.parseDouble(points[2]);
+            right = Double.parseDouble(upper);
             res.interval = Range.range(left, leftBoundType, right, rightBoundType);
         }
         res.random = new Random();
@@ -105,6 +116,10 @@ public class Interval {
     }
 
     public double getRandomValue(double minVal, int upperBound){
+        return getRandomValue(minVal, upperBound, random);
+    }
+
+    public double getRandomValue(double minVal, int upperBound, Random random){
         double left = interval.lowerBoundType() == BoundType.CLOSED ? interval.lowerEndpoint() : interval.lowerEndpoint() + 0.5;
         double right = interval.hasUpperBound() ? (interval.upperBoundType() == BoundType.CLOSED ? interval.upperEndpoint() : interval.upperEndpoint() - 0.5) : upperBound;
         if (right - left == 0) {
@@ -1,9 +1,16 @@
 package automaton;
 
+import com.google.common.collect.Maps;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
 import trace.ResetTimedTrace;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 @Data
 public class Location {
@@ -11,7 +18,16 @@ public class Location {
     private Output label;
     private Map<Input, Set<Transition>> transitions = new HashMap<>();
     private ResetTimedTrace traceRep = null;
+    @Setter(AccessLevel.NONE)
     private List<Transition> allTransitions = null;
+    // read-only view of the transitions, modifications go through the methods of this class
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Map<Input, Set<Transition>> transitionsView = null;
+    // versions of the automata compiled from the location
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
+    private final Watchers watchers = new Watchers();
 
     @Override
     public String toString() {
@@ -28,6 +44,44 @@ public class Location {
         this.traceRep = traceRep;
     }
 
+    public void setId(int id) {
+        this.id = id;
+        modified();
+    }
+
+    public void setLabel(Output label) {
+        this.label = label;
+        modified();
+    }
+
+    public void setTransitions(Map<Input, Set<Transition>> transitions) {
+        this.transitions = transitions;
+        transitionsView = null;
+        allTransitions = null;
+        modified();
+    }
+
+    /**
+     * @return read-only view of the transitions by input, use {@link #addTransition} and
+     * {@link #removeTransitions} to modify them
+     */
+    public Map<Input, Set<Transition>> getTransitions() {
+        Map<Input, Set<Transition>> view = transitionsView;
+        if (view == null) {
+            view = Collections.unmodifiableMap(Maps.transformValues(transitions, Collections::unmodifiableSet));
+            transitionsView = view;
+        }
+        return view;
+    }
+
+    void modified() {
+        watchers.modified();
+    }
+
+    void watch(AtomicLong version) {
+        watchers.watch(version);
+    }
+
     public Location deepCopy() {
         Location copied = new Location(id, Output.create(label.getSymbol()));
         copied.transitions = new HashMap<>();
@@ -38,7 +92,7 @@ public class Location {
             copied.traceRep = this.traceRep;
         }
         if (this.allTransitions != null) {
-            copied.allTransitions = new ArrayList<>(this.allTransitions);
+            copied.allTransitions = Collections.unmodifiableList(new ArrayList<>(this.allTransitions));
         }
         return copied;
     }
@@ -61,6 +115,7 @@ public class Location {
 
     public void addTransition(Guard guard, Input input, double probability, boolean reset, Location target) {
         allTransitions = null;
+        modified();
         Set<Transition> transitionsForInput = transitions.computeIfAbsent(input, k -> new HashSet<>());
         Transition addedTrans = new Transition(this, input, guard, probability, reset, target);
         transitionsForInput.add(addedTrans);
@@ -68,12 +123,27 @@ public class Location {
 
     public Transition addTransition(Guard guard, Input input, double probability, boolean reset, Location target, Integer frequency) {
         allTransitions = null;
+        modified();
         Set<Transition> transitionsForInput = transitions.computeIfAbsent(input, k -> new HashSet<>());
         Transition addedTrans = new Transition(this, input, guard, probability, reset, target, frequency);
         transitionsForInput.add(addedTrans);
         return addedTrans;
     }
 
+    /**
+     * Remove the transitions with the given input that satisfy the predicate.
+     *
+     * @return whether a transition was removed
+     */
+    public boolean removeTransitions(Input input, Predicate<Transition> filter) {
+        Set<Transition> transitionsForInput = transitions.get(input);
+        if (transitionsForInput == null || !transitionsForInput.removeIf(filter))
+            return false;
+        allTransitions = null;
+        modified();
+        return true;
+    }
+
     // hashCode and equals only for label and id
     @Override
     public int hashCode() {
@@ -111,9 +181,10 @@ public class Location {
     public List<Transition> getAllTransitions() {
         if(allTransitions != null)
             return allTransitions;
-        allTransitions = new ArrayList<>();
-        for(Set<Transition> transForInput : getTransitions().values())
-            allTransitions.addAll(transForInput);
+        List<Transition> all = new ArrayList<>();
+        for(Set<Transition> transForInput : transitions.values())
+            all.addAll(transForInput);
+        allTransitions = Collections.unmodifiableList(all);
         return allTransitions;
     }
 }
@@ -1,34 +1,49 @@
 package automaton;
 
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Getter;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
-@Data
-@NoArgsConstructor
 public class Output {
 
-    private String symbol = null;
-    private Integer hashCache = null;
-    Set<String> satisfiedProps = null;
+    // outputs are only created by create, so outputs with the same symbol are the same object
+    private static final Map<String, Output> INTERNED = new ConcurrentHashMap<>();
+    private static final Output NO_SYMBOL = new Output(null);
 
-    public Output(String stringSymbol) {
+    @Getter
+    private final String symbol;
+    private final int hashCache;
+    // computed on first use, which may happen concurrently but always yields the same set
+    private volatile Set<String> satisfiedProps = null;
+
+    private Output(String stringSymbol) {
         this.symbol = stringSymbol;
+        this.hashCache = 31 + ((stringSymbol == null) ? 0 : stringSymbol.hashCode());
     }
 
+    /**
+     * Interned output for the symbol, which is shared by all outputs with this symbol.
+     */
     public static Output create(String symbol) {
-        return new Output(symbol);
+        if (symbol == null)
+            return NO_SYMBOL;
+        Output interned = INTERNED.get(symbol);
+        if (interned == null) {
+            INTERNED.putIfAbsent(symbol, new Output(symbol));
+            interned = INTERNED.get(symbol);
+        }
+        return interned;
     }
     public static Output chaos(){
-        return new Output("Chaos");
+        return create("Chaos");
     }
     public static Output invalid(){
-        return new Output("Invalid");
+        return create("Invalid");
     }
     public static Output sink() {
-        return new Output("sink");
+        return create("sink");
     }
 
     public Set<String> getSatisfiedProps() {
@@ -38,7 +53,7 @@ public class Output {
             if(!getSymbol().contains("&"))
                 satisfiedProps = Collections.singleton(getSymbol());
             else
-                satisfiedProps = Arrays.stream(getSymbol().split("&")).map(String::trim).collect(Collectors.toSet());
+                satisfiedProps = Arrays.stream(getSymbol().split("&")).map(String::trim).collect(Collectors.toUnmodifiableSet());
         }
         return satisfiedProps;
     }
@@ -50,13 +65,7 @@ public class Output {
 
     @Override
     public int hashCode() {
-        if(hashCache != null)
-            return hashCache;
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + ((symbol == null) ? 0 : symbol.hashCode());
-        hashCache = result;
-        return result;
+        return hashCache;
     }
 
     @Override
@@ -4,30 +4,109 @@ import automaton.Input;
 import automaton.Location;
 import automaton.Output;
 import automaton.Transition;
-import com.alibaba.fastjson2.JSONArray;
-import com.alibaba.fastjson2.JSONObject;
 import com.google.common.collect.BoundType;
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.NoArgsConstructor;
 import netscape.javascript.JSObject;
 import org.apache.commons.lang3.tuple.Triple;
 import trace.*;
 import trace.base.Trace;
+import util.export.JsonExporter;
 import utils.FastImmPair;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class PTA {
     private Location initial = null;
     private Set<Input> inputs = new HashSet<>();
     private Set<Location> locations = new HashSet<>();
 
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private volatile CompiledPTA compiled = null;
+    // incremented by every modification of the automaton and of the parts it was compiled from
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong version = new AtomicLong();
+
+    public PTA(Location initial, Set<Input> inputs, Set<Location> locations) {
+        this.initial = initial;
+        this.inputs = inputs;
+        this.locations = locations;
+    }
+
+    public void setInitial(Location initial) {
+        this.initial = initial;
+        modified();
+    }
+
+    public void setInputs(Set<Input> inputs) {
+        this.inputs = inputs;
+        modified();
+    }
+
+    public void setLocations(Set<Location> locations) {
+        this.locations = locations;
+        modified();
+    }
+
+    /**
+     * @return read-only view of the inputs, use {@link #setInputs} to change them
+     */
+    public Set<Input> getInputs() {
+        return Collections.unmodifiableSet(inputs);
+    }
+
+    /**
+     * @return read-only view of the locations, use {@link #addLocation},
+     * {@link #removeState} and {@link #removeLocations} to change them
+     */
+    public Set<Location> getLocations() {
+        return Collections.unmodifiableSet(locations);
+    }
+
+    private void modified() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * @return the version of this automaton, which changes whenever the automaton or one of
+     * the locations, transitions and guards it was compiled from is modified
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    AtomicLong version() {
+        return version;
+    }
+
+    /**
+     * Index-based view of this automaton used by the execution queries. It is compiled lazily
+     * and rebuilt once this automaton, its locations, transitions or guards have been modified.
+     *
+     * @return the compiled automaton
+     */
+    public CompiledPTA compile() {
+        CompiledPTA current = compiled;
+        if (current == null || !current.isCompiledFrom(this)) {
+            current = CompiledPTA.compile(this);
+            compiled = current;
+        }
+        return current;
+    }
+
     @Override
     public String toString() {
         StringBuilder str = new StringBuilder(String.format("initial: %d, %s \n", initial.getId(), initial.getLabel()));
@@ -43,90 +122,73 @@ public class PTA {
 
     public void addLocation(Location l) {
         locations.add(l);
+        modified();
     }
 
     public void removeState(Location l) {
         locations.remove(l);
+        modified();
+    }
+
+    /**
+     * Remove the locations that satisfy the predicate.
+     */
+    public void removeLocations(Predicate<Location> filter) {
+        if (locations.removeIf(filter))
+            modified();
     }
 
     public FastImmPair<Location, Double> getStateReachedByResetLogicalTimedTrace(ResetTimedTrace logicalTimedTrace) {
         if (logicalTimedTrace.length() == 1) {
             return FastImmPair.of(initial, 0.0);
         }
-        Location currentLocation = initial;
+        CompiledPTA pta = compile();
+        int current = pta.initial();
         for (FastImmPair<TimedInput, TimedOutput> step : logicalTimedTrace.getTrace()) {
-            boolean existed = false;
-            Set<Transition> successors = currentLocation.getTransitions().get(step.left.getInput())
-                    .stream().filter(transition -> transition.getGuard().enableAction(step.left.getClockVal()))
-                    .collect(Collectors.toSet());
-            for (Transition successor : successors) {
-                if (successor.getTarget().getLabel().equals(step.right.getOutput())
-                        && successor.isReset() == step.right.isReset()) {
-                    existed = true;
-                    currentLocation = successor.getTarget();
-                }
-            }
-            if (!existed) {
+            int successor = pta.successor(current, pta.inputId(step.left.getInput()), step.left.getClockVal(),
+                    step.right.getOutput(), step.right.isReset());
+            if (successor < 0) {
                 System.out.println(logicalTimedTrace);
-                System.out.printf("location: %s, input: %s\n", currentLocation.getTraceRep(), step.left);
+                System.out.printf("location: %s, input: %s\n", pta.location(current).getTraceRep(), step.left);
                 return null;
             }
+            current = pta.target(successor);
         }
         FastImmPair<TimedInput, TimedOutput> lastStep = logicalTimedTrace.get(logicalTimedTrace.length()-2);
-        return FastImmPair.of(currentLocation, lastStep.right.isReset() ? 0.0 : lastStep.left.getClockVal());
+        return FastImmPair.of(pta.location(current), lastStep.right.isReset() ? 0.0 : lastStep.left.getClockVal());
     }
 
     public Map<TimedOutput, Double> getDistribution(Location source, double clockVal, TimedInput input) {
-        Map<TimedOutput, Double> distribution = new HashMap<>();
-        Set<Transition> successors = source.getTransitions().get(input.getInput())
-                .stream().filter(transition -> transition.getGuard().enableAction(clockVal + input.getClockVal()))
-                .collect(Collectors.toSet());
-        successors.forEach(transition -> distribution.put(TimedOutput.create(transition.isReset(), transition.getTarget().getLabel().getSymbol()),
-                transition.getProbability()));
-        return distribution;
+        CompiledPTA pta = compile();
+        return pta.distribution(pta.locationId(source), pta.inputId(input.getInput()), clockVal + input.getClockVal());
     }
 
     public Triple<Location, Double, List<Boolean>> getStateReachedByLogicalTimedTrace(TimedTrace logicalTimedTrace) {
         if (logicalTimedTrace.length() == 1) {
             return Triple.of(initial, 0.0, new ArrayList<>());
         }
-        Location currentLocation = initial;
+        CompiledPTA pta = compile();
+        int current = pta.initial();
         double clockVal = 0.0;
         List<Boolean> resets = new ArrayList<>();
         for (FastImmPair<TimedInput, Output> step : logicalTimedTrace.getTrace()) {
-            boolean existed = false;
             if (step.left.getClockVal() - clockVal < 0) {
                 return null;
             }
-            Set<Transition> successors = currentLocation.getTransitions().get(step.left.getInput())
-                    .stream().filter(transition -> transition.getGuard().enableAction(step.left.getClockVal()))
-                    .collect(Collectors.toSet());
-            for (Transition successor : successors) {
-                if (successor.getTarget().getLabel().equals(step.right)) {
-                    existed = true;
-                    resets.add(successor.isReset());
-                    clockVal = successor.isReset() ? 0.0 : step.left.getClockVal();
-                    currentLocation = successor.getTarget();
-                }
-            }
-            if (!existed) {
-//                System.out.println(logicalTimedTrace);
-//                System.out.printf("location: %s, input: %s\n", currentLocation.getTraceRep(), step.left);
+            int successor = pta.successor(current, pta.inputId(step.left.getInput()), step.left.getClockVal(), step.right);
+            if (successor < 0) {
                 return null;
             }
+            resets.add(pta.isReset(successor));
+            clockVal = pta.isReset(successor) ? 0.0 : step.left.getClockVal();
+            current = pta.target(successor);
         }
 
-        return Triple.of(currentLocation, clockVal, resets);
+        return Triple.of(pta.location(current), clockVal, resets);
     }
 
     public Map<TimedOutput, Double> getDistribution(Location source, TimedInput input) {
-        Map<TimedOutput, Double> distribution = new HashMap<>();
-        Set<Transition> successors = source.getTransitions().get(input.getInput())
-                .stream().filter(transition -> transition.getGuard().enableAction(input.getClockVal()))
-                .collect(Collectors.toSet());
-        successors.forEach(transition -> distribution.put(TimedOutput.create(transition.isReset(), transition.getTarget().getLabel().getSymbol()),
-                transition.getProbability()));
-        return distribution;
+        return getDistribution(source, 0.0, input);
     }
 
     public OutputDistribution outputDistributionQuery(TimedIncompleteTrace logicalTimedTestSeq) {
@@ -149,25 +211,18 @@ public class PTA {
         if (delayTimedTrace.length() < 1) {
             return FastImmPair.of(initial, 0.0);
         }
-        Location currentLocation = initial;
+        CompiledPTA pta = compile();
+        int current = pta.initial();
         double currentClockValuation = 0.0;
         for (FastImmPair<TimedInput, Output> step : delayTimedTrace.getTrace()) {
-            boolean existed = false;
             double finalClockValuation = currentClockValuation + step.left.getClockVal();
-            Set<Transition> successors = currentLocation.getTransitions().get(step.left.getInput())
-                    .stream().filter(transition -> transition.getGuard().enableAction(finalClockValuation))
-                    .collect(Collectors.toSet());
-            for (Transition successor : successors) {
-                if (successor.getTarget().getLabel().equals(step.right)) {
-                    existed = true;
-                    currentLocation = successor.getTarget();
-                    currentClockValuation = successor.isReset() ? 0.0 : finalClockValuation;
-                }
-            }
-            if (!existed)
+            int successor = pta.successor(current, pta.inputId(step.left.getInput()), finalClockValuation, step.right);
+            if (successor < 0)
                 return null;
+            current = pta.target(successor);
+            currentClockValuation = pta.isReset(successor) ? 0.0 : finalClockValuation;
         }
-        return FastImmPair.of(currentLocation, currentClockValuation);
+        return FastImmPair.of(pta.location(current), currentClockValuation);
     }
 
     public PTA complement() {
@@ -264,10 +319,10 @@ public class PTA {
         for (Location source : locations) {
             if (!source.getLabel().equals(Output.sink())) {
                 for (Input input : inputs) {
-                    source.getTransitions().get(input).removeIf(transition -> transition.getTarget().getLabel().equals(Output.sink()));
+                    source.removeTransitions(input, transition -> transition.getTarget().getLabel().equals(Output.sink()));
                 }
             } else {
-                copied.locations.remove(source);
+                copied.removeState(source);
             }
         }
 
@@ -298,43 +353,8 @@ public class PTA {
     }
 
     public void storeMemory(String path) {
-        JSONObject pta = new JSONObject();
-        pta.put("init", initial.getId());
-        JSONObject locations = new JSONObject();
-        for (Location l : this.locations) {
-            locations.put(String.valueOf(l.getId()), l.getLabel().getSymbol());
-        }
-        pta.put("location", locations);
-        int counter = 0;
-        JSONObject transitions = new JSONObject();
-        for (Location l : this.locations) {
-            for (Map.Entry<Input, Set<Transition>> entry :
-                    l.getTransitions().entrySet()) {
-                Input input = entry.getKey();
-                for (Transition t : entry.getValue()) {
-                    Guard g = t.getGuard();
-                    boolean reset = t.isReset();
-                    Location target = t.getTarget();
-                    double prob = t.getProbability();
-                    for (Interval interval : g.getIntervals()) {
-                        JSONArray transition = new JSONArray();
-                        transition.add(l.getId());
-                        transition.add(input.getSymbol());
-                        transition.add(interval.toString());
-                        transition.add(reset);
-                        transition.add(target.getId());
-                        transition.add(prob);
-                        transitions.put(String.valueOf(counter), transition);
-                        counter++;
-                    }
-                }
-            }
-        }
-        pta.put("transition", transitions);
-
-        String jsonStr = pta.toString();
-        try(PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(new File(path))))) {
-            writer.write(jsonStr);
+        try {
+            new JsonExporter().writeToFile(this, path);
         }catch (IOException e){
             e.printStackTrace();
         }
@@ -1,10 +1,13 @@
 package automaton;
 
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicLong;
 
 @Data
-@AllArgsConstructor
 public class Transition {
     private Location source;
     private Input input;
@@ -15,6 +18,11 @@ public class Transition {
 
     private Integer frequency;
 
+    // versions of the automata compiled from the transition
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
+    private final Watchers watchers = new Watchers();
+
     public Transition(Location source, Input input, Guard guard, double probability, boolean reset, Location target) {
         this.source = source;
         this.input = input;
@@ -24,6 +32,55 @@ public class Transition {
         this.target = target;
     }
 
+    public Transition(Location source, Input input, Guard guard, double probability, boolean reset, Location target,
+                      Integer frequency) {
+        this(source, input, guard, probability, reset, target);
+        this.frequency = frequency;
+    }
+
+    public void setSource(Location source) {
+        this.source = source;
+        modified();
+    }
+
+    public void setInput(Input input) {
+        this.input = input;
+        modified();
+    }
+
+    public void setGuard(Guard guard) {
+        this.guard = guard;
+        modified();
+    }
+
+    public void setProbability(double probability) {
+        this.probability = probability;
+        modified();
+    }
+
+    public void setReset(boolean reset) {
+        this.reset = reset;
+        modified();
+    }
+
+    public void setTarget(Location target) {
+        this.target = target;
+        modified();
+    }
+
+    public void setFrequency(Integer frequency) {
+        this.frequency = frequency;
+        modified();
+    }
+
+    private void modified() {
+        watchers.modified();
+    }
+
+    void watch(AtomicLong version) {
+        watchers.watch(version);
+    }
+
     @Override
     public String toString() {
         return "Transition [source=" + source.getId() + ", guard=" + guard + ", input=" + input + ", probability=" + probability + ", reset="
@@ -0,0 +1,40 @@
+package automaton;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versions of the automata that have been compiled from a {@link Location}, {@link Transition}
+ * or {@link Guard}. A modification of the part increments all of them, so a {@link CompiledPTA}
+ * only compares the version of its own automaton to find out whether it is stale, and
+ * modifications of other automata do not affect it. Parts may be shared by several automata,
+ * e.g. {@link Guard#COMPLEMENT_GUARD}, so the versions are held weakly and dropped once their
+ * automaton is gone.
+ */
+final class Watchers {
+    private final List<WeakReference<AtomicLong>> versions = new ArrayList<>(1);
+
+    synchronized void watch(AtomicLong version) {
+        // parts used several times by one automaton are registered in a row
+        if (!versions.isEmpty() && versions.get(versions.size() - 1).get() == version)
+            return;
+        versions.removeIf(reference -> reference.get() == null);
+        for (WeakReference<AtomicLong> reference : versions) {
+            if (reference.get() == version)
+                return;
+        }
+        versions.add(new WeakReference<>(version));
+    }
+
+    synchronized void modified() {
+        versions.removeIf(reference -> {
+            AtomicLong version = reference.get();
+            if (version == null)
+                return true;
+            version.incrementAndGet();
+            return false;
+        });
+    }
+}
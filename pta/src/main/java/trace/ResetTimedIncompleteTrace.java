@@ -3,6 +3,7 @@ package trace;
 import automaton.Output;
 import org.apache.commons.lang3.tuple.Triple;
 import trace.base.IncompleteTrace;
+import trace.base.StepSequence;
 import trace.base.SuffixTrace;
 import trace.base.Trace;
 import utils.FastImmPair;
@@ -38,18 +39,13 @@ public class ResetTimedIncompleteTrace extends IncompleteTrace<TimedOutput> {
     }
 
     public ResetTimedIncompleteTrace append(FastImmPair<TimedOutput, TimedInput> succSymbol) {
-        List<FastImmPair<TimedOutput, TimedInput>> newTrace = new ArrayList<>();
-        if (getPairs() != null && !getPairs().isEmpty()) {
-            newTrace.addAll(getPairs());
-        }
-        newTrace.add(succSymbol);
-        return new ResetTimedIncompleteTrace(newTrace);
+        return new ResetTimedIncompleteTrace(StepSequence.append(getPairs(), succSymbol));
     }
 
     public ResetTimedIncompleteTrace prefix(Integer prefixL) {
         if (prefixL > getPairs().size())
             return new ResetTimedIncompleteTrace(new ArrayList<>());
-        return new ResetTimedIncompleteTrace(new ArrayList<>(getPairs().subList(0, prefixL)));
+        return new ResetTimedIncompleteTrace(StepSequence.prefix(getPairs(), prefixL));
     }
 
     public ResetTimedTrace getTrace() {
@@ -4,6 +4,7 @@ import automaton.Output;
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
 import trace.base.IncompleteTrace;
+import trace.base.StepSequence;
 import trace.base.Trace;
 import utils.FastImmPair;
 
@@ -25,21 +26,13 @@ public class ResetTimedTrace extends Trace<TimedOutput> {
     }
 
     public ResetTimedTrace append(FastImmPair<TimedInput, TimedOutput> symbol) {
-        List<FastImmPair<TimedInput, TimedOutput>> newTrace = new ArrayList<>();
-        if (getTrace() != null && !getTrace().isEmpty()) {
-            newTrace.addAll(getTrace());
-        }
-        newTrace.add(symbol);
-        return new ResetTimedTrace(getFirstOutput().getOutput(), newTrace);
+        return new ResetTimedTrace(getFirstOutput().getOutput(), StepSequence.append(getTrace(), symbol));
     }
 
     public ResetTimedTrace prefix(int length) {
         if (length > length())
             return null;
-        if (length == 1)
-            return new ResetTimedTrace(getFirstOutput().getOutput(), new ArrayList<>());
-        List<FastImmPair<TimedInput, TimedOutput>> prefixTrace = new ArrayList<>(getTrace().subList(0, length-1));
-        return new ResetTimedTrace(getFirstOutput().getOutput(), prefixTrace);
+        return new ResetTimedTrace(getFirstOutput().getOutput(), StepSequence.prefix(getTrace(), length-1));
     }
 
     public ResetTimedTrace suffix(int pos) {
@@ -47,7 +40,7 @@ public class ResetTimedTrace extends Trace<TimedOutput> {
             return null;
         }
         if (pos == 0) {
-            return new ResetTimedTrace(getFirstOutput().getOutput(), new ArrayList<>(getTrace()));
+            return new ResetTimedTrace(getFirstOutput().getOutput(), StepSequence.copyOf(getTrace()));
         }
         TimedOutput newFirstOutput = getTrace().get(pos-1).right;
         List<FastImmPair<TimedInput, TimedOutput>> newTrace = getTrace().subList(pos, getTrace().size());
@@ -86,13 +79,13 @@ public class ResetTimedTrace extends Trace<TimedOutput> {
     }
 
     public ResetTimedTrace transformLogicalTimedTrace() {
-        double currentLogicalTime = 0.0;
+        int currentLogicalTicks = 0;
         List<FastImmPair<TimedInput, TimedOutput>> timeSteps = new ArrayList<>();
         for (FastImmPair<TimedInput, TimedOutput> delayStep : getTrace()) {
-            currentLogicalTime = currentLogicalTime + delayStep.left.getClockVal();
-            timeSteps.add(FastImmPair.of(TimedInput.create(delayStep.left.getInput().getSymbol(), currentLogicalTime), delayStep.right));
+            currentLogicalTicks = currentLogicalTicks + delayStep.left.getTicks();
+            timeSteps.add(FastImmPair.of(TimedInput.ofTicks(delayStep.left.getInput().getSymbol(), currentLogicalTicks), delayStep.right));
             if (delayStep.right.isReset()) {
-                currentLogicalTime = 0.0;
+                currentLogicalTicks = 0;
             }
         }
         return new ResetTimedTrace(getFirstOutput().getOutput(), timeSteps);
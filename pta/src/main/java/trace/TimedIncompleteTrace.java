@@ -3,6 +3,7 @@ package trace;
 import automaton.Output;
 import org.apache.commons.lang3.tuple.Triple;
 import trace.base.IncompleteTrace;
+import trace.base.StepSequence;
 import trace.base.SuffixTrace;
 import trace.base.Trace;
 import utils.FastImmPair;
@@ -25,18 +26,13 @@ public class TimedIncompleteTrace extends IncompleteTrace<Output> {
     }
 
     public TimedIncompleteTrace append(FastImmPair<Output, TimedInput> succSymbol) {
-        List<FastImmPair<Output, TimedInput>> newTrace = new ArrayList<>();
-        if (getPairs() != null && !getPairs().isEmpty()) {
-            newTrace.addAll(getPairs());
-        }
-        newTrace.add(succSymbol);
-        return new TimedIncompleteTrace(newTrace);
+        return new TimedIncompleteTrace(StepSequence.append(getPairs(), succSymbol));
     }
 
     public TimedIncompleteTrace prefix(Integer prefixL) {
         if (prefixL > getPairs().size())
             return new TimedIncompleteTrace(new ArrayList<>());
-        return new TimedIncompleteTrace(new ArrayList<>(getPairs().subList(0, prefixL)));
+        return new TimedIncompleteTrace(StepSequence.prefix(getPairs(), prefixL));
     }
 
     public TimedTrace getTrace() {
@@ -1,28 +1,162 @@
 package trace;
 
+import automaton.ClockTicks;
 import automaton.Input;
-import lombok.AllArgsConstructor;
 import lombok.Data;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Input with a clock value, which is stored as a number of {@link ClockTicks}, so timed inputs
+ * are compared and hashed without floating-point arithmetic.
+ */
 @Data
-@AllArgsConstructor
 public class TimedInput {
-    private Input input;
-    private double clockVal;
+    // bound of the inputs whose timed inputs are interned, others are still created but not shared
+    private static final int MAX_INTERNED = 1 << 12;
+    private static final Map<String, Interned> INTERNED = new ConcurrentHashMap<>();
+
+    private final Input input;
+    private final int ticks;
+
+    public TimedInput(Input input, double clockVal) {
+        this(input, ClockTicks.toTicks(clockVal));
+    }
+
+    public TimedInput(Input input, int ticks) {
+        this.input = input;
+        this.ticks = ticks;
+    }
 
+    /**
+     * Interned timed input, which is shared by all timed inputs with this input and clock value.
+     */
     public static TimedInput create(String input, double clockVal) {
-        return new TimedInput(new Input(input), clockVal);
+        return ofTicks(input, ClockTicks.toTicks(clockVal));
+    }
+
+    /**
+     * Same as {@link #create(String, double)} for a clock value given in ticks.
+     */
+    public static TimedInput ofTicks(String input, int ticks) {
+        if (input == null)
+            return new TimedInput(Input.create(null), ticks);
+        Interned interned = INTERNED.get(input);
+        if (interned == null) {
+            if (INTERNED.size() >= MAX_INTERNED)
+                return new TimedInput(Input.create(input), ticks);
+            INTERNED.putIfAbsent(input, new Interned(Input.create(input)));
+            interned = INTERNED.get(input);
+        }
+        return interned.get(ticks);
     }
 
     public static TimedInput create(Input input) {
-        return new TimedInput(input, 0.0);
+        return ofTicks(input.getSymbol(), 0);
     }
 
     public TimedInput convertLogicalTime(double currentLogicalTime) {
-        return TimedInput.create(input.getSymbol(), currentLogicalTime + clockVal);
+        return TimedInput.ofTicks(input.getSymbol(), ClockTicks.toTicks(currentLogicalTime) + ticks);
+    }
+
+    public double getClockVal() {
+        return ClockTicks.toClockValue(ticks);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 59 + ticks;
+        result = result * 59 + (input == null ? 43 : input.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof TimedInput))
+            return false;
+        TimedInput other = (TimedInput) obj;
+        if (ticks != other.ticks)
+            return false;
+        return input == null ? other.input == null : input.equals(other.input);
     }
 
     public String toString() {
-        return String.format("(%s,%.1f)", input.toString(), clockVal);
+        StringBuilder sb = new StringBuilder();
+        sb.append('(').append(input).append(',');
+        ClockTicks.appendTo(sb, ticks);
+        return sb.append(')').toString();
+    }
+
+    /**
+     * Interned timed inputs of one input, indexed by their ticks for small non-negative clock
+     * values, which are the ones of almost all timed inputs. At most {@link #MAX_OTHER} timed
+     * inputs with other clock values are interned.
+     */
+    private static class Interned {
+        private static final int MAX_INDEXED = 1 << 16;
+        private static final int MAX_OTHER = 1 << 12;
+
+        // marks the empty slots of an array that is being copied into a grown one
+        private static final TimedInput MOVED = new TimedInput((Input) null, 0);
+
+        private final Input input;
+        // slots are set once by compareAndSet, the array is only copied when it grows
+        private volatile AtomicReferenceArray<TimedInput> byTicks = new AtomicReferenceArray<>(64);
+        private final Map<Integer, TimedInput> other = new ConcurrentHashMap<>();
+
+        Interned(Input input) {
+            this.input = input;
+        }
+
+        TimedInput get(int ticks) {
+            if (ticks < 0 || ticks >= MAX_INDEXED) {
+                TimedInput timedInput = other.get(ticks);
+                if (timedInput != null)
+                    return timedInput;
+                if (other.size() >= MAX_OTHER)
+                    return new TimedInput(input, ticks);
+                return other.computeIfAbsent(ticks, t -> new TimedInput(input, t));
+            }
+            while (true) {
+                AtomicReferenceArray<TimedInput> indexed = byTicks;
+                if (ticks >= indexed.length()) {
+                    grow(ticks);
+                    continue;
+                }
+                TimedInput timedInput = indexed.get(ticks);
+                if (timedInput == null) {
+                    TimedInput created = new TimedInput(input, ticks);
+                    if (indexed.compareAndSet(ticks, null, created))
+                        return created;
+                    timedInput = indexed.get(ticks);
+                }
+                if (timedInput != MOVED)
+                    return timedInput;
+                // the array is being grown, wait for it and read the slot again from the grown array
+                synchronized (this) {
+                }
+            }
+        }
+
+        private synchronized void grow(int ticks) {
+            AtomicReferenceArray<TimedInput> indexed = byTicks;
+            if (ticks < indexed.length())
+                return;
+            AtomicReferenceArray<TimedInput> grown = new AtomicReferenceArray<>(
+                    Math.min(MAX_INDEXED, Math.max(2 * indexed.length(), ticks + 1)));
+            for (int i = 0; i < indexed.length(); i++) {
+                // empty slots are frozen, so no timed input is interned in the old array after it was copied
+                TimedInput timedInput = indexed.get(i);
+                while (timedInput == null && !indexed.compareAndSet(i, null, MOVED))
+                    timedInput = indexed.get(i);
+                if (timedInput != null)
+                    grown.set(i, timedInput);
+            }
+            byTicks = grown;
+        }
     }
 }
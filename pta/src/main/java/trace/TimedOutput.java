@@ -1,18 +1,39 @@
 package trace;
 
 import automaton.Output;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import utils.FastImmPair;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 @Data
-@AllArgsConstructor
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
 public class TimedOutput {
-    private boolean reset;
-    private Output output;
+    // timed outputs are only created by create, so equal timed outputs are the same object
+    private static final Map<String, TimedOutput> INTERNED_RESET = new ConcurrentHashMap<>();
+    private static final Map<String, TimedOutput> INTERNED_NO_RESET = new ConcurrentHashMap<>();
+    private static final TimedOutput NO_OUTPUT_RESET = new TimedOutput(true, Output.create(null));
+    private static final TimedOutput NO_OUTPUT = new TimedOutput(false, Output.create(null));
+
+    private final boolean reset;
+    private final Output output;
 
+    /**
+     * Interned timed output, which is shared by all timed outputs with this reset and output.
+     */
     public static TimedOutput create(boolean reset, String output) {
-        return new TimedOutput(reset, new Output(output));
+        if (output == null)
+            return reset ? NO_OUTPUT_RESET : NO_OUTPUT;
+        Map<String, TimedOutput> interned = reset ? INTERNED_RESET : INTERNED_NO_RESET;
+        TimedOutput timedOutput = interned.get(output);
+        if (timedOutput == null) {
+            interned.putIfAbsent(output, new TimedOutput(reset, Output.create(output)));
+            timedOutput = interned.get(output);
+        }
+        return timedOutput;
     }
 
     public static TimedOutput create(FastImmPair<Boolean, String> output) {
@@ -20,30 +41,11 @@ public class TimedOutput {
     }
 
     public static TimedOutput createInit(String init) {
-        return new TimedOutput(true, Output.create(init));
+        return create(true, init);
     }
 
     @Override
     public String toString() {
         return String.format("(%b,%s)", reset, output.toString());
     }
-
-//    @Override
-//    public boolean equals(Object obj) {
-//        if (this == obj)
-//            return true;
-//        if (obj == null)
-//            return false;
-////        if(hashCode() != obj.hashCode())
-////            return false;
-//        if (getClass() != obj.getClass())
-//            return false;
-//        TimedOutput other = (TimedOutput) obj;
-//        if (reset ^ other.reset) {
-//            return false;
-//        }
-//        if (output == null) {
-//            return other.output == null;
-//        } else return output.equals(other.output);
-//    }
 }
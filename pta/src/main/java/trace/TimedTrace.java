@@ -2,6 +2,7 @@ package trace;
 
 import automaton.Output;
 import trace.base.IncompleteTrace;
+import trace.base.StepSequence;
 import trace.base.Trace;
 import utils.FastImmPair;
 
@@ -14,21 +15,13 @@ public class TimedTrace extends Trace<Output> {
     }
 
     public TimedTrace append(FastImmPair<TimedInput, Output> symbol) {
-        List<FastImmPair<TimedInput, Output>> newTrace = new ArrayList<>();
-        if (getTrace() != null && !getTrace().isEmpty()) {
-            newTrace.addAll(getTrace());
-        }
-        newTrace.add(symbol);
-        return new TimedTrace(getFirstOutput(), newTrace);
+        return new TimedTrace(getFirstOutput(), StepSequence.append(getTrace(), symbol));
     }
 
     public TimedTrace prefix(int length) {
         if (length > length())
             return null;
-        if (length == 1)
-            return new TimedTrace(getFirstOutput(), new ArrayList<>());
-        List<FastImmPair<TimedInput, Output>> prefixTrace = new ArrayList<>(getTrace().subList(0, length-1));
-        return new TimedTrace(getFirstOutput(), prefixTrace);
+        return new TimedTrace(getFirstOutput(), StepSequence.prefix(getTrace(), length-1));
     }
 
     public TimedIncompleteTrace dropLastOutput() {
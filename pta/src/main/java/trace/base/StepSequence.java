@@ -0,0 +1,161 @@
+package trace.base;
+
+import java.util.*;
+
+/**
+ * Persistent list of trace steps. Sequences created from each other by appending or taking
+ * prefixes share one backing array, so {@link #append} is amortised O(1) as long as the
+ * sequence being extended ends at the last element written to the array, and {@link #prefix}
+ * is O(1). The array also stores the list hash of every prefix, which makes hashing O(1) and
+ * lets equality checks reject different sequences without comparing their elements.
+ *
+ * <p>Sequences are immutable, all modifying list operations throw
+ * {@link UnsupportedOperationException}.
+ */
+public final class StepSequence<E> extends AbstractList<E> implements RandomAccess {
+    private static final int INITIAL_CAPACITY = 8;
+
+    private static final class Buffer {
+        private volatile Object[] elements;
+        private volatile int[] prefixHashes;
+        private int used = 0;
+
+        private Buffer(int capacity) {
+            elements = new Object[capacity];
+            prefixHashes = new int[capacity];
+        }
+
+        private void add(Object element) {
+            if (used == elements.length) {
+                int capacity = Math.max(INITIAL_CAPACITY, used * 2);
+                elements = Arrays.copyOf(elements, capacity);
+                prefixHashes = Arrays.copyOf(prefixHashes, capacity);
+            }
+            int previous = used == 0 ? 1 : prefixHashes[used - 1];
+            elements[used] = element;
+            prefixHashes[used] = 31 * previous + (element == null ? 0 : element.hashCode());
+            used++;
+        }
+    }
+
+    private static final StepSequence<?> EMPTY = new StepSequence<>(new Buffer(0), 0, 0);
+
+    private final Buffer buffer;
+    private final int offset;
+    private final int size;
+    // 0 if not computed yet
+    private int hash = 0;
+
+    private StepSequence(Buffer buffer, int offset, int size) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> StepSequence<E> empty() {
+        return (StepSequence<E>) EMPTY;
+    }
+
+    public static <E> StepSequence<E> copyOf(List<? extends E> list) {
+        if (list instanceof StepSequence) {
+            @SuppressWarnings("unchecked")
+            StepSequence<E> sequence = (StepSequence<E>) list;
+            return sequence;
+        }
+        Buffer buffer = new Buffer(Math.max(INITIAL_CAPACITY, list.size() + 1));
+        for (E element : list) {
+            buffer.add(element);
+        }
+        return new StepSequence<>(buffer, 0, list.size());
+    }
+
+    /**
+     * Append an element to the given list without modifying it.
+     */
+    public static <E> StepSequence<E> append(List<? extends E> list, E element) {
+        return StepSequence.<E>copyOf(list).append(element);
+    }
+
+    /**
+     * The first <code>length</code> elements of the given list without modifying it.
+     */
+    public static <E> StepSequence<E> prefix(List<? extends E> list, int length) {
+        return StepSequence.<E>copyOf(list).prefix(length);
+    }
+
+    public StepSequence<E> append(E element) {
+        synchronized (buffer) {
+            if (offset + size == buffer.used && buffer != EMPTY.buffer) {
+                buffer.add(element);
+                return new StepSequence<>(buffer, offset, size + 1);
+            }
+        }
+        Buffer copy = new Buffer(Math.max(INITIAL_CAPACITY, 2 * (size + 1)));
+        for (int i = 0; i < size; i++) {
+            copy.add(buffer.elements[offset + i]);
+        }
+        copy.add(element);
+        return new StepSequence<>(copy, 0, size + 1);
+    }
+
+    public StepSequence<E> prefix(int length) {
+        if (length < 0 || length > size)
+            throw new IndexOutOfBoundsException("Prefix length: " + length + ", size: " + size);
+        if (length == size)
+            return this;
+        return new StepSequence<>(buffer, offset, length);
+    }
+
+    @Override
+    public StepSequence<E> subList(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex)
+            throw new IndexOutOfBoundsException("From: " + fromIndex + ", to: " + toIndex + ", size: " + size);
+        return new StepSequence<>(buffer, offset + fromIndex, toIndex - fromIndex);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        return (E) buffer.elements[offset + index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            if (size == 0) {
+                h = 1;
+            } else if (offset == 0) {
+                h = buffer.prefixHashes[size - 1];
+            } else {
+                h = super.hashCode();
+            }
+            hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (o instanceof StepSequence) {
+            StepSequence<?> other = (StepSequence<?>) o;
+            if (size != other.size)
+                return false;
+            if (buffer == other.buffer && offset == other.offset)
+                return true;
+            if (hashCode() != other.hashCode())
+                return false;
+        }
+        return super.equals(o);
+    }
+}
@@ -67,6 +67,9 @@ public class DotExporter {
 				Integer.toString(t.getTarget().getId()), t.getInput().getSymbol(), t.getGuard(), t.getProbability());
 	}
 
+	// cleared once dot could not be started, e.g. because Graphviz is not installed
+	private static volatile boolean dotAvailable = true;
+
 	public static void appendLine(StringBuilder sb, String line) {
 		sb.append(line);
 		sb.append(System.lineSeparator());
@@ -83,9 +86,20 @@ public class DotExporter {
 		generateGraph(fileName);
 	}
 
+	/**
+	 * Render the dot file as pdf with Graphviz. The dot file is kept if Graphviz is not
+	 * installed, only the first failure to start it is reported.
+	 */
 	public void generateGraph(String fileName) throws IOException {
+		if (!dotAvailable)
+			return;
 		Runtime run = Runtime.getRuntime();
-		run.exec(String.format("dot %s -T pdf -o %s", fileName, fileName.replace(".dot", ".pdf")));
+		try {
+			run.exec(String.format("dot %s -T pdf -o %s", fileName, fileName.replace(".dot", ".pdf")));
+		} catch (IOException e) {
+			dotAvailable = false;
+			System.err.println("Graphs are not rendered as pdf: " + e.getMessage());
+		}
 	}
 
 }
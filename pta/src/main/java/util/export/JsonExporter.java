@@ -0,0 +1,154 @@
+package util.export;
+
+import automaton.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Class for exporting PTAs in the JSON format read by <code>JsonSUL</code>. The model is
+ * written while it is traversed through a buffer and a file channel, without building a
+ * document first. The output is compact and has the form
+ * <pre>
+ * {"init":0,"location":{"0":"l0",...},"transition":{"0":[0,"a","[0.0,+)",true,1,1.0],...}}
+ * </pre>
+ * where every interval of a guard is stored as a separate transition.
+ */
+public class JsonExporter {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    public void writeToFile(PTA pta, String fileName) throws IOException {
+        Path path = Paths.get(fileName);
+        try (Writer writer = new Writer(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))) {
+            writer.ascii("{\"init\":").ascii(Integer.toString(pta.getInitial().getId()));
+            writer.ascii(",\"location\":{");
+            boolean first = true;
+            for (Location l : pta.getLocations()) {
+                if (!first)
+                    writer.ascii(",");
+                first = false;
+                writer.string(String.valueOf(l.getId())).ascii(":").string(l.getLabel().getSymbol());
+            }
+            writer.ascii("},\"transition\":{");
+            int counter = 0;
+            for (Location l : pta.getLocations()) {
+                for (Map.Entry<Input, Set<Transition>> entry : l.getTransitions().entrySet()) {
+                    Input input = entry.getKey();
+                    for (Transition t : entry.getValue()) {
+                        for (Interval interval : t.getGuard().getIntervals()) {
+                            if (counter > 0)
+                                writer.ascii(",");
+                            writer.string(String.valueOf(counter)).ascii(":[")
+                                    .ascii(Integer.toString(l.getId())).ascii(",")
+                                    .string(input.getSymbol()).ascii(",")
+                                    .string(interval.toString()).ascii(",")
+                                    .ascii(Boolean.toString(t.isReset())).ascii(",")
+                                    .ascii(Integer.toString(t.getTarget().getId())).ascii(",")
+                                    .number(t.getProbability()).ascii("]");
+                            counter++;
+                        }
+                    }
+                }
+            }
+            writer.ascii("}}");
+        }
+    }
+
+    private static class Writer implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        private Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Write text that consists of ASCII characters only and needs no escaping.
+         */
+        private Writer ascii(String text) throws IOException {
+            for (int i = 0; i < text.length(); i++)
+                put((byte) text.charAt(i));
+            return this;
+        }
+
+        private Writer number(double value) throws IOException {
+            // JSON has no representation of NaN and infinity
+            return ascii(Double.isFinite(value) ? Double.toString(value) : "null");
+        }
+
+        /**
+         * Write a quoted string, escaping quotes, backslashes and control characters and
+         * encoding all other characters in UTF-8.
+         */
+        private Writer string(String text) throws IOException {
+            put((byte) '"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '"': escape('"'); break;
+                    case '\\': escape('\\'); break;
+                    case '\b': escape('b'); break;
+                    case '\f': escape('f'); break;
+                    case '\n': escape('n'); break;
+                    case '\r': escape('r'); break;
+                    case '\t': escape('t'); break;
+                    default:
+                        if (c < 0x20) {
+                            escape('u');
+                            put((byte) '0');
+                            put((byte) '0');
+                            put(HEX[c >> 4]);
+                            put(HEX[c & 0xf]);
+                        } else if (c < 0x80) {
+                            put((byte) c);
+                        } else {
+                            int end = Character.isHighSurrogate(c) && i + 1 < text.length() ? i + 2 : i + 1;
+                            byte[] bytes = text.substring(i, end).getBytes(StandardCharsets.UTF_8);
+                            for (byte b : bytes)
+                                put(b);
+                            i = end - 1;
+                        }
+                }
+            }
+            put((byte) '"');
+            return this;
+        }
+
+        private void escape(char c) throws IOException {
+            put((byte) '\\');
+            put((byte) c);
+        }
+
+        private void put(byte b) throws IOException {
+            if (!buffer.hasRemaining())
+                flush();
+            buffer.put(b);
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
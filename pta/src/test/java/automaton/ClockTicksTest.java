@@ -0,0 +1,64 @@
+package automaton;
+
+import org.junit.Test;
+import trace.TimedInput;
+
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+public class ClockTicksTest {
+
+    @Test
+    public void regionValuesAndTheirSumsAreExact() {
+        for (int i = 0; i < 100; i++) {
+            double clockVal = i / 2.0;
+            assertTrue(ClockTicks.isExact(clockVal));
+            assertEquals(clockVal, ClockTicks.toClockValue(ClockTicks.toTicks(clockVal)), 0.0);
+        }
+        assertTrue(ClockTicks.isExact(0.1 + 0.2));
+        assertEquals(ClockTicks.toTicks(0.3), ClockTicks.toTicks(0.1 + 0.2));
+        assertEquals(TimedInput.create("a", 0.3), TimedInput.create("a", 0.1 + 0.2));
+    }
+
+    @Test
+    public void valuesBetweenTicksAreRounded() {
+        assertFalse(ClockTicks.isExact(1 / 3.0));
+        assertEquals(333, ClockTicks.toTicks(1 / 3.0));
+        assertEquals(-667, ClockTicks.toTicks(-2 / 3.0));
+        assertEquals(TimedInput.create("a", 0.3333), TimedInput.create("a", 1 / 3.0));
+    }
+
+    @Test
+    public void valuesOutsideTheRangeOfTicksAreNotRepresentable() {
+        assertTrue(ClockTicks.isRepresentable(1e6));
+        assertFalse(ClockTicks.isRepresentable(1e7));
+        assertFalse(ClockTicks.isRepresentable(Double.NaN));
+        assertFalse(ClockTicks.isRepresentable(Double.POSITIVE_INFINITY));
+        assertFalse(ClockTicks.isExact(Double.NaN));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void convertingValuesOutsideTheRangeFails() {
+        ClockTicks.toTicks(Double.NaN);
+    }
+
+    @Test
+    public void valuesWithOneDecimalAreFormattedLikeFormatString() {
+        for (int i = -30; i <= 30; i++) {
+            double clockVal = i / 10.0;
+            assertEquals(String.format(Locale.ROOT, "%.1f", clockVal),
+                    ClockTicks.format(ClockTicks.toTicks(clockVal)));
+        }
+        assertEquals("0.25", ClockTicks.format(ClockTicks.toTicks(0.25)));
+        assertEquals("0.333", ClockTicks.format(ClockTicks.toTicks(1 / 3.0)));
+    }
+
+    @Test
+    public void guardsWithBoundsBetweenTicksCompareClockValues() {
+        CompiledGuard guard = CompiledGuard.of(Guard.create(Interval.create("[0,0.0004]")));
+        assertTrue(guard.contains(0.0));
+        assertFalse(guard.contains(0.0005));
+        assertTrue(guard.containsTicks(0));
+    }
+}
@@ -0,0 +1,114 @@
+package automaton;
+
+import com.google.common.collect.BoundType;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class CompiledGuardTest {
+    private static final int BOUND = 8;
+
+    @Test
+    public void parsedStringsConvertBackToTheSameGuard() {
+        Random random = new Random(1);
+        for (int n = 0; n < 200; n++) {
+            Guard guard = new Guard(randomIntervals(random));
+            CompiledGuard parsed = CompiledGuard.parse(guard.toString());
+            assertEquals(CompiledGuard.of(guard), parsed);
+            assertEquals(guard.toString(), parsed.toString());
+            assertEquals(guard, parsed.toGuard());
+        }
+    }
+
+    @Test
+    public void containsMatchesTheIntervals() {
+        Random random = new Random(2);
+        for (int n = 0; n < 200; n++) {
+            List<Interval> intervals = randomIntervals(random);
+            // overlapping intervals are evaluated without the binary search
+            if (n % 4 == 0)
+                intervals.add(Interval.create(random.nextInt(BOUND), random.nextInt(BOUND) + BOUND));
+            CompiledGuard compiled = CompiledGuard.of(intervals);
+            for (int ticks = 0; ticks <= (BOUND + 2) * ClockTicks.TICKS_PER_UNIT; ticks += 250) {
+                double clockVal = ClockTicks.toClockValue(ticks);
+                boolean expected = intervals.stream().anyMatch(interval -> interval.contains(clockVal));
+                assertEquals(expected, compiled.contains(clockVal));
+                assertEquals(expected, compiled.containsTicks(ticks));
+            }
+        }
+    }
+
+    @Test
+    public void endpointsBetweenTicksAreComparedAsDoubles() {
+        CompiledGuard compiled = CompiledGuard.of(Collections.singletonList(
+                Interval.create(0.0001, BoundType.OPEN, 1.0, BoundType.CLOSED)));
+        assertFalse(compiled.contains(0.0001));
+        assertTrue(compiled.contains(0.001));
+        assertFalse(compiled.containsTicks(0));
+        assertTrue(compiled.containsTicks(1));
+        assertTrue(compiled.containsTicks(ClockTicks.TICKS_PER_UNIT));
+    }
+
+    @Test
+    public void guardsOfValuationsMatchMergedRegions() {
+        Random random = new Random(3);
+        for (int n = 0; n < 500; n++) {
+            double[] valuations = randomValuations(random);
+            boolean[] selected = new boolean[valuations.length];
+            for (int i = 0; i < selected.length; i++)
+                selected[i] = random.nextInt(3) > 0;
+            assertEquals(mergedRegions(valuations, selected), CompiledGuard.fromValuations(valuations, selected).toGuard());
+        }
+    }
+
+    /**
+     * Disjoint intervals in random order, some of them are left out.
+     */
+    private static List<Interval> randomIntervals(Random random) {
+        List<Interval> intervals = new ArrayList<>();
+        for (Interval interval : RandomAutomata.partition(random, BOUND)) {
+            if (random.nextInt(3) > 0)
+                intervals.add(interval);
+        }
+        if (intervals.isEmpty())
+            intervals.add(Interval.create(0));
+        Collections.shuffle(intervals, random);
+        return intervals;
+    }
+
+    /**
+     * Distinct, ascending valuations of integers and of values between them.
+     */
+    private static double[] randomValuations(Random random) {
+        List<Double> valuations = new ArrayList<>();
+        for (int half = 0; half <= 2 * BOUND; half++) {
+            if (random.nextInt(3) == 0)
+                valuations.add(half / 2.0);
+        }
+        if (valuations.isEmpty())
+            valuations.add(0.0);
+        return valuations.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    // the construction from the regions of single valuations that fromValuations replaced
+    private static Guard mergedRegions(double[] valuations, boolean[] selected) {
+        List<Interval> regions = new ArrayList<>();
+        for (int i = 0; i < valuations.length; i++) {
+            if (!selected[i])
+                continue;
+            regions.add(i + 1 < valuations.length
+                    ? Interval.create(valuations[i], valuations[i + 1]) : Interval.create(valuations[i]));
+        }
+        Guard guard = Guard.create();
+        int index = 0;
+        while (index < regions.size()) {
+            Interval interval = regions.get(index++);
+            for (; index < regions.size() && interval.isConnected(regions.get(index)); index++)
+                interval = interval.span(regions.get(index));
+            guard.putInterval(interval);
+        }
+        return guard;
+    }
+}
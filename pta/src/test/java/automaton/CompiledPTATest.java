@@ -0,0 +1,169 @@
+package automaton;
+
+import org.junit.Test;
+import trace.ResetTimedTrace;
+import trace.TimedInput;
+import trace.TimedOutput;
+import utils.FastImmPair;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class CompiledPTATest {
+    private static final int BOUND = 8;
+
+    @Test
+    public void distributionsMatchTheTransitionsOfTheAutomaton() {
+        Random random = new Random(1);
+        for (int n = 0; n < 20; n++) {
+            PTA pta = RandomAutomata.create(random, 2 + random.nextInt(5), BOUND);
+            for (Location location : pta.getLocations()) {
+                for (Input input : pta.getInputs()) {
+                    for (int ticks = 0; ticks <= 2 * (BOUND + 1); ticks++) {
+                        double clockVal = ticks / 2.0;
+                        TimedInput timedInput = TimedInput.create(input.getSymbol(), clockVal);
+                        assertEquals(distribution(location, input, clockVal),
+                                pta.getDistribution(location, 0.0, timedInput));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void selectionMatchesLinearScan() {
+        Random random = new Random(2);
+        for (int n = 0; n < 20; n++) {
+            PTA pta = RandomAutomata.create(random, 2 + random.nextInt(5), BOUND);
+            CompiledPTA compiled = pta.compile();
+            for (Location location : pta.getLocations()) {
+                for (Input input : pta.getInputs()) {
+                    for (int i = 0; i < 50; i++) {
+                        double clockVal = random.nextInt(2 * (BOUND + 1)) / 2.0;
+                        // cumulative bounds are hit exactly for some of the probabilities
+                        double probability = i % 2 == 0 ? random.nextDouble() : random.nextInt(11) / 10.0;
+                        int selected = compiled.select(compiled.locationId(location), compiled.inputId(input),
+                                clockVal, probability);
+                        assertSame(select(location, input, clockVal, probability),
+                                selected < 0 ? null : compiled.transition(selected));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void tracesReachTheSameLocations() {
+        Random random = new Random(3);
+        for (int n = 0; n < 20; n++) {
+            PTA pta = RandomAutomata.create(random, 2 + random.nextInt(5), BOUND);
+            for (int i = 0; i < 50; i++) {
+                Location current = pta.getInitial();
+                List<FastImmPair<TimedInput, TimedOutput>> steps = new ArrayList<>();
+                int length = 1 + random.nextInt(6);
+                for (int step = 0; step < length; step++) {
+                    Input input = Input.create(RandomAutomata.INPUTS[random.nextInt(RandomAutomata.INPUTS.length)]);
+                    double clockVal = random.nextInt(2 * (BOUND + 1)) / 2.0;
+                    Transition transition = select(current, input, clockVal, random.nextDouble());
+                    if (transition == null)
+                        break;
+                    steps.add(FastImmPair.of(TimedInput.create(input.getSymbol(), clockVal),
+                            TimedOutput.create(transition.isReset(), transition.getTarget().getLabel().getSymbol())));
+                    current = transition.getTarget();
+                }
+                ResetTimedTrace trace = new ResetTimedTrace(pta.getInitial().getLabel(), steps);
+                assertSame(current, pta.getStateReachedByResetLogicalTimedTrace(trace).left);
+            }
+        }
+    }
+
+    @Test
+    public void modificationsOfTheAutomatonAndItsPartsRecompileIt() {
+        PTA pta = RandomAutomata.create(new Random(4), 3, BOUND);
+        Location location = pta.getInitial();
+        Transition transition = location.getAllTransitions().get(0);
+
+        CompiledPTA compiled = pta.compile();
+        assertSame(compiled, pta.compile());
+
+        transition.getGuard().setIntervals(Collections.singletonList(Interval.create(BOUND + 1.0, 2 * BOUND)));
+        CompiledPTA recompiled = pta.compile();
+        assertNotSame(compiled, recompiled);
+        assertEquals(distribution(location, transition.getInput(), 0.0),
+                recompiled.distribution(recompiled.locationId(location), recompiled.inputId(transition.getInput()), 0.0));
+
+        transition.setProbability(0.25);
+        assertNotSame(recompiled, pta.compile());
+        recompiled = pta.compile();
+
+        location.addTransition(Guard.create(Interval.create(0)), transition.getInput(), 1.0, false, location);
+        assertNotSame(recompiled, pta.compile());
+        recompiled = pta.compile();
+
+        pta.addLocation(new Location(10, Output.create("a")));
+        assertNotSame(recompiled, pta.compile());
+    }
+
+    @Test
+    public void modificationsOfOtherAutomataDoNotRecompile() {
+        Random random = new Random(5);
+        PTA pta = RandomAutomata.create(random, 3, BOUND);
+        PTA other = RandomAutomata.create(random, 3, BOUND);
+        CompiledPTA compiled = pta.compile();
+        other.compile();
+
+        Transition transition = other.getInitial().getAllTransitions().get(0);
+        transition.setProbability(0.5);
+        transition.getGuard().putInterval(Interval.create(BOUND + 1.0, 2 * BOUND));
+        other.addLocation(new Location(10, Output.create("a")));
+        assertSame(compiled, pta.compile());
+    }
+
+    @Test
+    public void sharedGuardsRecompileAllAutomataUsingThem() {
+        Random random = new Random(6);
+        PTA pta = RandomAutomata.create(random, 3, BOUND);
+        PTA other = RandomAutomata.create(random, 3, BOUND);
+        Guard shared = Guard.create(Interval.create(0));
+        Input input = Input.create(RandomAutomata.INPUTS[0]);
+        pta.getInitial().addTransition(shared, input, 1.0, false, pta.getInitial());
+        other.getInitial().addTransition(shared, input, 1.0, false, other.getInitial());
+        CompiledPTA compiled = pta.compile();
+        CompiledPTA otherCompiled = other.compile();
+
+        shared.setIntervals(Collections.singletonList(Interval.create(1)));
+        assertNotSame(compiled, pta.compile());
+        assertNotSame(otherCompiled, other.compile());
+    }
+
+    private static Map<TimedOutput, Double> distribution(Location location, Input input, double clockVal) {
+        Map<TimedOutput, Double> distribution = new HashMap<>();
+        for (Transition transition : location.getTransitions().getOrDefault(input, Collections.emptySet())) {
+            if (enabled(transition, clockVal))
+                distribution.put(TimedOutput.create(transition.isReset(), transition.getTarget().getLabel().getSymbol()),
+                        transition.getProbability());
+        }
+        return distribution;
+    }
+
+    // evaluates the ranges of the guard instead of its compiled form
+    private static boolean enabled(Transition transition, double clockVal) {
+        for (Interval interval : transition.getGuard().getIntervals()) {
+            if (interval.getInterval().contains(clockVal))
+                return true;
+        }
+        return false;
+    }
+
+    private static Transition select(Location location, Input input, double clockVal, double probability) {
+        for (Transition transition : location.getAllTransitions()) {
+            if (!transition.getInput().equals(input) || !enabled(transition, clockVal))
+                continue;
+            if (probability <= transition.getProbability())
+                return transition;
+            probability -= transition.getProbability();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,49 @@
+package automaton;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IntervalTest {
+    private static final int BOUND = 8;
+
+    @Test
+    public void intervalsWithTheSameRangeAreEqual() {
+        Interval interval = Interval.create("[1,3)");
+        Interval other = Interval.create("[1,3)");
+        assertEquals(interval, other);
+        assertEquals(interval.hashCode(), other.hashCode());
+        assertNotEquals(interval, Interval.create("[1,3]"));
+
+        Guard guard = Guard.create(interval);
+        Guard otherGuard = Guard.create(other);
+        assertEquals(guard, otherGuard);
+        assertEquals(guard.hashCode(), otherGuard.hashCode());
+    }
+
+    @Test
+    public void transitionsOfEqualAutomataIterateInTheSameOrder() {
+        PTA pta = RandomAutomata.create(new Random(1), 6, BOUND);
+        PTA other = RandomAutomata.create(new Random(1), 6, BOUND);
+        assertEquals(transitions(pta), transitions(other));
+    }
+
+    private static List<String> transitions(PTA pta) {
+        List<String> transitions = new ArrayList<>();
+        for (int id = 0; id < pta.getLocations().size(); id++) {
+            for (Location location : pta.getLocations()) {
+                if (location.getId() != id)
+                    continue;
+                for (Transition transition : location.getAllTransitions()) {
+                    transitions.add(id + " " + transition.getInput() + " " + transition.getGuard() + " "
+                            + transition.isReset() + " " + transition.getTarget().getId() + " " + transition.getProbability());
+                }
+            }
+        }
+        return transitions;
+    }
+}
@@ -0,0 +1,79 @@
+package automaton;
+
+import com.google.common.collect.BoundType;
+
+import java.util.*;
+
+/**
+ * Random automata for the tests. The guards of the transitions with the same source and input
+ * partition the clock values into intervals, and the transitions enabled in one interval lead
+ * to distinct pairs of target label and reset, so every step of a trace has one successor.
+ */
+public final class RandomAutomata {
+    public static final String[] LABELS = {"a", "b", "c"};
+    public static final String[] INPUTS = {"x", "y"};
+
+    private RandomAutomata() {
+    }
+
+    /**
+     * @param nrLocations number of locations, at least two so there are enough successors
+     */
+    public static PTA create(Random random, int nrLocations, int bound) {
+        Set<Input> inputs = new HashSet<>();
+        for (String input : INPUTS) {
+            inputs.add(Input.create(input));
+        }
+        List<Location> locations = new ArrayList<>();
+        for (int i = 0; i < nrLocations; i++) {
+            String label = i < LABELS.length ? LABELS[i] : LABELS[random.nextInt(LABELS.length)];
+            locations.add(new Location(i, Output.create(label)));
+        }
+        for (Location location : locations) {
+            for (Input input : inputs) {
+                for (Interval interval : partition(random, bound)) {
+                    addTransitions(random, location, input, interval, locations);
+                }
+            }
+        }
+        return new PTA(locations.get(0), inputs, new HashSet<>(locations));
+    }
+
+    /**
+     * Consecutive intervals with integer endpoints below the bound covering all clock values.
+     */
+    public static List<Interval> partition(Random random, int bound) {
+        List<Interval> intervals = new ArrayList<>();
+        double lower = 0;
+        BoundType lowerType = BoundType.CLOSED;
+        while (true) {
+            double upper = lower + 1 + random.nextInt(3);
+            if (upper >= bound) {
+                intervals.add(Interval.create(lower, lowerType));
+                return intervals;
+            }
+            BoundType upperType = random.nextBoolean() ? BoundType.CLOSED : BoundType.OPEN;
+            intervals.add(Interval.create(lower, lowerType, upper, upperType));
+            lower = upper;
+            lowerType = upperType == BoundType.CLOSED ? BoundType.OPEN : BoundType.CLOSED;
+        }
+    }
+
+    private static void addTransitions(Random random, Location source, Input input, Interval interval,
+                                       List<Location> locations) {
+        int nrTransitions = 1 + random.nextInt(3);
+        Set<String> used = new HashSet<>();
+        double remaining = 1.0;
+        for (int i = 0; i < nrTransitions; i++) {
+            Location target;
+            boolean reset;
+            do {
+                target = locations.get(random.nextInt(locations.size()));
+                reset = random.nextBoolean();
+            } while (!used.add(target.getLabel().getSymbol() + reset));
+            double probability = i == nrTransitions - 1 ? remaining : Math.round(remaining * random.nextDouble() * 10) / 10.0;
+            remaining -= probability;
+            source.addTransition(Guard.create(interval), input, probability, reset, target);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package trace;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class TimedInputTest {
+    private static final int NR_THREADS = 8;
+    private static final int NR_TICKS = 20000;
+
+    @Test
+    public void concurrentlyInternedTimedInputsAreShared() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(NR_THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<TimedInput[]>> results = new ArrayList<>();
+        for (int t = 0; t < NR_THREADS; t++) {
+            int offset = t;
+            results.add(executor.submit(() -> {
+                start.await();
+                // every thread starts at another tick, so the array grows while others intern
+                TimedInput[] interned = new TimedInput[NR_TICKS];
+                for (int i = 0; i < NR_TICKS; i++) {
+                    int ticks = (i + offset * NR_TICKS / NR_THREADS) % NR_TICKS;
+                    interned[ticks] = TimedInput.ofTicks("concurrent", ticks);
+                }
+                return interned;
+            }));
+        }
+        start.countDown();
+        TimedInput[] expected = results.get(0).get();
+        for (Future<TimedInput[]> result : results) {
+            TimedInput[] interned = result.get();
+            for (int ticks = 0; ticks < NR_TICKS; ticks++)
+                assertSame(expected[ticks], interned[ticks]);
+        }
+        executor.shutdown();
+        for (int ticks = 0; ticks < NR_TICKS; ticks++) {
+            assertEquals(ticks, expected[ticks].getTicks());
+            assertSame(expected[ticks], TimedInput.ofTicks("concurrent", ticks));
+        }
+    }
+}
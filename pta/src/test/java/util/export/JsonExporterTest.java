@@ -0,0 +1,107 @@
+package util.export;
+
+import automaton.*;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class JsonExporterTest {
+    private static final int BOUND = 8;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void randomAutomataAreWrittenLikeFastjson() throws IOException {
+        Random random = new Random(1);
+        for (int n = 0; n < 20; n++) {
+            PTA pta = RandomAutomata.create(random, 2 + random.nextInt(10), BOUND);
+            assertArrayEquals(fastjson(pta), export(pta));
+        }
+    }
+
+    @Test
+    public void probabilitiesAreFormattedLikeFastjson() throws IOException {
+        double[] probabilities = {0.0, 1.0, 0.1, 1 / 3.0, 0.1 + 0.2, 1e-3, 1e-4, 1e-5, 2.5e-10, 1234567.0, 1e7, 1e15};
+        Location location = new Location(0, Output.create("a"));
+        Input input = Input.create("x");
+        for (int i = 0; i < probabilities.length; i++) {
+            location.addTransition(Guard.create(Interval.create(i, i + 1.0)), input, probabilities[i], false, location);
+        }
+        PTA pta = new PTA(location, Collections.singleton(input), Collections.singleton(location));
+        assertArrayEquals(fastjson(pta), export(pta));
+    }
+
+    @Test
+    public void symbolsAreEscapedLikeFastjson() throws IOException {
+        String[] labels = {"quote\"", "back\\slash", "tab\tnew\nline", "control\u0001\u001f", "umlautä", "euro€",
+                "emoji😀", "slash/"};
+        Set<Location> locations = new LinkedHashSet<>();
+        Input input = Input.create("in\"puté");
+        for (int i = 0; i < labels.length; i++) {
+            locations.add(new Location(i, Output.create(labels[i])));
+        }
+        Location first = locations.iterator().next();
+        for (Location location : locations) {
+            location.addTransition(Guard.create(Interval.create(0)), input, 1.0, true, first);
+        }
+        PTA pta = new PTA(first, Collections.singleton(input), locations);
+        assertArrayEquals(fastjson(pta), export(pta));
+    }
+
+    @Test
+    public void modelsLargerThanTheBufferAreWrittenCompletely() throws IOException {
+        PTA pta = RandomAutomata.create(new Random(2), 300, BOUND);
+        byte[] exported = export(pta);
+        assertTrue(exported.length > 1 << 16);
+        assertArrayEquals(fastjson(pta), exported);
+    }
+
+    private byte[] export(PTA pta) throws IOException {
+        Path path = folder.newFile().toPath();
+        new JsonExporter().writeToFile(pta, path.toString());
+        return Files.readAllBytes(path);
+    }
+
+    // the document PTA.storeMemory built and wrote before it used the exporter
+    private static byte[] fastjson(PTA pta) {
+        JSONObject json = new JSONObject();
+        json.put("init", pta.getInitial().getId());
+        JSONObject locations = new JSONObject();
+        for (Location l : pta.getLocations()) {
+            locations.put(String.valueOf(l.getId()), l.getLabel().getSymbol());
+        }
+        json.put("location", locations);
+        int counter = 0;
+        JSONObject transitions = new JSONObject();
+        for (Location l : pta.getLocations()) {
+            for (Map.Entry<Input, Set<Transition>> entry : l.getTransitions().entrySet()) {
+                for (Transition t : entry.getValue()) {
+                    for (Interval interval : t.getGuard().getIntervals()) {
+                        JSONArray transition = new JSONArray();
+                        transition.add(l.getId());
+                        transition.add(entry.getKey().getSymbol());
+                        transition.add(interval.toString());
+                        transition.add(t.isReset());
+                        transition.add(t.getTarget().getId());
+                        transition.add(t.getProbability());
+                        transitions.put(String.valueOf(counter), transition);
+                        counter++;
+                    }
+                }
+            }
+        }
+        json.put("transition", transitions);
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -9,13 +9,15 @@ import java.util.stream.Collectors;
 
 public class Executor {
     Location currentLocation = null;
+    private int currentId = -1;
     private double currentClockVal = 0.0;
     private PTA adapter = null;
     private long seed = -1;
     private Random rnd = null;
 
     private int precision = 1000;
-    private Map<Location, List<Transition>> transitions;
+    // compiled form the current id refers to, replaced once the automaton has been modified
+    private CompiledPTA compiled;
 
     public Executor(PTA adapter, long seed) {
         this.adapter = adapter;
@@ -24,15 +26,25 @@ public class Executor {
             this.seed = System.currentTimeMillis();
         }
         this.rnd = new Random(this.seed);
+    }
 
-        transitions = new HashMap<>();
-        for (Location source : adapter.getLocations()) {
-            transitions.put(source, new ArrayList<>(source.getAllTransitions()));
+    /**
+     * Compiled form of the current automaton. The automaton is compiled again if it has been
+     * modified since the last step, and the current location is looked up in the new form.
+     */
+    private CompiledPTA compiled() {
+        CompiledPTA current = adapter.compile();
+        if (current != compiled) {
+            compiled = current;
+            if (currentLocation != null)
+                currentId = current.locationId(currentLocation);
         }
+        return current;
     }
 
     public String reset() {
         currentLocation = adapter.getInitial();
+        currentId = compiled().initial();
         currentClockVal = 0;
 
         return currentLocation.getLabel().getSymbol();
@@ -76,16 +88,13 @@ public class Executor {
 //        }
         double selectionProbability = (double) rnd.nextInt(precision) / precision;
 //        double selectionProbability = rnd.nextDouble();
-        for (Transition t : transitions.get(currentLocation)) {
-            if (t.getInput().equals(Input.create(input)) && t.getGuard().enableAction(currentClockVal + delayTime)) {
-                if (selectionProbability <= t.getProbability()) {
-                    currentLocation = t.getTarget();
-                    currentClockVal = t.isReset() ? 0.0 : currentClockVal + delayTime;
-                    return FastImmPair.of(t.isReset(), currentLocation.getLabel().getSymbol());
-                } else {
-                    selectionProbability -= t.getProbability();
-                }
-            }
+        CompiledPTA compiled = compiled();
+        int t = compiled.select(currentId, compiled.inputId(input), currentClockVal + delayTime, selectionProbability);
+        if (t >= 0) {
+            currentId = compiled.target(t);
+            currentLocation = compiled.location(currentId);
+            currentClockVal = compiled.isReset(t) ? 0.0 : currentClockVal + delayTime;
+            return FastImmPair.of(compiled.isReset(t), currentLocation.getLabel().getSymbol());
         }
 
         // self loop if input is not enabled in current state
@@ -1,9 +1,6 @@
 package importer.json;
 
 import automaton.*;
-import com.alibaba.fastjson.JSON;
-import com.alibaba.fastjson.JSONArray;
-import com.alibaba.fastjson.JSONObject;
 import com.google.common.collect.BoundType;
 import com.google.common.collect.Range;
 import lombok.NoArgsConstructor;
@@ -11,11 +8,11 @@ import suls.SUL;
 import trace.TimedIncompleteTrace;
 import utils.FastImmPair;
 
-import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 @NoArgsConstructor
@@ -31,47 +28,102 @@ public class JsonSUL implements SUL {
     private static final int PROBABILITY = 5;
 
 
-    private void getSULFromJson(String json) {
-        JSONObject jsonObject = JSON.parseObject(json);
-
-        int initId = Integer.parseInt(jsonObject.getString("init"));
+    private void getSULFromJson(JsonTokenReader reader) throws IOException {
+        String init = null;
+        Map<String, String> labels = new HashMap<>();
+        TransitionRecords transitions = new TransitionRecords();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("init".equals(name)) {
+                init = reader.nextValue();
+            } else if ("location".equals(name)) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String id = reader.nextName();
+                    labels.put(id, reader.nextValue());
+                }
+                reader.endObject();
+            } else if ("transition".equals(name)) {
+                reader.beginObject();
+                while (reader.hasNext())
+                    readTransition(reader, transitions);
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (init == null)
+            throw new IOException("Model without initial location");
 
+        // locations are created in the order of the hash map of their labels
         Set<Location> locations = new HashSet<>();
         Map<Integer, Location> locationMap = new HashMap<>();
-        JSONObject locationJsonObject = jsonObject.getJSONObject("location");
-        for(Map.Entry<String, Object> entry : locationJsonObject.entrySet()){
+        for (Map.Entry<String, String> entry : labels.entrySet()) {
             int id = Integer.parseInt(entry.getKey());
-            Location location = new Location(id, Output.create(entry.getValue().toString()));
+            Location location = new Location(id, Output.create(entry.getValue()));
             locations.add(location);
             locationMap.put(id, location);
         }
 
         Set<Input> inputs = new HashSet<>();
-        JSONObject tranJsonObject = jsonObject.getJSONObject("transition");
-        for (int i = 0; i < tranJsonObject.size(); i++) {
-
-            JSONArray array = tranJsonObject.getJSONArray(String.valueOf(i));
+        for (int i : transitions.inIndexOrder()) {
+            Location sourceLocation = locationMap.get(transitions.sources[i]);
 
-            int sourceId = Integer.parseInt(array.getString(SOURCE));
-            Location sourceLocation = locationMap.get(sourceId);
-
-            Input inputSymbol = Input.create(array.getString(INPUT));
+            Input inputSymbol = Input.create(transitions.inputs[i]);
             inputs.add(inputSymbol);
 
-            String g = array.getString(GUARD);
-            Guard guard = getGuardFromString(g);
+            Guard guard = getGuardFromString(transitions.guards[i]);
+            // test inputs are generated at the bounds of guards, so they have to be valid clock values
+            for (Interval interval : guard != null ? guard.getIntervals() : Collections.<Interval>emptyList()) {
+                if (!ClockTicks.isRepresentable(interval.lowerEndpoint())
+                        || interval.hasBound() && !ClockTicks.isRepresentable(interval.upperEndpoint()))
+                    throw new IOException("Guard exceeds the range of clock values: " + transitions.guards[i]);
+            }
 
-            boolean reset = array.getBoolean(RESET);
+            Location targetLocation = locationMap.get(transitions.targets[i]);
 
-            int targetId = Integer.parseInt(array.getString(TARGET));
-            Location targetLocation = locationMap.get(targetId);
+            sourceLocation.addTransition(guard, inputSymbol, transitions.probabilities[i], transitions.resets[i],
+                    targetLocation);
+        }
 
-            double probability = array.getDouble(PROBABILITY);
+        target = new PTA(locationMap.get(Integer.parseInt(init)), inputs, locations).complement();
+    }
 
-            sourceLocation.addTransition(guard, inputSymbol, probability, reset, targetLocation);
+    /**
+     * Read a transition, which is stored as its index followed by the array
+     * [source, input, guard, reset, target, probability].
+     */
+    private static void readTransition(JsonTokenReader reader, TransitionRecords transitions) throws IOException {
+        String key = reader.nextName();
+        int index;
+        try {
+            index = Integer.parseInt(key);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid transition index " + key);
         }
-
-        target = new PTA(locationMap.get(initId), inputs, locations).complement();
+        if (index < 0)
+            throw new IOException("Invalid transition index " + key);
+
+        String[] values = new String[PROBABILITY + 1];
+        reader.beginArray();
+        for (int i = 0; i < values.length; i++) {
+            if (!reader.hasNext())
+                throw new IOException(String.format("Transition %d has only %d values", index, i));
+            values[i] = reader.nextValue();
+        }
+        while (reader.hasNext())
+            reader.skipValue();
+        reader.endArray();
+
+        int i = transitions.add(index);
+        transitions.sources[i] = Integer.parseInt(values[SOURCE]);
+        transitions.inputs[i] = values[INPUT];
+        transitions.guards[i] = values[GUARD];
+        transitions.resets[i] = "true".equals(values[RESET]) || "1".equals(values[RESET]);
+        transitions.targets[i] = Integer.parseInt(values[TARGET]);
+        transitions.probabilities[i] = Double.parseDouble(values[PROBABILITY]);
     }
 
     private Guard getGuardFromString(String s){
@@ -79,23 +131,32 @@ public class JsonSUL implements SUL {
             return null;
         }
         List<Interval> guard = new ArrayList<>();
-        String[] intervals = s.split("U");
-        for (String value : intervals) {
-            Interval interval = Interval.create(value);
-            guard.add(interval);
+        int start = 0;
+        for (int end = s.indexOf('U'); end >= 0; end = s.indexOf('U', start)) {
+            guard.add(Interval.create(s.substring(start, end)));
+            start = end + 1;
         }
+        // like String.split, a trailing separator does not add an interval
+        if (start < s.length() || guard.isEmpty())
+            guard.add(Interval.create(s.substring(start)));
         return new Guard(guard);
     }
 
     public static JsonSUL getPtaFromJsonFile(String path) throws IOException {
-        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(path)));
-        String str = null;
-        StringBuilder json = new StringBuilder();
-        while ((str = reader.readLine()) != null) {
-            json.append(str);
+        try (InputStream in = new FileInputStream(path)) {
+            return getPtaFromJsonStream(in);
         }
+    }
+
+    /**
+     * Read a model while parsing the stream, without building a document tree first. The
+     * transitions are buffered in primitive arrays and added to the locations in the order of
+     * their indices, independently of their order in the stream.
+     */
+    public static JsonSUL getPtaFromJsonStream(InputStream in) throws IOException {
+        JsonTokenReader reader = new JsonTokenReader(new InputStreamReader(in, StandardCharsets.UTF_8));
         JsonSUL sul = new JsonSUL();
-        sul.getSULFromJson(json.toString());
+        sul.getSULFromJson(reader);
         return sul;
     }
 
@@ -108,6 +169,13 @@ public class JsonSUL implements SUL {
         executor = new Executor(target, seed);
     }
 
+    @Override
+    public JsonSUL copy() {
+        JsonSUL copy = new JsonSUL();
+        copy.target = target;
+        return copy;
+    }
+
     @Override
     public String reset() {
         return executor.reset();
@@ -130,4 +198,55 @@ public class JsonSUL implements SUL {
     public OutputDistribution execute(TimedIncompleteTrace logicalTimedTestSeq) {
         return executor.execute(logicalTimedTestSeq);
     }
+
+    /**
+     * Transitions of a model in the order they are read, stored column-wise until all locations
+     * are known. The indices of the transitions must be 0 to the number of transitions - 1, so
+     * storage only grows with the transitions actually read.
+     */
+    private static class TransitionRecords {
+        private int size = 0;
+        private int[] indices = new int[16];
+        private int[] sources = new int[16];
+        private String[] inputs = new String[16];
+        private String[] guards = new String[16];
+        private boolean[] resets = new boolean[16];
+        private int[] targets = new int[16];
+        private double[] probabilities = new double[16];
+
+        /**
+         * @return the position of the record of the transition with the given index
+         */
+        private int add(int index) {
+            if (size == indices.length) {
+                int capacity = 2 * size;
+                indices = Arrays.copyOf(indices, capacity);
+                sources = Arrays.copyOf(sources, capacity);
+                inputs = Arrays.copyOf(inputs, capacity);
+                guards = Arrays.copyOf(guards, capacity);
+                resets = Arrays.copyOf(resets, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+                probabilities = Arrays.copyOf(probabilities, capacity);
+            }
+            indices[size] = index;
+            return size++;
+        }
+
+        /**
+         * @return the positions of the records ordered by the indices of their transitions
+         */
+        private int[] inIndexOrder() throws IOException {
+            int[] positions = new int[size];
+            Arrays.fill(positions, -1);
+            for (int i = 0; i < size; i++) {
+                int index = indices[i];
+                if (index >= size)
+                    throw new IOException(String.format("Transition index %d out of range for %d transitions", index, size));
+                if (positions[index] >= 0)
+                    throw new IOException("Duplicate transition " + index);
+                positions[index] = i;
+            }
+            return positions;
+        }
+    }
 }
@@ -0,0 +1,214 @@
+package importer.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Pull parser reading a JSON document token by token, so a model can be built while it is
+ * read instead of from a document tree. Values that are neither objects nor arrays are
+ * returned as their text, numbers and literals are not converted. Separators are checked,
+ * but the parser does not keep track of the nesting, which is up to the caller.
+ */
+class JsonTokenReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 13;
+
+    private final Reader in;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder text = new StringBuilder();
+    private int pos = 0;
+    private int limit = 0;
+    // number of characters before the buffer, for error messages
+    private long offset = 0;
+    // last separator or bracket consumed, or 'v' after a value
+    private char last = 0;
+
+    JsonTokenReader(Reader in) {
+        this.in = in;
+    }
+
+    void beginObject() throws IOException {
+        expect('{');
+    }
+
+    void endObject() throws IOException {
+        expect('}');
+    }
+
+    void beginArray() throws IOException {
+        expect('[');
+    }
+
+    void endArray() throws IOException {
+        expect(']');
+    }
+
+    /**
+     * Consume the comma in front of the next element of the current object or array. The first
+     * element must not be preceded by a comma, all others must be preceded by exactly one.
+     *
+     * @return false if the object or array ends
+     */
+    boolean hasNext() throws IOException {
+        int c = peek();
+        if (c < 0)
+            throw error("unexpected end of input");
+        // the comma has been consumed by an earlier call, but the element has not been read
+        if (last == ',')
+            return true;
+        if (c == '}' || c == ']')
+            return false;
+        if (last == '{' || last == '[') {
+            if (c == ',')
+                throw error("unexpected ','");
+            return true;
+        }
+        expect(',');
+        c = peek();
+        if (c == ',' || c == '}' || c == ']' || c < 0)
+            throw error("expected an element after ','");
+        return true;
+    }
+
+    String nextName() throws IOException {
+        if (peek() != '"')
+            throw error("expected a name");
+        pos++;
+        String name = readString();
+        expect(':');
+        return name;
+    }
+
+    /**
+     * @return the text of the next string, number or literal, or null for the literal null
+     */
+    String nextValue() throws IOException {
+        int c = peek();
+        if (c == '"') {
+            pos++;
+            last = 'v';
+            return readString();
+        }
+        if (c < 0 || c == '{' || c == '[' || c == '}' || c == ']' || c == ',' || c == ':')
+            throw error("expected a value");
+        text.setLength(0);
+        while ((c = read()) >= 0 && !isDelimiter((char) c))
+            text.append((char) c);
+        if (c >= 0)
+            pos--;
+        last = 'v';
+        String value = text.toString();
+        return "null".equals(value) ? null : value;
+    }
+
+    void skipValue() throws IOException {
+        int c = peek();
+        if (c == '{') {
+            beginObject();
+            while (hasNext()) {
+                nextName();
+                skipValue();
+            }
+            endObject();
+        } else if (c == '[') {
+            beginArray();
+            while (hasNext())
+                skipValue();
+            endArray();
+        } else {
+            nextValue();
+        }
+    }
+
+    /**
+     * Read the remaining characters of a string, whose opening quote has been consumed.
+     */
+    private String readString() throws IOException {
+        text.setLength(0);
+        while (true) {
+            int c = read();
+            if (c < 0)
+                throw error("unterminated string");
+            if (c == '"')
+                return text.toString();
+            if (c != '\\') {
+                text.append((char) c);
+                continue;
+            }
+            c = read();
+            switch (c) {
+                case 'b': text.append('\b'); break;
+                case 'f': text.append('\f'); break;
+                case 'n': text.append('\n'); break;
+                case 'r': text.append('\r'); break;
+                case 't': text.append('\t'); break;
+                case 'u':
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(read(), 16);
+                        if (digit < 0)
+                            throw error("invalid unicode escape");
+                        code = code << 4 | digit;
+                    }
+                    text.append((char) code);
+                    break;
+                case '"':
+                case '\\':
+                case '/':
+                    text.append((char) c);
+                    break;
+                default:
+                    throw error("invalid escape");
+            }
+        }
+    }
+
+    private void expect(char expected) throws IOException {
+        if (peek() != expected)
+            throw error("expected '" + expected + "'");
+        pos++;
+        last = expected;
+    }
+
+    private static boolean isDelimiter(char c) {
+        return c == ',' || c == '}' || c == ']' || c == ':' || Character.isWhitespace(c);
+    }
+
+    /**
+     * Skip whitespace and return the next character without consuming it.
+     *
+     * @return -1 at the end of the input
+     */
+    private int peek() throws IOException {
+        while (true) {
+            if (pos == limit && !fill())
+                return -1;
+            char c = buffer[pos];
+            if (!Character.isWhitespace(c))
+                return c;
+            pos++;
+        }
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill())
+            return -1;
+        return buffer[pos++];
+    }
+
+    private boolean fill() throws IOException {
+        offset += limit;
+        pos = 0;
+        limit = Math.max(in.read(buffer), 0);
+        return limit > 0;
+    }
+
+    private IOException error(String message) {
+        return new IOException(String.format("Malformed JSON at offset %d: %s", offset + pos, message));
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
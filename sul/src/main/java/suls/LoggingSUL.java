@@ -17,13 +17,16 @@
  *******************************************************************************/
 package suls;
 
+import automaton.ClockTicks;
 import automaton.Input;
-import automaton.Output;
 import automaton.OutputDistribution;
 import trace.*;
 import trace.base.Trace;
 import utils.FastImmPair;
+import utils.SymbolTable;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -32,6 +35,14 @@ import java.util.Set;
  * Wrapper class for SULs that stores traces that are executed on the SUL. A trace starts when the 
  * wrapped SUL is reset and ends before the next reset. 
  * 
+ * The steps of the current trace are recorded in a {@link TraceBuffer}. Completed traces are
+ * kept in memory, unless a {@link TraceLog} has been set, in which case they are appended to
+ * the log instead.
+ * 
+ * Inputs are executed with delays, but traces are recorded with logical clock values, i.e. the
+ * time since the last reset of the clock, as in the observation tree of the learner. The clock
+ * is added up in {@link ClockTicks}, so adding up delays does not accumulate rounding errors.
+ * 
  * @author Martin Tappler
  *
  */
@@ -40,7 +51,12 @@ public class LoggingSUL implements SUL {
 	private List<ResetTimedTrace> traces = new ArrayList<>();
 	private int nrSample = 0;
 	private int nrTests = 0;
-	private ResetTimedTrace currentTrace = null;
+	// created when logging is enabled for the first time
+	private TraceBuffer currentTrace = null;
+	private boolean recording = false;
+	private TraceLog traceLog = null;
+	// logical clock value of the current trace
+	private int logicalClock = 0;
 	private SUL wrappedSUL = null;
 	
 	public LoggingSUL(SUL wrappedSUL) {
@@ -51,16 +67,47 @@ public class LoggingSUL implements SUL {
 	
 	public void disableLogging(){
 		if(log){
-			if(currentTrace != null){
-				traces.add(currentTrace);
-			}
-			currentTrace = null;
+			finishTrace();
 		}
 		log = false;
 	}
 	public void enableLogging(){
+		if(currentTrace == null)
+			currentTrace = new TraceBuffer(traceLog != null ? traceLog.getSymbols() : new SymbolTable<>());
 		log = true;
 	}
+
+	/**
+	 * Append completed traces to the given log instead of keeping them in memory. The trace
+	 * currently recorded is completed first.
+	 */
+	public void setTraceLog(TraceLog traceLog) {
+		finishTrace();
+		this.traceLog = traceLog;
+		currentTrace = null;
+		if(log)
+			enableLogging();
+	}
+
+	public TraceLog getTraceLog() {
+		return traceLog;
+	}
+
+	private void finishTrace() {
+		if(recording){
+			if(traceLog != null){
+				try {
+					traceLog.append(currentTrace);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			} else {
+				traces.add(currentTrace.toTrace());
+			}
+		}
+		recording = false;
+	}
+
 	@Override
 	public void init(long seed) throws Exception {
 		wrappedSUL.init(seed);
@@ -70,10 +117,10 @@ public class LoggingSUL implements SUL {
 	public String reset() {
 		String initialOutput = wrappedSUL.reset();
 		if(log){
-			if(currentTrace != null){
-				traces.add(currentTrace);
-			}
-			currentTrace = ResetTimedTrace.empty(new Output(initialOutput));
+			finishTrace();
+			currentTrace.start(initialOutput);
+			recording = true;
+			logicalClock = 0;
 		}
 		nrSample++;
 		return initialOutput;
@@ -83,8 +130,10 @@ public class LoggingSUL implements SUL {
 	public FastImmPair<Boolean, String> execute(String input, double clockVal) {
 		FastImmPair<Boolean, String> timedOutput = wrappedSUL.execute(input, clockVal);
 		if(log){
-			if(currentTrace != null && timedOutput != null){
-				currentTrace = (ResetTimedTrace) currentTrace.append(FastImmPair.of(TimedInput.create(input, clockVal), TimedOutput.create(timedOutput)));
+			if(recording && timedOutput != null){
+				int logicalClockTicks = logicalClock + ClockTicks.toTicks(clockVal);
+				currentTrace.add(input, ClockTicks.toClockValue(logicalClockTicks), timedOutput.left, timedOutput.right);
+				logicalClock = timedOutput.left ? 0 : logicalClockTicks;
 			}
 		}
 		nrTests++;
@@ -95,17 +144,27 @@ public class LoggingSUL implements SUL {
 	public Set<Input> getInputs() {
 		return wrappedSUL.getInputs();
 	}
+	/**
+	 * @return a copy of the traces kept in memory, including the trace currently recorded, 
+	 * i.e. none of the traces appended to the trace log
+	 */
 	public List<ResetTimedTrace> getTraces() {
-		if(log && currentTrace != null){
-			traces.add(currentTrace);
+		List<ResetTimedTrace> allTraces = new ArrayList<>(traces);
+		if(log && recording && traceLog == null){
+			allTraces.add(currentTrace.toTrace());
 		}
-		return traces;
+		return allTraces;
 	}
 	
 	public void clearTraces(){
 		traces.clear();
 	}
 
+	@Override
+	public LoggingSUL copy() {
+		return new LoggingSUL(wrappedSUL.copy());
+	}
+
 	public int getNrSample() {
 		return nrSample;
 	}
@@ -71,4 +71,12 @@ public interface SUL {
 
 	public abstract OutputDistribution execute(TimedIncompleteTrace logicalTimedTestSeq);
 
+	/**
+	 * Create an independent instance of this SUL that can be executed concurrently 
+	 * with this one. The copy needs to be initialised with {@link #init(long)} before it is used.
+	 * 
+	 * @return an uninitialised copy of the SUL
+	 */
+	public abstract SUL copy();
+
 }
@@ -0,0 +1,89 @@
+package suls;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Fixed set of independent SUL instances, one for each worker executing queries concurrently.
+ * Every instance is initialised with its own seed drawn from a single master seed, so the
+ * behaviour of the i-th instance only depends on that seed and on the inputs executed on it.
+ *
+ * <p>The pool also owns the worker threads, which are shared by all users of the pool and
+ * stopped by {@link #close()} once learning has finished.
+ */
+public class SULPool implements AutoCloseable {
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+    private final List<SUL> suls;
+    private ExecutorService executor = null;
+    private boolean closed = false;
+
+    public SULPool(List<? extends SUL> suls) {
+        this.suls = Collections.unmodifiableList(new ArrayList<>(suls));
+    }
+
+    public static SULPool create(int size, long seed, Supplier<? extends SUL> factory) throws Exception {
+        List<SUL> suls = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            suls.add(factory.get());
+        }
+        SULPool pool = new SULPool(suls);
+        pool.init(seed);
+        return pool;
+    }
+
+    public void init(long seed) throws Exception {
+        Random seeds = new Random(seed);
+        for (SUL sul : suls) {
+            sul.init(seeds.nextLong());
+        }
+    }
+
+    public int size() {
+        return suls.size();
+    }
+
+    public SUL get(int index) {
+        return suls.get(index);
+    }
+
+    public List<SUL> getSuls() {
+        return suls;
+    }
+
+    /**
+     * @return executor with one thread per SUL, created when it is first needed
+     */
+    public synchronized ExecutorService getExecutor() {
+        if (closed)
+            throw new IllegalStateException("SUL pool has been closed");
+        if (executor == null) {
+            int pool = POOL_NUMBER.incrementAndGet();
+            AtomicInteger thread = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(suls.size(), r -> {
+                Thread t = new Thread(r, String.format("sul-pool-%d-worker-%d", pool, thread.incrementAndGet()));
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Stop the worker threads, queries submitted before still finish.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+}
@@ -68,6 +68,11 @@ public class StepTrackingSUL implements SUL {
 	public Set<Input> getInputs() {
 		return wrappedSUL.getInputs();
 	}
+	@Override
+	public StepTrackingSUL copy() {
+		return new StepTrackingSUL(wrappedSUL.copy());
+	}
+
 	public int getSteps() {
 		return steps;
 	}
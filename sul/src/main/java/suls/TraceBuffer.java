@@ -0,0 +1,101 @@
+package suls;
+
+import automaton.Output;
+import trace.ResetTimedTrace;
+import trace.TimedInput;
+import trace.TimedOutput;
+import utils.FastImmPair;
+import utils.SymbolTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Steps of the trace that is currently executed, stored in primitive arrays. Input and output
+ * symbols are replaced by their ids in a symbol table, so recording a step neither allocates
+ * nor copies the steps recorded before, except for growing the arrays.
+ */
+public class TraceBuffer {
+    private final SymbolTable<String> symbols;
+    private int initialOutput = -1;
+    private int size = 0;
+    private int[] inputs = new int[16];
+    private double[] clockVals = new double[16];
+    // output id shifted left by one, the lowest bit is set if the clock is reset
+    private int[] outputs = new int[16];
+
+    public TraceBuffer(SymbolTable<String> symbols) {
+        this.symbols = symbols;
+    }
+
+    /**
+     * Discard the recorded steps and start a new trace with the given initial output.
+     */
+    public void start(String initialOutput) {
+        start(symbols.id(initialOutput));
+    }
+
+    public void add(String input, double clockVal, boolean reset, String output) {
+        add(symbols.id(input), clockVal, symbols.id(output) << 1 | (reset ? 1 : 0));
+    }
+
+    void start(int initialOutput) {
+        this.initialOutput = initialOutput;
+        size = 0;
+    }
+
+    void add(int input, double clockVal, int packedOutput) {
+        if (size == inputs.length) {
+            int capacity = size * 2;
+            inputs = Arrays.copyOf(inputs, capacity);
+            clockVals = Arrays.copyOf(clockVals, capacity);
+            outputs = Arrays.copyOf(outputs, capacity);
+        }
+        inputs[size] = input;
+        clockVals[size] = clockVal;
+        outputs[size] = packedOutput;
+        size++;
+    }
+
+    public SymbolTable<String> getSymbols() {
+        return symbols;
+    }
+
+    public int getInitialOutput() {
+        return initialOutput;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int input(int step) {
+        return inputs[step];
+    }
+
+    public double clockVal(int step) {
+        return clockVals[step];
+    }
+
+    public int output(int step) {
+        return outputs[step] >>> 1;
+    }
+
+    public boolean isReset(int step) {
+        return (outputs[step] & 1) != 0;
+    }
+
+    int packedOutput(int step) {
+        return outputs[step];
+    }
+
+    public ResetTimedTrace toTrace() {
+        List<FastImmPair<TimedInput, TimedOutput>> steps = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            steps.add(FastImmPair.of(TimedInput.create(symbols.symbol(inputs[i]), clockVals[i]),
+                    TimedOutput.create(isReset(i), symbols.symbol(output(i)))));
+        }
+        return new ResetTimedTrace(Output.create(symbols.symbol(initialOutput)), steps);
+    }
+}
@@ -0,0 +1,244 @@
+package suls;
+
+import automaton.ClockTicks;
+import trace.ResetTimedTrace;
+import utils.SymbolTable;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Append-only binary log of executed traces. The log starts with a header and is followed by
+ * two kinds of records:
+ * <ul>
+ *     <li>a symbol record defines the next symbol id by its UTF-8 encoded name,</li>
+ *     <li>a trace record holds the id of the initial output, the number of steps and for
+ *     every step the input id, the clock valuation and the output id with the reset flag.</li>
+ * </ul>
+ * Symbols are written right before the first trace using them, so a log can be read back
+ * while it is still being written, up to the last {@link #flush()}. Traces are appended
+ * through a buffer and written with a single file channel; appending is synchronized, so
+ * several {@link LoggingSUL}s may share a log.
+ */
+public class TraceLog implements Closeable {
+    private static final int MAGIC = 0x50544154;
+    private static final int VERSION = 1;
+    private static final byte SYMBOL_RECORD = 1;
+    private static final byte TRACE_RECORD = 2;
+    private static final int STEP_BYTES = Integer.BYTES + Double.BYTES + Integer.BYTES;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final SymbolTable<String> symbols = new SymbolTable<>();
+    private int nrWrittenSymbols = 0;
+    private long nrTraces = 0;
+    private long nrSteps = 0;
+
+    private TraceLog(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Create a new log, replacing an existing file.
+     */
+    public static TraceLog create(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null)
+            parent.toFile().mkdirs();
+        TraceLog log = new TraceLog(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING));
+        log.buffer.putInt(MAGIC).putInt(VERSION);
+        return log;
+    }
+
+    /**
+     * Symbols of the log, buffers recording traces for this log should use them.
+     */
+    public SymbolTable<String> getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Append the trace recorded in the buffer, whose symbols must be those of this log.
+     */
+    public synchronized void append(TraceBuffer trace) throws IOException {
+        if (trace.getSymbols() != symbols)
+            throw new IllegalArgumentException("Trace buffer does not use the symbols of the log");
+        writeNewSymbols();
+        ensureRemaining(1 + 2 * Integer.BYTES);
+        buffer.put(TRACE_RECORD).putInt(trace.getInitialOutput()).putInt(trace.size());
+        for (int i = 0; i < trace.size(); i++) {
+            ensureRemaining(STEP_BYTES);
+            buffer.putInt(trace.input(i)).putDouble(trace.clockVal(i)).putInt(trace.packedOutput(i));
+        }
+        nrTraces++;
+        nrSteps += trace.size();
+    }
+
+    private void writeNewSymbols() throws IOException {
+        int size = symbols.size();
+        for (; nrWrittenSymbols < size; nrWrittenSymbols++) {
+            byte[] name = symbols.symbol(nrWrittenSymbols).getBytes(StandardCharsets.UTF_8);
+            if (name.length + 1 + Integer.BYTES > BUFFER_SIZE)
+                throw new IOException("Symbol too long for trace log: " + symbols.symbol(nrWrittenSymbols));
+            ensureRemaining(1 + Integer.BYTES + name.length);
+            buffer.put(SYMBOL_RECORD).putInt(name.length).put(name);
+        }
+    }
+
+    private void ensureRemaining(int bytes) throws IOException {
+        if (buffer.remaining() < bytes)
+            writeBuffer();
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    public synchronized void flush() throws IOException {
+        writeBuffer();
+    }
+
+    public synchronized long getNrTraces() {
+        return nrTraces;
+    }
+
+    public synchronized long getNrSteps() {
+        return nrSteps;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!channel.isOpen())
+            return;
+        writeBuffer();
+        channel.close();
+    }
+
+    /**
+     * Open a log for reading the traces in the order they were appended.
+     */
+    public static Reader read(Path path) throws IOException {
+        return new Reader(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    /**
+     * Iterator over the traces of a log, which must be closed after use. Traces are only
+     * created when they are requested, so the log does not have to fit into memory.
+     */
+    public static class Reader implements Iterator<ResetTimedTrace>, Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final SymbolTable<String> symbols = new SymbolTable<>();
+        private final TraceBuffer trace = new TraceBuffer(symbols);
+        private boolean ready = false;
+
+        private Reader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            buffer.limit(0);
+            if (!fill(2 * Integer.BYTES) || buffer.getInt() != MAGIC)
+                throw new IOException("Not a trace log");
+            int version = buffer.getInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported trace log version " + version);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!ready) {
+                try {
+                    ready = readTrace();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return ready;
+        }
+
+        @Override
+        public ResetTimedTrace next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            ready = false;
+            return trace.toTrace();
+        }
+
+        private boolean readTrace() throws IOException {
+            while (fill(1)) {
+                byte tag = buffer.get();
+                if (tag == SYMBOL_RECORD) {
+                    require(Integer.BYTES);
+                    byte[] name = new byte[buffer.getInt()];
+                    require(name.length);
+                    buffer.get(name);
+                    // symbols are defined once and in the order of their ids
+                    symbols.id(new String(name, StandardCharsets.UTF_8));
+                } else if (tag == TRACE_RECORD) {
+                    require(2 * Integer.BYTES);
+                    trace.start(symbol(buffer.getInt()));
+                    int nrSteps = buffer.getInt();
+                    for (int i = 0; i < nrSteps; i++) {
+                        require(STEP_BYTES);
+                        int input = symbol(buffer.getInt());
+                        double clockVal = buffer.getDouble();
+                        if (!ClockTicks.isRepresentable(clockVal))
+                            throw new IOException("Corrupt trace log, clock value out of range: " + clockVal);
+                        int output = buffer.getInt();
+                        symbol(output >>> 1);
+                        trace.add(input, clockVal, output);
+                    }
+                    return true;
+                } else {
+                    throw new IOException("Corrupt trace log, unknown record " + tag);
+                }
+            }
+            return false;
+        }
+
+        private int symbol(int id) throws IOException {
+            if (id < 0 || id >= symbols.size())
+                throw new IOException("Corrupt trace log, undefined symbol " + id);
+            return id;
+        }
+
+        private void require(int bytes) throws IOException {
+            if (!fill(bytes))
+                throw new EOFException("Truncated trace log");
+        }
+
+        /**
+         * Make sure that the given number of bytes can be read from the buffer.
+         *
+         * @return false if the log ends before
+         */
+        private boolean fill(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes)
+                return true;
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0)
+                    break;
+            }
+            buffer.flip();
+            return buffer.remaining() >= bytes;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package importer.json;
+
+import automaton.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import trace.TimedInput;
+import util.export.JsonExporter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class JsonSULTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void guardsBetweenClockTicksAreLoaded() throws Exception {
+        JsonSUL sul = read(model("[0,0.3333]", "(0.3333,+)"));
+        sul.init(1);
+        sul.reset();
+        assertEquals("l1", sul.execute("a", 0.3333).right);
+        sul.reset();
+        assertEquals("l0", sul.execute("a", 1 / 3.0).right);
+        // timed inputs identify both clock values, the guards still tell them apart
+        assertEquals(TimedInput.create("a", 0.3333), TimedInput.create("a", 1 / 3.0));
+    }
+
+    @Test
+    public void modificationsOfTheTargetModelAreExecuted() throws Exception {
+        JsonSUL sul = read(model("[0,1]", "(1,+)"));
+        sul.init(1);
+        sul.reset();
+        assertEquals("l1", sul.execute("a", 0.5).right);
+        PTA target = sul.getTargetModel();
+        Location l1 = target.getLocations().stream().filter(l -> l.getId() == 1).findFirst().get();
+        Location l2 = new Location(2, Output.create("l2"));
+        l2.addTransition(Guard.COMPLEMENT_GUARD, Input.create("a"), 1.0, true, l2);
+        target.addLocation(l2);
+        l1.removeTransitions(Input.create("a"), transition -> true);
+        l1.addTransition(Guard.COMPLEMENT_GUARD, Input.create("a"), 1.0, true, l2);
+        // the episode continues in the location it reached before the modification
+        assertEquals("l2", sul.execute("a", 0.5).right);
+        assertEquals("l2", sul.execute("a", 0.5).right);
+        sul.reset();
+        assertEquals("l1", sul.execute("a", 0.5).right);
+        assertEquals("l2", sul.execute("a", 0.5).right);
+    }
+
+    @Test(expected = IOException.class)
+    public void guardsOutsideTheRangeOfClockValuesAreRejected() throws Exception {
+        read(model("[0,1e12]", "(1e12,+)"));
+    }
+
+    @Test
+    public void exportedModelsAreLoadedAgain() throws Exception {
+        JsonSUL sul = read("{\"init\": \"1\", \"location\": {\"0\": \"l\\\"0\", \"1\": \"l\\u00e41\"}, \"transition\": {"
+                + "\"0\": [1, \"a\", \"[0,2)\", false, 0, 0.25], \"1\": [1, \"a\", \"[0,2)\", true, 1, 0.75], "
+                + "\"2\": [1, \"a\", \"[2,+)\", true, 0, 1.0], \"3\": [0, \"b\", \"(1,3]\", false, 1, 1.0]}}");
+        Path exported = folder.getRoot().toPath().resolve("exported.json");
+        new JsonExporter().writeToFile(sul.getTargetModel(), exported.toString());
+        JsonSUL reloaded = JsonSUL.getPtaFromJsonFile(exported.toString());
+
+        assertEquals(sul.getTargetModel().getInitial().getId(), reloaded.getTargetModel().getInitial().getId());
+        assertEquals(locations(sul.getTargetModel()), locations(reloaded.getTargetModel()));
+        assertEquals(transitions(sul.getTargetModel()), transitions(reloaded.getTargetModel()));
+    }
+
+    private static Map<Integer, String> locations(PTA pta) {
+        Map<Integer, String> locations = new HashMap<>();
+        for (Location location : pta.getLocations())
+            locations.put(location.getId(), location.getLabel().getSymbol());
+        return locations;
+    }
+
+    /*
+     * The transitions of a location are kept in hash sets, so their order is not compared, and
+     * every interval of a guard is stored as a transition of its own.
+     */
+    private static List<String> transitions(PTA pta) {
+        List<String> transitions = new ArrayList<>();
+        for (Location location : pta.getLocations()) {
+            for (Transition t : location.getAllTransitions()) {
+                for (Interval interval : t.getGuard().getIntervals()) {
+                    transitions.add(location.getId() + " " + t.getInput().getSymbol() + " " + interval + " "
+                            + t.isReset() + " " + t.getTarget().getId() + " " + t.getProbability());
+                }
+            }
+        }
+        Collections.sort(transitions);
+        return transitions;
+    }
+
+    private static String model(String guard1, String guard2) {
+        return "{\"init\": \"0\", \"location\": {\"0\": \"l0\", \"1\": \"l1\"}, \"transition\": {"
+                + "\"0\": [0, \"a\", \"" + guard1 + "\", true, 1, 1.0], \"1\": [0, \"a\", \"" + guard2 + "\", true, 0, 1.0], "
+                + "\"2\": [1, \"a\", \"[0,+)\", true, 0, 1.0]}}";
+    }
+
+    private static JsonSUL read(String json) throws IOException {
+        return JsonSUL.getPtaFromJsonStream(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+}
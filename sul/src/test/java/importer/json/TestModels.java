@@ -0,0 +1,36 @@
+package importer.json;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Models learned within seconds, shared with the tests of the modules learning them.
+ */
+public final class TestModels {
+    /**
+     * A model with three locations, one of whose transitions has probability one half.
+     */
+    public static final String SMALL = "small.json";
+    /**
+     * A model with four locations whose transitions all have probability one, so its outputs
+     * do not depend on the seed.
+     */
+    public static final String DETERMINISTIC = "deterministic.json";
+
+    private TestModels() {
+    }
+
+    public static JsonSUL load(String name) throws IOException {
+        try (InputStream in = open(name)) {
+            return JsonSUL.getPtaFromJsonStream(in);
+        }
+    }
+
+    public static InputStream open(String name) throws FileNotFoundException {
+        InputStream in = TestModels.class.getResourceAsStream("/" + name);
+        if (in == null)
+            throw new FileNotFoundException(name);
+        return in;
+    }
+}
@@ -0,0 +1,124 @@
+package suls;
+
+import automaton.Input;
+import automaton.OutputDistribution;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import trace.ResetTimedTrace;
+import trace.TimedIncompleteTrace;
+import trace.TimedInput;
+import trace.TimedOutput;
+import utils.FastImmPair;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class LoggingSULTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void tracesAreRecordedWithLogicalClockValues() {
+        LoggingSUL sul = new LoggingSUL(new CountingSUL());
+        sul.enableLogging();
+        sul.reset();
+        // the clock is reset by every second step
+        sul.execute("a", 0.5);
+        sul.execute("a", 0.25);
+        sul.execute("a", 1.0);
+        sul.execute("a", 0.1);
+        sul.execute("a", 0.2);
+
+        List<ResetTimedTrace> traces = sul.getTraces();
+        assertEquals(1, traces.size());
+        assertEquals(Arrays.asList(0.5, 0.75, 1.0, 1.1, 0.2), clockValues(traces.get(0)));
+        assertEquals(1, sul.getNrSample());
+        assertEquals(5, sul.getNrTests());
+    }
+
+    @Test
+    public void loggedTracesAreTheTracesKeptInMemory() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("traces.log");
+        LoggingSUL inMemory = new LoggingSUL(new CountingSUL());
+        LoggingSUL logged = new LoggingSUL(new CountingSUL());
+        TraceLog log = TraceLog.create(path);
+        logged.setTraceLog(log);
+        inMemory.enableLogging();
+        logged.enableLogging();
+
+        Random random = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            int length = random.nextInt(5);
+            double[] delays = new double[length];
+            for (int j = 0; j < length; j++)
+                delays[j] = random.nextInt(20) / 10.0;
+            for (LoggingSUL sul : Arrays.asList(inMemory, logged)) {
+                sul.reset();
+                for (double delay : delays)
+                    sul.execute("a", delay);
+            }
+        }
+        // completes the last trace
+        logged.setTraceLog(null);
+        log.close();
+        inMemory.disableLogging();
+
+        assertTrue(logged.getTraces().isEmpty());
+        List<ResetTimedTrace> read = new ArrayList<>();
+        try (TraceLog.Reader reader = TraceLog.read(path)) {
+            reader.forEachRemaining(read::add);
+        }
+        assertEquals(100, read.size());
+        assertEquals(inMemory.getTraces(), read);
+    }
+
+    private static List<Double> clockValues(ResetTimedTrace trace) {
+        List<Double> clockValues = new ArrayList<>();
+        for (FastImmPair<TimedInput, TimedOutput> step : trace.getTrace())
+            clockValues.add(step.left.getClockVal());
+        return clockValues;
+    }
+
+    /**
+     * Outputs the number of steps since the last reset and resets the clock every second step.
+     */
+    private static class CountingSUL implements SUL {
+        private int steps = 0;
+
+        @Override
+        public void init(long seed) {
+        }
+
+        @Override
+        public String reset() {
+            steps = 0;
+            return "0";
+        }
+
+        @Override
+        public FastImmPair<Boolean, String> execute(String input, double clockValue) {
+            steps++;
+            return FastImmPair.of(steps % 2 == 0, Integer.toString(steps));
+        }
+
+        @Override
+        public Set<Input> getInputs() {
+            return Collections.singleton(Input.create("a"));
+        }
+
+        @Override
+        public OutputDistribution execute(TimedIncompleteTrace logicalTimedTestSeq) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SUL copy() {
+            return new CountingSUL();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package suls;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import trace.ResetTimedTrace;
+import utils.SymbolTable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class TraceLogTest {
+    private static final String[] INPUTS = {"a", "b"};
+    private static final String[] OUTPUTS = {"x", "y", "z"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void tracesAreReadBackInTheOrderTheyWereAppended() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("traces.log");
+        Random random = new Random(1);
+        List<ResetTimedTrace> expected = new ArrayList<>();
+        try (TraceLog log = TraceLog.create(path)) {
+            TraceBuffer buffer = new TraceBuffer(log.getSymbols());
+            for (int i = 0; i < 500; i++) {
+                // some traces do not fit into the buffers of the log and the reader
+                expected.add(append(log, buffer, random, i % 100 == 0 ? 5000 : random.nextInt(6)));
+            }
+            assertEquals(500, log.getNrTraces());
+        }
+        assertEquals(expected, readAll(path));
+    }
+
+    @Test
+    public void flushedTracesCanBeReadWhileTheLogIsWritten() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("traces.log");
+        Random random = new Random(2);
+        try (TraceLog log = TraceLog.create(path)) {
+            TraceBuffer buffer = new TraceBuffer(log.getSymbols());
+            List<ResetTimedTrace> flushed = new ArrayList<>();
+            for (int i = 0; i < 10; i++)
+                flushed.add(append(log, buffer, random, 3));
+            log.flush();
+            append(log, buffer, random, 3);
+            assertEquals(flushed, readAll(path));
+        }
+    }
+
+    @Test
+    public void loggedSymbolsKeepTheirNames() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("traces.log");
+        try (TraceLog log = TraceLog.create(path)) {
+            TraceBuffer buffer = new TraceBuffer(log.getSymbols());
+            buffer.start("äö");
+            buffer.add("in put", 1.5, true, "ü");
+            log.append(buffer);
+        }
+        ResetTimedTrace trace = readAll(path).get(0);
+        assertEquals("äö", trace.getFirstOutput().getOutput().getSymbol());
+        assertEquals("in put", trace.getTrace().get(0).left.getInput().getSymbol());
+        assertEquals(1.5, trace.getTrace().get(0).left.getClockVal(), 0);
+        assertTrue(trace.getTrace().get(0).right.isReset());
+        assertEquals("ü", trace.getTrace().get(0).right.getOutput().getSymbol());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void buffersWithOtherSymbolsAreRejected() throws IOException {
+        try (TraceLog log = TraceLog.create(folder.getRoot().toPath().resolve("traces.log"))) {
+            TraceBuffer buffer = new TraceBuffer(new SymbolTable<>());
+            buffer.start("x");
+            log.append(buffer);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void otherFilesAreRejected() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("other.txt");
+        Files.write(path, "not a trace log".getBytes());
+        TraceLog.read(path).close();
+    }
+
+    @Test
+    public void truncatedLogsAreReported() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("traces.log");
+        try (TraceLog log = TraceLog.create(path)) {
+            append(log, new TraceBuffer(log.getSymbols()), new Random(3), 4);
+        }
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+        try (TraceLog.Reader reader = TraceLog.read(path)) {
+            reader.hasNext();
+            fail("Truncated log was read");
+        } catch (UncheckedIOException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void clockValuesOutOfRangeAreReported() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("traces.log");
+        try (TraceLog log = TraceLog.create(path)) {
+            TraceBuffer buffer = new TraceBuffer(log.getSymbols());
+            buffer.start("x");
+            buffer.add("a", 1.0, false, "y");
+            log.append(buffer);
+        }
+        byte[] bytes = Files.readAllBytes(path);
+        // the clock value is followed by the output id of the only step
+        ByteBuffer.wrap(bytes).putDouble(bytes.length - Integer.BYTES - Double.BYTES, Double.NaN);
+        Files.write(path, bytes);
+        try (TraceLog.Reader reader = TraceLog.read(path)) {
+            reader.hasNext();
+            fail("Clock value was read");
+        } catch (UncheckedIOException e) {
+            assertTrue(e.getCause().getMessage().contains("clock value"));
+        }
+    }
+
+    private static ResetTimedTrace append(TraceLog log, TraceBuffer buffer, Random random, int length) throws IOException {
+        buffer.start(OUTPUTS[random.nextInt(OUTPUTS.length)]);
+        for (int i = 0; i < length; i++) {
+            buffer.add(INPUTS[random.nextInt(INPUTS.length)], random.nextInt(5000) / 1000.0, random.nextBoolean(),
+                    OUTPUTS[random.nextInt(OUTPUTS.length)]);
+        }
+        log.append(buffer);
+        return buffer.toTrace();
+    }
+
+    private static List<ResetTimedTrace> readAll(Path path) throws IOException {
+        List<ResetTimedTrace> traces = new ArrayList<>();
+        try (TraceLog.Reader reader = TraceLog.read(path)) {
+            reader.forEachRemaining(traces::add);
+        }
+        return traces;
+    }
+}
@@ -4,17 +4,26 @@ import java.util.HashMap;
 import java.util.Map;
 
 public class Frequencies<T> {
+    private final SymbolTable<T> table;
     private Map<T, FastImmPair<Integer, Double>> actualFrequencies;
+    // counts of actualFrequencies, null if they need to be recomputed
+    private FrequencyVector<T> counts = null;
 
     public void put(T key, Integer frequency) {
+        counts = null;
         actualFrequencies.put(key, FastImmPair.of(frequency, null));
     }
 
-    public Frequencies() {
+    /**
+     * @param table ids of the counted symbols, shared with the vectors the counts are compared to
+     */
+    public Frequencies(SymbolTable<T> table) {
+        this.table = table;
         actualFrequencies = new HashMap<>();
     }
 
-    public Frequencies(Map<T, Integer> frequencies) {
+    public Frequencies(Map<T, Integer> frequencies, SymbolTable<T> table) {
+        this.table = table;
         actualFrequencies = new HashMap<>();
         for (Map.Entry<T, Integer> entry :
                 frequencies.entrySet()) {
@@ -23,16 +32,25 @@ public class Frequencies<T> {
     }
 
     public Map<T, FastImmPair<Integer, Double>> getActualFrequencies() {
+        // the map may be modified by the caller
+        counts = null;
         return actualFrequencies;
     }
 
-    public Map<T, Integer> getFrequencies() {
-        Map<T, Integer> frequencies = new HashMap<>();
-        for (Map.Entry<T, FastImmPair<Integer, Double>> entry :
-                actualFrequencies.entrySet()) {
-            frequencies.put(entry.getKey(), entry.getValue().left);
+    /**
+     * Counts of all entries, the returned vector must not be modified.
+     */
+    public FrequencyVector<T> getFrequencies() {
+        if (counts == null) {
+            FrequencyVector<T> frequencies = new FrequencyVector<>(table);
+            for (Map.Entry<T, FastImmPair<Integer, Double>> entry :
+                    actualFrequencies.entrySet()) {
+                if (entry.getValue().left != null)
+                    frequencies.add(entry.getKey(), entry.getValue().left);
+            }
+            counts = frequencies;
         }
-        return frequencies;
+        return counts;
     }
 
     public Map<T, Double> getActualProbability() {
@@ -45,6 +63,7 @@ public class Frequencies<T> {
     }
 
     public void setActualFrequencies(Map<T, Integer> frequencies) {
+        counts = null;
         actualFrequencies = new HashMap<>();
         for (Map.Entry<T, Integer> entry :
                 frequencies.entrySet()) {
@@ -54,8 +73,8 @@ public class Frequencies<T> {
 
     public void setDistribution() {
         if (actualFrequencies.values().iterator().next().right == null) {
-            Map<T, Integer> frequencies = getFrequencies();
-            int nrObservationsOverall = frequencies.values().stream().mapToInt(Integer::intValue).sum();
+            FrequencyVector<T> frequencies = getFrequencies();
+            int nrObservationsOverall = frequencies.getTotal();
             for (Map.Entry<T, Integer> entry : frequencies.entrySet()) {
                 actualFrequencies.put(entry.getKey(), FastImmPair.of(entry.getValue(), (double) entry.getValue() / nrObservationsOverall));
             }
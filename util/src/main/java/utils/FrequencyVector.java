@@ -0,0 +1,171 @@
+package utils;
+
+import java.util.*;
+
+/**
+ * Multiset of symbols stored as an <code>int[]</code> of counts indexed by the ids of a
+ * shared {@link SymbolTable}, together with the total number of observations. Vectors over
+ * the same table can be compared element-wise without hashing or boxing.
+ *
+ * <p>The vector can be used as a read-only <code>Map</code> from symbols to counts. Its
+ * entries are iterated in the order of their ids, i.e. in the order in which the symbols were
+ * first seen by the table, which is the same for all vectors over the table.
+ */
+public class FrequencyVector<T> extends AbstractMap<T, Integer> {
+    private static final int[] EMPTY = new int[0];
+
+    private final SymbolTable<T> table;
+    private int[] counts = EMPTY;
+    // ids of the symbols with non-zero count in ascending order
+    private int[] order = EMPTY;
+    private int support = 0;
+    private int total = 0;
+
+    public FrequencyVector(SymbolTable<T> table) {
+        this.table = table;
+    }
+
+    public static <T> FrequencyVector<T> copyOf(Map<? extends T, Integer> frequencies, SymbolTable<T> table) {
+        if (frequencies instanceof FrequencyVector && ((FrequencyVector<?>) frequencies).table == table) {
+            @SuppressWarnings("unchecked")
+            FrequencyVector<T> vector = (FrequencyVector<T>) frequencies;
+            return vector.copy();
+        }
+        FrequencyVector<T> vector = new FrequencyVector<>(table);
+        for (Map.Entry<? extends T, Integer> entry : frequencies.entrySet()) {
+            vector.add(entry.getKey(), entry.getValue());
+        }
+        return vector;
+    }
+
+    public FrequencyVector<T> copy() {
+        FrequencyVector<T> copy = new FrequencyVector<>(table);
+        copy.counts = counts.clone();
+        copy.order = Arrays.copyOf(order, support);
+        copy.support = support;
+        copy.total = total;
+        return copy;
+    }
+
+    public void increment(T symbol) {
+        add(symbol, 1);
+    }
+
+    public void add(T symbol, int count) {
+        int id = table.id(symbol);
+        if (id >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(id + 1, 2 * counts.length));
+        }
+        if (counts[id] == 0 && count != 0) {
+            if (support == order.length) {
+                order = Arrays.copyOf(order, Math.max(4, 2 * support));
+            }
+            // vectors only have a handful of entries, so they are kept sorted by insertion
+            int i = support++;
+            while (i > 0 && order[i - 1] > id) {
+                order[i] = order[i - 1];
+                i--;
+            }
+            order[i] = id;
+        }
+        counts[id] += count;
+        total += count;
+    }
+
+    public int count(int id) {
+        return id < counts.length ? counts[id] : 0;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public SymbolTable<T> getTable() {
+        return table;
+    }
+
+    /**
+     * Number of symbols observed in this or the other vector.
+     */
+    public int unionSize(FrequencyVector<?> other) {
+        if (other.table != table) {
+            Set<Object> keys = new HashSet<>(keySet());
+            keys.addAll(other.keySet());
+            return keys.size();
+        }
+        int union = support;
+        for (int i = 0; i < other.support; i++) {
+            if (count(other.order[i]) == 0)
+                union++;
+        }
+        return union;
+    }
+
+    /**
+     * Whether both vectors count symbols of the same table, so they can be compared by id.
+     */
+    public boolean sharesTable(FrequencyVector<?> other) {
+        return other.table == table;
+    }
+
+    /**
+     * Length of the id range which may contain non-zero counts in this or the other vector.
+     */
+    public int idBound(FrequencyVector<?> other) {
+        return Math.max(counts.length, other.counts.length);
+    }
+
+    @Override
+    public int size() {
+        return support;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return support == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int id = table.idIfPresent(key);
+        return id >= 0 && count(id) != 0;
+    }
+
+    @Override
+    public Integer get(Object key) {
+        int id = table.idIfPresent(key);
+        if (id < 0 || count(id) == 0)
+            return null;
+        return counts[id];
+    }
+
+    @Override
+    public Set<Map.Entry<T, Integer>> entrySet() {
+        return new AbstractSet<Map.Entry<T, Integer>>() {
+            @Override
+            public Iterator<Map.Entry<T, Integer>> iterator() {
+                return new Iterator<Map.Entry<T, Integer>>() {
+                    private int next = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < support;
+                    }
+
+                    @Override
+                    public Map.Entry<T, Integer> next() {
+                        if (next >= support)
+                            throw new NoSuchElementException();
+                        int id = order[next++];
+                        return new AbstractMap.SimpleImmutableEntry<>(table.symbol(id), counts[id]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return support;
+            }
+        };
+    }
+}
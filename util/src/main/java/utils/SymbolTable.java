@@ -0,0 +1,51 @@
+package utils;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns dense integer ids to symbols in the order in which they are first seen. Ids are
+ * never reused, so they can be used as array indices by all vectors sharing the table.
+ */
+public class SymbolTable<T> {
+    private final Map<T, Integer> ids = new ConcurrentHashMap<>();
+    private volatile Object[] symbols = new Object[16];
+    private volatile int size = 0;
+
+    public int id(T symbol) {
+        Integer id = ids.get(symbol);
+        if (id != null)
+            return id;
+        synchronized (this) {
+            id = ids.get(symbol);
+            if (id != null)
+                return id;
+            if (size == symbols.length) {
+                symbols = Arrays.copyOf(symbols, size * 2);
+            }
+            symbols[size] = symbol;
+            // publish the symbol before its id
+            size = size + 1;
+            ids.put(symbol, size - 1);
+            return size - 1;
+        }
+    }
+
+    /**
+     * @return the id of the symbol or -1 if it has not been assigned an id yet
+     */
+    public int idIfPresent(Object symbol) {
+        Integer id = ids.get(symbol);
+        return id == null ? -1 : id;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T symbol(int id) {
+        return (T) symbols[id];
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,93 @@
+package utils;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class FrequencyVectorTest {
+    private static final String[] SYMBOLS = {"a", "b", "c", "d", "e", "f", "g", "h"};
+
+    @Test
+    public void vectorsCountLikeMaps() {
+        Random random = new Random(1);
+        for (int n = 0; n < 200; n++) {
+            SymbolTable<String> table = new SymbolTable<>();
+            FrequencyVector<String> vector = new FrequencyVector<>(table);
+            Map<String, Integer> expected = new HashMap<>();
+            for (int i = random.nextInt(30); i > 0; i--) {
+                String symbol = SYMBOLS[random.nextInt(SYMBOLS.length)];
+                int count = 1 + random.nextInt(3);
+                vector.add(symbol, count);
+                expected.merge(symbol, count, Integer::sum);
+            }
+            assertEquals(expected, vector);
+            assertEquals(expected.size(), vector.size());
+            assertEquals(expected.values().stream().mapToInt(Integer::intValue).sum(), vector.getTotal());
+            for (String symbol : SYMBOLS) {
+                assertEquals(expected.get(symbol), vector.get(symbol));
+                assertEquals(expected.containsKey(symbol), vector.containsKey(symbol));
+            }
+        }
+    }
+
+    @Test
+    public void entriesAreIteratedInTheOrderOfTheirIds() {
+        SymbolTable<String> table = new SymbolTable<>();
+        FrequencyVector<String> first = new FrequencyVector<>(table);
+        first.increment("z");
+        first.increment("y");
+        first.increment("x");
+        FrequencyVector<String> second = new FrequencyVector<>(table);
+        second.increment("x");
+        second.increment("w");
+        second.increment("z");
+
+        assertEquals(Arrays.asList("z", "y", "x"), new ArrayList<>(first.keySet()));
+        assertEquals(Arrays.asList("z", "x", "w"), new ArrayList<>(second.keySet()));
+    }
+
+    @Test
+    public void copiesAreIndependent() {
+        SymbolTable<String> table = new SymbolTable<>();
+        FrequencyVector<String> vector = new FrequencyVector<>(table);
+        vector.add("a", 2);
+        FrequencyVector<String> copy = vector.copy();
+        copy.increment("a");
+        copy.increment("b");
+        assertEquals(Collections.singletonMap("a", 2), vector);
+        assertEquals(2, vector.getTotal());
+        assertEquals(4, copy.getTotal());
+
+        Map<String, Integer> map = new LinkedHashMap<>();
+        map.put("b", 1);
+        map.put("c", 5);
+        FrequencyVector<String> copied = FrequencyVector.copyOf(map, table);
+        assertEquals(map, copied);
+        assertEquals(6, copied.getTotal());
+        assertNotSame(vector, FrequencyVector.copyOf(vector, table));
+        assertEquals(vector, FrequencyVector.copyOf(vector, new SymbolTable<>()));
+    }
+
+    @Test
+    public void unionsAreCountedWithinAndAcrossTables() {
+        Random random = new Random(2);
+        SymbolTable<String> table = new SymbolTable<>();
+        for (int n = 0; n < 200; n++) {
+            FrequencyVector<String> first = randomVector(random, table);
+            FrequencyVector<String> second = randomVector(random, random.nextBoolean() ? table : new SymbolTable<>());
+            Set<String> union = new HashSet<>(first.keySet());
+            union.addAll(second.keySet());
+            assertEquals(union.size(), first.unionSize(second));
+            assertEquals(union.size(), second.unionSize(first));
+        }
+    }
+
+    private static FrequencyVector<String> randomVector(Random random, SymbolTable<String> table) {
+        FrequencyVector<String> vector = new FrequencyVector<>(table);
+        for (int i = random.nextInt(6); i > 0; i--)
+            vector.increment(SYMBOLS[random.nextInt(SYMBOLS.length)]);
+        return vector;
+    }
+}